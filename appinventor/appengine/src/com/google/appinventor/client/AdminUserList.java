@@ -28,6 +28,7 @@ import com.google.gwt.user.client.ui.Widget;
 import com.google.appinventor.client.widgets.LabeledTextBox;
 import com.google.appinventor.shared.rpc.AdminInterfaceException;
 import com.google.appinventor.shared.rpc.admin.AdminUser;
+import com.google.appinventor.shared.rpc.admin.AuthStats;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -113,6 +114,24 @@ public class AdminUserList extends Composite {
         }
       });
     searchPanel.add(addUserButton);
+    Button authStatsButton = new Button("Authentication Statistics");
+    final Label authStatsLabel = new Label("");
+    authStatsButton.addClickListener(new ClickListener() {
+        @Override
+        public void onClick(Widget sender) {
+          Ode.getInstance().getAdminInfoService().getAuthStats(new OdeAsyncCallback<AuthStats>("Oops") {
+              @Override
+              public void onSuccess(AuthStats stats) {
+                authStatsLabel.setText("This server: sessions " + stats.getSessionHits() + "/"
+                  + stats.getSessionLookups() + " cached, mean " + stats.getSessionMeanMicros()
+                  + " us, max " + stats.getSessionMaxMicros() + " us; users "
+                  + stats.getUserHits() + "/" + stats.getUserLookups() + " cached, mean "
+                  + stats.getUserMeanMicros() + " us, max " + stats.getUserMaxMicros() + " us");
+              }
+            });
+        }
+      });
+    searchPanel.add(authStatsButton);
 
     searchButton.addClickListener(new ClickListener() {
         @Override
@@ -125,6 +144,7 @@ public class AdminUserList extends Composite {
     panel.setWidth("100%");
 
     panel.add(searchPanel);
+    panel.add(authStatsLabel);
     panel.add(table);
     Button dismissButton = new Button("Dismiss");
     dismissButton.addClickListener(new ClickListener() {
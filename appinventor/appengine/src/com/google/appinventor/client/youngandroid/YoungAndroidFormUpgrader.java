@@ -248,15 +248,27 @@ public final class YoungAndroidFormUpgrader {
       } else if (componentType.equals("Canvas")) {
         srcCompVersion = upgradeCanvasProperties(componentProperties, srcCompVersion);
 
+      } else if (componentType.equals("Chart")) {
+        srcCompVersion = upgradeChartProperties(componentProperties, srcCompVersion);
+
+      } else if (componentType.equals("ChartData2D")) {
+        srcCompVersion = upgradeChartData2DProperties(componentProperties, srcCompVersion);
+
       } else if (componentType.equals("CheckBox")) {
         srcCompVersion = upgradeCheckBoxProperties(componentProperties, srcCompVersion);
 
       } else if (componentType.equals("Clock")) {
         srcCompVersion = upgradeClockProperties(componentProperties, srcCompVersion);
 
+      } else if (componentType.equals("CloudDB")) {
+        srcCompVersion = upgradeCloudDBProperties(componentProperties, srcCompVersion);
+
       } else if (componentType.equals("ContactPicker")) {
         srcCompVersion = upgradeContactPickerProperties(componentProperties, srcCompVersion);
 
+      } else if (componentType.equals("DataFile")) {
+        srcCompVersion = upgradeDataFileProperties(componentProperties, srcCompVersion);
+
       } else if (componentType.equals("DatePicker")) {
         srcCompVersion = upgradeDatePickerProperties(componentProperties, srcCompVersion);
 
@@ -384,6 +396,22 @@ public final class YoungAndroidFormUpgrader {
         srcCompVersion = upgradeFeatureCollection(componentProperties, srcCompVersion);
       } else if (componentType.equals("YandexTranslate")) {
         srcCompVersion = upgradeYandexTranslateProperties(componentProperties, srcCompVersion);
+      } else if (componentType.equals("Serial")) {
+        srcCompVersion = upgradeSerialProperties(componentProperties, srcCompVersion);
+      } else if (componentType.equals("LdpCoapClient")) {
+        srcCompVersion = upgradeLdpCoapClientProperties(componentProperties, srcCompVersion);
+      } else if (componentType.equals("GyroscopeSensor")) {
+        srcCompVersion = upgradeGyroscopeSensorProperties(componentProperties, srcCompVersion);
+      } else if (componentType.equals("MagneticFieldSensor")) {
+        srcCompVersion = upgradeMagneticFieldSensorProperties(componentProperties, srcCompVersion);
+      } else if (componentType.equals("Barometer") || componentType.equals("Hygrometer")
+          || componentType.equals("LightSensor") || componentType.equals("Thermometer")) {
+        srcCompVersion = upgradeSingleValueSensorProperties(componentProperties, srcCompVersion);
+      } else if (componentType.equals("GraphQL")) {
+        srcCompVersion = upgradeGraphQLProperties(componentProperties, srcCompVersion);
+      } else if (componentType.equals("LinkedDataStreamingClient")) {
+        srcCompVersion = upgradeLinkedDataStreamingClientProperties(componentProperties,
+            srcCompVersion);
       }
 
       if (srcCompVersion < sysCompVersion) {
@@ -451,6 +479,12 @@ public final class YoungAndroidFormUpgrader {
       // No properties need to be modified to upgrade to version 4.
       srcCompVersion = 4;
     }
+    if (srcCompVersion < 5) {
+      // The BatchSize, BatchLatency, Decimation and AverageDecimated properties and the
+      // SamplesReceived event were added.
+      // No properties need to be modified to upgrade to version 5.
+      srcCompVersion = 5;
+    }
     return srcCompVersion;
   }
 
@@ -571,6 +605,17 @@ public final class YoungAndroidFormUpgrader {
       // No properties need to be modified to upgrade to version 6.
       srcCompVersion = 6;
     }
+    if (srcCompVersion < 7) {
+      // The BluetoothClient.PollingRate property was added.
+      // No properties need to be modified to upgrade to version 7.
+      srcCompVersion = 7;
+    }
+    if (srcCompVersion < 8) {
+      // The ReceiveInBackground, ReceiveBufferSize, ReceiveBatchSize and ReceiveOverflowCount
+      // properties and the DataReceived event were added.
+      // No properties need to be modified to upgrade to version 8.
+      srcCompVersion = 8;
+    }
     return srcCompVersion;
   }
 
@@ -597,8 +642,26 @@ public final class YoungAndroidFormUpgrader {
       // No properties need to be modified to upgrade to version 5.
       srcCompVersion = 5;
     }
+    if (srcCompVersion < 6) {
+      // The ReceiveInBackground, ReceiveBufferSize, ReceiveBatchSize and ReceiveOverflowCount
+      // properties and the DataReceived event were added.
+      // No properties need to be modified to upgrade to version 6.
+      srcCompVersion = 6;
+    }
     return srcCompVersion;
   }
+
+  private static int upgradeSerialProperties(Map<String, JSONValue> componentProperties,
+      int srcCompVersion) {
+    if (srcCompVersion < 2) {
+      // The ReceiveInBackground, ReceiveBufferSize, ReceiveBatchSize, DelimiterByte and
+      // ReceiveOverflowCount properties and the DataReceived event were added.
+      // No properties need to be modified to upgrade to version 2.
+      srcCompVersion = 2;
+    }
+    return srcCompVersion;
+  }
+
   private static int upgradeSliderProperties(Map<String, JSONValue> componentProperties,
       int srcCompVersion) {
     if (srcCompVersion < 1) {
@@ -755,6 +818,26 @@ public final class YoungAndroidFormUpgrader {
     return srcCompVersion;
   }
 
+  private static int upgradeChartProperties(Map<String, JSONValue> componentProperties,
+      int srcCompVersion) {
+    if (srcCompVersion < 2) {
+      // The LevelOfDetail property was added.
+      // No properties need to be modified to upgrade to version 2.
+      srcCompVersion = 2;
+    }
+    return srcCompVersion;
+  }
+
+  private static int upgradeChartData2DProperties(Map<String, JSONValue> componentProperties,
+      int srcCompVersion) {
+    if (srcCompVersion < 2) {
+      // The ImportProgress event was added.
+      // No properties need to be modified to upgrade to version 2.
+      srcCompVersion = 2;
+    }
+    return srcCompVersion;
+  }
+
   private static int upgradeCheckBoxProperties(Map<String, JSONValue> componentProperties,
       int srcCompVersion) {
     if (srcCompVersion < 2) {
@@ -780,6 +863,16 @@ public final class YoungAndroidFormUpgrader {
     return srcCompVersion;
   }
 
+  private static int upgradeCloudDBProperties(Map<String, JSONValue> componentProperties,
+      int srcCompVersion) {
+    if (srcCompVersion < 2) {
+      // The Pipelined, ReadConnections, PendingStores and RoundTripTime properties were added.
+      // No properties need to be modified to upgrade to version 2.
+      srcCompVersion = 2;
+    }
+    return srcCompVersion;
+  }
+
   private static int upgradeContactPickerProperties(Map<String, JSONValue> componentProperties,
       int srcCompVersion) {
     if (srcCompVersion < 2) {
@@ -810,6 +903,16 @@ public final class YoungAndroidFormUpgrader {
     return srcCompVersion;
   }
 
+  private static int upgradeDataFileProperties(Map<String, JSONValue> componentProperties,
+      int srcCompVersion) {
+    if (srcCompVersion < 2) {
+      // The ReadFileColumns method was added.
+      // No properties need to be modified to upgrade to version 2.
+      srcCompVersion = 2;
+    }
+    return srcCompVersion;
+  }
+
   private static int upgradeDatePickerProperties(Map<String, JSONValue> componentProperties,
       int srcCompVersion) {
     if (srcCompVersion < 2) {
@@ -1054,6 +1157,17 @@ public final class YoungAndroidFormUpgrader {
       srcCompVersion = 27;
     }
 
+    if (srcCompVersion < 28) {
+      // EventDispatchCount and EventDispatchTime blocks were added.
+      srcCompVersion = 28;
+    }
+
+    if (srcCompVersion < 29) {
+      // DeferHiddenComponents designer property was added.
+      // StartupTime and StartupTrace blocks were added.
+      srcCompVersion = 29;
+    }
+
     return srcCompVersion;
   }
 
@@ -1379,6 +1493,11 @@ public final class YoungAndroidFormUpgrader {
       componentProperties.remove("BaseURL");
       srcCompVersion = 3;
     }
+    if (srcCompVersion < 4) {
+      // The UpdateDataFromLinkedDataForm and UpdateDataOnWeb methods were added.
+      // No properties need to be modified to upgrade to version 4.
+      srcCompVersion = 4;
+    }
     return srcCompVersion;
   }
 
@@ -1408,6 +1527,12 @@ public final class YoungAndroidFormUpgrader {
       srcCompVersion = 3;
     }
 
+    if (srcCompVersion < 4) {
+      // The PageSize and UseCache properties and the ClearCache method were added.
+      // No properties need to be modified to upgrade to version 4.
+      srcCompVersion = 4;
+    }
+
     return srcCompVersion;
   }
 
@@ -1480,6 +1605,11 @@ public final class YoungAndroidFormUpgrader {
       // Added Property: Namespace
       srcCompVersion = 2;
     }
+    if (srcCompVersion < 3) {
+      // Added Property: BackgroundWrites and Method: StoreValues
+      // No properties need to be modified to upgrade to version 3.
+      srcCompVersion = 3;
+    }
     return srcCompVersion;
   }
 
@@ -1761,6 +1891,19 @@ public final class YoungAndroidFormUpgrader {
       // The ScaleUnits and ShowScale properties were added
       srcCompVersion = 5;
     }
+    if (srcCompVersion < 6) {
+      // The ClusterMarkers and CullFeatures properties were added with default False
+      srcCompVersion = 6;
+    }
+    if (srcCompVersion < 7) {
+      // The StreamFromURL method, FilterBounds property, and GotFeatureBatch and FeaturesLoaded
+      // events were added
+      srcCompVersion = 7;
+    }
+    if (srcCompVersion < 8) {
+      // The FeaturesWithinDistance and FeaturesInBoundingBox methods were added
+      srcCompVersion = 8;
+    }
     return srcCompVersion;
   }
   
@@ -1825,6 +1968,17 @@ public final class YoungAndroidFormUpgrader {
       // The GotGeoJSON and GeoJSONError events were renamed in the blocks editor.
       srcCompVersion = 2;
     }
+    if (srcCompVersion < 3) {
+      // Version 3
+      // The StreamFromURL method, FilterBounds property, and GotFeatureBatch and FeaturesLoaded
+      // events were added
+      srcCompVersion = 3;
+    }
+    if (srcCompVersion < 4) {
+      // Version 4
+      // The FeaturesWithinDistance and FeaturesInBoundingBox methods were added
+      srcCompVersion = 4;
+    }
     return srcCompVersion;
   }
 
@@ -1838,6 +1992,76 @@ public final class YoungAndroidFormUpgrader {
     return srcCompVersion;
   }
 
+  private static int upgradeLdpCoapClientProperties(Map<String, JSONValue> componentProperties,
+      int srcCompVersion) {
+    if (srcCompVersion < 2) {
+      // The Asynchronous and BlockSize properties, the Observe, StopObserving and
+      // StopObservingAll methods and the ResponseReceived and ResourceChanged events were added.
+      // No properties need to be modified to upgrade to version 2.
+      srcCompVersion = 2;
+    }
+    return srcCompVersion;
+  }
+
+  private static int upgradeGyroscopeSensorProperties(Map<String, JSONValue> componentProperties,
+      int srcCompVersion) {
+    if (srcCompVersion < 2) {
+      // The BatchSize, BatchLatency, Decimation and AverageDecimated properties and the
+      // SamplesReceived event were added.
+      // No properties need to be modified to upgrade to version 2.
+      srcCompVersion = 2;
+    }
+    return srcCompVersion;
+  }
+
+  private static int upgradeMagneticFieldSensorProperties(
+      Map<String, JSONValue> componentProperties, int srcCompVersion) {
+    if (srcCompVersion < 2) {
+      // The BatchSize, BatchLatency, Decimation and AverageDecimated properties and the
+      // SamplesReceived event were added.
+      // No properties need to be modified to upgrade to version 2.
+      srcCompVersion = 2;
+    }
+    return srcCompVersion;
+  }
+
+  /*
+   * Upgrades the Barometer, Hygrometer, LightSensor and Thermometer, which share their
+   * properties through SingleValueSensor.
+   */
+  private static int upgradeSingleValueSensorProperties(
+      Map<String, JSONValue> componentProperties, int srcCompVersion) {
+    if (srcCompVersion < 2) {
+      // The BatchSize, BatchLatency, Decimation and AverageDecimated properties and the
+      // SamplesReceived event were added.
+      // No properties need to be modified to upgrade to version 2.
+      srcCompVersion = 2;
+    }
+    return srcCompVersion;
+  }
+
+  private static int upgradeGraphQLProperties(Map<String, JSONValue> componentProperties,
+      int srcCompVersion) {
+    if (srcCompVersion < 2) {
+      // The GqlBatching, GqlPersistedQueries and GqlCaching properties and the GqlClearCache
+      // method were added.
+      // No properties need to be modified to upgrade to version 2.
+      srcCompVersion = 2;
+    }
+    return srcCompVersion;
+  }
+
+  private static int upgradeLinkedDataStreamingClientProperties(
+      Map<String, JSONValue> componentProperties, int srcCompVersion) {
+    if (srcCompVersion < 2) {
+      // The RegisterStreamQuery, UnregisterStreamQuery, AddTripleToStream, AddTriplesToStream
+      // and FeedLinkedDataToStream methods and the StreamQueryResults event were added.
+      // No properties need to be modified to upgrade to version 2.
+      srcCompVersion = 2;
+    }
+    return srcCompVersion;
+  }
+
   private static void handlePropertyRename(Map<String, JSONValue> componentProperties,
       String oldPropName, String newPropName) {
     if (componentProperties.containsKey(oldPropName)) {
@@ -20,6 +20,7 @@ import com.google.appinventor.shared.rpc.AdminInterfaceException;
 import com.google.appinventor.shared.rpc.user.Config;
 import com.google.appinventor.shared.rpc.admin.AdminUser;
 import com.google.appinventor.shared.rpc.admin.AdminInfoService;
+import com.google.appinventor.shared.rpc.admin.AuthStats;
 import com.google.appinventor.server.util.PasswordHash;
 
 /**
@@ -67,6 +68,9 @@ public class AdminInfoServiceImpl extends OdeRemoteServiceServlet implements Adm
       }
     }
     storageIo.storeUser(user);
+    if (user.getId() != null) {
+      AuthCache.getInstance().invalidateUser(user.getId());
+    }
   }
 
   @Override
@@ -95,4 +99,12 @@ public class AdminInfoServiceImpl extends OdeRemoteServiceServlet implements Adm
     getThreadLocalResponse().addCookie(cook);
 
   }
+
+  @Override
+  public AuthStats getAuthStats() {
+    if (!userInfoProvider.getIsAdmin()) {
+      throw new IllegalArgumentException("Unauthorized.");
+    }
+    return AuthCache.getInstance().getStats();
+  }
 }
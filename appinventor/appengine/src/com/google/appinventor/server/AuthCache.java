@@ -0,0 +1,228 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.server;
+
+import com.google.appinventor.server.flags.Flag;
+import com.google.appinventor.shared.rpc.admin.AuthStats;
+import com.google.appinventor.shared.rpc.user.User;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * A short-lived cache of the sessions and users seen by this server, used by
+ * {@link OdeAuthFilter} so that the frequent requests of a client, such as
+ * auto-saves and build progress polls, do not each decrypt the
+ * authentication cookie and look up the user.
+ *
+ * A session is remembered under a SHA-256 digest of its cookie, and only
+ * after the cookie has been decrypted, so the cache never holds a cookie
+ * and cannot be made to hold a session that the server did not issue. The
+ * timestamp of a remembered session is still checked on every request.
+ *
+ * Users are remembered by id, and only once they have accepted the terms of
+ * service. Changes to a user made through this server remove it from the
+ * cache with {@link #invalidateUser}. Changes made through other servers are
+ * seen once the entry expires, after {@code session.cache.seconds}.
+ *
+ * The cache counts its lookups and their latency, which are shown in the
+ * admin interface.
+ */
+public class AuthCache {
+
+  private static final Logger LOG = Logger.getLogger(AuthCache.class.getName());
+
+  // How long sessions and users are remembered, in seconds. Zero turns the cache off.
+  @VisibleForTesting
+  static final Flag<Integer> cacheSeconds = Flag.createFlag("session.cache.seconds", 10);
+
+  // The number of sessions, and of users, that are remembered
+  private static final int CACHE_SIZE = 1000;
+
+  // The number of lookups between logging the statistics
+  private static final int STATS_INTERVAL = 10000;
+
+  private static final AuthCache INSTANCE = new AuthCache();
+
+  private static class Entry<T> {
+    final T value;
+    final long expires;
+
+    Entry(T value, long expires) {
+      this.value = value;
+      this.expires = expires;
+    }
+  }
+
+  private final Map<String, Entry<OdeAuthFilter.UserInfo>> sessions = newCache();
+  private final Map<String, Entry<User>> users = newCache();
+
+  // Lookup statistics
+  private final Stats sessionStats = new Stats("Session");
+  private final Stats userStats = new Stats("User");
+
+  @VisibleForTesting
+  AuthCache() {
+  }
+
+  public static AuthCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the session of an authentication cookie, or null if it is not
+   * remembered.
+   */
+  public OdeAuthFilter.UserInfo getSession(String cookie) {
+    OdeAuthFilter.UserInfo userInfo = get(sessions, digest(cookie));
+    return userInfo == null ? null : userInfo.copy();
+  }
+
+  /**
+   * Remembers the session of an authentication cookie that has been
+   * decrypted.
+   */
+  public void putSession(String cookie, OdeAuthFilter.UserInfo userInfo) {
+    put(sessions, digest(cookie), userInfo.copy());
+  }
+
+  /**
+   * Returns a copy of a user, or null if it is not remembered.
+   */
+  public User getUser(String userId) {
+    User user = get(users, userId);
+    return user == null ? null : user.copy();
+  }
+
+  /**
+   * Remembers a copy of a user, if the user has accepted the terms of service.
+   */
+  public void putUser(User user) {
+    if (user.getUserTosAccepted()) {
+      put(users, user.getUserId(), user.copy());
+    }
+  }
+
+  /**
+   * Forgets a user, after the stored user has been changed.
+   */
+  public void invalidateUser(String userId) {
+    synchronized (users) {
+      users.remove(userId);
+    }
+  }
+
+  /**
+   * Records the time taken to find the session of a request.
+   */
+  public void recordSession(long nanos, boolean hit) {
+    sessionStats.record(nanos, hit);
+  }
+
+  /**
+   * Records the time taken to find the user of a request.
+   */
+  public void recordUser(long nanos, boolean hit) {
+    userStats.record(nanos, hit);
+  }
+
+  /**
+   * Returns the statistics of the cache since this server started.
+   */
+  public AuthStats getStats() {
+    synchronized (sessionStats) {
+      synchronized (userStats) {
+        return new AuthStats(sessionStats.lookups, sessionStats.hits,
+            sessionStats.getMeanMicros(), sessionStats.maxNanos / 1000,
+            userStats.lookups, userStats.hits, userStats.getMeanMicros(),
+            userStats.maxNanos / 1000);
+      }
+    }
+  }
+
+  private <T> T get(Map<String, Entry<T>> cache, String key) {
+    synchronized (cache) {
+      Entry<T> entry = cache.get(key);
+      if (entry == null) {
+        return null;
+      }
+      if (entry.expires <= System.currentTimeMillis()) {
+        cache.remove(key);
+        return null;
+      }
+      return entry.value;
+    }
+  }
+
+  private <T> void put(Map<String, Entry<T>> cache, String key, T value) {
+    int seconds = cacheSeconds.get();
+    if (seconds <= 0) {
+      return;
+    }
+    synchronized (cache) {
+      cache.put(key, new Entry<T>(value, System.currentTimeMillis() + seconds * 1000L));
+    }
+  }
+
+  private static <T> Map<String, Entry<T>> newCache() {
+    return new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+        return size() > CACHE_SIZE;
+      }
+    };
+  }
+
+  private static String digest(String cookie) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256")
+          .digest(cookie.getBytes(StandardCharsets.UTF_8));
+      StringBuilder sb = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+        sb.append(Character.forDigit(b & 0xf, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);  // Every Java platform has SHA-256
+    }
+  }
+
+  private static class Stats {
+    final String name;
+    long lookups = 0;
+    long hits = 0;
+    long totalNanos = 0;
+    long maxNanos = 0;
+
+    Stats(String name) {
+      this.name = name;
+    }
+
+    synchronized void record(long nanos, boolean hit) {
+      lookups++;
+      if (hit) {
+        hits++;
+      }
+      totalNanos += nanos;
+      maxNanos = Math.max(maxNanos, nanos);
+      if (lookups % STATS_INTERVAL == 0) {
+        LOG.info(name + " lookups: " + lookups + ", cache hits: " + hits
+            + ", mean latency: " + getMeanMicros() + " us, max latency: "
+            + maxNanos / 1000 + " us");
+      }
+    }
+
+    synchronized long getMeanMicros() {
+      return lookups == 0 ? 0 : totalNanos / lookups / 1000;
+    }
+  }
+}
@@ -0,0 +1,218 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.server;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index of the properties that describe each class of an ontology, used
+ * to generate Linked Data forms.
+ *
+ * The properties of a class are those whose domain is the class or one of
+ * its superclasses, following {@code rdfs:subClassOf}. Domains and ranges
+ * are read from {@code rdfs:domain} and {@code rdfs:range}, including unions
+ * of classes, and from schema.org's {@code domainIncludes} and
+ * {@code rangeIncludes}.
+ *
+ * The domains, ranges and superclasses are read from the model when the
+ * index is created, and the properties of each class are computed the first
+ * time they are asked for and then kept. The index does not see later
+ * changes to the model, so a new index should be made whenever the
+ * ontologies change.
+ */
+public class ConceptIndex {
+
+  private static final String SCHEMA = "http://schema.org/";
+  private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+
+  private static final Set<String> NUMERIC_TYPES = new HashSet<String>(Arrays.asList(
+      XSD + "decimal", XSD + "integer", XSD + "int", XSD + "long", XSD + "short", XSD + "byte",
+      XSD + "double", XSD + "float", XSD + "nonNegativeInteger", XSD + "nonPositiveInteger",
+      XSD + "positiveInteger", XSD + "negativeInteger", XSD + "unsignedLong",
+      XSD + "unsignedInt", XSD + "unsignedShort", XSD + "unsignedByte",
+      SCHEMA + "Number", SCHEMA + "Integer", SCHEMA + "Float"));
+
+  /**
+   * A property of a class, with the classes or datatypes of its values.
+   */
+  public static class PropertyInfo {
+    private final String uri;
+    private final List<String> ranges;
+
+    PropertyInfo(String uri, List<String> ranges) {
+      this.uri = uri;
+      this.ranges = ranges;
+    }
+
+    public String getUri() {
+      return uri;
+    }
+
+    public List<String> getRanges() {
+      return ranges;
+    }
+
+    /**
+     * Returns true if every value of the property is a number.
+     */
+    public boolean isNumeric() {
+      return !ranges.isEmpty() && NUMERIC_TYPES.containsAll(ranges);
+    }
+  }
+
+  private final Map<String, Set<String>> superClasses = new HashMap<String, Set<String>>();
+  private final Map<String, Set<String>> domainProperties = new HashMap<String, Set<String>>();
+  private final Map<String, Set<String>> ranges = new HashMap<String, Set<String>>();
+  private final Set<String> classes = new HashSet<String>();
+
+  private final Map<String, List<PropertyInfo>> cache =
+      new ConcurrentHashMap<String, List<PropertyInfo>>();
+
+  public ConceptIndex(Model model) {
+    Property domainIncludes = model.createProperty(SCHEMA, "domainIncludes");
+    Property rangeIncludes = model.createProperty(SCHEMA, "rangeIncludes");
+    StmtIterator it = model.listStatements();
+    try {
+      while (it.hasNext()) {
+        Statement stmt = it.next();
+        Resource subject = stmt.getSubject();
+        Property predicate = stmt.getPredicate();
+        RDFNode object = stmt.getObject();
+        if (!subject.isURIResource() || !object.isResource()) {
+          continue;
+        }
+        if (predicate.equals(RDFS.subClassOf)) {
+          classes.add(subject.getURI());
+          for (String superClass : classes(object.asResource())) {
+            add(superClasses, subject.getURI(), superClass);
+          }
+        } else if (predicate.equals(RDFS.domain) || predicate.equals(domainIncludes)) {
+          for (String domain : classes(object.asResource())) {
+            add(domainProperties, domain, subject.getURI());
+          }
+        } else if (predicate.equals(RDFS.range) || predicate.equals(rangeIncludes)) {
+          for (String range : classes(object.asResource())) {
+            add(ranges, subject.getURI(), range);
+          }
+        } else if (predicate.equals(RDF.type)
+            && (object.equals(OWL.Class) || object.equals(RDFS.Class))) {
+          classes.add(subject.getURI());
+        }
+      }
+    } finally {
+      it.close();
+    }
+  }
+
+  /**
+   * Returns true if the ontologies describe the class.
+   */
+  public boolean contains(String concept) {
+    return classes.contains(concept) || domainProperties.containsKey(concept);
+  }
+
+  /**
+   * Returns the properties of a class. The properties whose domain is the
+   * class come first, followed by those inherited from each superclass in
+   * turn, nearest first, and are ordered by URI within each class.
+   */
+  public List<PropertyInfo> getProperties(String concept) {
+    List<PropertyInfo> result = cache.get(concept);
+    if (result == null) {
+      result = Collections.unmodifiableList(computeProperties(concept));
+      cache.put(concept, result);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the classes or datatypes of the values of a property, ordered by
+   * URI.
+   */
+  public List<String> getRanges(String property) {
+    Set<String> result = ranges.get(property);
+    return result == null ? Collections.<String>emptyList()
+        : Collections.unmodifiableList(new ArrayList<String>(result));
+  }
+
+  private List<PropertyInfo> computeProperties(String concept) {
+    Set<String> seen = new HashSet<String>();
+    List<PropertyInfo> result = new ArrayList<PropertyInfo>();
+    // Breadth first, so that nearer superclasses come first
+    Set<String> visited = new HashSet<String>();
+    Deque<String> queue = new ArrayDeque<String>();
+    queue.add(concept);
+    visited.add(concept);
+    while (!queue.isEmpty()) {
+      String current = queue.removeFirst();
+      Set<String> properties = domainProperties.get(current);
+      if (properties != null) {
+        for (String property : properties) {
+          if (seen.add(property)) {
+            result.add(new PropertyInfo(property, getRanges(property)));
+          }
+        }
+      }
+      Set<String> supers = superClasses.get(current);
+      if (supers != null) {
+        for (String superClass : supers) {
+          if (visited.add(superClass)) {
+            queue.add(superClass);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  // Returns the named classes of a domain or range, which may be a union
+  private static List<String> classes(Resource resource) {
+    List<String> result = new ArrayList<String>();
+    if (resource.isURIResource()) {
+      result.add(resource.getURI());
+    } else if (resource.hasProperty(OWL.unionOf)) {
+      Resource list = resource.getPropertyResourceValue(OWL.unionOf);
+      while (list != null && !list.equals(RDF.nil)) {
+        Resource member = list.getPropertyResourceValue(RDF.first);
+        if (member != null && member.isURIResource()) {
+          result.add(member.getURI());
+        }
+        list = list.getPropertyResourceValue(RDF.rest);
+      }
+    }
+    return result;
+  }
+
+  private static void add(Map<String, Set<String>> map, String key, String value) {
+    Set<String> values = map.get(key);
+    if (values == null) {
+      values = new TreeSet<String>();
+      map.put(key, values);
+    }
+    values.add(value);
+  }
+}
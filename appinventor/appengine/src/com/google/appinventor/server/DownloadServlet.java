@@ -22,6 +22,7 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.logging.Logger;
 
@@ -191,9 +192,10 @@ public class DownloadServlet extends OdeServlet {
           projectName = storageIo.getProjectName(projectUserId, projectId);
         } catch (NumberFormatException e) {
           // assume we got a name instead
-          for (Long pid : storageIo.getProjects(projectUserId)) {
-            if (storageIo.getProjectName(projectUserId, pid).equals(projectIdOrName)) {
-              projectId = pid;
+          for (Map.Entry<Long, String> entry :
+                 storageIo.getProjectNames(projectUserId).entrySet()) {
+            if (entry.getValue().equals(projectIdOrName)) {
+              projectId = entry.getKey();
             }
           }
           if (projectId == 0) {
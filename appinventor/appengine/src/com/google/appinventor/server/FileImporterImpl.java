@@ -9,19 +9,16 @@ package com.google.appinventor.server;
 import com.google.appinventor.common.utils.StringUtils;
 import com.google.appinventor.server.flags.Flag;
 import com.google.appinventor.server.project.youngandroid.YoungAndroidProjectService;
+import com.google.appinventor.server.storage.ProjectImport;
 import com.google.appinventor.server.storage.StorageIo;
 import com.google.appinventor.server.storage.StorageIoInstanceHolder;
 import com.google.appinventor.shared.rpc.UploadResponse;
 import com.google.appinventor.shared.rpc.project.Project;
-import com.google.appinventor.shared.rpc.project.RawFile;
-import com.google.appinventor.shared.rpc.project.TextFile;
 import com.google.appinventor.shared.rpc.project.UserProject;
 import com.google.appinventor.shared.rpc.project.youngandroid.YoungAndroidProjectNode;
 import com.google.appinventor.shared.storage.StorageUtil;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Function;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
 import com.google.common.io.ByteStreams;
 
 import java.io.BufferedInputStream;
@@ -50,6 +47,10 @@ public final class FileImporterImpl implements FileImporter {
   // Maximum size of an uploaded asset, in megabytes.
   private static final Flag<Float> maxAssetSizeMegs = Flag.createFlag("max.asset.size.megs", 9f);
 
+  // Maximum total size of the files of an imported project, in megabytes.
+  @VisibleForTesting
+  static final Flag<Float> maxProjectSizeMegs = Flag.createFlag("max.project.size.megs", 100f);
+
   private static final Logger LOG = Logger.getLogger(FileImporterImpl.class.getName());
 
   private final StorageIo storageIo = StorageIoInstanceHolder.getInstance();
@@ -67,9 +68,16 @@ public final class FileImporterImpl implements FileImporter {
     // The projectName parameter has already been validated, including checking for an
     // existing project with the same name. (See TextValidators.checkNewProjectName).
 
-    // Begin creating the project.
+    // Begin creating the project. Each file is handed to storage as soon as it has been read, so
+    // that the archive is never held in memory all at once.
     Project project = new Project(projectName);
     project.setProjectType(YoungAndroidProjectNode.YOUNG_ANDROID_PROJECT_TYPE);
+    // Set project history if provided
+    if (projectHistory != null) {
+      project.setProjectHistory(projectHistory);
+    }
+    String settings = YoungAndroidProjectService.getProjectSettings(null, null, null, null, null,
+        null, null, null, null, null, null, null, null, null, null);
 
     // As we process the ZipEntry for each file, we'll adjust the directory structure so that it is
     // appropriate for this user.
@@ -78,6 +86,11 @@ public final class FileImporterImpl implements FileImporter {
         storageIo.getUser(userId).getUserEmail(), projectName);
     String srcDirectory = YoungAndroidProjectService.getSourceDirectory(qualifiedFormName);
 
+    long maxProjectSizeBytes = (long) (maxProjectSizeMegs.get() * 1024 * 1024);
+    long projectSizeBytes = 0;
+    byte[] buffer = new byte[8192];
+    ProjectImport projectImport = storageIo.beginProjectImport(userId, project, settings);
+    long projectId;
     ZipInputStream zin = new ZipInputStream(uploadedFileStream);
     boolean isProjectArchive = false;  // have we found at least one project properties file?
     try {
@@ -105,7 +118,7 @@ public final class FileImporterImpl implements FileImporter {
             String content = YoungAndroidProjectService.getProjectPropertiesFileContents(
               projectName, qualifiedFormName, null, null, null, null, null, null, null, null, null,
               null, null, null, null, null, null);
-            project.addTextFile(new TextFile(fileName, content));
+            projectImport.addFile(fileName, content.getBytes(StorageUtil.DEFAULT_CHARSET));
             isProjectArchive = true;
 
           } else if (fileName.equals(FileExporter.REMIX_INFORMATION_FILE_PATH) ||
@@ -129,31 +142,35 @@ public final class FileImporterImpl implements FileImporter {
               fileName = srcDirectory + '/' + StorageUtil.basename(fileName);
             }
 
-            // Get the file content from the ZipEntry.
+            // Get the file content from the ZipEntry, stopping as soon as the project is too large.
             ByteArrayOutputStream contentStream = new ByteArrayOutputStream();
-            ByteStreams.copy(zin, contentStream);
+            int bytes;
+            while ((bytes = zin.read(buffer)) != -1) {
+              projectSizeBytes += bytes;
+              if (projectSizeBytes > maxProjectSizeBytes) {
+                throw new FileImporterException(UploadResponse.Status.FILE_TOO_LARGE);
+              }
+              contentStream.write(buffer, 0, bytes);
+            }
 
-            project.addRawFile(new RawFile(fileName, contentStream.toByteArray()));
+            projectImport.addFile(fileName, contentStream.toByteArray());
           }
         }
       }
+
+      if (!isProjectArchive) {
+        // The uploaded file seems to be a valid zip file, but it doesn't contain the project
+        // properties file.
+        throw new FileImporterException(UploadResponse.Status.NOT_PROJECT_ARCHIVE);
+      }
+
+      projectId = projectImport.commit();
     } finally {
+      // Does nothing if the project was committed
+      projectImport.abort();
       zin.close();
     }
 
-    if (!isProjectArchive) {
-      // The uploaded file seems to be a valid zip file, but it doesn't contain the project
-      // properties file.
-      throw new FileImporterException(UploadResponse.Status.NOT_PROJECT_ARCHIVE);
-    }
-
-    // Set project history if provided
-    if (projectHistory != null) {
-      project.setProjectHistory(projectHistory);
-    }
-    String settings = YoungAndroidProjectService.getProjectSettings(null, null, null, null, null,
-        null, null, null, null, null, null, null, null, null, null);
-    long projectId = storageIo.createProject(userId, project, settings);
     return storageIo.getUserProject(userId, projectId);
   }
 
@@ -293,13 +310,6 @@ public final class FileImporterImpl implements FileImporter {
 
   @Override
   public Set<String> getProjectNames(final String userId) {
-    List<Long> projectIds = storageIo.getProjects(userId);
-    Iterable<String> names = Iterables.transform(projectIds, new Function<Long, String>() {
-      @Override
-      public String apply(Long projectId) {
-        return storageIo.getProjectName(userId, projectId);
-      }
-    });
-    return ImmutableSet.copyOf(names);
+    return ImmutableSet.copyOf(storageIo.getProjectNames(userId).values());
   }
 }
@@ -337,6 +337,7 @@ public class LoginServlet extends HttpServlet {
       }
 
       storageIo.setUserPassword(user.getUserId(),  hashedPassword);
+      AuthCache.getInstance().invalidateUser(user.getUserId());
       String uri = new UriBuilder("/")
         .add("locale", locale)
         .add("repo", repo)
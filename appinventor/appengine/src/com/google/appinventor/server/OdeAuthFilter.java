@@ -58,6 +58,8 @@ public class OdeAuthFilter implements Filter {
 
   private final StorageIo storageIo = StorageIoInstanceHolder.getInstance();
 
+  private final AuthCache authCache = AuthCache.getInstance();
+
   // Whether this server should use a whitelist to determine who can
   // access it. Value is specified in the <system-properties> section
   // of appengine-web.xml.
@@ -98,8 +100,26 @@ public class OdeAuthFilter implements Filter {
     //   return;
     // }
 
-    // Use Local Authentication
-    UserInfo userInfo = getUserInfo(httpRequest);
+    // Use Local Authentication. The sessions of recently seen cookies are
+    // remembered, so that we need not decrypt the cookie on every request.
+    long start = System.nanoTime();
+    String cookie = getAuthCookie(httpRequest);
+    UserInfo userInfo = null;
+    boolean cached = false;
+    if (cookie != null) {
+      userInfo = authCache.getSession(cookie);
+      cached = userInfo != null;
+      if (!cached) {
+        userInfo = decodeCookie(cookie);
+        if (userInfo != null && userInfo.isValid()) {
+          authCache.putSession(cookie, userInfo);
+        }
+      }
+      if (userInfo != null && !userInfo.isValid()) {
+        userInfo = null;
+      }
+    }
+    authCache.recordSession(System.nanoTime() - start, cached);
     if (userInfo == null) {        // Invalid Login
       if (DEBUG) {
         LOG.info("uinfo is null on login.");
@@ -214,7 +234,14 @@ public class OdeAuthFilter implements Filter {
    * that was encrypted in the URL.
    */
   void setUserFromUserId(String userId, boolean isAdmin, boolean isReadOnly) {
-    User user = storageIo.getUser(userId);
+    long start = System.nanoTime();
+    User user = authCache.getUser(userId);
+    boolean cached = user != null;
+    if (!cached) {
+      user = storageIo.getUser(userId);
+      authCache.putUser(user);
+    }
+    authCache.recordUser(System.nanoTime() - start, cached);
     if (!user.getIsAdmin() && isAdmin) {
       user.setIsAdmin(true);    // If session says they are an admin (which is the case
                                 // if they are a Google Account with Developer access
@@ -297,6 +324,14 @@ public class OdeAuthFilter implements Filter {
       modified = true;
     }
 
+    // Returns an unmodified copy, for the session cache
+    UserInfo copy() {
+      UserInfo result = new UserInfo(userId, isAdmin);
+      result.isReadOnly = isReadOnly;
+      result.ts = ts;
+      return result;
+    }
+
     public String buildCookie(boolean ifNeeded) {
       try {
         long offset = System.currentTimeMillis() - this.ts;
@@ -340,31 +375,46 @@ public class OdeAuthFilter implements Filter {
   }
 
   public static UserInfo getUserInfo(HttpServletRequest request) {
-    try {
-      Cookie [] cookies = request.getCookies();
-      if (cookies != null)
-        for (Cookie cookie : cookies) {
-          if ("AppInventor".equals(cookie.getName())) {
-            String rawData = cookie.getValue();
-            if (DEBUG) {
-              LOG.info("getUserInfo: rawCookie = " + rawData);
-            }
-            Crypter crypter = getCrypter();
-            CookieAuth.cookie cookieToken = CookieAuth.cookie.parseFrom(
-              crypter.decrypt(Base64Coder.decode(rawData)));
-            UserInfo uInfo = new UserInfo();
-            uInfo.userId = cookieToken.getUuid();
-            uInfo.ts = cookieToken.getTs();
-            uInfo.isAdmin = cookieToken.getIsAdmin();
-            uInfo.isReadOnly = cookieToken.getIsReadOnly();
-            if (uInfo.isValid()) {
-              return uInfo;
-            } else {
-              return null;
-            }
-          }
-        }
+    String rawData = getAuthCookie(request);
+    if (rawData == null) {
       return null;
+    }
+    UserInfo uInfo = decodeCookie(rawData);
+    if (uInfo != null && uInfo.isValid()) {
+      return uInfo;
+    } else {
+      return null;
+    }
+  }
+
+  // Returns the value of the authentication cookie, or null if there is none
+  private static String getAuthCookie(HttpServletRequest request) {
+    Cookie [] cookies = request.getCookies();
+    if (cookies != null)
+      for (Cookie cookie : cookies) {
+        if ("AppInventor".equals(cookie.getName())) {
+          return cookie.getValue();
+        }
+      }
+    return null;
+  }
+
+  // Decrypts an authentication cookie, without checking its timestamp.
+  // Returns null if the cookie cannot be decrypted.
+  private static UserInfo decodeCookie(String rawData) {
+    try {
+      if (DEBUG) {
+        LOG.info("getUserInfo: rawCookie = " + rawData);
+      }
+      Crypter crypter = getCrypter();
+      CookieAuth.cookie cookieToken = CookieAuth.cookie.parseFrom(
+        crypter.decrypt(Base64Coder.decode(rawData)));
+      UserInfo uInfo = new UserInfo();
+      uInfo.userId = cookieToken.getUuid();
+      uInfo.ts = cookieToken.getTs();
+      uInfo.isAdmin = cookieToken.getIsAdmin();
+      uInfo.isReadOnly = cookieToken.getIsReadOnly();
+      return uInfo;
     } catch (KeyczarException e) {
       LOG.log(Level.SEVERE, "Error parsing provided cookie", e);
       return null;
@@ -0,0 +1,345 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.server;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.Literal;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * An index of the classes and properties of the ontologies used for
+ * autocompletion in the designer.
+ *
+ * Each term is indexed under the words of its label and of its local name,
+ * with camel case local names split into words, as well as under its whole
+ * local name. A term matches a search when every word of the search is a
+ * prefix of one of its index words, so "birth da" and "birthd" both find
+ * {@code foaf:birthDate}. Results are ordered by label.
+ *
+ * The results of recent searches are cached, and the latency of searches is
+ * recorded and logged periodically.
+ */
+public class OntologyIndex {
+
+  private static final Logger LOG = Logger.getLogger(OntologyIndex.class.getName());
+
+  // The number of search results kept in the cache
+  private static final int CACHE_SIZE = 256;
+
+  // The number of searches between logging the search statistics
+  private static final int STATS_INTERVAL = 1000;
+
+  private static final String PREFIXES =
+      "PREFIX rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> " +
+      "PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#> " +
+      "PREFIX skos: <http://www.w3.org/2004/02/skos/core#> " +
+      "PREFIX owl: <http://www.w3.org/2002/07/owl#> ";
+
+  private static final String LABEL_PATTERN =
+      "OPTIONAL { { ?uri rdfs:label ?lbl } UNION { ?uri skos:prefLabel ?lbl } " +
+      "FILTER(lang(?lbl) = \"\" || langMatches(lang(?lbl), \"EN\")) } " +
+      "FILTER(isURI(?uri)) } GROUP BY ?uri";
+
+  private static final String CLASS_QUERY = PREFIXES +
+      "SELECT ?uri (SAMPLE(?lbl) AS ?label) WHERE { " +
+      "{ ?uri a owl:Class } UNION { ?uri a rdfs:Class } " + LABEL_PATTERN;
+
+  private static final String PROPERTY_QUERY = PREFIXES +
+      "SELECT ?uri (SAMPLE(?lbl) AS ?label) WHERE { " +
+      "{ ?uri a owl:ObjectProperty } UNION { ?uri a owl:DatatypeProperty } " +
+      "UNION { ?uri a rdf:Property } " + LABEL_PATTERN;
+
+  /**
+   * The kinds of terms in the index.
+   */
+  public enum Kind {
+    CLASS,
+    PROPERTY
+  }
+
+  /**
+   * A term in the index.
+   */
+  public static class Entry {
+    private final Kind kind;
+    private final String uri;
+    private final String label;
+    private final String qname;
+
+    public Entry(Kind kind, String uri, String label, String qname) {
+      this.kind = kind;
+      this.uri = uri;
+      this.label = label;
+      this.qname = qname;
+    }
+
+    public Kind getKind() {
+      return kind;
+    }
+
+    public String getUri() {
+      return uri;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+
+    /**
+     * Returns the prefixed name of the term, or null if the ontologies do not
+     * declare a prefix for its namespace.
+     */
+    public String getQName() {
+      return qname;
+    }
+  }
+
+  private static final Comparator<Entry> BY_LABEL = new Comparator<Entry>() {
+    @Override
+    public int compare(Entry a, Entry b) {
+      int result = a.label.compareToIgnoreCase(b.label);
+      return result != 0 ? result : a.uri.compareTo(b.uri);
+    }
+  };
+
+  // The terms, ordered by label, and for each kind, the index of every term
+  // of that kind under each of its words.
+  private final List<Entry> entries;
+  private final Map<Kind, TreeMap<String, BitSet>> words =
+      new EnumMap<Kind, TreeMap<String, BitSet>>(Kind.class);
+  private final Map<Kind, BitSet> all = new EnumMap<Kind, BitSet>(Kind.class);
+
+  private final Map<String, List<Entry>> cache =
+      new LinkedHashMap<String, List<Entry>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<Entry>> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      };
+
+  // Search statistics
+  private long searches = 0;
+  private long cacheHits = 0;
+  private long totalNanos = 0;
+  private long maxNanos = 0;
+
+  /**
+   * Creates an index of the given terms.
+   */
+  public OntologyIndex(List<Entry> entries) {
+    List<Entry> sorted = new ArrayList<Entry>(entries);
+    Collections.sort(sorted, BY_LABEL);
+    this.entries = Collections.unmodifiableList(sorted);
+    for (Kind kind : Kind.values()) {
+      words.put(kind, new TreeMap<String, BitSet>());
+      all.put(kind, new BitSet(sorted.size()));
+    }
+    for (int i = 0; i < sorted.size(); i++) {
+      Entry entry = sorted.get(i);
+      all.get(entry.kind).set(i);
+      TreeMap<String, BitSet> index = words.get(entry.kind);
+      for (String word : indexWords(entry)) {
+        BitSet ids = index.get(word);
+        if (ids == null) {
+          ids = new BitSet();
+          index.put(word, ids);
+        }
+        ids.set(i);
+      }
+    }
+  }
+
+  /**
+   * Creates an index of the classes and properties in a model. A term
+   * without an English or untagged label is labeled with its local name.
+   */
+  public static OntologyIndex build(Model model) {
+    List<Entry> entries = new ArrayList<Entry>();
+    addEntries(model, Kind.CLASS, CLASS_QUERY, entries);
+    addEntries(model, Kind.PROPERTY, PROPERTY_QUERY, entries);
+    return new OntologyIndex(entries);
+  }
+
+  private static void addEntries(Model model, Kind kind, String queryText, List<Entry> entries) {
+    Query query = QueryFactory.create(queryText);
+    QueryExecution qe = QueryExecutionFactory.create(query, model);
+    try {
+      ResultSet rs = qe.execSelect();
+      while (rs.hasNext()) {
+        QuerySolution qs = rs.nextSolution();
+        String uri = qs.getResource("uri").getURI();
+        RDFNode label = qs.get("label");
+        String text;
+        if (label == null) {
+          text = localName(uri);
+        } else if (label.isLiteral()) {
+          text = ((Literal) label).getString();
+        } else {
+          text = label.toString();
+        }
+        entries.add(new Entry(kind, uri, text, model.qnameFor(uri)));
+      }
+    } finally {
+      qe.close();
+    }
+  }
+
+  /**
+   * Returns every term in the index, ordered by label.
+   */
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * Returns the terms of a kind that match the text, ordered by label. Text
+   * without any words matches every term of the kind.
+   */
+  public List<Entry> search(Kind kind, String text) {
+    long start = System.nanoTime();
+    List<String> query = splitWords(text, false);
+    String key = kind + " " + query;
+    List<Entry> results;
+    synchronized (cache) {
+      results = cache.get(key);
+    }
+    boolean hit = results != null;
+    if (!hit) {
+      results = find(kind, query);
+      synchronized (cache) {
+        cache.put(key, results);
+      }
+    }
+    record(System.nanoTime() - start, hit);
+    return results;
+  }
+
+  private List<Entry> find(Kind kind, List<String> query) {
+    BitSet matches = (BitSet) all.get(kind).clone();
+    TreeMap<String, BitSet> index = words.get(kind);
+    for (String word : query) {
+      BitSet ids = new BitSet();
+      for (BitSet wordIds : index.subMap(word, word + Character.MAX_VALUE).values()) {
+        ids.or(wordIds);
+      }
+      matches.and(ids);
+      if (matches.isEmpty()) {
+        break;
+      }
+    }
+    List<Entry> results = new ArrayList<Entry>(matches.cardinality());
+    for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+      results.add(entries.get(i));
+    }
+    return Collections.unmodifiableList(results);
+  }
+
+  private synchronized void record(long nanos, boolean hit) {
+    searches++;
+    if (hit) {
+      cacheHits++;
+    }
+    totalNanos += nanos;
+    maxNanos = Math.max(maxNanos, nanos);
+    if (searches % STATS_INTERVAL == 0) {
+      LOG.info("Ontology searches: " + searches + ", cache hits: " + cacheHits
+          + ", mean latency: " + getMeanLatencyMicros() + " us, max latency: "
+          + getMaxLatencyMicros() + " us");
+    }
+  }
+
+  public synchronized long getSearchCount() {
+    return searches;
+  }
+
+  public synchronized long getCacheHitCount() {
+    return cacheHits;
+  }
+
+  /**
+   * Returns the mean time taken by a search, in microseconds.
+   */
+  public synchronized long getMeanLatencyMicros() {
+    return searches == 0 ? 0 : totalNanos / searches / 1000;
+  }
+
+  /**
+   * Returns the longest time taken by a search, in microseconds.
+   */
+  public synchronized long getMaxLatencyMicros() {
+    return maxNanos / 1000;
+  }
+
+  /**
+   * Returns the words a term is indexed under.
+   */
+  static Set<String> indexWords(Entry entry) {
+    Set<String> result = new LinkedHashSet<String>();
+    result.addAll(splitWords(entry.label, true));
+    String localName = localName(entry.uri);
+    result.addAll(splitWords(localName, true));
+    if (!localName.isEmpty()) {
+      result.add(localName.toLowerCase(Locale.ROOT));
+    }
+    return result;
+  }
+
+  /**
+   * Splits text into lower case words at every character that is not a
+   * letter or digit and, if {@code camelCase} is true, wherever a lower case
+   * letter is followed by an upper case letter.
+   */
+  static List<String> splitWords(String text, boolean camelCase) {
+    List<String> result = new ArrayList<String>();
+    StringBuilder word = new StringBuilder();
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (!Character.isLetterOrDigit(c)) {
+        addWord(word, result);
+        continue;
+      }
+      if (camelCase && Character.isUpperCase(c) && i > 0
+          && Character.isLowerCase(text.charAt(i - 1))) {
+        addWord(word, result);
+      }
+      word.append(c);
+    }
+    addWord(word, result);
+    return result;
+  }
+
+  private static void addWord(StringBuilder word, List<String> words) {
+    if (word.length() > 0) {
+      words.add(word.toString().toLowerCase(Locale.ROOT));
+      word.setLength(0);
+    }
+  }
+
+  private static String localName(String uri) {
+    int idx = Math.max(uri.lastIndexOf('/'), uri.lastIndexOf('#'));
+    return uri.substring(idx + 1);
+  }
+}
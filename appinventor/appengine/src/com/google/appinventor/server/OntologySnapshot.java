@@ -0,0 +1,420 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.server;
+
+import com.google.appinventor.server.flags.Flag;
+import com.google.appinventor.shared.rpc.semweb.SemWebConstants;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The ontologies used by the semantic web service, together with their
+ * {@link OntologyIndex}.
+ *
+ * Downloading and indexing the ontologies takes tens of seconds, so a
+ * snapshot can be written ahead of time with the {@code MakeOntologySnapshot}
+ * build target and loaded when the server starts. A snapshot records the list
+ * of ontologies it was made from, and a snapshot made from a different list,
+ * or in a different format, is ignored.
+ *
+ * A snapshot is a gzipped stream holding a header, the namespace prefixes of
+ * the ontologies, the index entries and then the ontologies as N-Triples.
+ */
+public class OntologySnapshot {
+
+  private static final Logger LOG = Logger.getLogger(OntologySnapshot.class.getName());
+
+  private static final int MAGIC = 0x41494f53;  // "AIOS"
+
+  // Increase this when the format of the snapshot changes
+  static final int FORMAT_VERSION = 1;
+
+  private static final int REDIRECT_ATTEMPTS = 5;
+
+  // The snapshot of the ontologies, made with the MakeOntologySnapshot build target
+  private static final Flag<String> snapshotFile =
+      Flag.createFlag("semweb.snapshot", "WEB-INF/ontologies.snapshot");
+
+  // The number of classes outside the ontologies whose indexes are kept
+  private static final int REMOTE_CONCEPTS = 64;
+
+  // How long a class whose document could not be read is not read again
+  private static final long FAILED_CONCEPT_RETRY = 10 * 60 * 1000;  // ms
+
+  private static volatile OntologySnapshot instance;
+
+  private final String source;
+  private final long created;
+  private final Model model;
+  private final OntologyIndex index;
+  private ConceptIndex conceptIndex;
+  private final Map<String, ConceptIndex> remoteConceptIndexes =
+      new LinkedHashMap<String, ConceptIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ConceptIndex> eldest) {
+          return size() > REMOTE_CONCEPTS;
+        }
+      };
+  // The time at which the document of each class was last found unreadable
+  private final Map<String, Long> failedConcepts =
+      new LinkedHashMap<String, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+          return size() > REMOTE_CONCEPTS;
+        }
+      };
+
+  OntologySnapshot(String source, long created, Model model, OntologyIndex index) {
+    this.source = source;
+    this.created = created;
+    this.model = model;
+    this.index = index;
+  }
+
+  /**
+   * Returns the comma separated list of ontologies in the snapshot.
+   */
+  public String getSource() {
+    return source;
+  }
+
+  /**
+   * Returns the time the snapshot was made, in milliseconds.
+   */
+  public long getCreated() {
+    return created;
+  }
+
+  public Model getModel() {
+    return model;
+  }
+
+  public OntologyIndex getIndex() {
+    return index;
+  }
+
+  /**
+   * Returns the index of the properties of each class, making it the first
+   * time it is needed.
+   */
+  public synchronized ConceptIndex getConceptIndex() {
+    if (conceptIndex == null) {
+      conceptIndex = new ConceptIndex(model);
+    }
+    return conceptIndex;
+  }
+
+  /**
+   * Returns an index that describes a class. If the ontologies do not
+   * describe it, the document at the URI of the class is read and indexed
+   * instead, and its index is kept for later requests. If the document cannot
+   * be read, it is not tried again for a while, and an empty index is returned.
+   */
+  public ConceptIndex getConceptIndex(String concept) {
+    ConceptIndex index = getLocalConceptIndex(concept);
+    if (index != null) {
+      return index;
+    }
+    synchronized (remoteConceptIndexes) {
+      Long failed = failedConcepts.get(concept);
+      if (failed != null && System.currentTimeMillis() - failed < FAILED_CONCEPT_RETRY) {
+        return new ConceptIndex(ModelFactory.createDefaultModel());
+      }
+    }
+    Model model = ModelFactory.createDefaultModel();
+    if (!download(model, concept)) {
+      synchronized (remoteConceptIndexes) {
+        failedConcepts.put(concept, System.currentTimeMillis());
+      }
+      return new ConceptIndex(model);
+    }
+    index = new ConceptIndex(model);
+    synchronized (remoteConceptIndexes) {
+      failedConcepts.remove(concept);
+      remoteConceptIndexes.put(concept, index);
+    }
+    return index;
+  }
+
+  /**
+   * Returns an index that describes a class if the ontologies describe it or
+   * its document has already been read, or otherwise null. Unlike
+   * {@link #getConceptIndex(String)}, this never reads the network.
+   */
+  public ConceptIndex getLocalConceptIndex(String concept) {
+    ConceptIndex index = getConceptIndex();
+    if (index.contains(concept)) {
+      return index;
+    }
+    synchronized (remoteConceptIndexes) {
+      return remoteConceptIndexes.get(concept);
+    }
+  }
+
+  /**
+   * Returns the ontologies used by the server, loading them the first time
+   * they are needed.
+   */
+  public static synchronized OntologySnapshot getInstance() {
+    if (instance == null) {
+      instance = load(new File(snapshotFile.get()), getOntologies());
+    }
+    return instance;
+  }
+
+  /**
+   * Returns the ontologies used by the server if they have been loaded, or
+   * otherwise null. Unlike {@link #getInstance()}, this never loads them.
+   */
+  public static OntologySnapshot getLoadedInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns the ontologies listed in {@code SemWebConstants.properties}.
+   */
+  public static String[] getOntologies() {
+    Properties props = new Properties();
+    try {
+      props.load(SemWebConstants.class.getResourceAsStream("SemWebConstants.properties"));
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Unable to read SemWebConstants.properties", e);
+    }
+    String ontologiesList = props.getProperty("ontologies", "");
+    return ontologiesList.split(",");
+  }
+
+  /**
+   * Returns the snapshot of the ontologies in {@code file}, if it was made
+   * from the same list of ontologies, or otherwise downloads and indexes them.
+   */
+  public static OntologySnapshot load(File file, String[] ontologies) {
+    String source = join(ontologies);
+    if (file.exists()) {
+      try {
+        InputStream in = new FileInputStream(file);
+        try {
+          OntologySnapshot snapshot = read(in);
+          if (snapshot != null && snapshot.source.equals(source)) {
+            return snapshot;
+          }
+          LOG.info("Ignoring out of date ontology snapshot " + file);
+        } finally {
+          in.close();
+        }
+      } catch (IOException e) {
+        LOG.log(Level.WARNING, "Unable to read ontology snapshot " + file, e);
+      }
+    }
+    return create(ontologies);
+  }
+
+  /**
+   * Downloads and indexes the ontologies.
+   */
+  public static OntologySnapshot create(String[] ontologies) {
+    return create(ontologies, new ArrayList<String>());
+  }
+
+  /**
+   * Downloads and indexes the ontologies, adding those that could not be
+   * downloaded to {@code failed}. They are left out of the snapshot.
+   */
+  public static OntologySnapshot create(String[] ontologies, List<String> failed) {
+    Model model = ModelFactory.createDefaultModel();
+    for (String ontology : ontologies) {
+      if (!download(model, ontology.trim())) {
+        failed.add(ontology.trim());
+      }
+    }
+    model.removeNsPrefix("");
+    return new OntologySnapshot(join(ontologies), System.currentTimeMillis(), model,
+        OntologyIndex.build(model));
+  }
+
+  /**
+   * Reads a snapshot.
+   *
+   * @return the snapshot, or null if it is in a different format
+   */
+  public static OntologySnapshot read(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(
+        new BufferedInputStream(new GZIPInputStream(in)));
+    if (data.readInt() != MAGIC || data.readInt() != FORMAT_VERSION) {
+      return null;
+    }
+    String source = data.readUTF();
+    long created = data.readLong();
+    Model model = ModelFactory.createDefaultModel();
+    int prefixCount = data.readInt();
+    for (int i = 0; i < prefixCount; i++) {
+      String prefix = data.readUTF();
+      model.setNsPrefix(prefix, data.readUTF());
+    }
+    int entryCount = data.readInt();
+    List<OntologyIndex.Entry> entries = new ArrayList<OntologyIndex.Entry>(entryCount);
+    OntologyIndex.Kind[] kinds = OntologyIndex.Kind.values();
+    for (int i = 0; i < entryCount; i++) {
+      OntologyIndex.Kind kind = kinds[data.readByte()];
+      String uri = data.readUTF();
+      String label = data.readUTF();
+      String qname = data.readUTF();
+      entries.add(new OntologyIndex.Entry(kind, uri, label, qname.isEmpty() ? null : qname));
+    }
+    model.read(data, null, "N-TRIPLE");
+    return new OntologySnapshot(source, created, model, new OntologyIndex(entries));
+  }
+
+  /**
+   * Writes the snapshot.
+   */
+  public void write(OutputStream out) throws IOException {
+    GZIPOutputStream gzip = new GZIPOutputStream(out);
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(gzip));
+    data.writeInt(MAGIC);
+    data.writeInt(FORMAT_VERSION);
+    data.writeUTF(source);
+    data.writeLong(created);
+    Map<String, String> prefixes = model.getNsPrefixMap();
+    data.writeInt(prefixes.size());
+    for (Map.Entry<String, String> prefix : prefixes.entrySet()) {
+      data.writeUTF(prefix.getKey());
+      data.writeUTF(prefix.getValue());
+    }
+    List<OntologyIndex.Entry> entries = index.getEntries();
+    data.writeInt(entries.size());
+    for (OntologyIndex.Entry entry : entries) {
+      data.writeByte(entry.getKind().ordinal());
+      data.writeUTF(entry.getUri());
+      data.writeUTF(entry.getLabel());
+      data.writeUTF(entry.getQName() == null ? "" : entry.getQName());
+    }
+    model.write(data, "N-TRIPLE");
+    data.flush();
+    gzip.finish();
+  }
+
+  // Returns false if the ontology could not be read
+  private static boolean download(Model model, String ontology) {
+    LOG.fine("Reading <" + ontology + "> ...");
+    try {
+      // we use this instead of Model.read(String) because Jena would
+      // use Apache HTTP commons, which attempts to read the jssecacerts file.
+      // AppEngine throws an AccessControlException that is never caught
+      // and ultimately will cause this to fail. By using our own connection
+      // we bypass this issue.
+      URL url = new URL(ontology);
+      int attempts = REDIRECT_ATTEMPTS;
+      while (attempts-- > 0) {
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setInstanceFollowRedirects(true);
+        conn.addRequestProperty("Accept", "application/rdf+xml,text/turtle,text/n3");
+        conn.setDoInput(true);
+        conn.connect();
+        int response = conn.getResponseCode();
+        LOG.fine("Status code = " + response);
+        if (response >= 300 && response <= 399) {
+          url = new URL(conn.getHeaderField("Location"));
+          conn.disconnect();
+          continue;
+        }
+        String contentType = conn.getContentType();
+        if (contentType != null && contentType.contains(";")) {
+          contentType = contentType.split(";")[0];
+        }
+        if (contentType == null) {
+          String base = ontology.endsWith(".owl") ? ontology.replace(".owl", ".ttl") : ontology;
+          RDFDataMgr.read(model, conn.getInputStream(), base, Lang.TURTLE);
+        } else if (contentType.equals("application/rdf+xml") || contentType.equals("application/xml")) {
+          model.read(conn.getInputStream(), ontology);
+        } else if (contentType.equals("text/turtle")) {
+          model.read(conn.getInputStream(), ontology, "TTL");
+        } else if (contentType.equals("text/n3")) {
+          model.read(conn.getInputStream(), ontology, "N3");
+        } else if (contentType.equals("text/plain") || contentType.equals("application/octet-stream")) {
+          // for non-compliant servers that return turtle as plain text
+          try {
+            model.read(conn.getInputStream(), ontology, "TTL");
+          } catch (Exception e) {
+            LOG.warning("Unexpected content type 'text/plain' returned by server.");
+            return false;
+          }
+        } else {
+          LOG.warning("Unexpected content type '" + contentType + "' returned by server.");
+          return false;
+        }
+        return true;
+      }
+    } catch (Exception e) {
+      LOG.log(Level.WARNING, "Unable to read ontology " + ontology, e);
+    }
+    return false;
+  }
+
+  private static String join(String[] ontologies) {
+    StringBuilder sb = new StringBuilder();
+    for (String ontology : ontologies) {
+      if (sb.length() > 0) {
+        sb.append(',');
+      }
+      sb.append(ontology.trim());
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Downloads the ontologies listed in {@code SemWebConstants.properties} and
+   * writes a snapshot of them to the file named by the first argument. No
+   * snapshot is written if any of the ontologies cannot be downloaded, since
+   * the server would otherwise use the incomplete snapshot until the list of
+   * ontologies changes.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("Usage: OntologySnapshot <output file>");
+      System.exit(1);
+    }
+    List<String> failed = new ArrayList<String>();
+    OntologySnapshot snapshot = create(getOntologies(), failed);
+    if (!failed.isEmpty()) {
+      System.err.println("Unable to download " + failed + ", no snapshot written");
+      System.exit(1);
+    }
+    OutputStream out = new FileOutputStream(args[0]);
+    try {
+      snapshot.write(out);
+    } finally {
+      out.close();
+    }
+    System.out.println("Wrote " + snapshot.index.getEntries().size() + " terms and "
+        + snapshot.model.size() + " triples to " + args[0]);
+  }
+}
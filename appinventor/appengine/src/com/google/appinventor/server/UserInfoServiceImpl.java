@@ -54,6 +54,7 @@ public class UserInfoServiceImpl extends OdeRemoteServiceServlet implements User
     User user = userInfoProvider.getUser();
     user.setSessionId(sessionId);
     storageIo.setUserSessionId(userInfoProvider.getUserId(), sessionId);
+    AuthCache.getInstance().invalidateUser(userInfoProvider.getUserId());
     Flag<String> rendezvousFlag = Flag.createFlag("use.rendezvousserver", "");
     if (!rendezvousFlag.get().equals("")) {
       config.setRendezvousServer(rendezvousFlag.get());
@@ -128,6 +129,7 @@ public class UserInfoServiceImpl extends OdeRemoteServiceServlet implements User
     user.setSessionId(sessionId); // Store local copy
     // Store it in the data store
     storageIo.setUserSessionId(userInfoProvider.getUserId(), sessionId);
+    AuthCache.getInstance().invalidateUser(userInfoProvider.getUserId());
     return user;
   }
 
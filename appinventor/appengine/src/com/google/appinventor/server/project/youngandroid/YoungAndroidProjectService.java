@@ -11,12 +11,14 @@ import com.google.apphosting.api.ApiProxy;
 import com.google.appinventor.common.utils.StringUtils;
 import com.google.appinventor.common.version.GitBuildId;
 import com.google.appinventor.components.common.YaVersion;
+import com.google.appinventor.server.ConceptIndex;
 import com.google.appinventor.server.CrashReport;
 import com.google.appinventor.server.FileExporter;
 import com.google.appinventor.server.FileExporterImpl;
 import com.google.appinventor.server.FileImporter;
 import com.google.appinventor.server.FileImporterException;
 import com.google.appinventor.server.FileImporterImpl;
+import com.google.appinventor.server.OntologySnapshot;
 import com.google.appinventor.server.Server;
 import com.google.appinventor.server.encryption.EncryptionException;
 import com.google.appinventor.server.flags.Flag;
@@ -77,12 +79,13 @@ import java.net.URL;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
-import java.util.TreeSet;
+import java.util.Set;
 import java.util.logging.Logger;
 
 /**
@@ -884,6 +887,7 @@ public final class YoungAndroidProjectService extends CommonProjectService {
                   "\"$Version\": \"6\","+
                   "\"Uuid\": \"$TextBoxUUID$\","+
                   "\"Hint\": \"Hint for TextBox1\","+
+                  "$TextBoxNumbersOnly$"+
                   "\"PropertyURI\": \"$TextBoxURI$\","+
                   "\"Column\": \"$TextBoxCol$\","+
                   "\"Row\": \"$TextBoxRow$\""+
@@ -914,8 +918,22 @@ public final class YoungAndroidProjectService extends CommonProjectService {
     contentPart2 = contentPart2.replace(tableUUIDRegex, System.currentTimeMillis()+"");
     contentPart2 = contentPart2.replace(tableRowNumRegex, uriCollection.size()+"");
 
-    String textBoxUri = conceptURI;
-    String formContent = generateLabelTextbox(uriCollection, contentPart3, contentPart4);
+    // Properties whose values are numbers get text boxes that only accept numbers. This is only
+    // done when the class is already indexed, so that making a form never waits for the
+    // ontologies or the document of the class to be downloaded.
+    Set<String> numericProperties = new HashSet<String>();
+    OntologySnapshot snapshot = OntologySnapshot.getLoadedInstance();
+    ConceptIndex conceptIndex = snapshot == null ? null
+        : snapshot.getLocalConceptIndex(conceptURI);
+    if (conceptIndex != null) {
+      for (ConceptIndex.PropertyInfo property : conceptIndex.getProperties(conceptURI)) {
+        if (property.isNumeric()) {
+          numericProperties.add(property.getUri());
+        }
+      }
+    }
+    String formContent = generateLabelTextbox(uriCollection, numericProperties, contentPart3,
+        contentPart4);
     String returnPart1 = contentPart1 + contentPart2 + formContent + contentPart6;
     
     List<String> returns = new ArrayList<String>(); 
@@ -924,7 +942,8 @@ public final class YoungAndroidProjectService extends CommonProjectService {
     return returns;
   }
   
-  public String generateLabelTextbox(List<String> uriCollection, String contentPart3, String contentPart4) {
+  public String generateLabelTextbox(List<String> uriCollection, Set<String> numericProperties,
+      String contentPart3, String contentPart4) {
     String labelIDRegex = "$labelID$"; 
     String labelUUIDRegex = "$labelUUID$"; 
     String labelTextRegex = "$labelText$"; 
@@ -936,6 +955,7 @@ public final class YoungAndroidProjectService extends CommonProjectService {
     String textBoxURIRegex = "$TextBoxURI$"; 
     String textBoxColRegex = "$TextBoxCol$"; 
     String textBoxRowRegex = "$TextBoxRow$"; 
+    String textBoxNumbersOnlyRegex = "$TextBoxNumbersOnly$";
     
     String labelText = "";
     String textBoxUri = "";
@@ -966,6 +986,8 @@ public final class YoungAndroidProjectService extends CommonProjectService {
      formContentPart2 = formContentPart2.replace(textBoxURIRegex, textBoxUri);
      formContentPart2 = formContentPart2.replace(textBoxColRegex, "1");
      formContentPart2 = formContentPart2.replace(textBoxRowRegex, i+"");
+     formContentPart2 = formContentPart2.replace(textBoxNumbersOnlyRegex,
+         numericProperties.contains(textBoxUri) ? "\"NumbersOnly\": \"True\"," : "");
 
      formContent = formContent + formContentPart1 + "," + formContentPart2 + "," ;    	 
    }
@@ -1493,12 +1515,7 @@ public final class YoungAndroidProjectService extends CommonProjectService {
 
   private String verifyProjectName(String userId, String projectName) {
     int count = 0;
-    List<Long> projectIds = storageIo.getProjects(userId);
-    List<UserProject> projects = storageIo.getUserProjects(userId, projectIds);
-    TreeSet<String> projectNames = new TreeSet();
-    for (UserProject project : projects) {
-      projectNames.add(project.getProjectName());
-    }
+    Set<String> projectNames = new HashSet<String>(storageIo.getProjectNames(userId).values());
     String baseProjectName = projectName;
     while (true) {
       if (count > 100) {
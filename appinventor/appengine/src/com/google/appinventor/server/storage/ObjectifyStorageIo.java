@@ -9,6 +9,7 @@ package com.google.appinventor.server.storage;
 import com.google.appengine.api.appidentity.AppIdentityService;
 import com.google.appengine.api.appidentity.AppIdentityServiceFactory;
 import com.google.appengine.api.appidentity.AppIdentityServiceFailureException;
+import com.google.appengine.api.ThreadManager;
 import com.google.appengine.api.blobstore.BlobKey;
 import com.google.appengine.api.blobstore.BlobstoreInputStream;
 import com.google.appengine.api.blobstore.BlobstoreServiceFactory;
@@ -64,6 +65,8 @@ import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.io.ByteSource;
 import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import com.googlecode.objectify.Key;
 import com.googlecode.objectify.Objectify;
@@ -89,12 +92,21 @@ import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
@@ -135,8 +147,24 @@ public class ObjectifyStorageIo implements  StorageIo {
 
   private static final long TWENTYFOURHOURS = 24*3600*1000; // 24 hours in milliseconds
 
+  // Memcache key prefix for the names of a user's projects
+  private static final String PROJECT_NAMES_CACHE_KEY = "projectnames";
+
+  // How long a cached list of project names may be kept, in seconds, and how long after it is
+  // flushed it may not be cached again, in milliseconds
+  private static final int PROJECT_NAMES_EXPIRATION = 3600;
+  private static final long PROJECT_NAMES_LOCKOUT = 10000;
+
   private final boolean useGcs = Flag.createFlag("use.gcs", true).get();
 
+  // The number of threads writing the GCS files of an imported project
+  private static final Flag<Integer> importThreads =
+      Flag.createFlag("project.import.threads", 4);
+
+  // The most file content of an imported project waiting to be written, in megabytes
+  private static final Flag<Float> importBufferMegs =
+      Flag.createFlag("project.import.buffer.megs", 24f);
+
   private final boolean conversionEnabled = false; // We are converting GCS <=> Blobstore
   private static final boolean DEBUG = Flag.createFlag("appinventor.debugging", false).get();
 
@@ -565,6 +593,7 @@ public class ObjectifyStorageIo implements  StorageIo {
           datastore.put(upd);
         }
       }, true);
+      flushProjectNames(userId);
     } catch (ObjectifyException e) {
       for (FileData addedFile : addedFiles) {
         if (isTrue(addedFile.isGCS)) {  // Do something
@@ -602,16 +631,226 @@ public class ObjectifyStorageIo implements  StorageIo {
     if (useGCSforFile(fileName, content.length)) {
       file.isGCS = true;
       file.gcsName = makeGCSfileName(fileName, projectKey.getId());
-      GcsOutputChannel outputChannel =
-        gcsService.createOrReplace(new GcsFilename(GCS_BUCKET_NAME, file.gcsName), GcsFileOptions.getDefaultInstance());
-      outputChannel.write(ByteBuffer.wrap(content));
-      outputChannel.close();
+      writeGCSFile(file.gcsName, content);
     } else {
       file.content = content;
     }
     return file;
   }
 
+  private void writeGCSFile(String gcsName, byte[] content) throws IOException {
+    GcsOutputChannel outputChannel =
+      gcsService.createOrReplace(new GcsFilename(GCS_BUCKET_NAME, gcsName), GcsFileOptions.getDefaultInstance());
+    outputChannel.write(ByteBuffer.wrap(content));
+    outputChannel.close();
+  }
+
+  @Override
+  public ProjectImport beginProjectImport(String userId, Project project,
+      String projectSettings) {
+    validateGCS();
+    return new ObjectifyProjectImport(userId, project, projectSettings);
+  }
+
+  /*
+   * Imports a project by writing the files kept in GCS on a pool of request
+   * threads as they are added, while the other files are kept until the
+   * project is committed and then put in the datastore together with it, as
+   * createProject does. The id of the project is allocated up front so that
+   * the GCS files can be named before the project exists.
+   *
+   * The content of a file is held until its write finishes, so the bytes
+   * waiting to be written are limited by a semaphore. When the caller gets
+   * ahead of the writes it blocks in addFile until they catch up.
+   */
+  private class ObjectifyProjectImport implements ProjectImport {
+    private final String userId;
+    private final Project project;
+    private final String projectSettings;
+    private final long projectId;
+    private final Key<ProjectData> projectKey;
+    private final int bufferBytes;
+    private final Semaphore buffer;
+    private final List<FileData> addedFiles = new ArrayList<FileData>();
+    private final List<Future<?>> writes = new ArrayList<Future<?>>();
+    private ExecutorService executor;
+    private boolean finished = false;
+
+    ObjectifyProjectImport(String userId, Project project, String projectSettings) {
+      this.userId = userId;
+      this.project = project;
+      this.projectSettings = projectSettings;
+      projectId = ObjectifyService.factory().allocateId(ProjectData.class);
+      projectKey = projectKey(projectId);
+      bufferBytes = Math.max(1, (int) (importBufferMegs.get() * 1024 * 1024));
+      buffer = new Semaphore(bufferBytes);
+    }
+
+    @Override
+    public long getProjectId() {
+      return projectId;
+    }
+
+    @Override
+    public void addFile(String fileName, final byte[] content) {
+      Preconditions.checkState(!finished, "Project import already finished");
+      final FileData file = new FileData();
+      file.fileName = fileName;
+      file.projectKey = projectKey;
+      file.role = FileData.RoleEnum.SOURCE;
+      file.userId = userId;
+      if (useGCSforFile(fileName, content.length)) {
+        file.isGCS = true;
+        file.gcsName = makeGCSfileName(fileName, projectId);
+        // A file larger than the buffer waits for every other write to finish
+        final int permits = Math.min(content.length, bufferBytes);
+        buffer.acquireUninterruptibly(permits);
+        try {
+          writes.add(getExecutor().submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+              try {
+                writeGCSFile(file.gcsName, content);
+              } finally {
+                buffer.release(permits);
+              }
+              return null;
+            }
+          }));
+        } catch (RuntimeException e) {
+          buffer.release(permits);
+          throw e;
+        }
+      } else {
+        file.content = content;
+      }
+      addedFiles.add(file);
+    }
+
+    @Override
+    public long commit() {
+      Preconditions.checkState(!finished, "Project import already finished");
+      finished = true;
+      boolean committed = false;
+      try {
+        for (Future<?> write : writes) {
+          try {
+            Uninterruptibles.getUninterruptibly(write);
+          } catch (ExecutionException e) {
+            throw CrashReport.createAndLogError(LOG, null,
+                collectUserProjectErrorInfo(userId, projectId), e.getCause());
+          }
+        }
+
+        // first job is on the project entity, creating the ProjectData object
+        // and the associated files.
+        runJobWithRetries(new JobRetryHelper() {
+          @Override
+          public void run(Objectify datastore) {
+            long date = System.currentTimeMillis();
+            ProjectData pd = new ProjectData();
+            pd.id = projectId;
+            pd.dateCreated = date;
+            pd.dateModified = date;
+            pd.history = project.getProjectHistory();
+            pd.name = project.getProjectName();
+            pd.settings = projectSettings;
+            pd.type = project.getProjectType();
+            datastore.put(pd);
+            datastore.put(addedFiles);  // batch put
+          }
+        }, Server.isProductionServer()); // See createProject
+
+        // second job is on the user entity
+        runJobWithRetries(new JobRetryHelper() {
+          @Override
+          public void run(Objectify datastore) {
+            UserProjectData upd = new UserProjectData();
+            upd.projectId = projectId;
+            upd.settings = projectSettings;
+            upd.state = UserProjectData.StateEnum.OPEN;
+            upd.userKey = userKey(userId);
+            datastore.put(upd);
+          }
+        }, true);
+        flushProjectNames(userId);
+        committed = true;
+      } catch (ObjectifyException e) {
+        throw CrashReport.createAndLogError(LOG, null,
+            collectUserProjectErrorInfo(userId, projectId), e);
+      } finally {
+        if (!committed) {
+          deleteWrittenFiles();
+        }
+        shutdownExecutor();
+      }
+      return projectId;
+    }
+
+    @Override
+    public void abort() {
+      if (finished) {
+        return;
+      }
+      finished = true;
+      try {
+        deleteWrittenFiles();
+      } finally {
+        shutdownExecutor();
+      }
+    }
+
+    private ExecutorService getExecutor() {
+      if (executor == null) {
+        ThreadFactory threadFactory = null;
+        int threads = importThreads.get();
+        if (threads > 1) {
+          try {
+            threadFactory = ThreadManager.currentRequestThreadFactory();
+          } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Unable to create request threads, importing serially", e);
+          }
+        }
+        executor = threadFactory == null
+            ? MoreExecutors.newDirectExecutorService()
+            : Executors.newFixedThreadPool(threads, threadFactory);
+      }
+      return executor;
+    }
+
+    private void shutdownExecutor() {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+    }
+
+    // Waits for the writes that have started, so that none of them finishes
+    // after its file is deleted, and then deletes the GCS files.
+    private void deleteWrittenFiles() {
+      for (Future<?> write : writes) {
+        write.cancel(false);
+      }
+      for (Future<?> write : writes) {
+        try {
+          Uninterruptibles.getUninterruptibly(write);
+        } catch (ExecutionException | CancellationException e) {
+          // The file was not written
+        }
+      }
+      for (FileData addedFile : addedFiles) {
+        if (isTrue(addedFile.isGCS) && addedFile.gcsName != null) {
+          try {
+            gcsService.delete(new GcsFilename(GCS_BUCKET_NAME, addedFile.gcsName));
+          } catch (IOException e) {
+            LOG.log(Level.WARNING, "Unable to delete " + addedFile.gcsName +
+              " from GCS while aborting project import.", e);
+          }
+        }
+      }
+      addedFiles.clear();
+    }
+  }
+
   @Override
   public void deleteProject(final String userId, final long projectId) {
     validateGCS();
@@ -629,6 +868,7 @@ public class ObjectifyStorageIo implements  StorageIo {
           // delete any FileData objects associated with this project
         }
       }, true);
+      flushProjectNames(userId);
       // second job deletes the project files and ProjectData in the project's
       // entity group
       runJobWithRetries(new JobRetryHelper() {
@@ -844,6 +1084,29 @@ public class ObjectifyStorageIo implements  StorageIo {
     }
   }
 
+  @Override
+  public Map<Long, String> getProjectNames(final String userId) {
+    String cachekey = PROJECT_NAMES_CACHE_KEY + "|" + userId;
+    @SuppressWarnings("unchecked")
+    HashMap<Long, String> names = (HashMap<Long, String>) memcache.get(cachekey);
+    if (names == null) {
+      names = new HashMap<Long, String>();
+      for (UserProject project : getUserProjects(userId, getProjects(userId))) {
+        names.put(project.getProjectId(), project.getProjectName());
+      }
+      // A project created or deleted while we were reading flushes the cache. Only add the names
+      // if nobody has done so since, so that we do not put back a list that is already stale.
+      memcache.put(cachekey, names, Expiration.byDeltaSeconds(PROJECT_NAMES_EXPIRATION),
+          SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+    }
+    return Collections.unmodifiableMap(names);
+  }
+
+  // Called whenever a project is added to or removed from a user
+  private void flushProjectNames(String userId) {
+    memcache.delete(PROJECT_NAMES_CACHE_KEY + "|" + userId, PROJECT_NAMES_LOCKOUT);
+  }
+
   @Override
   public String getProjectName(final String userId, final long projectId) {
     final Result<String> projectName = new Result<String>();
@@ -0,0 +1,50 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.server.storage;
+
+/**
+ * A project that is being created one file at a time, so that the files of
+ * an imported project need not all be held in memory at once.
+ *
+ * Files are written to storage as they are added, and files that are stored
+ * outside the datastore may be written in parallel. The project does not
+ * exist until {@link #commit()} returns. If the import is abandoned,
+ * {@link #abort()} deletes whatever has already been written.
+ *
+ * @see StorageIo#beginProjectImport
+ */
+public interface ProjectImport {
+
+  /**
+   * Returns the id the project will have once it is committed.
+   */
+  long getProjectId();
+
+  /**
+   * Adds a source file to the project. The content may be written after this
+   * method returns, and must not be changed by the caller.
+   *
+   * @param fileName file name
+   * @param content file content
+   */
+  void addFile(String fileName, byte[] content);
+
+  /**
+   * Waits for the files to be written and then creates the project.
+   *
+   * <p>
+   * If the project cannot be created, the files already written are deleted.
+   *
+   * @return project id
+   */
+  long commit();
+
+  /**
+   * Abandons the import and deletes the files already written. Does nothing
+   * if the import was committed or already aborted.
+   */
+  void abort();
+}
@@ -21,6 +21,7 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import javax.annotation.Nullable;
@@ -134,6 +135,21 @@ public interface StorageIo {
    */
   long createProject(String userId, Project project, String projectSettings);
 
+  /**
+   * Begins creating a new project whose files are added one at a time, for
+   * importing projects too large to hold in memory.
+   *
+   * <p>
+   * Only the name, type and history of {@code project} are used. Its files
+   * are added with {@link ProjectImport#addFile}.
+   *
+   * @param userId user id
+   * @param project project information
+   * @param projectSettings project settings
+   * @return the import, which must be either committed or aborted
+   */
+  ProjectImport beginProjectImport(String userId, Project project, String projectSettings);
+
   /**
    * Deletes a project and all its files.
    *
@@ -202,6 +218,16 @@ public interface StorageIo {
 
   List<UserProject> getUserProjects(String userId, List<Long> projectIds);
 
+  /**
+   * Returns the names of all of a user's projects, keyed by project id. The
+   * names are read together and remembered until one of the user's projects
+   * is created or deleted.
+   *
+   * @param userId user ID
+   * @return map from project id to project name
+   */
+  Map<Long, String> getProjectNames(String userId);
+
   /**
    * Returns a project name.
    *
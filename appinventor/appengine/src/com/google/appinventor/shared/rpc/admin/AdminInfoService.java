@@ -39,4 +39,11 @@ public interface AdminInfoService extends RemoteService {
 
   void switchUser(AdminUser user) throws AdminInterfaceException;
 
+  /*
+   * Returns the authentication cache statistics of the server
+   * handling the request.
+   */
+
+  AuthStats getAuthStats();
+
 }
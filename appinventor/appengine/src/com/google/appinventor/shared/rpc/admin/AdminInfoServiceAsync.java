@@ -20,5 +20,6 @@ public interface AdminInfoServiceAsync {
   void searchUsers(String startingPoint, AsyncCallback<List<AdminUser>> callback);
   void storeUser(AdminUser user, AsyncCallback<Void> callback);
   void switchUser(AdminUser user, AsyncCallback<Void> callback);
+  void getAuthStats(AsyncCallback<AuthStats> callback);
 
 }
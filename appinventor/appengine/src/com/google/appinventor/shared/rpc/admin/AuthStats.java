@@ -0,0 +1,77 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.shared.rpc.admin;
+
+import com.google.gwt.user.client.rpc.IsSerializable;
+import java.io.Serializable;
+
+/**
+ * Data Transfer Object holding the authentication cache statistics of a
+ * server. Latencies are in microseconds.
+ */
+public class AuthStats implements IsSerializable, Serializable {
+
+  private long sessionLookups;
+  private long sessionHits;
+  private long sessionMeanMicros;
+  private long sessionMaxMicros;
+  private long userLookups;
+  private long userHits;
+  private long userMeanMicros;
+  private long userMaxMicros;
+
+  public AuthStats(long sessionLookups, long sessionHits, long sessionMeanMicros,
+      long sessionMaxMicros, long userLookups, long userHits, long userMeanMicros,
+      long userMaxMicros) {
+    this.sessionLookups = sessionLookups;
+    this.sessionHits = sessionHits;
+    this.sessionMeanMicros = sessionMeanMicros;
+    this.sessionMaxMicros = sessionMaxMicros;
+    this.userLookups = userLookups;
+    this.userHits = userHits;
+    this.userMeanMicros = userMeanMicros;
+    this.userMaxMicros = userMaxMicros;
+  }
+
+  /**
+   * Default constructor. This constructor is required by GWT.
+   */
+  @SuppressWarnings("unused")
+  private AuthStats() {
+  }
+
+  public long getSessionLookups() {
+    return sessionLookups;
+  }
+
+  public long getSessionHits() {
+    return sessionHits;
+  }
+
+  public long getSessionMeanMicros() {
+    return sessionMeanMicros;
+  }
+
+  public long getSessionMaxMicros() {
+    return sessionMaxMicros;
+  }
+
+  public long getUserLookups() {
+    return userLookups;
+  }
+
+  public long getUserHits() {
+    return userHits;
+  }
+
+  public long getUserMeanMicros() {
+    return userMeanMicros;
+  }
+
+  public long getUserMaxMicros() {
+    return userMaxMicros;
+  }
+}
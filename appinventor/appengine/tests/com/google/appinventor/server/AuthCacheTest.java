@@ -0,0 +1,86 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.server;
+
+import com.google.appinventor.shared.rpc.admin.AuthStats;
+import com.google.appinventor.shared.rpc.user.User;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the AuthCache class.
+ */
+public class AuthCacheTest {
+
+  @After
+  public void tearDown() {
+    AuthCache.cacheSeconds.setForTest(10);
+  }
+
+  /**
+   * Test case to ensure that sessions are remembered by cookie, and that
+   * changes to a session returned by the cache do not change the cache.
+   */
+  @Test
+  public void testSessions() {
+    AuthCache cache = new AuthCache();
+    OdeAuthFilter.UserInfo userInfo = new OdeAuthFilter.UserInfo("user1", true);
+    cache.putSession("cookie1", userInfo);
+    assertNull(cache.getSession("cookie2"));
+    OdeAuthFilter.UserInfo cached = cache.getSession("cookie1");
+    assertEquals("user1", cached.getUserId());
+    assertTrue(cached.getIsAdmin());
+    cached.setReadOnly(true);
+    assertFalse(cache.getSession("cookie1").getReadOnly());
+  }
+
+  /**
+   * Test case to ensure that only users who have accepted the terms of
+   * service are remembered, and that invalidated users are forgotten.
+   */
+  @Test
+  public void testUsers() {
+    AuthCache cache = new AuthCache();
+    cache.putUser(new User("user1", "user1@test.com", false, false, null));
+    assertNull(cache.getUser("user1"));
+    User user = new User("user1", "user1@test.com", true, false, "session1");
+    cache.putUser(user);
+    User cached = cache.getUser("user1");
+    assertNotSame(user, cached);
+    assertEquals("session1", cached.getSessionId());
+    cache.invalidateUser("user1");
+    assertNull(cache.getUser("user1"));
+  }
+
+  /**
+   * Test case to ensure that nothing is remembered when the cache is turned
+   * off, and that lookups are counted.
+   */
+  @Test
+  public void testDisabledAndStats() {
+    AuthCache.cacheSeconds.setForTest(0);
+    AuthCache cache = new AuthCache();
+    cache.putSession("cookie1", new OdeAuthFilter.UserInfo("user1", false));
+    assertNull(cache.getSession("cookie1"));
+    cache.recordSession(2000, false);
+    cache.recordSession(4000, true);
+    cache.recordUser(1000, true);
+    AuthStats stats = cache.getStats();
+    assertEquals(2, stats.getSessionLookups());
+    assertEquals(1, stats.getSessionHits());
+    assertEquals(3, stats.getSessionMeanMicros());
+    assertEquals(4, stats.getSessionMaxMicros());
+    assertEquals(1, stats.getUserLookups());
+    assertEquals(1, stats.getUserHits());
+  }
+}
@@ -0,0 +1,93 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.server;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the ConceptIndex class.
+ */
+public class ConceptIndexTest {
+
+  private static final String ONTOLOGY =
+      "@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .\n" +
+      "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n" +
+      "@prefix owl: <http://www.w3.org/2002/07/owl#> .\n" +
+      "@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n" +
+      "@prefix schema: <http://schema.org/> .\n" +
+      "@prefix ex: <http://example.com/> .\n" +
+      "ex:Thing a owl:Class .\n" +
+      "ex:Agent a owl:Class ; rdfs:subClassOf ex:Thing .\n" +
+      "ex:Person a owl:Class ; rdfs:subClassOf ex:Agent .\n" +
+      "ex:Place a owl:Class .\n" +
+      "ex:name rdfs:domain ex:Thing ; rdfs:range xsd:string .\n" +
+      "ex:age rdfs:domain ex:Person ; rdfs:range xsd:integer .\n" +
+      "ex:member rdfs:domain ex:Agent ; rdfs:range ex:Agent .\n" +
+      "ex:location rdfs:domain [ owl:unionOf ( ex:Agent ex:Place ) ] .\n" +
+      "ex:height schema:domainIncludes ex:Person ; schema:rangeIncludes schema:Number .\n";
+
+  private static ConceptIndex createIndex() {
+    Model model = ModelFactory.createDefaultModel();
+    model.read(new StringReader(ONTOLOGY), null, "TTL");
+    return new ConceptIndex(model);
+  }
+
+  private static List<String> properties(ConceptIndex index, String concept) {
+    List<String> result = new ArrayList<String>();
+    for (ConceptIndex.PropertyInfo property : index.getProperties(concept)) {
+      result.add(property.getUri().substring("http://example.com/".length()));
+    }
+    return result;
+  }
+
+  /**
+   * Test case to ensure that a class has the properties of its superclasses,
+   * nearest first, and that the results are kept.
+   */
+  @Test
+  public void testInheritedProperties() {
+    ConceptIndex index = createIndex();
+    assertEquals("[age, height, location, member, name]",
+        properties(index, "http://example.com/Person").toString());
+    assertEquals("[location]", properties(index, "http://example.com/Place").toString());
+    assertEquals("[name]", properties(index, "http://example.com/Thing").toString());
+    assertSame(index.getProperties("http://example.com/Person"),
+        index.getProperties("http://example.com/Person"));
+    assertTrue(index.contains("http://example.com/Place"));
+    assertFalse(index.contains("http://example.com/Unknown"));
+    assertEquals(0, index.getProperties("http://example.com/Unknown").size());
+  }
+
+  /**
+   * Test case to ensure that the ranges of properties are recorded, and that
+   * numeric properties are recognized.
+   */
+  @Test
+  public void testRanges() {
+    ConceptIndex index = createIndex();
+    List<ConceptIndex.PropertyInfo> properties = index.getProperties("http://example.com/Person");
+    assertEquals("[http://www.w3.org/2001/XMLSchema#integer]",
+        properties.get(0).getRanges().toString());
+    assertTrue(properties.get(0).isNumeric());
+    assertTrue(properties.get(1).isNumeric());
+    assertFalse(properties.get(2).isNumeric());
+    assertFalse(properties.get(3).isNumeric());
+    assertEquals("[http://example.com/Agent]",
+        index.getRanges("http://example.com/member").toString());
+  }
+}
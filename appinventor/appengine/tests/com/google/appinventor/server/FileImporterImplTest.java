@@ -170,6 +170,20 @@ public class FileImporterImplTest extends LocalDatastoreTestCase {
         "src/appinventor/ai_joeuser/" + projectName + "/Screen1.yail");
   }
 
+  public void testImportProject_tooLarge() throws Exception {
+    // ProjectWithAssets.zip holds a 18 KB sound followed by a 174 KB image
+    FileImporterImpl.maxProjectSizeMegs.setForTest(0.1f);
+    try {
+      importProjectArchive("ProjectWithAssets.zip", PROJECT_NAME_1);
+      fail();
+    } catch (FileImporterException e) {
+      assertEquals(UploadResponse.Status.FILE_TOO_LARGE, e.uploadResponse.getStatus());
+      assertEquals(0, storageIo.getProjects(USER_ID).size());
+    } finally {
+      FileImporterImpl.maxProjectSizeMegs.setForTest(100f);
+    }
+  }
+
   public void testEmptyZip() throws Exception {
     try {
       UserProject userProject = importProjectArchive("EmptyZip.zip", PROJECT_NAME_1);
@@ -0,0 +1,137 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.server;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for the OntologyIndex and OntologySnapshot classes.
+ */
+public class OntologyIndexTest {
+
+  private static final String ONTOLOGY =
+      "@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .\n" +
+      "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n" +
+      "@prefix owl: <http://www.w3.org/2002/07/owl#> .\n" +
+      "@prefix foaf: <http://xmlns.com/foaf/0.1/> .\n" +
+      "foaf:Person a owl:Class ; rdfs:label \"Person\" .\n" +
+      "foaf:PersonalProfileDocument a owl:Class ; rdfs:label \"PersonalProfileDocument\" .\n" +
+      "foaf:Agent a rdfs:Class ; rdfs:label \"Agent\"@en, \"Agent\"@fr .\n" +
+      "foaf:OnlineAccount a owl:Class .\n" +
+      "foaf:birthday a owl:DatatypeProperty ; rdfs:label \"birthday\" .\n" +
+      "foaf:familyName a rdf:Property ; rdfs:label \"family name\" .\n" +
+      "foaf:knows a owl:ObjectProperty ; rdfs:label \"knows\" .\n" +
+      "[] a owl:Class ; rdfs:label \"Anonymous\" .\n";
+
+  private static Model createModel() {
+    Model model = ModelFactory.createDefaultModel();
+    model.read(new StringReader(ONTOLOGY), null, "TTL");
+    return model;
+  }
+
+  private static List<String> search(OntologyIndex index, OntologyIndex.Kind kind, String text) {
+    List<String> result = new ArrayList<String>();
+    for (OntologyIndex.Entry entry : index.search(kind, text)) {
+      result.add(entry.getQName());
+    }
+    return result;
+  }
+
+  /**
+   * Test case to ensure that terms are found by the prefixes of the words of
+   * their labels and local names, in label order.
+   */
+  @Test
+  public void testSearch() {
+    OntologyIndex index = OntologyIndex.build(createModel());
+    assertEquals(7, index.getEntries().size());
+    assertEquals("[foaf:Person, foaf:PersonalProfileDocument]",
+        search(index, OntologyIndex.Kind.CLASS, "pers").toString());
+    assertEquals("[foaf:PersonalProfileDocument]",
+        search(index, OntologyIndex.Kind.CLASS, "personal prof").toString());
+    assertEquals("[foaf:OnlineAccount]",
+        search(index, OntologyIndex.Kind.CLASS, "Account").toString());
+    assertEquals("[foaf:familyName]",
+        search(index, OntologyIndex.Kind.PROPERTY, "familyn").toString());
+    assertEquals("[foaf:familyName]",
+        search(index, OntologyIndex.Kind.PROPERTY, "name").toString());
+    assertEquals("[]", search(index, OntologyIndex.Kind.PROPERTY, "person").toString());
+    assertEquals("[]", search(index, OntologyIndex.Kind.CLASS, "anon").toString());
+    assertEquals(4, search(index, OntologyIndex.Kind.CLASS, "").size());
+    assertEquals("OnlineAccount", index.search(OntologyIndex.Kind.CLASS, "online")
+        .get(0).getLabel());
+  }
+
+  /**
+   * Test case to ensure that repeated searches are answered from the cache
+   * and counted.
+   */
+  @Test
+  public void testCache() {
+    OntologyIndex index = OntologyIndex.build(createModel());
+    List<OntologyIndex.Entry> first = index.search(OntologyIndex.Kind.PROPERTY, "birth");
+    List<OntologyIndex.Entry> second = index.search(OntologyIndex.Kind.PROPERTY, " Birth ");
+    assertEquals(1, first.size());
+    assertEquals(first, second);
+    assertEquals(2, index.getSearchCount());
+    assertEquals(1, index.getCacheHitCount());
+  }
+
+  /**
+   * Test case to ensure that a snapshot is read back with the same model and
+   * index, and that a snapshot in another format is ignored.
+   */
+  @Test
+  public void testSnapshot() throws Exception {
+    Model model = createModel();
+    OntologySnapshot snapshot = new OntologySnapshot("http://xmlns.com/foaf/0.1/", 1000L, model,
+        OntologyIndex.build(model));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    snapshot.write(out);
+
+    OntologySnapshot copy = OntologySnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals("http://xmlns.com/foaf/0.1/", copy.getSource());
+    assertEquals(1000L, copy.getCreated());
+    assertEquals(model.size(), copy.getModel().size());
+    assertEquals("foaf:knows", copy.getModel().qnameFor("http://xmlns.com/foaf/0.1/knows"));
+    assertEquals(7, copy.getIndex().getEntries().size());
+    assertEquals("[foaf:knows]", search(copy.getIndex(), OntologyIndex.Kind.PROPERTY, "kn")
+        .toString());
+
+    ByteArrayOutputStream other = new ByteArrayOutputStream();
+    GZIPOutputStream gzip = new GZIPOutputStream(other);
+    gzip.write(new byte[] { 0x41, 0x49, 0x4f, 0x53, 0, 0, 0, 99 });
+    gzip.close();
+    assertNull(OntologySnapshot.read(new ByteArrayInputStream(other.toByteArray())));
+  }
+
+  /**
+   * Test case to ensure that the local concept index describes the classes of
+   * the ontologies and does not read the documents of other classes.
+   */
+  @Test
+  public void testLocalConceptIndex() {
+    Model model = createModel();
+    OntologySnapshot snapshot = new OntologySnapshot("http://xmlns.com/foaf/0.1/", 1000L, model,
+        OntologyIndex.build(model));
+    assertNotNull(snapshot.getLocalConceptIndex("http://xmlns.com/foaf/0.1/Person"));
+    assertNull(snapshot.getLocalConceptIndex("http://example.com/Unknown"));
+  }
+}
@@ -32,6 +32,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.List;
+import java.util.Map;
 
 import org.json.JSONObject;
 
@@ -199,6 +200,67 @@ public class ObjectifyStorageIoTest extends LocalDatastoreTestCase {
     fail();
   }
 
+  public void testProjectImportSuccessful() {
+    final String USER_ID = "410";
+    final String USER_EMAIL = "newuser410@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+    ProjectImport projectImport = storage.beginProjectImport(USER_ID, project, SETTINGS);
+    projectImport.addFile(FILE_NAME1, RAW_FILE_CONTENT1);
+    projectImport.addFile(RAW_FILE_NAME1, RAW_FILE_CONTENT2);
+    long projectId = projectImport.commit();
+    projectImport.abort();  // does nothing once committed
+    assertEquals(projectImport.getProjectId(), projectId);
+    assertEquals(Arrays.asList(projectId), storage.getProjects(USER_ID));
+    assertEquals(PROJECT_NAME, storage.getProjectName(USER_ID, projectId));
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT2,
+        storage.downloadRawFile(USER_ID, projectId, RAW_FILE_NAME1)));
+  }
+
+  public void testProjectImportAborted() {
+    final String USER_ID = "420";
+    final String USER_EMAIL = "newuser420@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+    ProjectImport projectImport = storage.beginProjectImport(USER_ID, project, SETTINGS);
+    projectImport.addFile(RAW_FILE_NAME1, RAW_FILE_CONTENT2);
+    projectImport.abort();
+    assertEquals(0, storage.getProjects(USER_ID).size());
+  }
+
+  public void testProjectImportFailSecond() {
+    final String USER_ID = "430";
+    final String USER_EMAIL = "newuser430@test.com";
+    // fail on second job in commit (3rd job overall)
+    StorageIo throwingStorage = new FailingJobObjectifyStorageIo(3);
+
+    try {
+      throwingStorage.getUser(USER_ID, USER_EMAIL);
+      ProjectImport projectImport = throwingStorage.beginProjectImport(USER_ID, project, SETTINGS);
+      projectImport.addFile(FILE_NAME1, RAW_FILE_CONTENT1);
+      projectImport.commit();
+    } catch (RuntimeException e) {
+      assertEquals(0, throwingStorage.getProjects(USER_ID).size());
+      return;
+    }
+
+    fail();
+  }
+
+  public void testGetProjectNames() {
+    final String USER_ID = "440";
+    final String USER_EMAIL = "newuser440@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+    assertTrue(storage.getProjectNames(USER_ID).isEmpty());
+    long projectId1 = createProject(USER_ID, "Project1", FAKE_PROJECT_TYPE, FILE_NAME1);
+    long projectId2 = createProject(USER_ID, "Project2", FAKE_PROJECT_TYPE, FILE_NAME1);
+    Map<Long, String> names = storage.getProjectNames(USER_ID);
+    assertEquals(2, names.size());
+    assertEquals("Project1", names.get(projectId1));
+    assertEquals("Project2", names.get(projectId2));
+    storage.deleteProject(USER_ID, projectId1);
+    assertEquals(Arrays.asList("Project2"),
+        new ArrayList<String>(storage.getProjectNames(USER_ID).values()));
+  }
+
   public void testUploadBeforeAdd() throws BlocksTruncatedException {
     final String USER_ID = "800";
     final String USER_EMAIL = "newuser800@test.com";
@@ -668,6 +668,31 @@ Blockly.ReplMgr.putYail = (function() {
                     console.log("Slow Path: " + allcode);
                     work.block = lastblock; // Only one block, so we can provide it
                 }
+            } else if (rs.phoneState.batch && rs.phoneState.phoneQueue.length > 1) {
+                // Send everything that is queued in one request. The Companion
+                // evaluates each block separately, in order, so errors are still
+                // reported against the block that caused them.
+                var items = rs.phoneState.phoneQueue;
+                rs.phoneState.phoneQueue = [];
+                var pairs = items.map(function(item) {
+                    return [item.block ? '"' + item.block.id + '"' : "-1", item.code];
+                });
+                work = { 'code' : JSON.stringify(pairs),
+                         'block' : null,
+                         'batch' : true,
+                         'success' : function() {
+                             items.forEach(function(item) {
+                                 if (item.success)
+                                     item.success();
+                             });
+                         },
+                         'failure' : function(message) {
+                             items.forEach(function(item) {
+                                 if (item.failure)
+                                     item.failure(message);
+                             });
+                         }
+                       };
             } else {
                 work = rs.phoneState.phoneQueue.shift();
                 if (!work) {
@@ -689,7 +714,7 @@ Blockly.ReplMgr.putYail = (function() {
                 }
             }
 
-            conn.open('POST', rs.url, true);
+            conn.open('POST', work.batch ? rs.url.replace('/_newblocks', '/_batchblocks') : rs.url, true);
             conn.onreadystatechange = function() {
                 if (this.readyState == 4 && this.status == 200) {
                     var json = goog.json.parse(this.response);
@@ -724,6 +749,7 @@ Blockly.ReplMgr.putYail = (function() {
             encoder.add('seq', rs.seq_count);
             encoder.add('code', work.code);
             encoder.add('blockid', blockid);
+            encoder.add('ack', rs.retval_ack || 0);
             var stuff = encoder.toString();
             conn.send(stuff);
         },
@@ -763,6 +789,8 @@ Blockly.ReplMgr.putYail = (function() {
                         } else {
                             rs.phoneState.nofqcn = false;
                         }
+                        // Newer Companions accept a queue of blocks in one request
+                        rs.phoneState.batch = !!json.batch;
                     }
                     // We have to reset the yail state because
                     // we may have a queue of pending yail, yet we may
@@ -803,7 +831,9 @@ Blockly.ReplMgr.putYail = (function() {
                     engine.receivefromphone(); // Continue...
                 }
             };
-            rxhr.send("IGNORED=STUFF");
+            // Acknowledge the return values we have processed, so the
+            // Companion only sends us new ones
+            rxhr.send("ack=" + (rs.retval_ack || 0));
         },
         "reset" : function() {
             if (top.usewebrtc) {
@@ -1054,6 +1084,14 @@ Blockly.ReplMgr.processRetvals = function(responses) {
 
     for (var i = 0; i < responses.length; i++) {
         var r = responses[i];
+        if (r.seq !== undefined) {
+            // Newer Companions number their return values and send them
+            // again until we acknowledge them, so skip any we have seen
+            if (r.seq <= (rs.retval_ack || 0)) {
+                continue;
+            }
+            rs.retval_ack = r.seq;
+        }
         console.log("processRetVals: " + JSON.stringify(r));
         switch(r.type) {
         case "return":
@@ -1379,6 +1417,7 @@ Blockly.ReplMgr.startRepl = function(already, chromebook, emulator, usb) {
             rs.baseurl = 'http://127.0.0.1:8001/';
             rs.extensionurl = rs.baseurl + '_extensions';
             rs.seq_count = 1;
+            rs.retval_ack = 0;
             rs.count = 0;
             return;             // startAdbDevice callbacks will continue the connection process
         }
@@ -1392,6 +1431,7 @@ Blockly.ReplMgr.startRepl = function(already, chromebook, emulator, usb) {
         }
         rs.rendezvouscode = this.sha1(rs.replcode);
         rs.seq_count = 1;          // used for the creating the hmac mac
+        rs.retval_ack = 0;         // last return value we processed
         rs.count = 0;
         if (!chromebook) {
             rs.dialog = new Blockly.Util.Dialog(Blockly.Msg.REPL_CONNECT_TO_COMPANION, this.makeDialogMessage(rs.replcode), Blockly.Msg.REPL_CANCEL, false, null, 1, function() {
@@ -1147,7 +1147,11 @@ Blockly.Versioning.AllUpgradeMaps =
     3: "noUpgrade",
 
     // AI2: LegacyMode property was added.
-    4: "noUpgrade"
+    4: "noUpgrade",
+
+    // AI2: The BatchSize, BatchLatency, Decimation and AverageDecimated properties and the
+    // SamplesReceived event were added.
+    5: "noUpgrade"
 
   }, // End Accelerometer upgraders
 
@@ -1224,6 +1228,17 @@ Blockly.Versioning.AllUpgradeMaps =
 
   }, // End BarcodeScanner upgraders
 
+  "Barometer": {
+
+    // This is initial version. Placeholder for future upgrades
+    1: "noUpgrade",
+
+    // AI2: The BatchSize, BatchLatency, Decimation and AverageDecimated properties and the
+    // SamplesReceived event were added.
+    2: "noUpgrade"
+
+  }, // End Barometer upgraders
+
   "BluetoothClient": {
 
     // AI1: The BluetoothClient.Enabled property was added.
@@ -1255,7 +1270,12 @@ Blockly.Versioning.AllUpgradeMaps =
 
     // The BluetoothClient.DisconnectOnError property was added.
     // No blocks need to be modified to upgrade to version 7.
-    7: "noUpgrade"
+    7: "noUpgrade",
+
+    // AI2: The ReceiveInBackground, ReceiveBufferSize, ReceiveBatchSize and ReceiveOverflowCount
+    // properties and the DataReceived event were added.
+    // No blocks need to be modified to upgrade to version 8.
+    8: "noUpgrade"
 
   }, // End BluetoothClient upgraders
 
@@ -1281,7 +1301,12 @@ Blockly.Versioning.AllUpgradeMaps =
 
     // The BluetoothServer.Secure property was added.
     // No blocks need to be modified to upgrade to version 5.
-    5: "noUpgrade"
+    5: "noUpgrade",
+
+    // AI2: The ReceiveInBackground, ReceiveBufferSize, ReceiveBatchSize and ReceiveOverflowCount
+    // properties and the DataReceived event were added.
+    // No blocks need to be modified to upgrade to version 6.
+    6: "noUpgrade"
 
   }, // End BluetoothServer upgraders
 
@@ -1404,10 +1429,18 @@ Blockly.Versioning.AllUpgradeMaps =
 
   "Chart": {
 
+    // The LevelOfDetail property was added.
+    // No blocks need to be modified to upgrade to version 2.
+    2: "noUpgrade"
+
   }, // End Chart upgraders
 
   "ChartData2D": {
 
+    // The ImportProgress event was added.
+    // No blocks need to be modified to upgrade to version 2.
+    2: "noUpgrade"
+
   }, // End ChartData2D upgraders
 
   "CheckBox": {
@@ -1448,7 +1481,10 @@ Blockly.Versioning.AllUpgradeMaps =
   "CloudDB": {
 
     //This is initial version. Placeholder for future upgrades
-    1: "noUpgrade"
+    1: "noUpgrade",
+
+    // AI2: Added the Pipelined, ReadConnections, PendingStores and RoundTripTime properties
+    2: "noUpgrade"
 
   },
 
@@ -1479,6 +1515,10 @@ Blockly.Versioning.AllUpgradeMaps =
 
   "DataFile": {
 
+    // The ReadFileColumns method was added.
+    // No blocks need to be modified to upgrade to version 2.
+    2: "noUpgrade"
+
   }, // End DataFile upgraders
 
 
@@ -1522,7 +1562,16 @@ Blockly.Versioning.AllUpgradeMaps =
       Blockly.Versioning.changeEventName('FeatureCollection', 'GeoGeoJSON', 'GotFeatures'),
       Blockly.Versioning.changeEventName('FeatureCollection', 'ErrorLoadingFeatureCollection', 'LoadError'),
       Blockly.Versioning.changeEventName('FeatureCollection', 'LoadedFeatureCollection', 'GotFeatures')
-    ]
+    ],
+
+    // AI2:
+    // - The StreamFromURL method, FilterBounds property, and GotFeatureBatch and FeaturesLoaded
+    //   events were added
+    3: "noUpgrade",
+
+    // AI2:
+    // - The FeaturesWithinDistance and FeaturesInBoundingBox methods were added
+    4: "noUpgrade"
   },
 
   "File": {
@@ -1573,10 +1622,25 @@ Blockly.Versioning.AllUpgradeMaps =
 
   }, // End GameClient upgraders
 
+  "GraphQL": {
+
+    // This is initial version. Placeholder for future upgrades
+    1: "noUpgrade",
+
+    // AI2: The GqlBatching, GqlPersistedQueries and GqlCaching properties and the GqlClearCache
+    // method were added.
+    2: "noUpgrade"
+
+  }, // End GraphQL upgraders
+
   "GyroscopeSensor": {
 
     // This is initial version. Placeholder for future upgrades
-    1: "noUpgrade"
+    1: "noUpgrade",
+
+    // AI2: The BatchSize, BatchLatency, Decimation and AverageDecimated properties and the
+    // SamplesReceived event were added.
+    2: "noUpgrade"
 
   }, // End GyroscopeSensor upgraders
 
@@ -1598,6 +1662,17 @@ Blockly.Versioning.AllUpgradeMaps =
 
   }, // End HorizontalScrollArrangement upgraders
 
+  "Hygrometer": {
+
+    // This is initial version. Placeholder for future upgrades
+    1: "noUpgrade",
+
+    // AI2: The BatchSize, BatchLatency, Decimation and AverageDecimated properties and the
+    // SamplesReceived event were added.
+    2: "noUpgrade"
+
+  }, // End Hygrometer upgraders
+
   "Image": {
 
     //This is initial version. Placeholder for future upgrades
@@ -1854,6 +1929,28 @@ Blockly.Versioning.AllUpgradeMaps =
   }, // End Language upgraders
 
 
+  "LdpCoapClient": {
+
+    // This is initial version. Placeholder for future upgrades
+    1: "noUpgrade",
+
+    // AI2: The Asynchronous and BlockSize properties, the Observe, StopObserving and
+    // StopObservingAll methods and the ResponseReceived and ResourceChanged events were added.
+    2: "noUpgrade"
+
+  }, // End LdpCoapClient upgraders
+
+  "LightSensor": {
+
+    // This is initial version. Placeholder for future upgrades
+    1: "noUpgrade",
+
+    // AI2: The BatchSize, BatchLatency, Decimation and AverageDecimated properties and the
+    // SamplesReceived event were added.
+    2: "noUpgrade"
+
+  }, // End LightSensor upgraders
+
   "ListPicker": {
 
     // AI1: The Alignment property was renamed to TextAlignment.
@@ -1917,6 +2014,17 @@ Blockly.Versioning.AllUpgradeMaps =
 
   }, // End LocationSensor upgraders
 
+  "MagneticFieldSensor": {
+
+    // This is initial version. Placeholder for future upgrades
+    1: "noUpgrade",
+
+    // AI2: The BatchSize, BatchLatency, Decimation and AverageDecimated properties and the
+    // SamplesReceived event were added.
+    2: "noUpgrade"
+
+  }, // End MagneticFieldSensor upgraders
+
   "Map": {
 
     // AI2:
@@ -1943,7 +2051,21 @@ Blockly.Versioning.AllUpgradeMaps =
 
     // AI2:
     // - The ScaleUnits and ShowScale properties were added to Map
-    5: "noUpgrade"
+    5: "noUpgrade",
+
+    // AI2:
+    // - The ClusterMarkers, CullFeatures, RenderedFeatureCount, CulledFeatureCount and
+    //   ClusterCount properties were added to Map
+    6: "noUpgrade",
+
+    // AI2:
+    // - The StreamFromURL method, FilterBounds property, and GotFeatureBatch and FeaturesLoaded
+    //   events were added to Map
+    7: "noUpgrade",
+
+    // AI2:
+    // - The FeaturesWithinDistance and FeaturesInBoundingBox methods were added to Map
+    8: "noUpgrade"
 
   }, // End Map upgraders
 
@@ -2370,11 +2492,31 @@ Blockly.Versioning.AllUpgradeMaps =
 
     // For FORM_COMPONENT_VERSION 27:
     // - Platform and PlatformVersion read-only blocks were added
-    27: "noUpgrade"
+    27: "noUpgrade",
+
+    // For FORM_COMPONENT_VERSION 28:
+    // - EventDispatchCount and EventDispatchTime read-only blocks were added
+    28: "noUpgrade",
+
+    // For FORM_COMPONENT_VERSION 29:
+    // - DeferHiddenComponents designer property was added
+    // - StartupTime and StartupTrace read-only blocks were added
+    29: "noUpgrade"
 
 
   }, // End Screen
 
+  "Serial": {
+
+    //This is initial version. Placeholder for future upgrades
+    1: "noUpgrade",
+
+    // AI2: The ReceiveInBackground, ReceiveBufferSize, ReceiveBatchSize, DelimiterByte and
+    // ReceiveOverflowCount properties and the DataReceived event were added.
+    2: "noUpgrade"
+
+  }, // End Serial upgraders
+
   "Sharing": {
 
     //This is initial version. Placeholder for future upgrades
@@ -2511,6 +2653,17 @@ Blockly.Versioning.AllUpgradeMaps =
 
   }, // End TextToSpeech upgraders
 
+  "Thermometer": {
+
+    // This is initial version. Placeholder for future upgrades
+    1: "noUpgrade",
+
+    // AI2: The BatchSize, BatchLatency, Decimation and AverageDecimated properties and the
+    // SamplesReceived event were added.
+    2: "noUpgrade"
+
+  }, // End Thermometer upgraders
+
   "TimePicker": {
 
     // AI2: After feedback from the forum, the timepicker dialog was updated
@@ -2531,7 +2684,11 @@ Blockly.Versioning.AllUpgradeMaps =
     1: "noUpgrade",
 
     //Added Property: Namespace
-    2: "noUpgrade"
+    2: "noUpgrade",
+
+    // Added Property: BackgroundWrites
+    // Added Method: StoreValues
+    3: "noUpgrade"
 
   }, // End TinyDB upgraders
 
@@ -2736,10 +2893,27 @@ Blockly.Versioning.AllUpgradeMaps =
 
   }, // End YandexTranslate upgraders
 
+  "LinkedData" : {
+    1: "noUpgrade",
+    2: "noUpgrade",
+    3: "noUpgrade",
+    // AI2: The UpdateDataFromLinkedDataForm and UpdateDataOnWeb methods were added.
+    4: "noUpgrade"
+  },
+
   "LinkedDataListPicker" : {
     1: "noUpgrade",
     2: "noUpgrade",
-    3: "noUpgrade"
+    3: "noUpgrade",
+    // AI2: The PageSize and UseCache properties and the ClearCache method were added.
+    4: "noUpgrade"
+  },
+
+  "LinkedDataStreamingClient" : {
+    1: "noUpgrade",
+    // AI2: The RegisterStreamQuery, UnregisterStreamQuery, AddTripleToStream, AddTriplesToStream
+    // and FeedLinkedDataToStream methods and the StreamQueryResults event were added.
+    2: "noUpgrade"
   }
 
 };
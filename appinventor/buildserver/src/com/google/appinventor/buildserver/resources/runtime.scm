@@ -93,7 +93,12 @@
   (define-alias SimplePropertyUtil <com.google.appinventor.components.runtime.util.PropertyUtil>)
   (let* ((container :: SimpleContainer (lookup-in-current-form-environment container-name))
          (existing-component (lookup-in-current-form-environment component-name))
+         (start (java.lang.System:nanoTime))
          (component-to-add (make component-type container)))
+    (when (not (eq? *this-form* #!null))
+      (*:traceStartup (as <com.google.appinventor.components.runtime.Form> *this-form*)
+                      (symbol->string component-name)
+                      com.google.appinventor.components.runtime.util.StartupTrace:CONSTRUCT start))
     (add-to-current-form-environment component-name component-to-add)
     (add-init-thunk component-name
      (lambda ()
@@ -104,17 +109,25 @@
 
 (define-alias SimpleForm <com.google.appinventor.components.runtime.Form>)
 (define-alias RdfUtil <com.google.appinventor.components.runtime.util.RdfUtil>)
+(define-alias StartupTrace <com.google.appinventor.components.runtime.util.StartupTrace>)
 
 (define (call-Initialize-of-components . component-names)
   ;; Do any inherent/implied initializations
   (for-each (lambda (component-name)
-              (let ((init-thunk (get-init-thunk component-name)))
-                (when init-thunk (init-thunk))))
+              (let ((init-thunk (get-init-thunk component-name))
+                    (start (java.lang.System:nanoTime)))
+                (when init-thunk (init-thunk))
+                (when (not (eq? *this-form* #!null))
+                  (*:traceStartup (as SimpleForm *this-form*) (symbol->string component-name)
+                                  StartupTrace:PROPERTIES start))))
             component-names)
   ;; Do the explicit component initialization methods and events
   (for-each (lambda (component-name)
-              (*:callInitialize (as SimpleForm *this-form*)
-                                (lookup-in-current-form-environment component-name)))
+              (let ((start (java.lang.System:nanoTime)))
+                (*:callInitialize (as SimpleForm *this-form*)
+                                  (lookup-in-current-form-environment component-name))
+                (*:traceStartup (as SimpleForm *this-form*) (symbol->string component-name)
+                                StartupTrace:INITIALIZE start)))
             component-names))
 
 (define *init-thunk-environment* (gnu.mapping.Environment:make 'init-thunk-environment))
@@ -329,12 +342,17 @@
 
        (define (add-to-form-environment name :: gnu.mapping.Symbol object)
          (android-log-form (format #f "Adding ~A to env ~A with value ~A" name form-environment object))
-         (gnu.mapping.Environment:put form-environment name object))
+         (gnu.mapping.Environment:put form-environment name object)
+         (com.google.appinventor.components.runtime.EventDispatcher:invalidateEventHandlers))
 
        (define (lookup-in-form-environment name :: gnu.mapping.Symbol #!optional (default-value #f))
          (if (and (not (eq? form-environment #!null))
                   (gnu.mapping.Environment:isBound form-environment name))
-             (gnu.mapping.Environment:get form-environment name)
+             (begin
+               ;; Make sure a component whose initialization was deferred is
+               ;; initialized before anybody uses it
+               ((this):initializeDeferred (symbol->string name))
+               (gnu.mapping.Environment:get form-environment name))
              default-value))
 
        (define (is-bound-in-form-environment name :: gnu.mapping.Symbol)
@@ -423,6 +441,21 @@
                               registeredComponentName :: java.lang.String
                               eventName :: java.lang.String
                               args :: java.lang.Object[]) :: boolean
+           ;; The EventDispatcher caches the handler resolved below until
+           ;; the form environment changes, so that we only need to look
+           ;; it up again after the REPL redefines something.
+           (let ((cached-handler
+                  (com.google.appinventor.components.runtime.EventDispatcher:getCachedEventHandler
+                   (as com.google.appinventor.components.runtime.HandlesEventDispatching (this))
+                   componentObject registeredComponentName eventName)))
+             (if (not (eq? cached-handler #!null))
+                 (call-event-handler cached-handler componentObject eventName args)
+                 (resolve-and-dispatch-event componentObject registeredComponentName eventName args))))
+
+       (define (resolve-and-dispatch-event componentObject :: com.google.appinventor.components.runtime.Component
+                                           registeredComponentName :: java.lang.String
+                                           eventName :: java.lang.String
+                                           args :: java.lang.Object[]) :: boolean
            ;; Check that the component object that generated the event
            ;; matches the component object associated with the
            ;; component name that registered the event.  This is
@@ -430,47 +463,20 @@
            ;; for event handlers and component names.
            (let ((registeredObject (string->symbol registeredComponentName)))
                  (if (is-bound-in-form-environment registeredObject)
-                     (if (eq? (lookup-in-form-environment registeredObject) componentObject)
-                        (let ((handler (lookup-handler registeredComponentName eventName)))
-                                ;; Note: This try-catch was originally part of the
-                                ;; generated handler from define-event.  It was moved
-                                ;; here because Kawa seems be unable to eval a
-                                ;; try-catch without compiling it and we can't support
-                                ;; compilation in anything (e.g. define-event) that
-                                ;; might get sent to the REPL!
-                                (try-catch
-                                 (begin
-                                   (apply handler (gnu.lists.LList:makeList args 0))
-                                   #t)
-                                 ;; PermissionException should be caught by a permissions-aware component and
-                                 ;; handled correctly at the point it is caught. However, older extensions
-                                 ;; might not be updated yet for SDK 23's dangerous permissions model, so if
-                                 ;; an exception bubbles all the way up to here we can still catch and report
-                                 ;; it. However, the best context we have for the PermissionDenied event is
-                                 ;; that it occurred in the just-exited event handler code.
-                                 (exception com.google.appinventor.components.runtime.errors.PermissionException
-                                  (begin
-                                    (exception:printStackTrace)
-                                    ;; Test to see if the event we are handling is the
-                                    ;; PermissionDenied of the current form. If so, then we will
-                                    ;; need to avoid re-invoking PermissionDenied.
-                                    (if (and (eq? (this) componentObject)
-                                             (equal? eventName "PermissionNeeded"))
-                                        ;; Error is occurring in the PermissionDenied handler, so we
-                                        ;; use the more general exception handler to prevent going
-                                        ;; into an infinite loop.
-                                        (process-exception exception)
-                                        ((this):PermissionDenied componentObject eventName
-                                                                 (exception:getPermissionNeeded)))
-                                    #f))
-                                 (exception java.lang.Throwable
-                                  (begin
-                                    (android-log-form (exception:getMessage))
-;;; Comment out the line below to inhibit a stack trace on a RunTimeError
-                                    (exception:printStackTrace)
-                                    (process-exception exception)
-                                    #f))))
-                        #f)
+                     (let ((boundObject (lookup-in-form-environment registeredObject)))
+                       (if (eq? boundObject componentObject)
+                           (let ((handler (lookup-handler registeredComponentName eventName)))
+                             (com.google.appinventor.components.runtime.EventDispatcher:cacheEventHandler
+                              (as com.google.appinventor.components.runtime.HandlesEventDispatching (this))
+                              componentObject registeredComponentName eventName handler)
+                             (call-event-handler handler componentObject eventName args))
+                           (begin
+                             ;; Remember which component the name is bound to, so
+                             ;; that its events can skip this handler.
+                             (com.google.appinventor.components.runtime.EventDispatcher:cacheEventHandler
+                              (as com.google.appinventor.components.runtime.HandlesEventDispatching (this))
+                              boundObject registeredComponentName eventName #!null)
+                             #f)))
                      ;; else unregister event for registeredComponentName
                      (begin
                        (com.google.appinventor.components.runtime.EventDispatcher:unregisterEventForDelegation
@@ -478,6 +484,49 @@
                          registeredComponentName eventName)
                        #f))))
 
+       (define (call-event-handler handler
+                                   componentObject :: com.google.appinventor.components.runtime.Component
+                                   eventName :: java.lang.String
+                                   args :: java.lang.Object[]) :: boolean
+         ;; Note: This try-catch was originally part of the
+         ;; generated handler from define-event.  It was moved
+         ;; here because Kawa seems be unable to eval a
+         ;; try-catch without compiling it and we can't support
+         ;; compilation in anything (e.g. define-event) that
+         ;; might get sent to the REPL!
+         (try-catch
+          (begin
+            (apply handler (gnu.lists.LList:makeList args 0))
+            #t)
+          ;; PermissionException should be caught by a permissions-aware component and
+          ;; handled correctly at the point it is caught. However, older extensions
+          ;; might not be updated yet for SDK 23's dangerous permissions model, so if
+          ;; an exception bubbles all the way up to here we can still catch and report
+          ;; it. However, the best context we have for the PermissionDenied event is
+          ;; that it occurred in the just-exited event handler code.
+          (exception com.google.appinventor.components.runtime.errors.PermissionException
+           (begin
+             (exception:printStackTrace)
+             ;; Test to see if the event we are handling is the
+             ;; PermissionDenied of the current form. If so, then we will
+             ;; need to avoid re-invoking PermissionDenied.
+             (if (and (eq? (this) componentObject)
+                      (equal? eventName "PermissionNeeded"))
+                 ;; Error is occurring in the PermissionDenied handler, so we
+                 ;; use the more general exception handler to prevent going
+                 ;; into an infinite loop.
+                 (process-exception exception)
+                 ((this):PermissionDenied componentObject eventName
+                                          (exception:getPermissionNeeded)))
+             #f))
+          (exception java.lang.Throwable
+           (begin
+             (android-log-form (exception:getMessage))
+;;; Comment out the line below to inhibit a stack trace on a RunTimeError
+             (exception:printStackTrace)
+             (process-exception exception)
+             #f))))
+
        (define (dispatchGenericEvent componentObject :: com.google.appinventor.components.runtime.Component
                                      eventName :: java.lang.String
                                      notAlreadyHandled :: boolean
@@ -551,13 +600,16 @@
                          (add-to-global-var-environment var (val-thunk))))
                      var-val-pairs))
 
+         (define-alias StartupTrace <com.google.appinventor.components.runtime.util.StartupTrace>)
+
          ;; Create each component and set its corresponding field
          (define (create-components component-descriptors)
            (for-each (lambda (component-info)
                        (let ((component-name (caddr component-info))
                              (init-thunk (cadddr component-info))
                              (component-type (cadr component-info))
-                             (component-container (lookup-in-form-environment (car component-info))))
+                             (component-container (lookup-in-form-environment (car component-info)))
+                             (start (java.lang.System:nanoTime)))
                          ;; (android-log-form
                          ;;  (format #f "making component: ~A of type: ~A with container: ~A (container-name: ~A)"
                          ;;          component-name component-type component-container (car component-info)))
@@ -566,24 +618,38 @@
                            (set! (field (this) component-name) component-object)
                            ;; Add the mapping from component name -> component object to the
                            ;; form-environment
-                           (add-to-form-environment component-name component-object))))
+                           (add-to-form-environment component-name component-object)
+                           ((this):traceStartup (symbol->string component-name)
+                                                StartupTrace:CONSTRUCT start))))
                      component-descriptors))
 
          ;; Initialize all of the components
          (define (init-components component-descriptors)
-           ;; First all the init-thunks
+           ;; First all the init-thunks. Components inside an arrangement that
+           ;; is hidden at this point may be deferred by the form, in which case
+           ;; their init-thunk and Initialize run when the arrangement is shown.
            (for-each (lambda (component-info)
-                       (let ((component-name (caddr component-info))
-                             (init-thunk (cadddr component-info)))
-                         ;; Execute the component's init-thunk.
-                         (when init-thunk (init-thunk))))
+                       (let* ((component-name (caddr component-info))
+                              (init-thunk (cadddr component-info))
+                              (name (symbol->string component-name))
+                              (component-object (field (this) component-name)))
+                         (unless ((this):deferInitialization (symbol->string (car component-info))
+                                                             name component-object init-thunk)
+                           ;; Execute the component's init-thunk.
+                           (let ((start (java.lang.System:nanoTime)))
+                             (when init-thunk (init-thunk))
+                             ((this):traceStartup name StartupTrace:PROPERTIES start))
+                           ((this):checkDeferral name component-object))))
                      component-descriptors)
            ;; Now the Initialize methods
            (for-each (lambda (component-info)
-                       (let ((component-name (caddr component-info))
-                             (init-thunk (cadddr component-info)))
-                         ;; Invoke the component's Initialize() method
-                         ((this):callInitialize (field (this) component-name))))
+                       (let* ((component-name (caddr component-info))
+                              (name (symbol->string component-name)))
+                         (unless ((this):isDeferred name)
+                           ;; Invoke the component's Initialize() method
+                           (let ((start (java.lang.System:nanoTime)))
+                             ((this):callInitialize (field (this) component-name))
+                             ((this):traceStartup name StartupTrace:INITIALIZE start)))))
                      component-descriptors))
 
          ;; A helper function
@@ -794,6 +860,8 @@
                     ;  (android-log (format #f "Adding ~A to env ~A with value ~A" name
                     ;                                     (if (not (eq? *this-form* #!null)) (*:.form-environment *this-form*) 'null)
                     ;                                     object))
+  ;; Event handlers cached by the EventDispatcher may be stale now
+  (com.google.appinventor.components.runtime.EventDispatcher:invalidateEventHandlers)
   (if (not (eq? *this-form* #!null))
       (gnu.mapping.Environment:put (*:.form-environment *this-form*) name object)
       ;; The following is really for testing.  In normal situations *this-form* should be non-null
@@ -807,10 +875,15 @@
                  ;; The following is just for testing. In normal situations *this-form* should be non-null
                  *test-environment*)))
     (if (gnu.mapping.Environment:isBound env name)
-        (gnu.mapping.Environment:get env name)
+        (begin
+          ;; A component whose initialization was deferred is initialized first
+          (when (not (eq? *this-form* #!null))
+            (*:initializeDeferred (as SimpleForm *this-form*) (symbol->string name)))
+          (gnu.mapping.Environment:get env name))
         default-value)))
 
 (define (delete-from-current-form-environment name :: gnu.mapping.Symbol)
+  (com.google.appinventor.components.runtime.EventDispatcher:invalidateEventHandlers)
   (if (not (eq? *this-form* #!null))
       (gnu.mapping.Environment:remove (*:.form-environment *this-form*) name)
       ;; The following is really for testing.  In normal situations *this-form* should be non-null
@@ -976,6 +1049,7 @@
 (define-alias String <java.lang.String>)
 (define-alias Pattern <java.util.regex.Pattern>)
 (define-alias YailList <com.google.appinventor.components.runtime.util.YailList>)
+(define-alias ArrayYailList <com.google.appinventor.components.runtime.util.ArrayYailList>)
 (define-alias YailDictionary <com.google.appinventor.components.runtime.util.YailDictionary>)
 (define-alias YailNumberToString <com.google.appinventor.components.runtime.util.YailNumberToString>)
 (define-alias YailRuntimeError <com.google.appinventor.components.runtime.errors.YailRuntimeError>)
@@ -2199,8 +2273,11 @@ list, use the make-yail-list constructor with no arguments.
 
 
 ;; Implements the Blocks length operation
+;; Array-backed lists (produced in bulk by components) know their size
 (define (yail-list-length yail-list)
-  (length (yail-list-contents yail-list)))
+  (if (instance? yail-list ArrayYailList)
+      (*:size (as ArrayYailList yail-list))
+      (length (yail-list-contents yail-list))))
 
 ;; These are removed, to simplify the API to lists
 ;; ;; Implements the Blocks first operation
@@ -2245,7 +2322,9 @@ list, use the make-yail-list constructor with no arguments.
                  len
                  (get-display-representation yail-list))
          "Select list item: List index too large")
-    (list-ref (yail-list-contents yail-list) (- index 1)))))
+    (if (instance? yail-list ArrayYailList)
+        (*:getObject (as ArrayYailList yail-list) (- index 1))
+        (list-ref (yail-list-contents yail-list) (- index 1))))))
 
 
 ;; Implements the Blocks set list item operation
@@ -591,7 +591,50 @@ public class YaVersion {
   // - BLUETOOTH_CLIENT_COMPONENT_VERSION was incremented to 7
   // For YOUNG_ANDROID_VERSION 238
   // - GRAPHQL_COMPONENT_VERSION was added.
-  public static final int YOUNG_ANDROID_VERSION = 238;
+  // For YOUNG_ANDROID_VERSION 239:
+  // - CHART_COMPONENT_VERSION was incremented to 2
+  // - CHART_DATA_2D_COMPONENT_VERSION was incremented to 2
+  // For YOUNG_ANDROID_VERSION 240:
+  // - DATA_FILE_COMPONENT_VERSION was incremented to 2
+  // For YOUNG_ANDROID_VERSION 241:
+  // - CLOUDDB_COMPONENT_VERSION was incremented to 2
+  // For YOUNG_ANDROID_VERSION 242:
+  // - TINYDB_COMPONENT_VERSION was incremented to 3
+  // For YOUNG_ANDROID_VERSION 243:
+  // - FORM_COMPONENT_VERSION was incremented to 28
+  // For YOUNG_ANDROID_VERSION 244:
+  // - FORM_COMPONENT_VERSION was incremented to 29
+  // For YOUNG_ANDROID_VERSION 245:
+  // - MAP_COMPONENT_VERSION was incremented to 6
+  // For YOUNG_ANDROID_VERSION 246:
+  // - MAP_COMPONENT_VERSION was incremented to 7
+  // - FEATURE_COLLECTION_COMPONENT_VERSION was incremented to 3
+  // For YOUNG_ANDROID_VERSION 247:
+  // - MAP_COMPONENT_VERSION was incremented to 8
+  // - FEATURE_COLLECTION_COMPONENT_VERSION was incremented to 4
+  // For YOUNG_ANDROID_VERSION 248:
+  // - BLUETOOTHCLIENT_COMPONENT_VERSION was incremented to 8
+  // - BLUETOOTHSERVER_COMPONENT_VERSION was incremented to 6
+  // - SERIAL_COMPONENT_VERSION was incremented to 2
+  // For YOUNG_ANDROID_VERSION 249:
+  // - ACCELEROMETERSENSOR_COMPONENT_VERSION was incremented to 5
+  // - BAROMETER_COMPONENT_VERSION was incremented to 2
+  // - GYROSCOPESENSOR_COMPONENT_VERSION was incremented to 2
+  // - HYGROMETER_COMPONENT_VERSION was incremented to 2
+  // - LIGHTSENSOR_COMPONENT_VERSION was incremented to 2
+  // - MAGNETICFIELDSENSOR_COMPONENT_VERSION was incremented to 2
+  // - THERMOMETER_COMPONENT_VERSION was incremented to 2
+  // For YOUNG_ANDROID_VERSION 250:
+  // - LDPCOAP_CLIENT_COMPONENT_VERSION was incremented to 2
+  // For YOUNG_ANDROID_VERSION 251:
+  // - LINKED_DATA_LISTPICKER_COMPONENT_VERSION was incremented to 4
+  // For YOUNG_ANDROID_VERSION 252:
+  // - GRAPHQL_COMPONENT_VERSION was incremented to 2
+  // For YOUNG_ANDROID_VERSION 253:
+  // - LINKEDDATASTREAMING_COMPONENT_VERSION was incremented to 2
+  // For YOUNG_ANDROID_VERSION 254:
+  // - LINKED_DATA_COMPONENT_VERSION was incremented to 4
+  public static final int YOUNG_ANDROID_VERSION = 254;
 
   // ............................... Blocks Language Version Number ...............................
 
@@ -726,7 +769,10 @@ public class YaVersion {
   // - AccelerometerSensor.Sensitivty property was added.
   //For ACCELEROMETERSENSOR_COMPONENT_VERSION 4:
   // - Added the LegacyMode property.
-  public static final int ACCELEROMETERSENSOR_COMPONENT_VERSION = 4;
+  //For ACCELEROMETERSENSOR_COMPONENT_VERSION 5:
+  // - The BatchSize, BatchLatency, Decimation and
+  //   AverageDecimated properties and the SamplesReceived event were added.
+  public static final int ACCELEROMETERSENSOR_COMPONENT_VERSION = 5;
 
   // For ACTIVITYSTARTER_COMPONENT_VERSION 2:
   // - The ActivityStarter.DataType, ActivityStarter.ResultType, and ActivityStarter.ResultUri
@@ -773,7 +819,10 @@ public class YaVersion {
   // - The BluetoothClient.DisconnectOnError property was added.
   // For BLUETOOTH_CLIENT_COMPONENT_VERSION 7:
   // - The BluuetoothClient.PollingRate property was added.
-  public static final int BLUETOOTHCLIENT_COMPONENT_VERSION = 7;
+  // For BLUETOOTHCLIENT_COMPONENT_VERSION 8:
+  // - The ReceiveInBackground, ReceiveBufferSize, ReceiveBatchSize and ReceiveOverflowCount
+  //   properties and the DataReceived event were added.
+  public static final int BLUETOOTHCLIENT_COMPONENT_VERSION = 8;
 
   // For BLUETOOTHSERVER_COMPONENT_VERSION 2:
   // - The BluetoothServer.Enabled property was added.
@@ -783,7 +832,10 @@ public class YaVersion {
   // - The BluetoothServer.DelimiterByte property was added.
   // For BLUETOOTHSERVER_COMPONENT_VERSION 5:
   // - The BluetoothServer.Secure property was added.
-  public static final int BLUETOOTHSERVER_COMPONENT_VERSION = 5;
+  // For BLUETOOTHSERVER_COMPONENT_VERSION 6:
+  // - The ReceiveInBackground, ReceiveBufferSize, ReceiveBatchSize and ReceiveOverflowCount
+  //   properties and the DataReceived event were added.
+  public static final int BLUETOOTHSERVER_COMPONENT_VERSION = 6;
 
   // For BUTTON_COMPONENT_VERSION 2:
   // - The Alignment property was renamed to TextAlignment.
@@ -839,9 +891,13 @@ public class YaVersion {
   // - BackgroundImageinBase64 was added
   public static final int CANVAS_COMPONENT_VERSION = 13;
 
-  public static final int CHART_COMPONENT_VERSION = 1;
+  // For CHART_COMPONENT_VERSION 2:
+  // - The LevelOfDetail property was added.
+  public static final int CHART_COMPONENT_VERSION = 2;
 
-  public static final int CHART_DATA_2D_COMPONENT_VERSION = 1;
+  // For CHART_DATA_2D_COMPONENT_VERSION 2:
+  // - The ImportProgress event was added.
+  public static final int CHART_DATA_2D_COMPONENT_VERSION = 2;
 
   // For CHECKBOX_COMPONENT_VERSION 2:
   // - The Value property was renamed to Checked.
@@ -879,7 +935,9 @@ public class YaVersion {
 
   public static final int DATA_VIS_COMPONENT_VERSION = 2;
   
-  public static final int DATA_FILE_COMPONENT_VERSION = 1;
+  // For DATA_FILE_COMPONENT_VERSION 2:
+  // - The ReadFileColumns method was added.
+  public static final int DATA_FILE_COMPONENT_VERSION = 2;
 
   // For DATEPICKER_COMPONENT_VERSION 2:
   // The datepicker dialog was updated to show the current date
@@ -906,7 +964,13 @@ public class YaVersion {
   // - GotGeoJSON event was renamed to GotFeatures
   // - ErrorLoadingFeatureCollection event was removed
   // - LoadedFeatureCollection event was removed
-  public static final int FEATURE_COLLECTION_COMPONENT_VERSION = 2;
+  // For FEATURE_COLLECTION_COMPONENT_VERSION 3:
+  // - Added StreamFromURL method
+  // - Added FilterBounds property
+  // - Added GotFeatureBatch and FeaturesLoaded events
+  // For FEATURE_COLLECTION_COMPONENT_VERSION 4:
+  // - Added FeaturesWithinDistance and FeaturesInBoundingBox methods
+  public static final int FEATURE_COLLECTION_COMPONENT_VERSION = 4;
 
   // For FILE_COMPONENT_VERSION 2:
   // - The AfterFileSaved event was added.
@@ -975,7 +1039,12 @@ public class YaVersion {
   // - Updated the default value of ShowListsAsJson from false -> true
   // For FORM_COMPONENT_VERSION 27:
   // - Added the Platform and PlatformVersion read-only blocks
-  public static final int FORM_COMPONENT_VERSION = 27;
+  // For FORM_COMPONENT_VERSION 28:
+  // - Added the EventDispatchCount and EventDispatchTime read-only blocks
+  // For FORM_COMPONENT_VERSION 29:
+  // - Added the DeferHiddenComponents designer property
+  // - Added the StartupTime and StartupTrace read-only blocks
+  public static final int FORM_COMPONENT_VERSION = 29;
 
 
   // For FUSIONTABLESCONTROL_COMPONENT_VERSION 2:
@@ -1001,7 +1070,10 @@ public class YaVersion {
   // - Initial version.
   public static final int GOOGLE_MAP_COMPONENT_VERSION = 1;
 
-  public static final int GYROSCOPESENSOR_COMPONENT_VERSION = 1;
+  // For GYROSCOPESENSOR_COMPONENT_VERSION 2:
+  // - The BatchSize, BatchLatency, Decimation and
+  //   AverageDecimated properties and the SamplesReceived event were added.
+  public static final int GYROSCOPESENSOR_COMPONENT_VERSION = 2;
 
   // For HORIZONTALARRANGEMENT_COMPONENT_VERSION 2:
   // - The AlignHorizontal property was added
@@ -1058,7 +1130,10 @@ public class YaVersion {
 
   public static final int LD_COMPONENT_VERSION = 1;
 
-  public static final int LDPCOAP_CLIENT_COMPONENT_VERSION = 1;
+  // For LDPCOAP_CLIENT_COMPONENT_VERSION 2:
+  // - The Asynchronous and BlockSize properties, the Observe, StopObserving and
+  //   StopObservingAll methods and the ResponseReceived and ResourceChanged events were added.
+  public static final int LDPCOAP_CLIENT_COMPONENT_VERSION = 2;
 
   // For LINESTRING_COMPONENT_VERSION 1:
   // - Initial LineString implementation for Maps
@@ -1070,7 +1145,9 @@ public class YaVersion {
   // - Renamed SemanticWeb component to LinkedData component
   // For LINKED_DATA_COMPONENT_VERSION 3:
   // - Removed BaseURL property eclipsed by FormID on Linked Data Form
-  public static final int LINKED_DATA_COMPONENT_VERSION = 3;
+  // For LINKED_DATA_COMPONENT_VERSION 4:
+  // - Added UpdateDataFromLinkedDataForm and UpdateDataOnWeb methods
+  public static final int LINKED_DATA_COMPONENT_VERSION = 4;
 
   // For SEMANTIC_FORM_COMPONENT_VERSION 1:
   // - Initial version.
@@ -1085,10 +1162,15 @@ public class YaVersion {
   // - Renamed SemanticWebListPicker to LinkedDataListPicker
   // For LINKED_DATA_LISTPICKER_COMPONENT_VERSION_3:
   // - Added RelationToObject property
-  public static final int LINKED_DATA_LISTPICKER_COMPONENT_VERSION = 3;
+  // For LINKED_DATA_LISTPICKER_COMPONENT_VERSION_4:
+  // - Added PageSize and UseCache properties and ClearCache method
+  public static final int LINKED_DATA_LISTPICKER_COMPONENT_VERSION = 4;
 
   // For LINKEDDATASTREAMING_COMPONENT_VERSION 1:
-  public static final int LINKEDDATASTREAMING_COMPONENT_VERSION = 1;
+  // For LINKEDDATASTREAMING_COMPONENT_VERSION 2:
+  // - Added RegisterStreamQuery, UnregisterStreamQuery, AddTripleToStream, AddTriplesToStream
+  //   and FeedLinkedDataToStream methods and StreamQueryResults event
+  public static final int LINKEDDATASTREAMING_COMPONENT_VERSION = 2;
 
   // For LISTPICKER_COMPONENT_VERSION 2:
   // - The Alignment property was renamed to TextAlignment.
@@ -1142,7 +1224,16 @@ public class YaVersion {
   // For MAP_COMPONENT_VERSION 5:
   // - Added ShowScale property
   // - Added ScaleUnits property
-  public static final int MAP_COMPONENT_VERSION = 5;
+  // For MAP_COMPONENT_VERSION 6:
+  // - Added ClusterMarkers and CullFeatures properties
+  // - Added RenderedFeatureCount, CulledFeatureCount and ClusterCount properties
+  // For MAP_COMPONENT_VERSION 7:
+  // - Added StreamFromURL method
+  // - Added FilterBounds property
+  // - Added GotFeatureBatch and FeaturesLoaded events
+  // For MAP_COMPONENT_VERSION 8:
+  // - Added FeaturesWithinDistance and FeaturesInBoundingBox methods
+  public static final int MAP_COMPONENT_VERSION = 8;
 
   // For MARKER_COMPONENT_VERSION 1:
   // - Initial Marker implementation using OpenStreetMap
@@ -1391,7 +1482,10 @@ public class YaVersion {
 
   // For TINYDB_COMPONENT_VERSION 2:
   // - Added Property: Namespace
-  public static final int TINYDB_COMPONENT_VERSION = 2;
+  // For TINYDB_COMPONENT_VERSION 3:
+  // - Added Property: BackgroundWrites
+  // - Added Method: StoreValues
+  public static final int TINYDB_COMPONENT_VERSION = 3;
 
   // For TINYWEBDB_COMPONENT_VERSION 2:
   // - The TinyWebDB.ShowAlert method was removed. Notifier.ShowAlert should be used instead.
@@ -1408,11 +1502,17 @@ public class YaVersion {
 
   // For CLOUDDB_COMPONENT_VERSION 1:
   // - CloudDB component introduced
-  public static final int CLOUDDB_COMPONENT_VERSION = 1;
+  // For CLOUDDB_COMPONENT_VERSION 2:
+  // - The Pipelined and ReadConnections properties were added
+  // - The PendingStores and RoundTripTime properties were added
+  public static final int CLOUDDB_COMPONENT_VERSION = 2;
 
   // For GRAPHQL_COMPONENT_VERSION 1:
   // - GraphQL component introduced.
-  public static final int GRAPHQL_COMPONENT_VERSION = 1;
+  // For GRAPHQL_COMPONENT_VERSION 2:
+  // - The GqlBatching, GqlPersistedQueries and GqlCaching properties were added.
+  // - The GqlClearCache method was added.
+  public static final int GRAPHQL_COMPONENT_VERSION = 2;
 
   // For TWITTER_COMPONENT_VERSION 2:
   // - The Authorize method and IsAuthorized event handler were added to support
@@ -1524,30 +1624,48 @@ public class YaVersion {
   public static final int PROXIMITYSENSOR_COMPONENT_VERSION = 1;
 
   //For SERIAL_COMPONENT_VERSION: Initial Version
-  public static final int SERIAL_COMPONENT_VERSION = 1;
+  //For SERIAL_COMPONENT_VERSION 2:
+  // - The ReceiveInBackground, ReceiveBufferSize, ReceiveBatchSize, DelimiterByte and
+  //   ReceiveOverflowCount properties and the DataReceived event were added.
+  public static final int SERIAL_COMPONENT_VERSION = 2;
 
   //For MAGNETICFIELDSENSOR_COMPONENT_VERSION: Initial Version
-  public static final int MAGNETICFIELDSENSOR_COMPONENT_VERSION = 1;
+  //For MAGNETICFIELDSENSOR_COMPONENT_VERSION 2:
+  // - The BatchSize, BatchLatency, Decimation and
+  //   AverageDecimated properties and the SamplesReceived event were added.
+  public static final int MAGNETICFIELDSENSOR_COMPONENT_VERSION = 2;
 
   // Rendezvous Server Location
   public static final String RENDEZVOUS_SERVER = "rendezvous.appinventor.mit.edu";
 
   // For BAROMETER_COMPONENT_VERSION 1:
   // - Initial version
+  // For BAROMETER_COMPONENT_VERSION 2:
+  // - The BatchSize, BatchLatency, Decimation and
+  //   AverageDecimated properties and the SamplesReceived event were added.
 
   // For HYGROMETER_COMPONENT_VERSION 1:
   // - Initial version
+  // For HYGROMETER_COMPONENT_VERSION 2:
+  // - The BatchSize, BatchLatency, Decimation and
+  //   AverageDecimated properties and the SamplesReceived event were added.
 
   // For LIGHTSENSOR_COMPONENT_VERSION 1:
   // - Initial version
+  // For LIGHTSENSOR_COMPONENT_VERSION 2:
+  // - The BatchSize, BatchLatency, Decimation and
+  //   AverageDecimated properties and the SamplesReceived event were added.
 
   // For THERMOMETER_COMPONENT_VERSION 1:
   // - Initial version
-
-  public static final int BAROMETER_COMPONENT_VERSION = 1;
-  public static final int HYGROMETER_COMPONENT_VERSION = 1;
-  public static final int LIGHTSENSOR_COMPONENT_VERSION = 1;
-  public static final int THERMOMETER_COMPONENT_VERSION = 1;
+  // For THERMOMETER_COMPONENT_VERSION 2:
+  // - The BatchSize, BatchLatency, Decimation and
+  //   AverageDecimated properties and the SamplesReceived event were added.
+
+  public static final int BAROMETER_COMPONENT_VERSION = 2;
+  public static final int HYGROMETER_COMPONENT_VERSION = 2;
+  public static final int LIGHTSENSOR_COMPONENT_VERSION = 2;
+  public static final int THERMOMETER_COMPONENT_VERSION = 2;
 
   // Companion Versions and Update Information
 
@@ -16,6 +16,7 @@ import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.os.Build;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.Surface;
 import android.view.WindowManager;
@@ -29,7 +30,10 @@ import com.google.appinventor.components.common.ComponentCategory;
 import com.google.appinventor.components.common.PropertyTypeConstants;
 import com.google.appinventor.components.common.YaVersion;
 import com.google.appinventor.components.runtime.util.ErrorMessages;
+import com.google.appinventor.components.runtime.util.KitkatUtil;
 import com.google.appinventor.components.runtime.util.SdkLevel;
+import com.google.appinventor.components.runtime.util.SensorBatcher;
+import com.google.appinventor.components.runtime.util.YailList;
 
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -140,6 +144,11 @@ public class AccelerometerSensor extends AndroidNonvisibleComponent
   // Used to launch Runnables on the UI Thread after a delay
   private final Handler androidUIHandler;
 
+  // Samples collected for the SamplesReceived event
+  private final SensorBatcher batcher = new SensorBatcher(3);
+  private final float[] sample = new float[3];
+  private int batchLatency = 1000;  // ms
+
   // Set of observers
   private final Set<DataSink<ObservableDataSource<String, Float>>> dataSourceObservers
       = new HashSet<>();
@@ -241,15 +250,38 @@ public class AccelerometerSensor extends AndroidNonvisibleComponent
     this.yAccel = yAccel;
     this.zAccel = zAccel;
 
-    addToSensorCache(X_CACHE, xAccel);
-    addToSensorCache(Y_CACHE, yAccel);
-    addToSensorCache(Z_CACHE, zAccel);
-
     // Notify the Data Source observers with the updated values
     notifyDataObservers("X", xAccel);
     notifyDataObservers("Y", yAccel);
     notifyDataObservers("Z", zAccel);
 
+    detectShaking(xAccel, yAccel, zAccel);
+
+    EventDispatcher.dispatchEvent(this, "AccelerationChanged", xAccel, yAccel, zAccel);
+  }
+
+  /**
+   * Indicates that a batch of samples has been read. Each sample is a list of the time in
+   * milliseconds and the X, Y and Z acceleration.
+   *
+   * @param samples the list of samples
+   */
+  @SimpleEvent(description = "Called when BatchSize samples have been read, or when the sensor "
+      + "is disabled while batching. Each sample is a list of the time in milliseconds and the "
+      + "X, Y and Z acceleration.")
+  public void SamplesReceived(YailList samples) {
+    EventDispatcher.dispatchEvent(this, "SamplesReceived", samples);
+  }
+
+  /*
+   * Updates the shake caches and raises Shaking if there was a shake and the minimum interval
+   * has elapsed since the last one.
+   */
+  private void detectShaking(float xAccel, float yAccel, float zAccel) {
+    addToSensorCache(X_CACHE, xAccel);
+    addToSensorCache(Y_CACHE, yAccel);
+    addToSensorCache(Z_CACHE, zAccel);
+
     long currentTime = System.currentTimeMillis();
 
     //Checks whether the phone is shaking and the minimum interval
@@ -259,8 +291,19 @@ public class AccelerometerSensor extends AndroidNonvisibleComponent
       timeLastShook = currentTime;
       Shaking();
     }
+  }
 
-    EventDispatcher.dispatchEvent(this, "AccelerationChanged", xAccel, yAccel, zAccel);
+  private void flushBatch() {
+    int size = batcher.size();
+    if (size > 0) {
+      // Charts still receive every kept sample
+      for (int i = 0; i < size; i++) {
+        notifyDataObservers("X", batcher.getValue(i, 0));
+        notifyDataObservers("Y", batcher.getValue(i, 1));
+        notifyDataObservers("Z", batcher.getValue(i, 2));
+      }
+      SamplesReceived(batcher.takeBatch());
+    }
   }
 
 public int getDeviceDefaultOrientation() {
@@ -337,7 +380,13 @@ public int getDeviceDefaultOrientation() {
         }
       }, 32);                   // Wait 32ms for the UI to settle down
 
-    sensorManager.registerListener(this, accelerometerSensor, SensorManager.SENSOR_DELAY_GAME);
+    batcher.setTimeBase(System.currentTimeMillis() - SystemClock.elapsedRealtime());
+    if (batcher.isBatching() && SdkLevel.getLevel() >= SdkLevel.LEVEL_KITKAT) {
+      KitkatUtil.registerListener(sensorManager, this, accelerometerSensor,
+          SensorManager.SENSOR_DELAY_GAME, batchLatency);
+    } else {
+      sensorManager.registerListener(this, accelerometerSensor, SensorManager.SENSOR_DELAY_GAME);
+    }
   }
 
   // Assumes that sensorManager has been initialized, which happens in constructor
@@ -365,9 +414,124 @@ public int getDeviceDefaultOrientation() {
       startListening();
     } else {
       stopListening();
+      flushBatch();
+    }
+  }
+
+  /**
+   * Returns the number of samples in each {@link #SamplesReceived(YailList)} event, or 0 if
+   * samples are reported one at a time.
+   *
+   * @return the number of samples in a batch
+   */
+  @SimpleProperty(
+      category = PropertyCategory.BEHAVIOR,
+      description = "The number of samples reported together by the SamplesReceived event. " +
+      "If 0, each sample is reported by the AccelerationChanged event.")
+  public int BatchSize() {
+    return batcher.getBatchSize();
+  }
+
+  /**
+   * Specifies the number of samples in each {@link #SamplesReceived(YailList)} event. While
+   * batching, {@link #AccelerationChanged(float, float, float)} is not raised, but
+   * {@link #Shaking()} still is. Set to 0 to turn batching off.
+   *
+   * @param size the number of samples in a batch
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER,
+      defaultValue = "0")
+  @SimpleProperty
+  public void BatchSize(int size) {
+    flushBatch();
+    boolean wasBatching = batcher.isBatching();
+    batcher.setBatchSize(size);
+    if (enabled && wasBatching != batcher.isBatching()) {
+      stopListening();
+      startListening();
+    }
+  }
+
+  /**
+   * Returns the longest time in milliseconds that the device may hold samples before reporting
+   * them.
+   *
+   * @return the batch latency in ms
+   */
+  @SimpleProperty(
+      category = PropertyCategory.BEHAVIOR,
+      description = "The longest time, in milliseconds, that the sensor hardware may hold " +
+      "samples before reporting them while batching. Has no effect before Android 4.4.")
+  public int BatchLatency() {
+    return batchLatency;
+  }
+
+  /**
+   * Specifies the longest time in milliseconds that the device may hold samples before reporting
+   * them while batching.
+   *
+   * @param latency the batch latency in ms
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER,
+      defaultValue = "1000")
+  @SimpleProperty
+  public void BatchLatency(int latency) {
+    batchLatency = latency;
+    if (enabled && batcher.isBatching()) {
+      stopListening();
+      startListening();
     }
   }
 
+  /**
+   * Returns how many samples are read for each sample kept while batching.
+   *
+   * @return the decimation factor
+   */
+  @SimpleProperty(
+      category = PropertyCategory.BEHAVIOR,
+      description = "While batching, only one of every Decimation samples is kept.")
+  public int Decimation() {
+    return batcher.getDecimation();
+  }
+
+  /**
+   * Specifies how many samples are read for each sample kept while batching.
+   *
+   * @param decimation the decimation factor
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER,
+      defaultValue = "1")
+  @SimpleProperty
+  public void Decimation(int decimation) {
+    batcher.setDecimation(decimation);
+  }
+
+  /**
+   * Returns whether each kept sample is the average of the samples it replaces.
+   *
+   * @return {@code true} if decimated samples are averaged
+   */
+  @SimpleProperty(
+      category = PropertyCategory.BEHAVIOR,
+      description = "If true, each kept sample is the average of the Decimation samples it " +
+      "replaces. Otherwise it is the first of them.")
+  public boolean AverageDecimated() {
+    return batcher.isAveraging();
+  }
+
+  /**
+   * Specifies whether each kept sample is the average of the samples it replaces.
+   *
+   * @param average {@code true} to average decimated samples
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "False")
+  @SimpleProperty
+  public void AverageDecimated(boolean average) {
+    batcher.setAveraging(average);
+  }
+
   /**
    * Returns the acceleration in the X-dimension in SI units (m/s²).
    * The sensor must be enabled to return meaningful values.
@@ -480,7 +644,17 @@ public int getDeviceDefaultOrientation() {
       }
       zAccel = values[2];
       accuracy = sensorEvent.accuracy;
-      AccelerationChanged(xAccel, yAccel, zAccel);
+      if (!batcher.isBatching()) {
+        AccelerationChanged(xAccel, yAccel, zAccel);
+        return;
+      }
+      detectShaking(xAccel, yAccel, zAccel);
+      sample[0] = xAccel;
+      sample[1] = yAccel;
+      sample[2] = zAccel;
+      if (batcher.add(sensorEvent.timestamp, sample)) {
+        flushBatch();
+      }
     }
   }
 
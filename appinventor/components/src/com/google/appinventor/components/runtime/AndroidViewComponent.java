@@ -74,6 +74,10 @@ public abstract class AndroidViewComponent extends VisibleComponent {
     // The principle of least astonishment suggests we not offer the
     // Android option INVISIBLE.
     getView().setVisibility(visibility ? View.VISIBLE : View.GONE);
+    if (visibility) {
+      // The screen may have deferred initializing our contents until we are shown
+      container.$form().onComponentShown(this);
+    }
   }
 
   /**
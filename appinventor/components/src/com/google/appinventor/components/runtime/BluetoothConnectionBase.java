@@ -15,9 +15,11 @@ import com.google.appinventor.components.annotations.SimpleProperty;
 import com.google.appinventor.components.common.PropertyTypeConstants;
 import com.google.appinventor.components.runtime.util.BluetoothReflection;
 import com.google.appinventor.components.runtime.util.ErrorMessages;
+import com.google.appinventor.components.runtime.util.ReceiveBuffer;
 import com.google.appinventor.components.runtime.util.SdkLevel;
 import com.google.appinventor.components.runtime.util.YailList;
 
+import android.os.Handler;
 import android.util.Log;
 
 import java.io.BufferedInputStream;
@@ -30,6 +32,7 @@ import java.io.UnsupportedEncodingException;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * An abstract base class for the BluetoothClient and BluetoothServer
@@ -56,12 +59,36 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
   private OutputStream outputStream;
   private final int sdkLevel;
 
+  // Size of the reads made by the background reader
+  private static final int READ_CHUNK_SIZE = 1024;
+
+  private Handler androidUIHandler;
+  private boolean receiveInBackground;
+  private int receiveBufferSize;
+  private int receiveBatchSize;
+
+  /**
+   * The buffer filled by the background reader of the current connection, or null if the
+   * connection is read directly. A reader whose buffer is no longer this one belongs to a closed
+   * connection and stops quietly.
+   */
+  private volatile ReceiveBuffer receiveBuffer;
+  private final AtomicBoolean deliveryPending = new AtomicBoolean(false);
+  private final Runnable deliverMessages = new Runnable() {
+    @Override
+    public void run() {
+      deliveryPending.set(false);
+      deliverReceivedMessages();
+    }
+  };
+
   /**
    * Creates a new BluetoothConnectionBase.
    */
   protected BluetoothConnectionBase(ComponentContainer container, String logTag) {
     this(container.$form(), logTag, SdkLevel.getLevel());
     form.registerForOnDestroy(this);
+    androidUIHandler = new Handler();
   }
 
   private BluetoothConnectionBase(Form form, String logTag, int sdkLevel) {
@@ -74,6 +101,9 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
     CharacterEncoding("UTF-8");
     DelimiterByte(0);
     Secure(true);
+    ReceiveInBackground(false);
+    ReceiveBufferSize(4096);
+    ReceiveBatchSize(-1);
   }
 
   /**
@@ -171,6 +201,9 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
         BluetoothReflection.getInputStream(connectedBluetoothSocket));
     outputStream = new BufferedOutputStream(
         BluetoothReflection.getOutputStream(connectedBluetoothSocket));
+    if (receiveInBackground) {
+      startReader();
+    }
     fireAfterConnectEvent();
   }
 
@@ -189,6 +222,11 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
       }
       connectedBluetoothSocket = null;
     }
+    if (receiveBuffer != null) {
+      // The reader stops when the closed socket fails its read
+      receiveBuffer.close();
+      receiveBuffer = null;
+    }
     inputStream = null;
     outputStream = null;
   }
@@ -325,6 +363,102 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
     return delimiter;
   }
 
+  /**
+   * Specifies whether bytes are read from the connected device by a background thread. The bytes
+   * are kept in a buffer of {@link #ReceiveBufferSize(int)} bytes, so that none are lost while the
+   * app is busy, and are delivered by the {@link #DataReceived(YailList)} event. The receive
+   * blocks read from the same buffer. Takes effect the next time that a connection is made.
+   *
+   * @param enabled {@code true} to read in the background
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "False")
+  @SimpleProperty
+  public void ReceiveInBackground(boolean enabled) {
+    receiveInBackground = enabled;
+  }
+
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "Whether bytes are read from the connected device by a background thread " +
+      "and delivered by the DataReceived event. Takes effect the next time that a connection " +
+      "is made.")
+  public boolean ReceiveInBackground() {
+    return receiveInBackground;
+  }
+
+  /**
+   * Sets the number of bytes kept for the app when {@link #ReceiveInBackground()} is
+   * `true`{:.logic.block}. If more bytes arrive than the app has taken, the oldest are dropped and
+   * counted in {@link #ReceiveOverflowCount()}. Takes effect the next time that a connection is
+   * made.
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER,
+      defaultValue = "4096")
+  @SimpleProperty
+  public void ReceiveBufferSize(int size) {
+    receiveBufferSize = Math.max(1, size);
+  }
+
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "The number of received bytes kept for the app when ReceiveInBackground " +
+      "is true.")
+  public int ReceiveBufferSize() {
+    return receiveBufferSize;
+  }
+
+  /**
+   * Sets how received bytes are split into the messages of the {@link #DataReceived(YailList)}
+   * event. If less than 0, each message ends with the {@link #DelimiterByte()}. If greater than 0,
+   * each message is this many bytes. If 0, the event is not raised and the bytes stay in the
+   * buffer for the receive blocks.
+   *
+   * The {@link #DelimiterByte()} defaults to 0, the null byte. Devices that send lines of text,
+   * such as an Arduino using `println`, need a {@link #DelimiterByte()} of 10 (newline), or the
+   * event is never raised.
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_INTEGER,
+      defaultValue = "-1")
+  @SimpleProperty
+  public void ReceiveBatchSize(int size) {
+    receiveBatchSize = size;
+  }
+
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "How received bytes are split into messages for DataReceived. If less " +
+      "than 0, messages end with DelimiterByte, which is 0 (the null byte) by default. Set " +
+      "DelimiterByte to 10 to receive lines of text. If greater than 0, messages are this " +
+      "many bytes. If 0, DataReceived is not raised.")
+  public int ReceiveBatchSize() {
+    return receiveBatchSize;
+  }
+
+  /**
+   * Returns the number of bytes that were dropped on the current connection because the receive
+   * buffer was full.
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "The number of received bytes dropped because the receive buffer was full.")
+  public long ReceiveOverflowCount() {
+    ReceiveBuffer buffer = receiveBuffer;
+    return buffer == null ? 0 : buffer.getOverflowCount();
+  }
+
+  /**
+   * The `DataReceived` event is run when {@link #ReceiveInBackground()} is `true`{:.logic.block}
+   * and one or more messages have been received. The `messages`{:.variable.block} are decoded
+   * with the {@link #CharacterEncoding()}, without the delimiter byte. Every message received
+   * since the last event is included, so a slow app gets fewer, larger batches. With the default
+   * {@link #ReceiveBatchSize()} messages end with the {@link #DelimiterByte()}, which is 0 unless
+   * it is changed, so set it to 10 to receive lines of text.
+   *
+   * @param messages the list of messages received
+   */
+  @SimpleEvent(description = "Messages were received in the background. The messages are " +
+      "split as given by ReceiveBatchSize.")
+  public void DataReceived(YailList messages) {
+    EventDispatcher.dispatchEvent(this, "DataReceived", messages);
+  }
+
   /**
    * Converts the given text to bytes and writes them to the output stream.
    *
@@ -837,6 +971,83 @@ public abstract class BluetoothConnectionBase extends AndroidNonvisibleComponent
     return buffer.toByteArray();
   }
 
+  /**
+   * Starts a thread that copies bytes from the connection into a new receive buffer. The receive
+   * blocks read from the buffer in place of the connection.
+   */
+  private void startReader() {
+    final InputStream in = inputStream;
+    final ReceiveBuffer buffer = new ReceiveBuffer(receiveBufferSize);
+    receiveBuffer = buffer;
+    inputStream = buffer.getInputStream();
+    Thread reader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        byte[] chunk = new byte[READ_CHUNK_SIZE];
+        while (receiveBuffer == buffer) {
+          int count;
+          try {
+            count = in.read(chunk);
+          } catch (IOException e) {
+            readerFailed(buffer, ErrorMessages.ERROR_BLUETOOTH_UNABLE_TO_READ, e.getMessage());
+            return;
+          }
+          if (count < 0) {
+            readerFailed(buffer, ErrorMessages.ERROR_BLUETOOTH_END_OF_STREAM);
+            return;
+          }
+          buffer.write(chunk, 0, count);
+          if (receiveBatchSize != 0 && deliveryPending.compareAndSet(false, true)) {
+            androidUIHandler.post(deliverMessages);
+          }
+        }
+      }
+    }, logTag + " reader");
+    reader.setDaemon(true);
+    reader.start();
+  }
+
+  private void readerFailed(final ReceiveBuffer buffer, final int errorNumber,
+      final Object... messageArgs) {
+    androidUIHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (receiveBuffer != buffer) {
+          return;  // Disconnected on purpose
+        }
+        Log.e(logTag, "Background reader stopped: " + errorNumber);
+        deliverReceivedMessages();
+        if (disconnectOnError) {
+          Disconnect();
+        }
+        bluetoothError("DataReceived", errorNumber, messageArgs);
+      }
+    });
+  }
+
+  private void deliverReceivedMessages() {
+    ReceiveBuffer buffer = receiveBuffer;
+    if (buffer == null || receiveBatchSize == 0) {
+      return;
+    }
+    List<byte[]> messages = buffer.takeMessages(receiveBatchSize, delimiter);
+    if (messages.isEmpty()) {
+      return;
+    }
+    List<String> texts = new ArrayList<String>(messages.size());
+    for (byte[] message : messages) {
+      // Messages split by the delimiter end with it, as in ReceiveText(-1).
+      int length = receiveBatchSize < 0 ? message.length - 1 : message.length;
+      try {
+        texts.add(new String(message, 0, length, encoding));
+      } catch (UnsupportedEncodingException e) {
+        Log.w(logTag, "UnsupportedEncodingException: " + e.getMessage());
+        texts.add(new String(message, 0, length));
+      }
+    }
+    DataReceived(YailList.makeList(texts));
+  }
+
   // OnDestroyListener implementation
 
   @Override
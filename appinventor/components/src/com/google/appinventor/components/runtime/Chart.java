@@ -52,6 +52,7 @@ public class Chart extends AndroidViewComponent implements ComponentContainer<Ch
   private int pieRadius;
   private boolean legendEnabled;
   private boolean gridEnabled;
+  private boolean levelOfDetail;
   private YailList labels;
 
   // Synced t value across all Data Series (used for real-time entries)
@@ -86,6 +87,7 @@ public class Chart extends AndroidViewComponent implements ComponentContainer<Ch
     PieRadius(100);
     LegendEnabled(true);
     GridEnabled(true);
+    LevelOfDetail(false);
     Labels(new YailList());
 
     // Register onInitialize event of the Chart
@@ -227,6 +229,7 @@ public class Chart extends AndroidViewComponent implements ComponentContainer<Ch
     BackgroundColor(backgroundColor);
     LegendEnabled(legendEnabled);
     GridEnabled(gridEnabled);
+    LevelOfDetail(levelOfDetail);
     Labels(labels);
   }
 
@@ -364,6 +367,45 @@ public class Chart extends AndroidViewComponent implements ComponentContainer<Ch
     }
   }
 
+  /**
+   * Returns a boolean indicating whether level-of-detail rendering
+   * is enabled on the Chart.
+   *
+   * @return True if level-of-detail rendering is enabled, false otherwise
+   */
+  @SimpleProperty
+  public boolean LevelOfDetail() {
+    return this.levelOfDetail;
+  }
+
+  /**
+   * Changes whether large Data Series are downsampled before being drawn,
+   * if the Chart Type is set to a line-based Chart (applies for Area and
+   * Line Chart types).
+   * <p>
+   * When enabled, the full data is kept in the Data components, but only
+   * about one point per horizontal pixel of the Chart is rendered. The
+   * rendered points are recomputed for the visible range whenever the
+   * Chart is zoomed or panned.
+   *
+   * @param enabled indicates whether level-of-detail rendering should be enabled.
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "False")
+  @SimpleProperty(description = "If enabled, Data Series with more entries than the Chart " +
+      "has horizontal pixels are downsampled before being drawn (applies to Area and Line Charts). " +
+      "The full data is kept, and the drawn points are recomputed on zoom.",
+      category = PropertyCategory.APPEARANCE)
+  public void LevelOfDetail(boolean enabled) {
+    this.levelOfDetail = enabled;
+
+    // Only line-based Chart Views keep their entries sorted
+    // by x value, which is required for downsampling.
+    if (chartView instanceof LineChartViewBase) {
+      ((LineChartViewBase) chartView).setLevelOfDetailEnabled(enabled);
+    }
+  }
+
   /**
    * Returns a List of Labels set to the X Axis.
    *
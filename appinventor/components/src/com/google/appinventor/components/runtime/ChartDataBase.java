@@ -8,6 +8,7 @@ package com.google.appinventor.components.runtime;
 import android.util.Log;
 import com.google.appinventor.components.annotations.DesignerProperty;
 import com.google.appinventor.components.annotations.PropertyCategory;
+import com.google.appinventor.components.annotations.SimpleEvent;
 import com.google.appinventor.components.annotations.SimpleFunction;
 import com.google.appinventor.components.annotations.SimpleObject;
 import com.google.appinventor.components.annotations.SimpleProperty;
@@ -48,6 +49,13 @@ public abstract class ChartDataBase implements Component, DataSink<ObservableDat
    */
   protected ExecutorService threadRunner;
 
+  /**
+   * Number of entries imported at a time when importing large Lists.
+   * Progress is reported after every batch via the
+   * {@link #ImportProgress(int, int)} event.
+   */
+  private static final int IMPORT_BATCH_SIZE = 1000;
+
   /**
    * Properties used in Designer to import from DataFile.
    * Represents the names of the columns to use,
@@ -505,12 +513,27 @@ public abstract class ChartDataBase implements Component, DataSink<ObservableDat
     threadRunner.execute(new Runnable() {
       @Override
       public void run() {
-        chartDataModel.importFromList(list);
+        importFromListInBatches(list);
         refreshChart();
       }
     });
   }
 
+  /**
+   * Event indicating the progress of importing a large amount of data
+   * into the Data Series (e.g. from {@link #ImportFromList(YailList)} or
+   * an attached DataFile). The event is only raised for imports of more
+   * than a thousand entries.
+   *
+   * @param entriesImported number of entries processed so far
+   * @param totalEntries    total number of entries to import
+   */
+  @SimpleEvent(description = "Event indicating the progress of importing a large List of " +
+      "entries into the Data Series. Raised only for imports of more than a thousand entries.")
+  public void ImportProgress(int entriesImported, int totalEntries) {
+    EventDispatcher.dispatchEvent(this, "ImportProgress", entriesImported, totalEntries);
+  }
+
   /**
    * Removes all the entries from the Data Series.
    */
@@ -805,7 +828,7 @@ public abstract class ChartDataBase implements Component, DataSink<ObservableDat
         }
 
         // Import from Data file with the specified parameters
-        chartDataModel.importFromColumns(dataResult);
+        importFromListInBatches(chartDataModel.getTuplesFromColumns(dataResult));
 
         // Refresh the Chart after import
         refreshChart();
@@ -855,6 +878,40 @@ public abstract class ChartDataBase implements Component, DataSink<ObservableDat
     });
   }
 
+  /**
+   * Imports the specified List of tuples into the Chart Data Model
+   * in batches, reporting the progress after each batch. Should be
+   * called from the thread runner.
+   *
+   * @param list List of tuples to import
+   */
+  private void importFromListInBatches(List list) {
+    // Copy the List first, since YailLists do not support
+    // random access (and thus efficient sub-Lists). For YailLists,
+    // the copy does not include the list header.
+    List entries = new ArrayList(list);
+    final int totalEntries = entries.size();
+
+    // Small imports are processed in one go, without progress reports
+    if (totalEntries <= IMPORT_BATCH_SIZE) {
+      chartDataModel.importFromList(entries);
+      return;
+    }
+
+    for (int i = 0; i < totalEntries; i += IMPORT_BATCH_SIZE) {
+      final int end = Math.min(i + IMPORT_BATCH_SIZE, totalEntries);
+      chartDataModel.importFromList(entries.subList(i, end));
+
+      // Events have to be dispatched on the UI thread
+      container.$context().runOnUiThread(new Runnable() {
+        @Override
+        public void run() {
+          ImportProgress(end, totalEntries);
+        }
+      });
+    }
+  }
+
   /**
    * Refreshes the Chart View object with the current up to date
    * Data Series data.
@@ -36,6 +36,7 @@ import com.google.appinventor.components.runtime.errors.YailRuntimeError;
 
 import com.google.appinventor.components.runtime.util.BulkPermissionRequest;
 import com.google.appinventor.components.runtime.util.CloudDBJedisListener;
+import com.google.appinventor.components.runtime.util.CloudDBStoreBatch;
 import com.google.appinventor.components.runtime.util.FileUtil;
 import com.google.appinventor.components.runtime.util.JsonUtil;
 import com.google.appinventor.components.runtime.util.YailList;
@@ -66,10 +67,14 @@ import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
 
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Protocol;
 import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.jedis.exceptions.JedisDataException;
 import redis.clients.jedis.exceptions.JedisException;
@@ -248,6 +253,22 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
   // iterates over the queue until it is drained.
   private final List<storedValue> storeQueue = Collections.synchronizedList(new ArrayList());
 
+  // In pipelined mode the store worker drains the whole queue at once and
+  // sends it to Redis as a single MULTI/EXEC pipeline, rather than making
+  // one round trip per tag.
+  private volatile boolean pipelined = false;
+
+  // Number of extra connections used by GetValue. When zero, reads share
+  // the background thread (and connection) with the stores, so a read
+  // always sees the values stored before it. Otherwise reads run on their
+  // own threads, each borrowing a connection from readPool.
+  private volatile int readConnections = 0;
+  private volatile ExecutorService readers = null;
+  private JedisPool readPool = null;
+
+  // Duration of the most recent round trip to the Redis server
+  private volatile long roundTripTime = 0;
+
   private ConnectivityManager cm;
 
   // Do we have storage permission yet
@@ -330,6 +351,11 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
   public void onClear() {
     shutdown = true;            // Tell the listener to stop trying
     flushJedis(false);          // to restart
+    if (readers != null) {
+      readers.shutdownNow();
+      readers = null;
+      readConnections = 0;
+    }
     if (DEBUG) {
       Log.d(LOG_TAG, "onClear() called");
     }
@@ -564,6 +590,85 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
     return useSSL;
   }
 
+  /**
+   * Specifies whether pending stores are sent to the Redis server in
+   * batches. When `true`{:.logic.block}, all of the values waiting to be
+   * stored are sent together in a single round trip, which is much faster
+   * for apps that store many tags in quick succession.
+   *
+   * @param pipelined true if stores should be batched
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "False")
+  @SimpleProperty
+  public void Pipelined(boolean pipelined) {
+    this.pipelined = pipelined;
+  }
+
+  @SimpleProperty(category = PropertyCategory.ADVANCED,
+      description = "If true, values waiting to be stored are sent to the " +
+          "CloudDB server together in a single round trip.")
+  public boolean Pipelined() {
+    return pipelined;
+  }
+
+  /**
+   * Specifies the number of additional connections used to get values. With the
+   * default of 0, [`GetValue`](#CloudDB.GetValue) waits for all earlier stores to
+   * complete. With more connections, several values can be fetched at the same
+   * time, but a value may be fetched before an earlier store of the same tag has
+   * reached the server.
+   *
+   * @param connections the number of connections used for reads
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER,
+      defaultValue = "0")
+  @SimpleProperty
+  public void ReadConnections(int connections) {
+    if (connections < 0) {
+      connections = 0;
+    }
+    if (connections != readConnections) {
+      readConnections = connections;
+      closeReadPool();
+      if (readers != null) {
+        readers.shutdown();
+      }
+      readers = connections > 0 ? Executors.newFixedThreadPool(connections) : null;
+    }
+  }
+
+  @SimpleProperty(category = PropertyCategory.ADVANCED,
+      description = "The number of additional connections used to get values. " +
+          "If 0, values are fetched one at a time after all earlier stores.")
+  public int ReadConnections() {
+    return readConnections;
+  }
+
+  /**
+   * Returns the number of values that are waiting to be sent to the CloudDB server.
+   *
+   * @return the number of pending stores
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "The number of values waiting to be sent to the CloudDB server.")
+  public int PendingStores() {
+    return storeQueue.size();
+  }
+
+  /**
+   * Returns the time, in milliseconds, taken by the most recent request to the
+   * CloudDB server.
+   *
+   * @return the duration of the last round trip in milliseconds
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "The time, in milliseconds, taken by the most recent " +
+          "request to the CloudDB server.")
+  public long RoundTripTime() {
+    return roundTripTime;
+  }
+
   private static final String SET_SUB_SCRIPT =
     "local key = KEYS[1];" +
     "local value = ARGV[1];" +
@@ -646,6 +751,10 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
         if (kickit) {
           background.submit(new Runnable() {
               public void run() {
+                if (pipelined) {
+                  drainStoreQueuePipelined();
+                  return;
+                }
                 JSONArray pendingValueList = null;
                 String pendingTag = null;
                 String pendingValue = null;
@@ -780,9 +889,12 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
     if (isConnected) {
       // Set value to either the JSON from the CloudDB
       // or the JSON representation of valueIfTagNotThere
-      background.submit(new Runnable() {
+      final ExecutorService readerExecutor = readers;
+      ExecutorService executor = readerExecutor != null ? readerExecutor : background;
+      executor.submit(new Runnable() {
           public void run() {
-            final AtomicReference<Object> value = getValueByTag(tag, valueIfTagNotThere);
+            final AtomicReference<Object> value =
+                getValueByTag(tag, valueIfTagNotThere, readerExecutor != null);
 
             // Value stored is null; Return
             if (value.get() == null) {
@@ -819,14 +931,42 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
    * @return  AtomicReference containing the indicated value
    */
   private AtomicReference<Object> getValueByTag(final String tag, final Object valueIfTagNotThere) {
+    return getValueByTag(tag, valueIfTagNotThere, false);
+  }
+
+  /**
+   * Gets the specified value from the underlying Redis database, either
+   * using the shared connection of the background thread, or a connection
+   * borrowed from the pool of read connections.
+   *
+   * @param tag  tag of the value to get
+   * @param valueIfTagNotThere  value to set to the reference if tag is not present
+   * @param pooled  true if a connection should be borrowed from the read pool
+   * @return  AtomicReference containing the indicated value
+   */
+  private AtomicReference<Object> getValueByTag(final String tag, final Object valueIfTagNotThere,
+      boolean pooled) {
     AtomicReference<Object> value = new AtomicReference<Object>();
 
-    Jedis jedis = getJedis();
+    Jedis jedis = null;
     try {
+      if (pooled) {
+        JedisPool pool = getReadPool();
+        if (pool == null) {
+          // An authentication error has disabled CloudDB
+          CloudDBError("CloudDB disabled, cannot get tag " + tag);
+          return value;
+        }
+        jedis = pool.getResource();
+      } else {
+        jedis = getJedis();
+      }
       if (DEBUG) {
         Log.d(LOG_TAG,"about to call jedis.get()");
       }
+      long start = System.nanoTime();
       String returnValue = jedis.get(projectID + ":" + tag);
+      recordRoundTrip(start);
       if (DEBUG) {
         Log.d(LOG_TAG, "finished call jedis.get()");
       }
@@ -853,10 +993,110 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
       CloudDBError(e.getMessage());
       flushJedis(true);
       value.set(null);
+    } finally {
+      if (pooled && jedis != null) {
+        jedis.close();          // Return the connection to the pool
+      }
     }
 
     return value;
   }
+
+  /*
+   * Store worker used in pipelined mode. Rather than sending one store
+   * script per tag, we take everything that is queued, coalesce it and
+   * send it in a single MULTI/EXEC pipeline. Stores queued while the
+   * pipeline is in flight are picked up by the next iteration.
+   */
+  private void drainStoreQueuePipelined() {
+    while (true) {
+      CloudDBStoreBatch batch = new CloudDBStoreBatch();
+      synchronized(storeQueue) {
+        if (storeQueue.isEmpty()) {
+          if (DEBUG) {
+            Log.d(LOG_TAG, "pipelined store worker exiting.");
+          }
+          return;
+        }
+        for (storedValue work : storeQueue) {
+          if (work.getTag() != null && work.getValueList() != null) {
+            batch.add(work.getTag(), work.getValueList().optString(0));
+          }
+        }
+        storeQueue.clear();
+      }
+      if (DEBUG) {
+        Log.d(LOG_TAG, "pipelined store: sending " + batch.size() + " tags");
+      }
+      try {
+        Jedis jedis = getJedis();
+        if (jedis == null) {
+          synchronized(storeQueue) {
+            storeQueue.clear();
+          }
+          return;
+        }
+        long start = System.nanoTime();
+        batch.execute(jedis, SET_SUB_SCRIPT, SET_SUB_SCRIPT_SHA1, projectID);
+        recordRoundTrip(start);
+      } catch (JedisException e) {
+        CloudDBError(e.getMessage());
+        flushJedis(true);
+        synchronized(storeQueue) {
+          storeQueue.clear();   // Flush pending changes, we are in
+        }
+        return;                 // an error state
+      } catch (Exception e) {
+        // The batch is already off the queue, so report that it was not stored
+        Log.e(LOG_TAG, "Exception in pipelined store worker!", e);
+        CloudDBError(e.toString());  // The message may be null
+        synchronized(storeQueue) {
+          storeQueue.clear();
+        }
+        return;
+      }
+    }
+  }
+
+  private void recordRoundTrip(long start) {
+    roundTripTime = (System.nanoTime() - start) / 1000000L;
+  }
+
+  /*
+   * Returns the pool of connections used by the reader threads, creating
+   * it with the current server settings if needed.
+   */
+  private synchronized JedisPool getReadPool() {
+    if (dead) {
+      return null;
+    }
+    if (readPool == null) {
+      GenericObjectPoolConfig config = new GenericObjectPoolConfig();
+      config.setMaxTotal(Math.max(1, readConnections));
+      // See getJedis(boolean) for why we toss a leading %
+      String password = token.startsWith("%") ? token.substring(1) : token;
+      if (useSSL) {
+        ensureSslSockFactory();
+        readPool = new JedisPool(config, redisServer, redisPort, Protocol.DEFAULT_TIMEOUT,
+            password, true, SslSockFactory, null, null);
+      } else {
+        readPool = new JedisPool(config, redisServer, redisPort, Protocol.DEFAULT_TIMEOUT,
+            password, false);
+      }
+    }
+    return readPool;
+  }
+
+  private synchronized void closeReadPool() {
+    if (readPool != null) {
+      try {
+        readPool.close();
+      } catch (Exception e) {
+        Log.e(LOG_TAG, "Error closing the read connections", e);
+      }
+      readPool = null;
+    }
+  }
  
   /**
    * Returns `true`{:.logic.block} if we are on the network and will likely be able to connect to
@@ -1261,6 +1501,7 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
    */
 
   private void flushJedis(boolean restartListener) {
+    closeReadPool();            // Pooled connections may be just as broken
     if (INSTANCE == null) {
       return;                   // Nothing to do
     }
@@ -1342,6 +1583,7 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
 
   public Object jEval(String script, String scriptsha1, int argcount, String... args) throws JedisException {
     Jedis jedis = getJedis();
+    long start = System.nanoTime();
     try {
       return jedis.evalsha(scriptsha1, argcount, args);
     } catch (JedisNoScriptException e) {
@@ -1351,6 +1593,8 @@ public final class CloudDB extends AndroidNonvisibleComponent implements Compone
       // This happens if the server doesn't have the script loaded
       // So we use regular eval, which should then cache the script
       return jedis.eval(script, argcount, args);
+    } finally {
+      recordRoundTrip(start);
     }
   }
 
@@ -13,9 +13,14 @@ import com.google.appinventor.components.common.YaVersion;
 import com.google.appinventor.components.runtime.util.*;
 import org.json.JSONException;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -39,9 +44,17 @@ import java.util.concurrent.Future;
 public class DataFile extends FileBase implements DataSource<YailList, Future<YailList>> {
   private String sourceFile;
 
-  private YailList rows;
-  private YailList columns;
-  private YailList columnNames; // Elements of the first column
+  /**
+   * Parsed contents of the file. Rows and columns are only
+   * converted to YailLists when they are first requested.
+   */
+  private DataTable table;
+
+  /**
+   * Names of the columns to keep when reading the next file,
+   * or null to keep all of the columns.
+   */
+  private Collection<String> selectedColumns;
 
   private ExecutorService threadRunner; // Used to queue & execute asynchronous tasks
 
@@ -53,9 +66,7 @@ public class DataFile extends FileBase implements DataSource<YailList, Future<Ya
   public DataFile(ComponentContainer container) {
     super(container);
 
-    rows = new YailList();
-    columns = new YailList();
-    columnNames = new YailList();
+    table = DataTable.empty();
 
     threadRunner = Executors.newSingleThreadExecutor();
   }
@@ -71,7 +82,7 @@ public class DataFile extends FileBase implements DataSource<YailList, Future<Ya
     return getYailListPropertyHelper(new Callable<YailList>() {
       @Override
       public YailList call() throws Exception {
-        return rows;
+        return table.getRows();
       }
     });
   }
@@ -88,7 +99,7 @@ public class DataFile extends FileBase implements DataSource<YailList, Future<Ya
     return getYailListPropertyHelper(new Callable<YailList>() {
       @Override
       public YailList call() throws Exception {
-        return columns;
+        return table.getColumns();
       }
     });
   }
@@ -106,7 +117,7 @@ public class DataFile extends FileBase implements DataSource<YailList, Future<Ya
     return getYailListPropertyHelper(new Callable<YailList>() {
       @Override
       public YailList call() throws Exception {
-        return columnNames;
+        return table.getColumnNames();
       }
     });
   }
@@ -171,6 +182,32 @@ public class DataFile extends FileBase implements DataSource<YailList, Future<Ya
       "and ColumnNames properties of the component.")
   public void ReadFile(String source) {
     this.sourceFile = source;
+    this.selectedColumns = null;
+
+    readFromFile(sourceFile);
+  }
+
+  /**
+   * Reads only the specified columns from the given source file. Reading a subset
+   * of the columns of a large file takes less time and memory than reading all of
+   * it with {@link #ReadFile(String)}. The results are stored in the Rows, Columns
+   * and ColumnNames properties of the component, and only contain the columns
+   * which were found in the file.
+   *
+   * @param source Source file name (see {@link #ReadFile(String)})
+   * @param columnNames List of the names of the columns to read
+   */
+  @SimpleFunction(description = "Reads only the columns with the given names from the " +
+      "source file. The source file is specified in the same way as in ReadFile. " +
+      "The results of the reading are stored in the Rows, Columns " +
+      "and ColumnNames properties of the component.")
+  public void ReadFileColumns(String source, YailList columnNames) {
+    this.sourceFile = source;
+    this.selectedColumns = new HashSet<String>();
+
+    for (int i = 0; i < columnNames.size(); ++i) {
+      this.selectedColumns.add(columnNames.getString(i));
+    }
 
     readFromFile(sourceFile);
   }
@@ -182,64 +219,51 @@ public class DataFile extends FileBase implements DataSource<YailList, Future<Ya
    * @return YailList of elements in the column
    */
   public YailList getColumn(String column) {
-    // Get the index of the column (first row - column names)
-    // 1 is subtracted from the index since YailList indexOf
-    // returns an index that is 1-based.
-    int index = columnNames.indexOf(column) - 1;
-
-    // Column not found
-    if (index < 0) {
-      return new YailList();
-    }
-
-    return (YailList) columns.getObject(index);
+    // Only the requested column is converted to a YailList
+    return table.getColumn(column);
   }
 
   @Override
   protected void AsyncRead(final InputStream inputStream, final String fileName) {
+    final Collection<String> columnsToRead = selectedColumns;
+
     // Add runnable to the Single Thread runner to read File asynchronously
     threadRunner.execute(new Runnable() {
       @Override
       public void run() {
+        BufferedInputStream input = new BufferedInputStream(inputStream);
+
         try {
-          // Parse InputStream to String
-          final String result = readFromInputStream(inputStream);
+          // Peek at the first character to determine the format
+          input.mark(1);
+          int first = input.read();
+          input.reset();
+
+          if (first == '{') {
+            // First character is a curly bracket; Assume JSON
+            // JSON is parsed as a whole, so the contents are read in full.
+            String result = readFromInputStream(input);
 
-          // First character is a curly bracket; Assume JSON
-          // TODO: When fetching columns and rows, in the case of
-          // TODO: colums/rows being uneven lengths, the final rows and columns
-          // TODO: objects will differ (the transpose will fill missing entries
-          // TODO: with blank empty String entries, while the original List will
-          // TODO: have uneven sized Lists. For consistency, this should be
-          // TODO: handled, but currently there is a bit too much overhead in doing
-          // TODO: so due to YailLists not supporting the add() operation)
-          if (result.charAt(0) == '{') {
             try {
               // Parse columns from the result
-              columns = JsonUtil.getColumnsFromJSON(result);
-
-              // Construct row lists from columns
-              rows = ChartDataSourceUtil.getTranspose(columns);
+              table = DataTable.fromJson(result, columnsToRead);
             } catch (JSONException e) {
               // JSON parsing failed; Fallback to CSV
-              rows = CsvUtil.fromCsvTable(result);
-              columns = ChartDataSourceUtil.getTranspose(rows);
+              table = DataTable.fromCsv(new StringReader(result), columnsToRead);
             }
-          } else { // Assume CSV otherwise
-            // Parse rows from the result
-            rows = CsvUtil.fromCsvTable(result);
-
-            // Construct column lists from rows
-            columns = ChartDataSourceUtil.getTranspose(rows);
+          } else if (first != -1) {
+            // Assume CSV otherwise. The rows are parsed directly
+            // from the stream into the columns of the table.
+            table = DataTable.fromCsv(new InputStreamReader(input), columnsToRead);
+          } else {
+            table = DataTable.empty();
           }
-
-          // If rows size is non-zero, set column names to first row. Otherwise,
-          // set it to an empty List.
-          columnNames = (rows.size() > 0) ? ((YailList) rows.getObject(0)) : new YailList();
         } catch (IOException e) {
           Log.e(this.getClass().getName(), e.getMessage());
         } catch (Exception e) {
           Log.e(this.getClass().getName(), e.getMessage());
+        } finally {
+          IOUtils.closeQuietly(LOG_TAG, input);
         }
       }
     });
@@ -9,9 +9,7 @@ package com.google.appinventor.components.runtime;
 import android.util.Log;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Dispatches events to component event handlers.
@@ -24,11 +22,21 @@ public class EventDispatcher {
     private final String componentId;
     private final String eventName;
 
+    // The component bound to componentId and its handler for eventName, as last resolved by the
+    // dispatch delegate. Only valid while resolvedGeneration equals handlerGeneration.
+    private Object component;
+    private Object handler;
+    private int resolvedGeneration = -1;
+
     private EventClosure(String componentId, String eventName) {
       this.componentId = componentId;
       this.eventName = eventName;
     }
 
+    private boolean isResolved() {
+      return resolvedGeneration == handlerGeneration;
+    }
+
     @Override
     public boolean equals(Object o) {
       if (this == o) {
@@ -63,16 +71,55 @@ public class EventDispatcher {
   private static final class EventRegistry {
     private final HandlesEventDispatching dispatchDelegate;
 
-    // Mapping of event names to a set of event closures.
-    // Note that by using a Set here, we'll only have one closure corresponding to a
+    // Mapping of event names to the event closures for that event, by component id.
+    // Note that by using a Map here, we'll only have one closure corresponding to a
     // given componentId-eventName.  We do not support invoking multiple handlers for a
     // single event.
-    private final HashMap<String, Set<EventClosure>> eventClosuresMap =
-        new HashMap<String, Set<EventClosure>>();
+    private final HashMap<String, Map<String, EventClosure>> eventClosuresMap =
+        new HashMap<String, Map<String, EventClosure>>();
+
+    // Copies of the event closures for each event name, iterated while dispatching so that
+    // handlers can register and unregister events. Dropped whenever the closures change.
+    private final HashMap<String, EventClosure[]> eventClosureSnapshots =
+        new HashMap<String, EventClosure[]>();
+
+    // Mapping of event names to the event closures resolved to a handler in resolvedGeneration,
+    // by the component they were resolved to.
+    private final HashMap<String, Map<Object, EventClosure>> resolvedClosuresMap =
+        new HashMap<String, Map<Object, EventClosure>>();
+    private int resolvedGeneration = -1;
 
     EventRegistry(HandlesEventDispatching dispatchDelegate) {
       this.dispatchDelegate = dispatchDelegate;
     }
+
+    private EventClosure[] getSnapshot(String eventName, Map<String, EventClosure> eventClosures) {
+      EventClosure[] snapshot = eventClosureSnapshots.get(eventName);
+      if (snapshot == null) {
+        snapshot = eventClosures.values().toArray(new EventClosure[eventClosures.size()]);
+        eventClosureSnapshots.put(eventName, snapshot);
+      }
+      return snapshot;
+    }
+
+    private Map<Object, EventClosure> getResolvedClosures(String eventName) {
+      if (resolvedGeneration != handlerGeneration) {
+        resolvedClosuresMap.clear();
+        resolvedGeneration = handlerGeneration;
+      }
+      Map<Object, EventClosure> resolvedClosures = resolvedClosuresMap.get(eventName);
+      if (resolvedClosures == null) {
+        resolvedClosures = new HashMap<Object, EventClosure>();
+        resolvedClosuresMap.put(eventName, resolvedClosures);
+      }
+      return resolvedClosures;
+    }
+
+    private void clear() {
+      eventClosuresMap.clear();
+      eventClosureSnapshots.clear();
+      resolvedClosuresMap.clear();
+    }
   }
 
   private static final boolean DEBUG = false;
@@ -80,6 +127,14 @@ public class EventDispatcher {
   private static final Map<HandlesEventDispatching, EventRegistry>
       mapDispatchDelegateToEventRegistry = new HashMap<HandlesEventDispatching, EventRegistry>();
 
+  // Incremented whenever a form environment changes (e.g., the REPL redefines an event handler
+  // or renames a component), which invalidates all resolved event closures.
+  private static int handlerGeneration = 0;
+
+  // Number of events dispatched to event handlers, and the total time spent doing so
+  private static long dispatchCount = 0;
+  private static long dispatchTimeNanos = 0;
+
   private EventDispatcher() {
   }
 
@@ -109,13 +164,16 @@ public class EventDispatcher {
   public static void registerEventForDelegation(HandlesEventDispatching dispatchDelegate,
                                                 String componentId, String eventName) {
     EventRegistry er = getEventRegistry(dispatchDelegate);
-    Set<EventClosure> eventClosures = er.eventClosuresMap.get(eventName);
+    Map<String, EventClosure> eventClosures = er.eventClosuresMap.get(eventName);
     if (eventClosures == null) {
-      eventClosures = new HashSet<EventClosure>();
+      eventClosures = new HashMap<String, EventClosure>();
       er.eventClosuresMap.put(eventName, eventClosures);
     }
 
-    eventClosures.add(new EventClosure(componentId, eventName));
+    if (!eventClosures.containsKey(componentId)) {
+      eventClosures.put(componentId, new EventClosure(componentId, eventName));
+      er.eventClosureSnapshots.remove(eventName);
+    }
     if (DEBUG) {
       Log.i("EventDispatcher", "Registered event closure for " +
           componentId + "." + eventName);
@@ -134,25 +192,86 @@ public class EventDispatcher {
   public static void unregisterEventForDelegation(HandlesEventDispatching dispatchDelegate,
                                                   String componentId, String eventName) {
     EventRegistry er = getEventRegistry(dispatchDelegate);
-    Set<EventClosure> eventClosures = er.eventClosuresMap.get(eventName);
+    Map<String, EventClosure> eventClosures = er.eventClosuresMap.get(eventName);
     if (eventClosures == null || eventClosures.isEmpty()) {
       return;
     }
-    Set<EventClosure> toDelete = new HashSet<EventClosure>();
-    for (EventClosure eventClosure : eventClosures) {
-      if (eventClosure.componentId.equals(componentId)) {
-        toDelete.add(eventClosure);
-      }
+    EventClosure eventClosure = eventClosures.remove(componentId);
+    if (eventClosure != null) {
+      er.eventClosureSnapshots.remove(eventName);
     }
-    for (EventClosure eventClosure : toDelete) {
-      if (DEBUG) {
-        Log.i("EventDispatcher", "Deleting event closure for " +
-            eventClosure.componentId + "." + eventClosure.eventName);
+    if (DEBUG && eventClosure != null) {
+      Log.i("EventDispatcher", "Deleting event closure for " +
+          eventClosure.componentId + "." + eventClosure.eventName);
+    }
+  }
+
+  /**
+   * Returns the event handler previously cached for the event with the specified component id
+   * and event name, if the component id still refers to the given component and no handler has
+   * been redefined since.
+   *
+   * @param dispatchDelegate  object responsible for dispatching the event
+   * @param component  the component raising the event
+   * @param componentId  id of component associated with event handler
+   * @param eventName  name of event
+   * @return the cached handler, or null if the handler needs to be resolved
+   */
+  // Don't delete this method. It's called from runtime.scm.
+  public static Object getCachedEventHandler(HandlesEventDispatching dispatchDelegate,
+                                             Component component, String componentId,
+                                             String eventName) {
+    EventClosure eventClosure = findEventClosure(dispatchDelegate, componentId, eventName);
+    if (eventClosure != null && eventClosure.isResolved() && eventClosure.component == component) {
+      return eventClosure.handler;
+    }
+    return null;
+  }
+
+  /**
+   * Caches the component currently bound to the specified component id, and its handler for
+   * the specified event, until the next call to {@link #invalidateEventHandlers()}.
+   *
+   * @param dispatchDelegate  object responsible for dispatching the event
+   * @param component  the object bound to componentId
+   * @param componentId  id of component associated with event handler
+   * @param eventName  name of event
+   * @param handler  the event handler, or null if component did not raise the event
+   */
+  // Don't delete this method. It's called from runtime.scm.
+  public static void cacheEventHandler(HandlesEventDispatching dispatchDelegate,
+                                       Object component, String componentId,
+                                       String eventName, Object handler) {
+    EventRegistry er = mapDispatchDelegateToEventRegistry.get(dispatchDelegate);
+    EventClosure eventClosure = findEventClosure(dispatchDelegate, componentId, eventName);
+    if (eventClosure != null) {
+      eventClosure.component = component;
+      eventClosure.handler = handler;
+      eventClosure.resolvedGeneration = handlerGeneration;
+      if (handler != null) {
+        er.getResolvedClosures(eventName).put(component, eventClosure);
       }
-      eventClosures.remove(eventClosure);
     }
   }
 
+  /**
+   * Invalidates all cached event handlers. Called whenever a form environment changes.
+   */
+  // Don't delete this method. It's called from runtime.scm.
+  public static void invalidateEventHandlers() {
+    handlerGeneration++;
+  }
+
+  private static EventClosure findEventClosure(HandlesEventDispatching dispatchDelegate,
+                                               String componentId, String eventName) {
+    EventRegistry er = mapDispatchDelegateToEventRegistry.get(dispatchDelegate);
+    if (er == null) {
+      return null;
+    }
+    Map<String, EventClosure> eventClosures = er.eventClosuresMap.get(eventName);
+    return eventClosures == null ? null : eventClosures.get(componentId);
+  }
+
   /**
    * Removes all event closures previously registered via
    * {@link EventDispatcher#registerEventForDelegation}.
@@ -160,7 +279,7 @@ public class EventDispatcher {
   // Don't delete this method. It's called from runtime.scm.
   public static void unregisterAllEventsForDelegation() {
     for (EventRegistry er : mapDispatchDelegateToEventRegistry.values()) {
-      er.eventClosuresMap.clear();
+      er.clear();
     }
   }
 
@@ -174,7 +293,7 @@ public class EventDispatcher {
   public static void removeDispatchDelegate(HandlesEventDispatching dispatchDelegate) {
     EventRegistry er = removeEventRegistry(dispatchDelegate);
     if (er != null) {
-      er.eventClosuresMap.clear();
+      er.clear();
     }
   }
 
@@ -192,46 +311,96 @@ public class EventDispatcher {
     boolean dispatched = false;
     HandlesEventDispatching dispatchDelegate = component.getDispatchDelegate();
     if (dispatchDelegate.canDispatchEvent(component, eventName)) {
+      long start = System.nanoTime();
       EventRegistry er = getEventRegistry(dispatchDelegate);
-      Set<EventClosure> eventClosures = er.eventClosuresMap.get(eventName);
+      Map<String, EventClosure> eventClosures = er.eventClosuresMap.get(eventName);
       if (eventClosures != null && eventClosures.size() > 0) {
-        dispatched = delegateDispatchEvent(dispatchDelegate, eventClosures, component, args);
+        dispatched = delegateDispatchEvent(dispatchDelegate, er, eventName, eventClosures,
+            component, args);
       }
       dispatchDelegate.dispatchGenericEvent(component, eventName, !dispatched, args);
+      dispatchCount++;
+      dispatchTimeNanos += System.nanoTime() - start;
     }
     return dispatched;
   }
 
+  /**
+   * Returns the number of events dispatched since the app started (or since the statistics
+   * were last reset).
+   */
+  public static long getDispatchCount() {
+    return dispatchCount;
+  }
+
+  /**
+   * Returns the total time in nanoseconds spent dispatching events, including the time taken
+   * by the event handlers themselves.
+   */
+  public static long getDispatchTimeNanos() {
+    return dispatchTimeNanos;
+  }
+
+  /**
+   * Resets the event dispatch statistics.
+   */
+  public static void resetDispatchStatistics() {
+    dispatchCount = 0;
+    dispatchTimeNanos = 0;
+  }
+
   /**
    * Delegates the dispatch of an event to the dispatch delegate.
    *
-   * @param eventClosures set of event closures matching the event name
+   * @param er the event registry of the dispatch delegate
+   * @param eventName name of event being raised
+   * @param eventClosures event closures matching the event name, by component id
    * @param component the component that generated the event
    * @param args  arguments to event handler
    */
   private static boolean delegateDispatchEvent(HandlesEventDispatching dispatchDelegate,
-                                               Set<EventClosure> eventClosures,
+                                               EventRegistry er, String eventName,
+                                               Map<String, EventClosure> eventClosures,
                                                Component component, Object... args) {
-    // The event closures set will contain all event closures matching the event name.
+    // The event closures map will contain all event closures matching the event name.
     // We depend on the delegate's dispatchEvent method to check the registered event closure and
     // only dispatch the event if the registered component matches the component that generated the
-    // event.  This should only be true for one (or zero) of the closures.
+    // event.  This should only be true for one (or zero) of the closures. Once the delegate has
+    // resolved a closure to the component, that closure is the only one dispatched to.
+    EventClosure resolved = er.getResolvedClosures(eventName).get(component);
+    if (resolved != null && eventClosures.get(resolved.componentId) == resolved) {
+      return dispatchToClosure(dispatchDelegate, resolved, component, args);
+    }
+    // Otherwise, try the closures not yet resolved. Closures the delegate has already resolved
+    // to a different component are skipped.
     boolean dispatched = false;
-    for (EventClosure eventClosure : eventClosures) {
-      if (dispatchDelegate.dispatchEvent(component,
-                                         eventClosure.componentId,
-                                         eventClosure.eventName,
-                                         args)) {
-        if (DEBUG) {
-          Log.i("EventDispatcher", "Successfully dispatched event " +
-              eventClosure.componentId + "." + eventClosure.eventName);
-        }
+    for (EventClosure eventClosure : er.getSnapshot(eventName, eventClosures)) {
+      if (eventClosure.isResolved() && eventClosure.component != component) {
+        continue;
+      }
+      if (dispatchToClosure(dispatchDelegate, eventClosure, component, args)) {
         dispatched = true;  // break here or keep iterating through loop?
       }
     }
     return dispatched;
   }
 
+  private static boolean dispatchToClosure(HandlesEventDispatching dispatchDelegate,
+                                           EventClosure eventClosure,
+                                           Component component, Object... args) {
+    if (dispatchDelegate.dispatchEvent(component,
+                                       eventClosure.componentId,
+                                       eventClosure.eventName,
+                                       args)) {
+      if (DEBUG) {
+        Log.i("EventDispatcher", "Successfully dispatched event " +
+            eventClosure.componentId + "." + eventClosure.eventName);
+      }
+      return true;
+    }
+    return false;
+  }
+
   // Don't delete this method. It's called from runtime.scm.
   public static String makeFullEventName(String componentId, String eventName) {
     if (DEBUG) {
@@ -83,6 +83,23 @@ public class FeatureCollection extends MapFeatureContainerBase implements MapFea
     super.GotFeatures(url, features);
   }
 
+  /**
+   * The `FeaturesLoaded` event is run when {@link #StreamFromURL(String)} has read the whole
+   * document at the given `url`{:.variable.block}. The `count`{:.variable.block} parameter is the
+   * number of features read, and `skipped`{:.variable.block} is the number of features dropped
+   * because they were outside of {@link #FilterBounds()}.
+   *
+   * @param url the url corresponding to the requested url in {@link #StreamFromURL(String)}
+   * @param count the number of features read
+   * @param skipped the number of features outside of the filter bounds
+   */
+  @Override
+  @SimpleEvent(description = "All of the features at url have been read by StreamFromURL.")
+  public void FeaturesLoaded(String url, int count, int skipped) {
+    source = url;
+    super.FeaturesLoaded(url, count, skipped);
+  }
+
   @Override
   @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_GEOJSON_TYPE)
   public void Source(String source) {
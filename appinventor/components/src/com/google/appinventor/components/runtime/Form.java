@@ -78,7 +78,9 @@ import com.google.appinventor.components.runtime.util.MediaUtil;
 import com.google.appinventor.components.runtime.util.OnInitializeListener;
 import com.google.appinventor.components.runtime.util.ScreenDensityUtil;
 import com.google.appinventor.components.runtime.util.SdkLevel;
+import com.google.appinventor.components.runtime.util.StartupTrace;
 import com.google.appinventor.components.runtime.util.ViewUtil;
+import com.google.appinventor.components.runtime.util.YailList;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -304,6 +306,41 @@ public class Form extends AppInventorCompatActivity
   // private ArrayList<PercentStorageRecord> dimChanges = new ArrayList();
   private LinkedHashMap<Integer, PercentStorageRecord> dimChanges = new LinkedHashMap();
 
+  // Timing of the creation of the components of this screen
+  private final StartupTrace startupTrace = new StartupTrace();
+
+  // Whether the designer properties and Initialize of components in hidden arrangements
+  // are deferred until the arrangement is shown, and those of Linked Data components until
+  // they are first used
+  private boolean deferHiddenComponents = false;
+
+  /**
+   * A component whose designer properties and Initialize have been deferred.
+   */
+  private static class DeferredComponent {
+    final String name;
+    final Component component;
+    final Object initThunk;
+
+    DeferredComponent(String name, Component component, Object initThunk) {
+      this.name = name;
+      this.component = component;
+      this.initThunk = initThunk;
+    }
+  }
+
+  // Deferred components, keyed by the name of the hidden arrangement that contains them, or
+  // by their own name for Linked Data components
+  private final Map<String, List<DeferredComponent>> deferredGroups =
+      new HashMap<String, List<DeferredComponent>>();
+  // The hidden arrangements with deferred components, mapped to their names
+  private final Map<Component, String> deferredRoots = new HashMap<Component, String>();
+  // The name of the hidden arrangement for each deferred component
+  private final Map<String, String> deferredOwners = new HashMap<String, String>();
+  // Hidden arrangements shown while the components are being defined are only initialized once
+  // all of the components have been defined
+  private boolean definingComponents = false;
+
   private static class MultiDexInstaller extends AsyncTask<Form, Void, Boolean> {
     Form ourForm;
 
@@ -485,7 +522,16 @@ public class Form extends AppInventorCompatActivity
 
 
     // Add application components to the form
-    $define();
+    startupTrace.start();
+    definingComponents = true;
+    try {
+      $define();
+    } finally {
+      definingComponents = false;
+    }
+    initializeShownComponents();
+    startupTrace.finish();
+    Log.i(LOG_TAG, formName + ": " + startupTrace.summary(5));
 
     // Special case for Event.Initialize(): all other initialize events are triggered after
     // completing the constructor. This doesn't work for Android apps though because this method
@@ -2110,6 +2156,218 @@ public class Form extends AppInventorCompatActivity
     return Build.VERSION.RELEASE;
   }
 
+  /**
+   * Gets the number of events that have been dispatched to event handlers since the app started.
+   * Sampling this value periodically (for example, from a Clock) gives the event throughput.
+   *
+   * @return The number of dispatched events
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "The number of events dispatched since the app started.")
+  public long EventDispatchCount() {
+    return EventDispatcher.getDispatchCount();
+  }
+
+  /**
+   * Gets the average time, in milliseconds, taken to dispatch an event, including the time spent
+   * running its event handler.
+   *
+   * @return The average event dispatch time in milliseconds
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "The average time, in milliseconds, taken to dispatch an event and run its "
+      + "event handler.")
+  public double EventDispatchTime() {
+    long count = EventDispatcher.getDispatchCount();
+    return count == 0 ? 0 : EventDispatcher.getDispatchTimeNanos() / 1000000.0 / count;
+  }
+
+  /**
+   * Specifies whether the designer properties and `Initialize` methods of the components in
+   * arrangements that are hidden when the screen starts are deferred until the arrangement is
+   * first shown, or until one of its components is first used in the blocks. The same applies to
+   * {@link LinkedData} and {@link Reasoner} components, which are only initialized when they are
+   * first used in the blocks. This makes screens with many hidden components appear sooner.
+   *
+   * @param defer true to defer the initialization of hidden components
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "False")
+  @SimpleProperty(userVisible = false)
+  public void DeferHiddenComponents(boolean defer) {
+    deferHiddenComponents = defer;
+  }
+
+  /**
+   * Returns whether the initialization of components in hidden arrangements is deferred.
+   *
+   * @return true if the initialization of hidden components is deferred
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR, userVisible = false,
+      description = "If true, the properties and Initialize of the components in arrangements "
+      + "that are hidden when the screen starts are deferred until the arrangement is shown, "
+      + "and those of LinkedData and Reasoner components until they are first used.")
+  public boolean DeferHiddenComponents() {
+    return deferHiddenComponents;
+  }
+
+  /**
+   * Gets the time, in milliseconds, taken to create the components of the screen, set their
+   * designer properties and initialize them.
+   *
+   * @return The startup time in milliseconds
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "The time, in milliseconds, taken to create and initialize the components "
+      + "of the screen.")
+  public double StartupTime() {
+    return startupTrace.getStartupTime();
+  }
+
+  /**
+   * Gets a list with one entry per component of the screen, in the order they were created.
+   * Each entry is a list of the component name and the milliseconds spent constructing the
+   * component, setting its designer properties, and running its `Initialize` method.
+   *
+   * @return The startup trace
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "A list with, for each component, its name and the milliseconds spent "
+      + "constructing it, setting its designer properties and initializing it.")
+  public YailList StartupTrace() {
+    return startupTrace.toYailList();
+  }
+
+  // This is used by runtime.scm to record the time spent on a component.
+  public void traceStartup(String componentName, int phase, long startNanos) {
+    startupTrace.record(componentName, phase, System.nanoTime() - startNanos);
+  }
+
+  // This is used by runtime.scm while initializing components. If the component is inside a
+  // hidden arrangement, or inside one of its deferred components, its designer properties and
+  // Initialize are deferred and we return true. Linked Data components only do work when the
+  // blocks call them, so they are deferred on their own until they are first looked up.
+  public boolean deferInitialization(String containerName, String componentName,
+      Component component, Object initThunk) {
+    if (deferHiddenComponents && component instanceof LinkedDataBase) {
+      List<DeferredComponent> group = new ArrayList<DeferredComponent>();
+      group.add(new DeferredComponent(componentName, component, initThunk));
+      deferredGroups.put(componentName, group);
+      deferredOwners.put(componentName, componentName);
+      return true;
+    }
+    if (deferredGroups.isEmpty()) {
+      return false;
+    }
+    String root = deferredGroups.containsKey(containerName)
+        ? containerName : deferredOwners.get(containerName);
+    if (root == null) {
+      return false;
+    }
+    deferredGroups.get(root).add(new DeferredComponent(componentName, component, initThunk));
+    deferredOwners.put(componentName, root);
+    return true;
+  }
+
+  // This is used by runtime.scm after setting the designer properties of a component. If the
+  // component is an arrangement that is hidden, the initialization of its contents is deferred.
+  public void checkDeferral(String componentName, Component component) {
+    if (deferHiddenComponents && component instanceof ComponentContainer
+        && component instanceof AndroidViewComponent
+        && !((AndroidViewComponent) component).Visible()) {
+      deferredGroups.put(componentName, new ArrayList<DeferredComponent>());
+      deferredRoots.put(component, componentName);
+    }
+  }
+
+  // This is used by runtime.scm to check whether the initialization of a component is deferred.
+  public boolean isDeferred(String componentName) {
+    return deferredOwners.containsKey(componentName);
+  }
+
+  // This is used by runtime.scm before handing out a component, so that the blocks never see a
+  // deferred component without its designer properties. This includes lookups made while the
+  // components are being defined, e.g. by a designer property whose value is a component.
+  public void initializeDeferred(String componentName) {
+    if (deferredOwners.isEmpty()) {
+      return;
+    }
+    String root = deferredOwners.get(componentName);
+    if (root != null) {
+      initializeDeferredGroup(root);
+    }
+  }
+
+  // Called when a component is made visible.
+  void onComponentShown(Component component) {
+    if (deferredRoots.isEmpty() || definingComponents) {
+      return;
+    }
+    String root = deferredRoots.get(component);
+    if (root != null) {
+      initializeDeferredGroup(root);
+    }
+  }
+
+  // Initializes the contents of the hidden arrangements that were shown while the components
+  // were being defined.
+  private void initializeShownComponents() {
+    List<String> shown = new ArrayList<String>();
+    for (Map.Entry<Component, String> entry : deferredRoots.entrySet()) {
+      if (((AndroidViewComponent) entry.getKey()).Visible()) {
+        shown.add(entry.getValue());
+      }
+    }
+    for (String root : shown) {
+      initializeDeferredGroup(root);
+    }
+  }
+
+  private void initializeDeferredGroup(String root) {
+    List<DeferredComponent> group = deferredGroups.remove(root);
+    for (Map.Entry<Component, String> entry : deferredRoots.entrySet()) {
+      if (entry.getValue().equals(root)) {
+        deferredRoots.remove(entry.getKey());
+        break;
+      }
+    }
+    if (group == null) {
+      return;
+    }
+    Log.d(LOG_TAG, "Initializing " + group.size() + " deferred components in " + root);
+    try {
+      // Same order as at startup: first all the designer properties, then the Initialize methods
+      for (DeferredComponent deferred : group) {
+        if (deferred.initThunk instanceof gnu.mapping.Procedure) {
+          long start = System.nanoTime();
+          ((gnu.mapping.Procedure) deferred.initThunk).apply0();
+          traceStartup(deferred.name, StartupTrace.PROPERTIES, start);
+        }
+      }
+      // While the components are being defined, init-components calls Initialize itself for
+      // every component that is no longer deferred
+      if (!definingComponents) {
+        for (DeferredComponent deferred : group) {
+          long start = System.nanoTime();
+          callInitialize(deferred.component);
+          traceStartup(deferred.name, StartupTrace.INITIALIZE, start);
+        }
+      }
+    } catch (Throwable e) {
+      // The init-thunks and Initialize are declared to throw Throwable
+      if (e instanceof Error) {
+        throw (Error) e;
+      }
+      throw gnu.mapping.WrappedException.wrapIfNeeded(e);
+    } finally {
+      // The group is no longer deferred, even if one of its components failed to initialize,
+      // so that a failure is reported once rather than on every lookup
+      for (DeferredComponent deferred : group) {
+        deferredOwners.remove(deferred.name);
+      }
+    }
+  }
+
   /**
    * Display a new form.
    *
@@ -2528,6 +2786,10 @@ public class Form extends AppInventorCompatActivity
     }
     // And reset the list
     onClearListeners.clear();
+    deferredGroups.clear();
+    deferredRoots.clear();
+    deferredOwners.clear();
+    startupTrace.start();
     System.err.println("Form.clear() About to do moby GC!");
     System.gc();
     dimChanges.clear();
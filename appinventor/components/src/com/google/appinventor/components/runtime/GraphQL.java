@@ -25,6 +25,7 @@ import com.google.appinventor.components.runtime.util.AsynchUtil;
 import com.google.appinventor.components.runtime.util.ErrorMessages;
 import com.google.appinventor.components.runtime.util.FileUtil;
 import com.google.appinventor.components.runtime.util.GingerbreadUtil;
+import com.google.appinventor.components.runtime.util.GqlCache;
 import com.google.appinventor.components.runtime.util.JsonUtil;
 import gnu.lists.FString;
 import org.json.JSONArray;
@@ -41,6 +42,8 @@ import java.net.HttpURLConnection;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -54,6 +57,10 @@ import java.util.Map;
  * returned data as a dictionary. All queries have an associated operation name and are executed asynchronously.
  * Completed queries trigger different events depending on whether there the queries had any errors.
  *
+ * <p>Queries can optionally be batched, sent as persisted query hashes instead of their full text, and answered from a
+ * normalized cache of earlier results. Each of these is off by default, since batching and persisted queries need
+ * support from the endpoint.
+ *
  * @author lujingcen@gmail.com (Lujing Cen)
  */
 @DesignerComponent(version = YaVersion.GRAPHQL_COMPONENT_VERSION,
@@ -67,6 +74,26 @@ import java.util.Map;
 @UsesLibraries(libraries = "json.jar")
 public class GraphQL extends AndroidNonvisibleComponent implements Component {
   private static final String LOG_TAG = "GraphQL";
+  private static final int MAX_CACHED_RESULTS = 100;
+  private static final long CACHE_LIFETIME = 10 * 60 * 1000;  // ms
+  private static final String PERSISTED_QUERY_NOT_FOUND = "PersistedQueryNotFound";
+  private static final String PERSISTED_QUERY_NOT_SUPPORTED = "PersistedQueryNotSupported";
+
+  /**
+   * A query waiting to be sent to the endpoint.
+   */
+  private static class PendingQuery {
+    private final String name;
+    private final String query;
+
+    // Whether the query text must be sent along with its persisted query hash.
+    private boolean sendText = false;
+
+    private PendingQuery(final String name, final String query) {
+      this.name = name;
+      this.query = query;
+    }
+  }
 
   private final Handler androidUIHandler;
   private final Activity activity;
@@ -78,6 +105,28 @@ public class GraphQL extends AndroidNonvisibleComponent implements Component {
   private String endpointURL;
   private String httpHeaders;
 
+  private boolean batching = false;
+  private boolean persistedQueries = false;
+  private boolean caching = false;
+
+  // Set when the endpoint turns out not to support batches or persisted queries.
+  private volatile boolean batchingUnsupported = false;
+  private volatile boolean persistedQueriesUnsupported = false;
+
+  private final GqlCache cache = new GqlCache(MAX_CACHED_RESULTS, CACHE_LIFETIME);
+
+  // Queries made since the last batch was sent. Only used on the main thread.
+  private final List<PendingQuery> pendingQueries = new ArrayList<>();
+
+  private final Runnable sendPendingQueries = new Runnable() {
+    @Override
+    public void run() {
+      final List<PendingQuery> queries = new ArrayList<>(pendingQueries);
+      pendingQueries.clear();
+      send(queries);
+    }
+  };
+
   /**
    * Creates a new GraphQL component.
    *
@@ -132,6 +181,7 @@ public class GraphQL extends AndroidNonvisibleComponent implements Component {
   public void GqlEndpointUrl(final String gqlUrl) {
     // Set the new URL.
     endpointURL = gqlUrl;
+    resetEndpointState();
 
     // Log URL change.
     Log.d(LOG_TAG, "Endpoint URL changed to " + gqlUrl + ".");
@@ -147,6 +197,7 @@ public class GraphQL extends AndroidNonvisibleComponent implements Component {
   public void GqlHttpHeaders(final String gqlHttpHeaders) {
     // Set the new HTTP headers string.
     httpHeaders = gqlHttpHeaders;
+    resetEndpointState();
 
     // Log header change.
     Log.d(LOG_TAG, "HTTP headers changed to " + gqlHttpHeaders + ".");
@@ -198,6 +249,104 @@ public class GraphQL extends AndroidNonvisibleComponent implements Component {
     }
   }
 
+  /**
+   * Forgets what was learned from the endpoint. Cached results and the support for batches and persisted queries
+   * may differ for another endpoint, or for the same endpoint with other credentials.
+   */
+  private void resetEndpointState() {
+    cache.clear();
+    batchingUnsupported = false;
+    persistedQueriesUnsupported = false;
+  }
+
+  /**
+   * Getter for whether queries are batched.
+   *
+   * @return true if queries made together are sent in one request.
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "Whether queries made in the same event handler are sent to the endpoint in one request.")
+  public boolean GqlBatching() {
+    return batching;
+  }
+
+  /**
+   * Specifies whether queries made in the same event handler are sent to the endpoint in one request, as a JSON array
+   * of queries. If the endpoint does not accept batches, the queries are sent one at a time instead.
+   *
+   * @param gqlBatching true to batch queries.
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "False")
+  @SimpleProperty(description = "Sets whether queries made in the same event handler are sent to the endpoint "
+      + "in one request.")
+  public void GqlBatching(final boolean gqlBatching) {
+    batching = gqlBatching;
+  }
+
+  /**
+   * Getter for whether persisted queries are used.
+   *
+   * @return true if queries are sent as hashes when possible.
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "Whether queries are sent as persisted query hashes.")
+  public boolean GqlPersistedQueries() {
+    return persistedQueries;
+  }
+
+  /**
+   * Specifies whether queries are sent as automatic persisted queries. Each query is first sent as the SHA-256 hash of
+   * its text. Only if the endpoint does not know the hash is the query sent again with its text, which the endpoint
+   * remembers for later requests.
+   *
+   * @param gqlPersistedQueries true to use persisted queries.
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "False")
+  @SimpleProperty(description = "Sets whether queries are sent as persisted query hashes instead of their full "
+      + "text, when the endpoint already knows them.")
+  public void GqlPersistedQueries(final boolean gqlPersistedQueries) {
+    persistedQueries = gqlPersistedQueries;
+    persistedQueriesUnsupported = false;
+  }
+
+  /**
+   * Getter for whether query results are cached.
+   *
+   * @return true if repeated queries are answered from the cache.
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "Whether repeated queries are answered from a cache of earlier results.")
+  public boolean GqlCaching() {
+    return caching;
+  }
+
+  /**
+   * Specifies whether repeated queries are answered from a cache of earlier results. Objects with an id and a
+   * __typename are cached once and shared between results, so a later query or mutation that returns a changed object
+   * also changes the cached results that contain it. Mutations are never answered from the cache. Results are kept
+   * for up to 10 minutes, and are removed when the endpoint URL or HTTP headers change.
+   *
+   * @param gqlCaching true to cache results.
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "False")
+  @SimpleProperty(description = "Sets whether repeated queries are answered from a cache of earlier results. "
+      + "Objects are shared between results by their id and __typename fields. Results are kept for up to 10 "
+      + "minutes.")
+  public void GqlCaching(final boolean gqlCaching) {
+    caching = gqlCaching;
+  }
+
+  /**
+   * Removes every result and object from the cache.
+   */
+  @SimpleFunction(description = "Removes every cached result, so that later queries are sent to the endpoint.")
+  public void GqlClearCache() {
+    cache.clear();
+  }
+
   /**
    * Triggers an event indicating that the given operation has successfully executed and returned data. This method
    * should be executed in the application's main thread.
@@ -236,18 +385,52 @@ public class GraphQL extends AndroidNonvisibleComponent implements Component {
    */
   @SimpleFunction(description = "Execute a GraphQL query against the endpoint.")
   public void GqlQuery(final String gqlQueryName, final String gqlQuery) {
+    // Answer repeated queries from the cache.
+    if (caching && GqlCache.isCacheable(gqlQuery)) {
+      JSONObject cached = null;
+      try {
+        cached = cache.read(gqlQuery);
+      } catch (final JSONException e) {
+        Log.e(LOG_TAG, "Error reading cached result.", e);
+      }
+      if (cached != null) {
+        dispatchData(gqlQueryName, cached);
+
+        // Log cache hit.
+        Log.d(LOG_TAG, "Query for " + gqlQueryName + " was answered from the cache.");
+        return;
+      }
+    }
+
+    final PendingQuery query = new PendingQuery(gqlQueryName, gqlQuery);
+    if (batching) {
+      // Send every query made before control returns to the main loop in one request.
+      if (pendingQueries.isEmpty()) {
+        androidUIHandler.post(sendPendingQueries);
+      }
+      pendingQueries.add(query);
+    } else {
+      send(Collections.singletonList(query));
+    }
+
+    // Log query request.
+    Log.d(LOG_TAG, "Query for " + gqlQueryName + " has been enqueued.");
+  }
+
+  /**
+   * Asynchronously sends queries to the endpoint.
+   *
+   * @param queries the queries to send, in one request if there is more than one.
+   */
+  private void send(final List<PendingQuery> queries) {
     // Method name for error handling.
     final String METHOD = "GqlQuery";
 
-    // Build the post data.
-    final byte[] postData = buildPost(gqlQuery, null, null);
-
-    // Asynchronously complete request.
     AsynchUtil.runAsynchronously(new Runnable() {
       @Override
       public void run() {
         try {
-          performRequest(gqlQueryName, postData);
+          performBatch(queries);
         } catch (final PermissionException e) {
           form.dispatchPermissionDeniedEvent(GraphQL.this, METHOD, e);
         } catch (final FileUtil.FileException e) {
@@ -258,32 +441,42 @@ public class GraphQL extends AndroidNonvisibleComponent implements Component {
         }
       }
     });
-
-    // Log query request.
-    Log.d(LOG_TAG, "Query for " + gqlQueryName + " has been enqueued.");
   }
 
   /**
-   * Gets the bytes for the body of a GraphQL query POST request.
+   * Gets the body of a GraphQL query POST request.
    *
-   * @param query         the input query string.
+   * @param query         the input query string, which is left out if only the hash should be sent.
+   * @param hash          the persisted query hash of the query, which can be null.
    * @param operationName the operation name of the query, which can be null.
    * @param variables     the variables associated with this query, which can be null.
-   * @return a byte array representing the POST request body.
+   * @return a JSON object representing the query.
    */
-  private static byte[] buildPost(final String query, final String operationName, final Map<String, Object> variables) {
+  private static JSONObject buildBody(final String query, final String hash, final String operationName,
+      final Map<String, Object> variables) {
     try {
       // Construct the GraphQL query in standard JSON format.
       final JSONObject queryBody = new JSONObject();
-      queryBody.put("query", query);
+      if (query != null) {
+        queryBody.put("query", query);
+      }
       queryBody.put("operationName", (operationName == null) ? JSONObject.NULL : operationName);
       queryBody.put("variables", (variables == null) ? JSONObject.NULL : new JSONObject(variables));
 
+      // Add the persisted query extension.
+      if (hash != null) {
+        final JSONObject persistedQuery = new JSONObject();
+        persistedQuery.put("version", 1);
+        persistedQuery.put("sha256Hash", hash);
+        final JSONObject extensions = new JSONObject();
+        extensions.put("persistedQuery", persistedQuery);
+        queryBody.put("extensions", extensions);
+      }
+
       // Log query.
       Log.d(LOG_TAG, "Building query " + queryBody + ".");
 
-      // Get the byte encoding.
-      return queryBody.toString().getBytes(StandardCharsets.UTF_8);
+      return queryBody;
     } catch (final JSONException e) {
       // We do not expect to get here.
       Log.e(LOG_TAG, "Error building post body.", e);
@@ -291,7 +484,82 @@ public class GraphQL extends AndroidNonvisibleComponent implements Component {
     }
   }
 
-  private void performRequest(final String queryName, final byte[] postData) throws IOException {
+  /**
+   * Gets the bytes for the body of a POST request for one or more queries.
+   *
+   * @param queries the queries to send.
+   * @return a byte array representing the POST request body.
+   */
+  private byte[] buildPost(final List<PendingQuery> queries) {
+    final boolean persisted = persistedQueries && !persistedQueriesUnsupported;
+    final JSONArray bodies = new JSONArray();
+    for (final PendingQuery query : queries) {
+      final String hash = persisted ? sha256(query.query) : null;
+      final String text = (hash == null || query.sendText) ? query.query : null;
+      bodies.put(buildBody(text, hash, null, null));
+    }
+
+    // A single query is sent on its own rather than as a batch of one.
+    final String body;
+    try {
+      body = (queries.size() == 1) ? bodies.get(0).toString() : bodies.toString();
+    } catch (final JSONException e) {
+      // We do not expect to get here.
+      throw new RuntimeException(e);
+    }
+
+    // Get the byte encoding.
+    return body.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Gets the hex encoded SHA-256 hash of a query, which identifies it as a persisted query.
+   *
+   * @param query the query string.
+   * @return the hash.
+   */
+  private static String sha256(final String query) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      final StringBuilder sb = new StringBuilder();
+      for (final byte b : digest.digest(query.getBytes(StandardCharsets.UTF_8))) {
+        sb.append(String.format("%02x", b));
+      }
+      return sb.toString();
+    } catch (final NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256.
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Sends queries to the endpoint, sending again any that the endpoint needs in a different form.
+   *
+   * @param queries the queries to send.
+   */
+  private void performBatch(List<PendingQuery> queries) throws IOException {
+    while (!queries.isEmpty()) {
+      if (queries.size() > 1 && batchingUnsupported) {
+        // Send the queries one at a time.
+        for (final PendingQuery query : queries) {
+          performBatch(Collections.singletonList(query));
+        }
+        return;
+      }
+      queries = performRequest(queries);
+    }
+  }
+
+  /**
+   * Sends one request to the endpoint.
+   *
+   * @param queries the queries to send.
+   * @return the queries that should be sent again.
+   */
+  private List<PendingQuery> performRequest(final List<PendingQuery> queries) throws IOException {
+    // Build the post data.
+    final byte[] postData = buildPost(queries);
+
     // Open the connection.
     final HttpURLConnection connection = openConnection();
 
@@ -310,7 +578,7 @@ public class GraphQL extends AndroidNonvisibleComponent implements Component {
       processResponseCookies(connection);
 
       // Handle the response.
-      handleResponse(queryName, connection);
+      return handleResponse(queries, connection);
     } finally {
       // Destroy the connection.
       connection.disconnect();
@@ -342,7 +610,7 @@ public class GraphQL extends AndroidNonvisibleComponent implements Component {
 
     // Get the cookies.
     try {
-      cookiesMap.clear();
+      // The returned map is unmodifiable, so it is replaced rather than cleared.
       cookiesMap = cookieHandler.get(url.toURI(), headersMap);
     } catch (final IOException | URISyntaxException e) {
       // Sorry, no cookies for you.
@@ -429,55 +697,134 @@ public class GraphQL extends AndroidNonvisibleComponent implements Component {
     });
   }
 
-  private void handleResponse(final String queryName, final HttpURLConnection connection) throws IOException {
+  private void dispatchData(final String queryName, final JSONObject data) {
+    // Convert to a list of list representation.
+    final Object listOfListData;
+    try {
+      listOfListData = JsonUtil.convertJsonItem(data);
+    } catch (final JSONException e) {
+      dispatchError(queryName, "Response JSON is malformed.");
+      return;
+    }
+
+    // Post data on the application's main UI thread.
+    androidUIHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        GqlGotResponse(queryName, listOfListData);
+      }
+    });
+  }
+
+  private List<PendingQuery> handleResponse(final List<PendingQuery> queries, final HttpURLConnection connection)
+      throws IOException {
     // Get the response string.
     final String responseString = getResponseContent(connection);
 
     // If there is no response, indicate the response code.
     if (responseString == null) {
-      dispatchError(queryName, "Got unexpected response code " + connection.getResponseCode() + ".");
+      for (final PendingQuery query : queries) {
+        dispatchError(query.name, "Got unexpected response code " + connection.getResponseCode() + ".");
+      }
+      return Collections.emptyList();
     }
 
+    // Queries that need to be sent again.
+    final List<PendingQuery> retries = new ArrayList<>();
+
     // Any JSON errors should indicate that the response is malformed.
     try {
-      // Parse the response JSON into a known format for further processing.
-      final JSONObject responseMap = (JSONObject) (new JSONTokener(responseString)).nextValue();
+      final Object response = (new JSONTokener(responseString)).nextValue();
+      if (queries.size() == 1) {
+        handleResult(queries.get(0), (JSONObject) response, retries);
+      } else if (response instanceof JSONArray && ((JSONArray) response).length() == queries.size()) {
+        // Results of a batch are in the same order as the queries.
+        final JSONArray results = (JSONArray) response;
+        for (int i = 0; i < queries.size(); i++) {
+          handleResult(queries.get(i), results.getJSONObject(i), retries);
+        }
+      } else {
+        // The endpoint does not accept batches, so send the queries again one at a time.
+        Log.w(LOG_TAG, "Endpoint did not accept a batch of " + queries.size() + " queries.");
+        batchingUnsupported = true;
+        return queries;
+      }
+    } catch (final JSONException | ClassCastException e) {
+      for (final PendingQuery query : queries) {
+        dispatchError(query.name, "Response JSON is malformed.");
+      }
+    }
+    return retries;
+  }
 
-      // If there were errors, trigger the appropriate event.
-      if (responseMap.has("errors")) {
-        // Get the error JSON array.
-        final JSONArray jsonArray = responseMap.getJSONArray("errors");
+  private void handleResult(final PendingQuery query, final JSONObject responseMap, final List<PendingQuery> retries)
+      throws JSONException {
+    final String queryName = query.name;
 
-        // Construct a list of error messages.
-        final List<String> errorMessages = new ArrayList<String>();
+    // If there were errors, trigger the appropriate event.
+    if (responseMap.has("errors")) {
+      // Get the error JSON array.
+      final JSONArray jsonArray = responseMap.getJSONArray("errors");
 
-        // Populate error messages.
-        for (int i = 0; i < jsonArray.length(); i++) {
-          final JSONObject errorObject = jsonArray.getJSONObject(i);
-          errorMessages.add(errorObject.getString("message"));
-        }
+      // If the endpoint needs the query text, send it again.
+      if (!query.sendText && isPersistedQueryError(jsonArray)) {
+        query.sendText = true;
+        retries.add(query);
+        return;
+      }
+
+      // Construct a list of error messages.
+      final List<String> errorMessages = new ArrayList<String>();
 
-        // Dispatch errors.
-        dispatchError(queryName, errorMessages);
+      // Populate error messages.
+      for (int i = 0; i < jsonArray.length(); i++) {
+        final JSONObject errorObject = jsonArray.getJSONObject(i);
+        errorMessages.add(errorObject.getString("message"));
       }
 
-      // If there were data entries, trigger the appropriate event.
-      if (responseMap.has("data")) {
-        // Extract data from response and convert to a list of list representation.
-        final JSONObject jsonObject = responseMap.getJSONObject("data");
-        final Object listOfListData = JsonUtil.convertJsonItem(jsonObject);
-
-        // Post data on the application's main UI thread.
-        androidUIHandler.post(new Runnable() {
-          @Override
-          public void run() {
-            GqlGotResponse(queryName, listOfListData);
-          }
-        });
+      // Dispatch errors.
+      dispatchError(queryName, errorMessages);
+    }
+
+    // If there were data entries, trigger the appropriate event.
+    if (responseMap.has("data")) {
+      // Extract data from response.
+      final JSONObject jsonObject = responseMap.getJSONObject("data");
+
+      // Cache complete results. The objects in mutation results are cached, but the results themselves are not.
+      if (caching && !responseMap.has("errors")) {
+        cache.write(GqlCache.isCacheable(query.query) ? query.query : null, jsonObject);
+      }
+
+      dispatchData(queryName, jsonObject);
+    }
+  }
+
+  /**
+   * Checks whether errors ask for the text of a persisted query.
+   *
+   * @param errors the errors in a response.
+   * @return true if the query should be sent again with its text.
+   */
+  private boolean isPersistedQueryError(final JSONArray errors) {
+    for (int i = 0; i < errors.length(); i++) {
+      final JSONObject error = errors.optJSONObject(i);
+      if (error == null) {
+        continue;
+      }
+      final JSONObject extensions = error.optJSONObject("extensions");
+      final String code = (extensions == null) ? "" : extensions.optString("code");
+      final String message = error.optString("message");
+      if (PERSISTED_QUERY_NOT_SUPPORTED.equals(message) || "PERSISTED_QUERY_NOT_SUPPORTED".equals(code)) {
+        // Stop sending hashes to this endpoint.
+        persistedQueriesUnsupported = true;
+        return true;
+      }
+      if (PERSISTED_QUERY_NOT_FOUND.equals(message) || "PERSISTED_QUERY_NOT_FOUND".equals(code)) {
+        return true;
       }
-    } catch (final JSONException e) {
-      dispatchError(queryName, "Response JSON is malformed.");
     }
+    return false;
   }
 
   // TODO(bobbyluig): Write this into the scheme runtime.
@@ -15,12 +15,17 @@ import com.google.appinventor.components.annotations.SimpleProperty;
 import com.google.appinventor.components.common.ComponentCategory;
 import com.google.appinventor.components.common.PropertyTypeConstants;
 import com.google.appinventor.components.common.YaVersion;
+import com.google.appinventor.components.runtime.util.KitkatUtil;
+import com.google.appinventor.components.runtime.util.SdkLevel;
+import com.google.appinventor.components.runtime.util.SensorBatcher;
+import com.google.appinventor.components.runtime.util.YailList;
 
 import android.content.Context;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import android.os.SystemClock;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -53,6 +58,11 @@ public class GyroscopeSensor extends AndroidNonvisibleComponent
   private final Sensor gyroSensor;
   private boolean listening;
 
+  // Samples collected for the SamplesReceived event
+  private final SensorBatcher batcher = new SensorBatcher(3);
+  private final float[] sample = new float[3];
+  private int batchLatency = 1000;  // ms
+
   // Set of observers
   private final Set<DataSink<ObservableDataSource<String, Float>>> dataSourceObservers
       = new HashSet<>();
@@ -77,7 +87,13 @@ public class GyroscopeSensor extends AndroidNonvisibleComponent
 
   private void startListening() {
     if (!listening) {
-      sensorManager.registerListener(this, gyroSensor, SensorManager.SENSOR_DELAY_FASTEST);
+      batcher.setTimeBase(System.currentTimeMillis() - SystemClock.elapsedRealtime());
+      if (batcher.isBatching() && SdkLevel.getLevel() >= SdkLevel.LEVEL_KITKAT) {
+        KitkatUtil.registerListener(sensorManager, this, gyroSensor,
+            SensorManager.SENSOR_DELAY_FASTEST, batchLatency);
+      } else {
+        sensorManager.registerListener(this, gyroSensor, SensorManager.SENSOR_DELAY_FASTEST);
+      }
       listening = true;
     }
   }
@@ -108,6 +124,17 @@ public class GyroscopeSensor extends AndroidNonvisibleComponent
         xAngularVelocity, yAngularVelocity, zAngularVelocity, timestamp);
   }
 
+  /**
+   * SamplesReceived event handler.
+   * @suppressdoc
+   */
+  @SimpleEvent(description = "Called when BatchSize samples have been read, or when the sensor " +
+      "is disabled while batching. Each sample is a list of the time in milliseconds and the " +
+      "X, Y and Z angular velocity.")
+  public void SamplesReceived(YailList samples) {
+    EventDispatcher.dispatchEvent(this, "SamplesReceived", samples);
+  }
+
   // Properties
 
   /**
@@ -154,10 +181,121 @@ public class GyroscopeSensor extends AndroidNonvisibleComponent
         startListening();
       } else {
         stopListening();
+        flushBatch();
       }
     }
   }
 
+  /**
+   * BatchSize property getter method.
+   *
+   * @return the number of samples in a batch
+   * @suppressdoc
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR)
+  public int BatchSize() {
+    return batcher.getBatchSize();
+  }
+
+  /**
+   * BatchSize property setter method.
+   *
+   * @param size the number of samples in a batch, or 0 to report each sample
+   * @suppressdoc
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER,
+      defaultValue = "0")
+  @SimpleProperty(description = "The number of samples reported together by the " +
+      "SamplesReceived event. While batching, GyroscopeChanged is not raised. If 0, each " +
+      "sample is reported by the GyroscopeChanged event.")
+  public void BatchSize(int size) {
+    flushBatch();
+    boolean wasBatching = batcher.isBatching();
+    batcher.setBatchSize(size);
+    if (listening && wasBatching != batcher.isBatching()) {
+      stopListening();
+      startListening();
+    }
+  }
+
+  /**
+   * BatchLatency property getter method.
+   *
+   * @return the batch latency in ms
+   * @suppressdoc
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR)
+  public int BatchLatency() {
+    return batchLatency;
+  }
+
+  /**
+   * BatchLatency property setter method.
+   *
+   * @param latency the batch latency in ms
+   * @suppressdoc
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER,
+      defaultValue = "1000")
+  @SimpleProperty(description = "The longest time, in milliseconds, that the sensor hardware " +
+      "may hold samples before reporting them while batching. Has no effect before Android 4.4.")
+  public void BatchLatency(int latency) {
+    batchLatency = latency;
+    if (listening && batcher.isBatching()) {
+      stopListening();
+      startListening();
+    }
+  }
+
+  /**
+   * Decimation property getter method.
+   *
+   * @return the decimation factor
+   * @suppressdoc
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR)
+  public int Decimation() {
+    return batcher.getDecimation();
+  }
+
+  /**
+   * Decimation property setter method.
+   *
+   * @param decimation the decimation factor
+   * @suppressdoc
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER,
+      defaultValue = "1")
+  @SimpleProperty(description = "While batching, only one of every Decimation samples is kept.")
+  public void Decimation(int decimation) {
+    batcher.setDecimation(decimation);
+  }
+
+  /**
+   * AverageDecimated property getter method.
+   *
+   * @return {@code true} if decimated samples are averaged
+   * @suppressdoc
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR)
+  public boolean AverageDecimated() {
+    return batcher.isAveraging();
+  }
+
+  /**
+   * AverageDecimated property setter method.
+   *
+   * @param average {@code true} to average decimated samples
+   * @suppressdoc
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "False")
+  @SimpleProperty(description = "If true, each kept sample is the average of the Decimation " +
+      "samples it replaces. Otherwise it is the first of them.")
+  public void AverageDecimated(boolean average) {
+    batcher.setAveraging(average);
+  }
+
   /**
    * XAngularVelocity property getter method (read-only property).
    *
@@ -215,6 +353,16 @@ public class GyroscopeSensor extends AndroidNonvisibleComponent
       yAngularVelocity = (float) Math.toDegrees(sensorEvent.values[1]);
       zAngularVelocity = (float) Math.toDegrees(sensorEvent.values[2]);
 
+      if (batcher.isBatching()) {
+        sample[0] = xAngularVelocity;
+        sample[1] = yAngularVelocity;
+        sample[2] = zAngularVelocity;
+        if (batcher.add(sensorEvent.timestamp, sample)) {
+          flushBatch();
+        }
+        return;
+      }
+
       // Notify the Data Source observers with the updated values
       notifyDataObservers("X", xAngularVelocity);
       notifyDataObservers("Y", yAngularVelocity);
@@ -226,6 +374,19 @@ public class GyroscopeSensor extends AndroidNonvisibleComponent
     }
   }
 
+  private void flushBatch() {
+    int size = batcher.size();
+    if (size > 0) {
+      // Charts still receive every kept sample
+      for (int i = 0; i < size; i++) {
+        notifyDataObservers("X", batcher.getValue(i, 0));
+        notifyDataObservers("Y", batcher.getValue(i, 1));
+        notifyDataObservers("Z", batcher.getValue(i, 2));
+      }
+      SamplesReceived(batcher.takeBatch());
+    }
+  }
+
   @Override
   public void onAccuracyChanged(Sensor sensor, int accuracy) {
   }
@@ -69,6 +69,11 @@ public class ImageSprite extends Sprite {
   private int widthHint = LENGTH_PREFERRED;
   private int heightHint = LENGTH_PREFERRED;
   private String picturePath = "";  // Picture property
+  // The size the picture was decoded for, or 0 if it was decoded at its full size
+  private int pictureWidth = 0;
+  private int pictureHeight = 0;
+  // Whether the decoded picture already has all of the pixels it would have without a size hint
+  private boolean pictureFullSize = true;
   private boolean rotates;
 
 
@@ -139,16 +144,45 @@ public class ImageSprite extends Sprite {
   @SimpleProperty
   public void Picture(String path) {
     picturePath = (path == null) ? "" : path;
+    // If the sprite has a fixed size, there is no need to decode more pixels than it shows.
+    // The size is rounded up so that a sprite whose size changes a little at a time reuses the
+    // same decoded picture.
+    if (widthHint > 0 && heightHint > 0) {
+      pictureWidth = roundUpToPowerOfTwo(widthHint);
+      pictureHeight = roundUpToPowerOfTwo(heightHint);
+    } else {
+      pictureWidth = 0;
+      pictureHeight = 0;
+    }
     try {
-      drawable = MediaUtil.getBitmapDrawable(form, picturePath);
+      drawable = MediaUtil.getBitmapDrawable(form, picturePath, pictureWidth, pictureHeight);
     } catch (IOException ioe) {
       Log.e("ImageSprite", "Unable to load " + picturePath);
       drawable = null;
     }
+    // MediaUtil only decodes fewer pixels than the requested size if the image has no more, so
+    // such a picture is already at its full size.
+    pictureFullSize = pictureWidth == 0 || drawable == null
+        || drawable.getBitmap().getWidth() < pictureWidth * form.deviceDensity()
+        || drawable.getBitmap().getHeight() < pictureHeight * form.deviceDensity();
     // note: drawable can be null!
     registerChange();
   }
 
+  // If the picture was decoded for a smaller size than the sprite now has, decode it again so
+  // that it doesn't look blurry.
+  private void reloadPictureIfLarger() {
+    if (!pictureFullSize
+        && (widthHint > pictureWidth || heightHint > pictureHeight || widthHint <= 0
+            || heightHint <= 0)) {
+      Picture(picturePath);
+    }
+  }
+
+  private static int roundUpToPowerOfTwo(int size) {
+    return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+  }
+
   // The actual width/height of an ImageSprite whose Width/Height property is set to Automatic or
   // Fill Parent will be the width/height of the image.
 
@@ -170,6 +204,7 @@ public class ImageSprite extends Sprite {
   @SimpleProperty
   public void Height(int height) {
     heightHint = height;
+    reloadPictureIfLarger();
     registerChange();
   }
 
@@ -196,6 +231,7 @@ public class ImageSprite extends Sprite {
   @SimpleProperty
   public void Width(int width) {
     widthHint = width;
+    reloadPictureIfLarger();
     registerChange();
   }
 
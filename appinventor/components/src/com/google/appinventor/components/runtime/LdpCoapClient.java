@@ -28,10 +28,18 @@ import android.util.Log;
 //import com.google.appinventor.components.runtime.util.YailDictionary;
 import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.CoapClient;
+import org.eclipse.californium.core.CoapHandler;
+import org.eclipse.californium.core.CoapObserveRelation;
 import org.eclipse.californium.core.CoapResponse;
 import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.network.CoAPEndpoint;
+import org.eclipse.californium.core.network.Endpoint;
+import org.eclipse.californium.core.network.config.NetworkConfig;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
 
 import com.google.appinventor.components.annotations.UsesLibraries;
 
@@ -55,16 +63,27 @@ import com.google.appinventor.components.annotations.UsesLibraries;
 "element-connector-1.0.7.jar")
 
 public final class LdpCoapClient extends AndroidNonvisibleComponent
-        implements Component {
+        implements Component, Deleteable, OnDestroyListener {
 
     private static final String TAG = "LdpCoapClient";
+    private static final int DEFAULT_BLOCK_SIZE = 512;
 
     protected String BASE_URI;
-    protected CoapResponse resp = null;
+    protected volatile CoapResponse resp = null;
     protected String containerType = "ldp:BasicContainer";
 
+    // Requests share one endpoint, and so one socket, instead of each making their own
+    private Endpoint endpoint;
+    private boolean asynchronous = false;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private final Map<String, CoapObserveRelation> observations =
+            new HashMap<String, CoapObserveRelation>();
+    // The content type of each observed resource, to observe it again on a new endpoint
+    private final Map<String, Integer> observedTypes = new HashMap<String, Integer>();
+
     public LdpCoapClient(final ComponentContainer<? extends Component> container) {
         super(container.$form());
+        form.registerForOnDestroy(this);
     }
     
 
@@ -152,82 +171,67 @@ public final class LdpCoapClient extends AndroidNonvisibleComponent
 
     @SimpleFunction(description = "LDP-CoAP Get method")
     public void Get(String resource, int type) {
-        CoapClient client;
-        client = new CoapClient(BASE_URI + "/" + resource);
-        resp = client.get(type);
+        send("Get", resource, newClient(BASE_URI + "/" + resource), accept(Request.newGet(), type));
     }
 
     @SimpleFunction(description = "Discover resources in text/turtle format")
     public void DiscoverResourcesTextTurtle() {
-        CoapClient client;
-        client = new CoapClient(BASE_URI + "/.well-known/core");
-        resp = client.get(MediaTypeRegistry.TEXT_TURTLE);
+        discover("DiscoverResourcesTextTurtle", "", MediaTypeRegistry.TEXT_TURTLE);
     }
 
     @SimpleFunction(description = "Discover resources in text/plain format")
     public void DiscoverResourcesTextPlain() {
-        CoapClient client;
-        client = new CoapClient(BASE_URI + "/.well-known/core");
-        resp = client.get(MediaTypeRegistry.TEXT_PLAIN);
+        discover("DiscoverResourcesTextPlain", "", MediaTypeRegistry.TEXT_PLAIN);
     }
 
     @SimpleFunction(description = "LDiscover resources in application/rdf-patch format")
     public void DiscoverResourcesRdfPatch() {
-        CoapClient client;
-        client = new CoapClient(BASE_URI + "/.well-known/core");
-        resp = client.get(MediaTypeRegistry.APPLICATION_RDF_PATCH);
+        discover("DiscoverResourcesRdfPatch", "", MediaTypeRegistry.APPLICATION_RDF_PATCH);
     }
 
     @SimpleFunction(description = "Discover resources of a specific type in text/turtle format")
     public void DiscoverTypeResourcesTextTurtle(String type) {
-        CoapClient client;
-        client = new CoapClient(BASE_URI + "/.well-known/core?rt=" + type);
-        resp = client.get(MediaTypeRegistry.TEXT_TURTLE);
+        discover("DiscoverTypeResourcesTextTurtle", "?rt=" + type, MediaTypeRegistry.TEXT_TURTLE);
     }
 
     @SimpleFunction(description = "Discover resources of a specific type in text/plain format")
     public void DiscoverTypeResourcesTextPlain(String type) {
-        CoapClient client;
-        client = new CoapClient(BASE_URI + "/.well-known/core?rt=" + type);
-        resp = client.get(MediaTypeRegistry.TEXT_PLAIN);
+        discover("DiscoverTypeResourcesTextPlain", "?rt=" + type, MediaTypeRegistry.TEXT_PLAIN);
     }
 
     @SimpleFunction(description = "Discover resources of a specific type in application/rdf-patch format")
     public void DiscoverTypeResourcesRdfPatch(String type) {
-        CoapClient client;
-        client = new CoapClient(BASE_URI + "/.well-known/core?rt=" + type);
-        resp = client.get(MediaTypeRegistry.APPLICATION_RDF_PATCH);
+        discover("DiscoverTypeResourcesRdfPatch", "?rt=" + type,
+                MediaTypeRegistry.APPLICATION_RDF_PATCH);
     }
 
     @SimpleFunction(description = "CoAP Delete resource")
     public void Delete(String resource) {
-        CoapClient client;
-        client = new CoapClient(BASE_URI + "/" + resource);
-        resp = client.delete();
+        send("Delete", resource, newClient(BASE_URI + "/" + resource), Request.newDelete());
     }
 
     @SimpleFunction(description = "POST Request")
     public void Post(String resource, int type, String data, String title) {
         CoapClient client;
         if(resource.contains("?")){
-            client = new CoapClient(BASE_URI + "/" + resource + "&title=" + title);
+            client = newClient(BASE_URI + "/" + resource + "&title=" + title);
         }
         else {
-            client = new CoapClient(BASE_URI + "/" + resource + "?title=" + title);
+            client = newClient(BASE_URI + "/" + resource + "?title=" + title);
         }
-        resp = client.post(data, type);
+        send("Post", resource, client, payload(Request.newPost(), data.getBytes(), type));
     }
 
     @SimpleFunction(description = "HEAD Request")
     public void Head(String resource) {
         CoapClient client;
         if(resource.contains("?")){
-            client = new CoapClient(BASE_URI + "/" + resource + "&ldp=head");
+            client = newClient(BASE_URI + "/" + resource + "&ldp=head");
         }
         else {
-            client = new CoapClient(BASE_URI + "/" + resource + "?ldp=head");
+            client = newClient(BASE_URI + "/" + resource + "?ldp=head");
         }
-        resp = client.get();
+        send("Head", resource, client, Request.newGet());
     }
 
     @SimpleFunction(description = "Get ETag")
@@ -252,12 +256,12 @@ public final class LdpCoapClient extends AndroidNonvisibleComponent
     public void Options(String resource) {
         CoapClient client;
         if(resource.contains("?")){
-            client = new CoapClient(BASE_URI + "/" + resource + "&ldp=options");
+            client = newClient(BASE_URI + "/" + resource + "&ldp=options");
         }
         else {
-            client = new CoapClient(BASE_URI + "/" + resource + "?ldp=options");
+            client = newClient(BASE_URI + "/" + resource + "?ldp=options");
         }
-        resp = client.get();
+        send("Options", resource, client, Request.newGet());
     }
 
     @SimpleFunction(description = "Get Response Text")
@@ -271,9 +275,29 @@ public final class LdpCoapClient extends AndroidNonvisibleComponent
 
 
     @SimpleFunction(description = "PUT Request")
-    public void Put(String resource, int type, String data) {
-        CoapClient client;
-        client = new CoapClient(BASE_URI + "/" + resource);
+    public void Put(final String resource, final int type, final String data) {
+        final CoapClient client = newClient(BASE_URI + "/" + resource);
+        if (asynchronous) {
+            // Fetch the ETag without blocking, then send the PUT from the response handler
+            client.advanced(new CoapHandler() {
+                @Override
+                public void onLoad(CoapResponse response) {
+                    Request put = payload(Request.newPut(), data.getBytes(), type);
+                    if (CoAP.ResponseCode.isSuccess(response.getCode())) {
+                        put.getOptions().addIfMatch(
+                                computeETag(response.getOptions().toString().substring(10, 26)));
+                    }
+                    client.advanced(responseHandler("Put", resource), put);
+                }
+
+                @Override
+                public void onError() {
+                    client.advanced(responseHandler("Put", resource),
+                            payload(Request.newPut(), data.getBytes(), type));
+                }
+            }, accept(Request.newGet(), type));
+            return;
+        }
         resp = client.get(type);
         if(resp!=null && CoAP.ResponseCode.isSuccess(resp.getCode())) {
             byte[] etag = computeETag(resp.getOptions().toString().substring(10, 26));
@@ -286,37 +310,264 @@ public final class LdpCoapClient extends AndroidNonvisibleComponent
 
     @SimpleFunction(description = "PUT Request")
     public void PutEtagInput(String resource, int type, String data, String etag) {
-        CoapClient client;
-        client = new CoapClient(BASE_URI + "/" + resource);
-        resp = client.putIfMatch(data, type, computeETag(etag));
+        Request put = payload(Request.newPut(), data.getBytes(), type);
+        put.getOptions().addIfMatch(computeETag(etag));
+        send("PutEtagInput", resource, newClient(BASE_URI + "/" + resource), put);
     }
     @SimpleFunction(description = "PATCH Request")
-    public void Patch(String resource, int type, String data) {
+    public void Patch(final String resource, final int type, final String data) {
         CoapClient client;
-        client = new CoapClient(BASE_URI + "/" + resource);
-        resp = client.get();
+        client = newClient(BASE_URI + "/" + resource);
+        final CoapClient patchClient;
         if(resource.contains("?")){
-            client = new CoapClient(BASE_URI + "/" + resource + "$ldp=patch");
+            patchClient = newClient(BASE_URI + "/" + resource + "$ldp=patch");
         }
         else {
-            client = new CoapClient(BASE_URI + "/" + resource + "?ldp=patch");
+            patchClient = newClient(BASE_URI + "/" + resource + "?ldp=patch");
         }
+        if (asynchronous) {
+            final CoapHandler handler = responseHandler("Patch", resource);
+            client.advanced(new CoapHandler() {
+                @Override
+                public void onLoad(CoapResponse response) {
+                    if (CoAP.ResponseCode.isSuccess(response.getCode())) {
+                        Request patch = payload(Request.newPut(), data.getBytes(), type);
+                        patch.getOptions().addIfMatch(
+                                computeETag(response.getOptions().toString().substring(10, 26)));
+                        patchClient.advanced(handler, patch);
+                    } else {
+                        handler.onLoad(response);
+                    }
+                }
+
+                @Override
+                public void onError() {
+                    handler.onError();
+                }
+            }, Request.newGet());
+            return;
+        }
+        resp = client.get();
         if(CoAP.ResponseCode.isSuccess(resp.getCode())) {
             byte[] etag = computeETag(resp.getOptions().toString().substring(10, 26));
-            resp = client.putIfMatch(data, type, etag);
+            resp = patchClient.putIfMatch(data, type, etag);
         }
     }
     @SimpleFunction(description = "PATCH Request")
     public void PatchEtagInput(String resource, int type, String data, String etag) {
         CoapClient client;
         if(resource.contains("?")){
-            client = new CoapClient(BASE_URI + "/" + resource + "$ldp=patch");
+            client = newClient(BASE_URI + "/" + resource + "$ldp=patch");
         }
         else {
-            client = new CoapClient(BASE_URI + "/" + resource + "?ldp=patch");
+            client = newClient(BASE_URI + "/" + resource + "?ldp=patch");
+        }
+        Request patch = payload(Request.newPut(), data.getBytes(), type);
+        patch.getOptions().addIfMatch(computeETag(etag));
+        send("PatchEtagInput", resource, client, patch);
+    }
+
+    @SimpleFunction(description = "Observe a resource. ResourceChanged is raised with the " +
+            "content of the resource now and each time it changes, until StopObserving is called.")
+    public void Observe(final String resource, int type) {
+        StopObserving(resource);
+        CoapClient client = newClient(BASE_URI + "/" + resource);
+        CoapObserveRelation relation = client.observe(new CoapHandler() {
+            @Override
+            public void onLoad(final CoapResponse response) {
+                form.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        ResourceChanged(resource, response.getCode().toString(),
+                                response.getResponseText());
+                    }
+                });
+            }
+
+            @Override
+            public void onError() {
+                form.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        observations.remove(resource);
+                        observedTypes.remove(resource);
+                        form.dispatchErrorOccurredEvent(LdpCoapClient.this, "Observe",
+                                ErrorMessages.ERROR_LDP_COAP_OBSERVE_FAILED, resource);
+                    }
+                });
+            }
+        }, type);
+        observations.put(resource, relation);
+        observedTypes.put(resource, type);
+    }
+
+    @SimpleFunction(description = "Stop observing a resource.")
+    public void StopObserving(String resource) {
+        CoapObserveRelation relation = observations.remove(resource);
+        observedTypes.remove(resource);
+        if (relation != null) {
+            relation.proactiveCancel();
+        }
+    }
+
+    @SimpleFunction(description = "Stop observing every resource.")
+    public void StopObservingAll() {
+        for (CoapObserveRelation relation : observations.values()) {
+            relation.proactiveCancel();
+        }
+        observations.clear();
+        observedTypes.clear();
+    }
+
+    @SimpleEvent(description = "The response to an asynchronous request was received. The " +
+            "getResponseCode, getResponseText and related functions describe the response.")
+    public void ResponseReceived(String method, String resource, String responseCode,
+            String responseText) {
+        EventDispatcher.dispatchEvent(this, "ResponseReceived", method, resource, responseCode,
+                responseText);
+    }
+
+    @SimpleEvent(description = "An observed resource has changed.")
+    public void ResourceChanged(String resource, String responseCode, String responseText) {
+        EventDispatcher.dispatchEvent(this, "ResourceChanged", resource, responseCode,
+                responseText);
+    }
+
+    @SimpleProperty(category = PropertyCategory.BEHAVIOR)
+    public boolean Asynchronous() {
+        return asynchronous;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+            defaultValue = "False")
+    @SimpleProperty(description = "If true, requests are sent without waiting for the " +
+            "response, and ResponseReceived is raised when it arrives.")
+    public void Asynchronous(boolean asynchronous) {
+        this.asynchronous = asynchronous;
+    }
+
+    @SimpleProperty(category = PropertyCategory.BEHAVIOR)
+    public int BlockSize() {
+        return blockSize;
+    }
+
+    @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER,
+            defaultValue = DEFAULT_BLOCK_SIZE + "")
+    @SimpleProperty(description = "The size in bytes of the blocks used to transfer large " +
+            "payloads, a power of two from 16 to 1024. Observed resources are observed again " +
+            "with the new block size.")
+    public void BlockSize(int size) {
+        int blockSize = Integer.highestOneBit(Math.max(16, Math.min(1024, size)));
+        if (blockSize != this.blockSize) {
+            this.blockSize = blockSize;
+            // The block size is part of the endpoint configuration, and destroying the endpoint
+            // ends its observations, so they are moved to the new endpoint
+            Map<String, Integer> observed = new HashMap<String, Integer>(observedTypes);
+            StopObservingAll();
+            synchronized (this) {
+                if (endpoint != null) {
+                    endpoint.destroy();
+                    endpoint = null;
+                }
+            }
+            for (Map.Entry<String, Integer> entry : observed.entrySet()) {
+                Observe(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void onDelete() {
+        shutdown();
+    }
+
+    @Override
+    public void onDestroy() {
+        shutdown();
+    }
+
+    private void shutdown() {
+        StopObservingAll();
+        synchronized (this) {
+            if (endpoint != null) {
+                endpoint.destroy();
+                endpoint = null;
+            }
         }
-        resp = client.putIfMatch(data, type, computeETag(etag));
     }
+
+    /*
+     * Returns the endpoint shared by the requests of this component, creating it on first use.
+     */
+    private synchronized Endpoint getEndpoint() {
+        if (endpoint == null) {
+            NetworkConfig config = new NetworkConfig();
+            config.setInt(NetworkConfig.Keys.PREFERRED_BLOCK_SIZE, blockSize);
+            config.setInt(NetworkConfig.Keys.MAX_MESSAGE_SIZE, blockSize);
+            endpoint = new CoAPEndpoint(config);
+        }
+        return endpoint;
+    }
+
+    private CoapClient newClient(String uri) {
+        CoapClient client = new CoapClient(uri);
+        client.setEndpoint(getEndpoint());
+        client.useEarlyNegotiation(blockSize);
+        return client;
+    }
+
+    private void discover(String method, String query, int type) {
+        send(method, ".well-known/core" + query, newClient(BASE_URI + "/.well-known/core" + query),
+                accept(Request.newGet(), type));
+    }
+
+    private void send(String method, String resource, CoapClient client, Request request) {
+        if (asynchronous) {
+            client.advanced(responseHandler(method, resource), request);
+        } else {
+            resp = client.advanced(request);
+        }
+    }
+
+    private CoapHandler responseHandler(final String method, final String resource) {
+        return new CoapHandler() {
+            @Override
+            public void onLoad(final CoapResponse response) {
+                form.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        resp = response;
+                        ResponseReceived(method, resource, response.getCode().toString(),
+                                response.getResponseText());
+                    }
+                });
+            }
+
+            @Override
+            public void onError() {
+                form.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        resp = null;
+                        form.dispatchErrorOccurredEvent(LdpCoapClient.this, method,
+                                ErrorMessages.ERROR_LDP_COAP_REQUEST_FAILED, resource);
+                    }
+                });
+            }
+        };
+    }
+
+    private static Request accept(Request request, int type) {
+        request.getOptions().setAccept(type);
+        return request;
+    }
+
+    private static Request payload(Request request, byte[] data, int type) {
+        request.setPayload(data);
+        request.getOptions().setContentFormat(type);
+        return request;
+    }
+
     @SimpleProperty(description = "text/plain code")
     public int TextPlain() {
         return MediaTypeRegistry.TEXT_PLAIN;
@@ -54,6 +54,11 @@ public class LightSensor extends BufferedSingleValueSensor {
     timestamp = System.currentTimeMillis();
     LightChanged(value);
   }
+
+  @Override
+  protected void onValueBatched(float value, long time) {
+    timestamp = time;
+  }
   
   /**
    * Indicates the light level changed.
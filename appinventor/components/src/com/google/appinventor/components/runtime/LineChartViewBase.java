@@ -6,8 +6,19 @@
 package com.google.appinventor.components.runtime;
 
 import android.app.Activity;
+import android.view.MotionEvent;
 import com.github.mikephil.charting.charts.LineChart;
+import com.github.mikephil.charting.data.Entry;
 import com.github.mikephil.charting.data.LineData;
+import com.github.mikephil.charting.listener.ChartTouchListener;
+import com.github.mikephil.charting.listener.OnChartGestureListener;
+import com.google.appinventor.components.runtime.util.ChartDownsamplingUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Base class for handling the UI (view) of the Line-based Charts
@@ -15,6 +26,20 @@ import com.github.mikephil.charting.data.LineData;
  * @see com.google.appinventor.components.runtime.ChartView
  */
 public abstract class LineChartViewBase extends PointChartView<LineChart, LineData> {
+  /**
+   * Indicates whether Data Series are downsampled to the width
+   * of the Chart before being rendered.
+   */
+  private boolean levelOfDetailEnabled = false;
+
+  /**
+   * Full (not downsampled) List of entries of every Chart Data Model
+   * rendered by this View. Used to recompute the rendered entries
+   * when the visible range of the Chart changes.
+   */
+  private final Map<ChartDataModel, List<Entry>> fullEntries =
+      new HashMap<ChartDataModel, List<Entry>>();
+
   /**
    * Creates a new Line Chart Base View with the specified Chart component
    * instance as the parent of the View.
@@ -31,4 +56,188 @@ public abstract class LineChartViewBase extends PointChartView<LineChart, LineDa
 
     initializeDefaultSettings();
   }
+
+  @Override
+  protected void initializeDefaultSettings() {
+    super.initializeDefaultSettings();
+
+    // Recompute the rendered entries after zooming or panning, so that
+    // the visible range is always rendered at the resolution of the Chart.
+    // Gestures are still passed on to any listener set before this one.
+    final OnChartGestureListener previousListener = chart.getOnChartGestureListener();
+    chart.setOnChartGestureListener(new OnChartGestureListener() {
+      @Override
+      public void onChartGestureStart(MotionEvent me,
+          ChartTouchListener.ChartGesture lastPerformedGesture) {
+        if (previousListener != null) {
+          previousListener.onChartGestureStart(me, lastPerformedGesture);
+        }
+      }
+
+      @Override
+      public void onChartGestureEnd(MotionEvent me,
+          ChartTouchListener.ChartGesture lastPerformedGesture) {
+        if (previousListener != null) {
+          previousListener.onChartGestureEnd(me, lastPerformedGesture);
+        }
+        if (lastPerformedGesture != ChartTouchListener.ChartGesture.NONE
+            && lastPerformedGesture != ChartTouchListener.ChartGesture.SINGLE_TAP) {
+          refreshLevelOfDetail();
+        }
+      }
+
+      @Override
+      public void onChartLongPressed(MotionEvent me) {
+        if (previousListener != null) {
+          previousListener.onChartLongPressed(me);
+        }
+      }
+
+      @Override
+      public void onChartDoubleTapped(MotionEvent me) {
+        if (previousListener != null) {
+          previousListener.onChartDoubleTapped(me);
+        }
+      }
+
+      @Override
+      public void onChartSingleTapped(MotionEvent me) {
+        if (previousListener != null) {
+          previousListener.onChartSingleTapped(me);
+        }
+      }
+
+      @Override
+      public void onChartFling(MotionEvent me1, MotionEvent me2, float velocityX, float velocityY) {
+        if (previousListener != null) {
+          previousListener.onChartFling(me1, me2, velocityX, velocityY);
+        }
+      }
+
+      @Override
+      public void onChartScale(MotionEvent me, float scaleX, float scaleY) {
+        if (previousListener != null) {
+          previousListener.onChartScale(me, scaleX, scaleY);
+        }
+      }
+
+      @Override
+      public void onChartTranslate(MotionEvent me, float dX, float dY) {
+        if (previousListener != null) {
+          previousListener.onChartTranslate(me, dX, dY);
+        }
+      }
+    });
+  }
+
+  /**
+   * Enables or disables level-of-detail rendering of the Data Series.
+   *
+   * @param enabled Specifies whether Data Series should be downsampled
+   */
+  public void setLevelOfDetailEnabled(boolean enabled) {
+    if (levelOfDetailEnabled == enabled) {
+      return;
+    }
+
+    levelOfDetailEnabled = enabled;
+
+    if (enabled) {
+      // The Data Series rendered so far hold all of their entries,
+      // so they have to be kept before they can be downsampled.
+      captureFullEntries();
+    }
+
+    // Re-render the Data Series that were already rendered
+    // (either with all or with the downsampled entries)
+    refreshLevelOfDetail();
+
+    if (!enabled) {
+      fullEntries.clear();
+    }
+  }
+
+  @Override
+  protected void Refresh(ChartDataModel model, List<Entry> entries) {
+    if (levelOfDetailEnabled) {
+      // Keep the full entries to be able to resample on zoom
+      removeDetachedModels();
+      fullEntries.put(model, entries);
+      entries = getLevelOfDetailEntries(entries);
+    }
+
+    super.Refresh(model, entries);
+  }
+
+  /**
+   * Keeps the current entries of every Chart Data Model rendered by
+   * this View as its full List of entries.
+   */
+  private void captureFullEntries() {
+    List<?> dataSets = chart.getData().getDataSets();
+    for (ChartDataBase dataComponent : chartComponent) {
+      ChartDataModel model = dataComponent.chartDataModel;
+      if (model != null && dataSets.contains(model.getDataset())) {
+        fullEntries.put(model, new ArrayList<Entry>(model.getEntries()));
+      }
+    }
+  }
+
+  /**
+   * Re-renders all the Data Series of the Chart from their full
+   * List of entries, taking the current visible range into account.
+   */
+  private void refreshLevelOfDetail() {
+    removeDetachedModels();
+
+    for (Map.Entry<ChartDataModel, List<Entry>> modelEntries : fullEntries.entrySet()) {
+      List<Entry> entries = modelEntries.getValue();
+
+      if (levelOfDetailEnabled) {
+        entries = getLevelOfDetailEntries(entries);
+      }
+
+      super.Refresh(modelEntries.getKey(), entries);
+    }
+  }
+
+  /**
+   * Forgets the full entries of the Chart Data Models whose Data Series
+   * are no longer part of the Chart, so that they can be garbage collected.
+   */
+  private void removeDetachedModels() {
+    List<?> dataSets = chart.getData().getDataSets();
+    Iterator<ChartDataModel> models = fullEntries.keySet().iterator();
+    while (models.hasNext()) {
+      if (!dataSets.contains(models.next().getDataset())) {
+        models.remove();
+      }
+    }
+  }
+
+  /**
+   * Returns the entries to render for the specified full List of entries,
+   * downsampled to (approximately) one entry per horizontal pixel of the
+   * visible range of the Chart.
+   *
+   * @param entries full, x-sorted List of entries
+   * @return List of entries to render
+   */
+  private List<Entry> getLevelOfDetailEntries(List<Entry> entries) {
+    int threshold = (int) chart.getViewPortHandler().contentWidth();
+
+    // Chart not laid out yet; the entries will be re-rendered
+    // on the next refresh.
+    if (threshold <= 0 || entries.size() <= threshold) {
+      return entries;
+    }
+
+    // Chart is not zoomed in; the entire range is visible
+    if (chart.isFullyZoomedOut()) {
+      return ChartDownsamplingUtil.largestTriangleThreeBuckets(entries, threshold);
+    }
+
+    return ChartDownsamplingUtil.downsampleForViewport(entries,
+        chart.getLowestVisibleX(), chart.getHighestVisibleX(), threshold);
+  }
 }
@@ -19,6 +19,7 @@ import com.google.appinventor.components.common.ComponentCategory;
 import com.google.appinventor.components.common.PropertyTypeConstants;
 import com.google.appinventor.components.common.YaVersion;
 import com.google.appinventor.components.runtime.util.AsynchUtil;
+import com.google.appinventor.components.runtime.util.FormTriples;
 import com.google.appinventor.components.runtime.util.IOUtils;
 import com.google.appinventor.components.runtime.util.MediaUtil;
 import com.google.appinventor.components.runtime.util.RdfUtil;
@@ -29,6 +30,7 @@ import com.hp.hpl.jena.query.ResultSetFormatter;
 import com.hp.hpl.jena.query.ResultSetRewindable;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Statement;
 import com.hp.hpl.jena.vocabulary.XSD;
 import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
@@ -37,7 +39,9 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 @DesignerComponent(version = YaVersion.LINKED_DATA_COMPONENT_VERSION,
@@ -65,6 +69,14 @@ public class LinkedData extends LinkedDataBase<Model> implements
   /** endpointURL stores the URI of a SPARQL endpoint **/
   private String endpointURL;
 
+  /** the triples last added to the model from each form by UpdateDataFromLinkedDataForm **/
+  private final Map<LinkedDataForm, FormTriples> formTriples =
+      new HashMap<LinkedDataForm, FormTriples>();
+
+  /** changes to the model that have not yet been sent by UpdateDataOnWeb **/
+  private Model pendingAdded = ModelFactory.createDefaultModel();
+  private Model pendingRemoved = ModelFactory.createDefaultModel();
+
   public LinkedData(ComponentContainer<?> container) {
 	  super(container, ModelFactory.createDefaultModel());
 	  endpointURL = "http://dbpedia.org/sparql";
@@ -307,6 +319,136 @@ public class LinkedData extends LinkedDataBase<Model> implements
     }
   }
 
+  /**
+   * Takes a LinkedDataForm component and updates the triples it previously
+   * added to the model using this function. Only the fields that changed
+   * since the last update are converted into triples, and the triples they
+   * no longer generate are removed. A triple that another form still
+   * generates through this function is kept. Triples are not tracked for
+   * the other functions that add data to the model, so a triple that was
+   * also added by them is removed. The changes are kept so that they can be
+   * sent to the endpoint with {@link #UpdateDataOnWeb(String, boolean)}.
+   *
+   * @param form the form to serialize as RDF
+   * @return true if the form converted into an RDF graph successfully, otherwise false
+   */
+  @SimpleFunction(description = "Updates the triples added to the model from a Linked Data "
+      + "Form by earlier calls to this function, converting only the fields that have changed. "
+      + "Triples still generated by another form updated with this function are kept. "
+      + "The changes can be sent to the endpoint with UpdateDataOnWeb.")
+  public boolean UpdateDataFromLinkedDataForm(LinkedDataForm form) {
+    FormTriples triples = formTriples.get(form);
+    if (triples == null) {
+      triples = new FormTriples();
+      formTriples.put(form, triples);
+    }
+    try {
+      String subject = RdfUtil.generateSubjectForForm(form, triples.getSubject());
+      Model added = ModelFactory.createDefaultModel();
+      Model removed = ModelFactory.createDefaultModel();
+      if (!RdfUtil.triplifyFormChanges(form, subject, model, triples, added, removed)) {
+        return false;
+      }
+      keepSharedTriples(form, removed);
+      model.remove(removed);
+      model.add(added);
+      recordChanges(added, removed);
+      return true;
+    } catch(Exception e) {
+      Log.w(LOG_TAG, "Unable to triplify form due to exception.", e);
+      return false;
+    }
+  }
+
+  // Takes the triples that another form still generates out of the removed
+  // triples, so that they stay in the model.
+  private void keepSharedTriples(LinkedDataForm form, Model removed) {
+    if (removed.isEmpty()) {
+      return;
+    }
+    for (Map.Entry<LinkedDataForm, FormTriples> entry : formTriples.entrySet()) {
+      if (entry.getKey() != form) {
+        for (Statement statement : entry.getValue().getStatements()) {
+          removed.remove(statement);
+        }
+      }
+    }
+  }
+
+  // Adds changes to the pending changes, cancelling out triples that were
+  // added and then removed, or removed and then added.
+  private void recordChanges(Model added, Model removed) {
+    for (Statement statement : removed.listStatements().toList()) {
+      if (pendingAdded.contains(statement)) {
+        pendingAdded.remove(statement);
+      } else {
+        pendingRemoved.add(statement);
+      }
+    }
+    for (Statement statement : added.listStatements().toList()) {
+      if (pendingRemoved.contains(statement)) {
+        pendingRemoved.remove(statement);
+      } else {
+        pendingAdded.add(statement);
+      }
+    }
+  }
+
+  /**
+   * Sends the changes made by {@link #UpdateDataFromLinkedDataForm(LinkedDataForm)}
+   * since the last successful call to the endpoint as a single SPARQL Update
+   * request that deletes the removed triples and inserts the added ones.
+   * @param graph Empty string for the default graph, otherwise a valid URI
+   * @param noResolveUpdate true if the component should attempt to resolve the
+   * update URL relative to {@link #EndpointURL()}, false will send the query
+   * directly to {@link #EndpointURL()}.
+   */
+  @SimpleFunction(description = "Sends the changes made by UpdateDataFromLinkedDataForm since "
+      + "the last successful call to the endpoint as one SPARQL Update request. Raises "
+      + "FinishedAddingDataToWeb or FailedToAddDataToWeb when done.")
+  public void UpdateDataOnWeb(final String graph, boolean noResolveUpdate) {
+    final URI uri;
+    try {
+      URI part = new URI(null, null, "update", null, null);
+      URI base = URI.create(EndpointURL());
+      uri = noResolveUpdate ? base : base.resolve(part);
+    } catch (URISyntaxException e) {
+      Log.w(LOG_TAG, "Unable to generate SPARQL Update URL.", e);
+      FailedToAddDataToWeb(graph, "Invalid endpoint URI. See log for details.");
+      return;
+    }
+    final String update = RdfUtil.buildUpdateData(pendingRemoved, pendingAdded,
+        graph.length() == 0 ? null : graph);
+    if (update == null) {
+      FinishedAddingDataToWeb(graph);
+      return;
+    }
+    final Model sentAdded = pendingAdded;
+    final Model sentRemoved = pendingRemoved;
+    pendingAdded = ModelFactory.createDefaultModel();
+    pendingRemoved = ModelFactory.createDefaultModel();
+    AsynchUtil.runAsynchronously(new Runnable() {
+      public void run() {
+        final boolean success = RdfUtil.updateData(uri, update);
+        form.runOnUiThread(new Runnable() {
+          public void run() {
+            if (success) {
+              FinishedAddingDataToWeb(graph);
+            } else {
+              // Put the changes back in front of any made since they were sent
+              Model newerAdded = pendingAdded;
+              Model newerRemoved = pendingRemoved;
+              pendingAdded = sentAdded;
+              pendingRemoved = sentRemoved;
+              recordChanges(newerAdded, newerRemoved);
+              FailedToAddDataToWeb(graph, "See log for details.");
+            }
+          }
+        });
+      }
+    });
+  }
+
   private void doPublishModel(final URI uri, final String graph) {
     try {
       if(RdfUtil.publishGraph(uri, model)) {
@@ -659,6 +801,9 @@ public class LinkedData extends LinkedDataBase<Model> implements
   public void DeleteDataFromLocal() {
     try {
       model.removeAll();
+      formTriples.clear();
+      pendingAdded.removeAll();
+      pendingRemoved.removeAll();
       FinishedDeletingDataFromLocal();
     } catch (Exception e) {
       Log.w(LOG_TAG, "Unable to delete data from model", e);
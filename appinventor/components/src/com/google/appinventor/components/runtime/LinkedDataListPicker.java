@@ -8,6 +8,7 @@ import com.google.appinventor.components.annotations.DesignerComponent;
 import com.google.appinventor.components.annotations.DesignerProperty;
 import com.google.appinventor.components.annotations.PropertyCategory;
 import com.google.appinventor.components.annotations.SimpleEvent;
+import com.google.appinventor.components.annotations.SimpleFunction;
 import com.google.appinventor.components.annotations.SimpleObject;
 import com.google.appinventor.components.annotations.SimpleProperty;
 import com.google.appinventor.components.annotations.UsesActivities;
@@ -19,11 +20,14 @@ import com.google.appinventor.components.common.PropertyTypeConstants;
 import com.google.appinventor.components.common.YaVersion;
 import com.google.appinventor.components.runtime.SWListActivity.LabeledUri;
 import com.google.appinventor.components.runtime.util.AsynchUtil;
+import com.google.appinventor.components.runtime.util.ConceptList;
 import com.google.appinventor.components.runtime.util.RdfUtil;
-import com.google.appinventor.components.runtime.util.RdfUtil.Solution;
+import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 
@@ -34,7 +38,9 @@ import java.util.Locale;
  */
 @DesignerComponent(version = YaVersion.LINKED_DATA_LISTPICKER_COMPONENT_VERSION,
     category = ComponentCategory.LINKEDDATA,
-    description = "Provides a list picker backed by the results of a SPARQL query, limit to first 100 results.")
+    description = "Provides a list picker backed by the results of a SPARQL query. "
+        + "Results are fetched a page at a time as the user scrolls or searches, "
+        + "and are kept on the device for the next time the app is run.")
 @SimpleObject
 @UsesPermissions(permissionNames = "android.permission.INTERNET")
 @UsesLibraries(libraries = "xercesImpl.jar," + "slf4j-android.jar," + 
@@ -53,6 +59,10 @@ public class LinkedDataListPicker extends Picker implements ActivityResultListen
   static final String SWLIST_ACTIVITY_RESULT_LABEL = SWLIST_ACTIVITY_CLASS + ".selectionLabel";
   static final String SWLIST_ACTIVITY_RESULT_INDEX = SWLIST_ACTIVITY_CLASS + ".index";
   static final String SWLIST_ACTIVITY_ANIM_TYPE = SWLIST_ACTIVITY_CLASS + ".anim";
+  private static final String CACHE_DIR = "LinkedDataListPicker";
+  private static final int DEFAULT_PAGE_SIZE = 100;
+  // Cached items are fetched again after a week, so that changes at the endpoint show up
+  private static final long CACHE_LIFETIME = 7L * 24 * 60 * 60 * 1000;
   private String endpointUrl;
   private String selectionUri;
   private String selectionLabel;
@@ -61,7 +71,10 @@ public class LinkedDataListPicker extends Picker implements ActivityResultListen
   private String conceptUri;
   private String propertyUri;
   private String relationUri;
-  private List<LabeledUri> items;
+  // The items fetched for the current endpoint and type
+  private volatile ConceptList items;
+  private int pageSize = DEFAULT_PAGE_SIZE;
+  private boolean useCache = true;
   private final Form form;
   private volatile boolean initialized = false;
 
@@ -75,7 +88,7 @@ public class LinkedDataListPicker extends Picker implements ActivityResultListen
     conceptUri = "";
     propertyUri = "";
     relationUri = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
-    items = new ArrayList<LabeledUri>();
+    items = new ConceptList();
     form = container.$form();
   }
 
@@ -111,25 +124,31 @@ public class LinkedDataListPicker extends Picker implements ActivityResultListen
     Bundle bundle = new Bundle();
     bundle.putBinder("binder", new SWListActivity.DataSource() {
       @Override
-      void performQuery(String query, Completion completion) {
-        ArrayList<LabeledUri> filteredItems = new ArrayList<>();
-        int i = 0;
-        boolean first = true;
-        while (i < items.size()) {
-          for (; i < items.size(); i++) {
-            if (items.get(i).getLabel().contains(query)) {
-              filteredItems.add(items.get(i));
-            }
-            if (filteredItems.size() % 100 == 0) {
-              break;
+      void performQuery(final String query, final int offset, final Completion completion) {
+        final ConceptList list = items;
+        final String endpoint = endpointUrl;
+        final String concept = conceptUri;
+        final String relation = relationUri;
+        AsynchUtil.runAsynchronously(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              if (query.isEmpty()) {
+                sendPage(list, endpoint, relation, concept, offset, completion);
+              } else {
+                sendMatches(list, endpoint, relation, concept, query, offset, completion);
+              }
+            } catch (final Exception e) {
+              Log.w(LOG_TAG, "Unable to retrieve SPARQL contents due to exception.", e);
+              completion.done(false);
+              form.runOnUiThread(new Runnable() {
+                public void run() {
+                  UnableToRetrieveContent(e.getLocalizedMessage());
+                }
+              });
             }
           }
-          Log.d(LOG_TAG, "Sending batch of " + filteredItems.size() + " uris to activity.");
-          completion.onResultsAvailable(filteredItems, first);
-          first = false;
-          filteredItems.clear();
-        }
-        completion.done();
+        });
       }
     });
     intent.putExtra(".source", bundle);
@@ -223,45 +242,77 @@ public class LinkedDataListPicker extends Picker implements ActivityResultListen
     relationUri = uri;
   }
 
+  /**
+   * Sets the number of items fetched from the endpoint at a time.
+   * @param size the number of items in a page
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER,
+      defaultValue = "100")
+  @SimpleProperty
+  public void PageSize(int size) {
+    pageSize = Math.max(1, size);
+  }
+
+  @SimpleProperty(category = PropertyCategory.LINKED_DATA,
+      description = "The number of items fetched from the Endpoint URL at a time. More "
+          + "items are fetched as the user scrolls towards the end of the list.")
+  public int PageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Sets whether the items fetched from the endpoint are kept on the device.
+   * @param useCache true to keep the items on the device for up to a week
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "True")
+  @SimpleProperty
+  public void UseCache(boolean useCache) {
+    this.useCache = useCache;
+  }
+
+  @SimpleProperty(category = PropertyCategory.LINKED_DATA,
+      description = "<p>If true, the items fetched from the Endpoint URL are kept on "
+          + "the device, and the list picker shows them without asking the endpoint "
+          + "again, even after the app is restarted. Items are fetched again after a "
+          + "week.</p><p>Use ClearCache to fetch the items again sooner.</p>")
+  public boolean UseCache() {
+    return useCache;
+  }
+
+  /**
+   * Deletes the items kept on the device for every endpoint and type. The
+   * next time the list picker is opened, its items are fetched again.
+   */
+  @SimpleFunction(description = "Deletes the items kept on the device for every "
+      + "endpoint and type, so that they are fetched again from the endpoint.")
+  public void ClearCache() {
+    File[] files = new File(form.getCacheDir(), CACHE_DIR).listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    items = new ConceptList();
+    initialized = false;
+  }
+
   private void populateItemsList(final String endpoint, final String conceptUri) {
     Log.d(LOG_TAG, "Populating item list for semantic list picker");
-    final String query = "PREFIX dc: <http://purl.org/dc/terms/> " +
-        "PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#> " +
-        "PREFIX foaf: <http://xmlns.com/foaf/0.1/> " +
-        "PREFIX skos: <http://www.w3.org/2004/02/skos/core#> " +
-        "SELECT DISTINCT ?uri (SAMPLE(?lbl) AS ?label) WHERE { " +
-        "?uri <" + relationUri + "> <" + conceptUri + "> " +
-        "{ ?uri rdfs:label ?lbl }" +
-        " UNION { ?uri skos:prefLabel ?lbl } " +
-        "UNION { ?uri foaf:name ?lbl } UNION { ?uri dc:title ?lbl } " +
-        "FILTER(lang(?lbl) = \"\" || langMatches(lang(?lbl), \"" +
-        Locale.getDefault().getLanguage() + "\"))" +
-        "} GROUP BY ?uri ORDER BY ?label";
-    Log.d(LOG_TAG, "The Query is " + query);
-    Collection<Solution> solutions = null;
-    try {
-      ResultSet results = RdfUtil.executeSELECT(endpoint, query);
-      Log.d(LOG_TAG, "Received results; parsing JSON to collection.");
-      solutions = RdfUtil.resultSetAsCollection(results);
-    } catch(final Exception e) {
-      Log.w(LOG_TAG, "Unable to retrieve SPARQL contents due to exception.", e);
-      form.runOnUiThread(new Runnable() {
-        public void run() {
-          UnableToRetrieveContent(e.getLocalizedMessage());
-        }
-      });
-      return;
+    final String relation = relationUri;
+    ConceptList list = useCache ? ConceptList.read(cacheFile(endpoint, relation, conceptUri)) : null;
+    if (list != null && System.currentTimeMillis() - list.getCreated() > CACHE_LIFETIME) {
+      Log.d(LOG_TAG, "Cached items have expired");
+      list = null;
     }
-    items.clear();
-    Log.d(LOG_TAG, "Finished query, got "+solutions.size()+" solutions");
-    for(Solution i : solutions) {
+    if (list != null) {
+      Log.d(LOG_TAG, "Read " + list.size() + " cached items");
+    } else {
+      list = new ConceptList();
       try {
-        final String uri = (String)i.getBinding("uri").get(1);
-        final String label = (String)i.getBinding("label").get(1);
-        items.add(new LabeledUri(label, uri));
-        Log.d(LOG_TAG, label + ": " + uri);
-      } catch(final Exception e) {
-        Log.w(LOG_TAG, "Unexpected exception processing SPARQL results.", e);
+        fetchPage(list, endpoint, relation, conceptUri);
+      } catch (final Exception e) {
+        Log.w(LOG_TAG, "Unable to retrieve SPARQL contents due to exception.", e);
         form.runOnUiThread(new Runnable() {
           public void run() {
             UnableToRetrieveContent(e.getLocalizedMessage());
@@ -271,6 +322,7 @@ public class LinkedDataListPicker extends Picker implements ActivityResultListen
         return;
       }
     }
+    items = list;
     initialized = true;
     Log.d(LOG_TAG, "Finished processing results, calling AfterQuery");
     form.runOnUiThread(new Runnable() {
@@ -280,6 +332,94 @@ public class LinkedDataListPicker extends Picker implements ActivityResultListen
     });
   }
 
+  // Sends the page of items starting at offset, fetching it if needed.
+  private void sendPage(ConceptList list, String endpoint, String relation, String concept,
+      int offset, SWListActivity.DataSource.Completion completion) throws Exception {
+    synchronized (list) {
+      if (offset >= list.size() && !list.isComplete()) {
+        fetchPage(list, endpoint, relation, concept);
+      }
+    }
+    int end = Math.min(list.size(), offset + pageSize);
+    List<LabeledUri> page = new ArrayList<LabeledUri>();
+    for (int i = offset; i < end; i++) {
+      page.add(new LabeledUri(list.getLabel(i), list.getUri(i)));
+    }
+    completion.onResultsAvailable(page, offset == 0);
+    completion.done(end < list.size() || !list.isComplete());
+  }
+
+  // Sends a page of the items whose labels contain the search text. Once
+  // every item has been fetched the search is done on the device; before
+  // then the endpoint does it.
+  private void sendMatches(ConceptList list, String endpoint, String relation, String concept,
+      String search, int offset, SWListActivity.DataSource.Completion completion)
+      throws Exception {
+    List<LabeledUri> page = new ArrayList<LabeledUri>();
+    if (list.isComplete()) {
+      for (int i : list.filter(search, offset, pageSize + 1)) {
+        page.add(new LabeledUri(list.getLabel(i), list.getUri(i)));
+      }
+    } else {
+      ResultSet results = RdfUtil.executeSELECT(endpoint, ConceptList.buildQuery(relation,
+          concept, Locale.getDefault().getLanguage(), search, pageSize + 1, offset));
+      while (results.hasNext()) {
+        addSolution(results.nextSolution(), page);
+      }
+    }
+    // One more than a page was asked for, to tell whether there are more
+    boolean more = page.size() > pageSize;
+    if (more) {
+      page.remove(pageSize);
+    }
+    completion.onResultsAvailable(page, offset == 0);
+    completion.done(more);
+  }
+
+  // Fetches the page of items following those already in the list and saves
+  // the list if caching is on.
+  private void fetchPage(ConceptList list, String endpoint, String relation, String concept)
+      throws Exception {
+    synchronized (list) {
+      int offset = list.size();
+      ResultSet results = RdfUtil.executeSELECT(endpoint, ConceptList.buildQuery(relation,
+          concept, Locale.getDefault().getLanguage(), "", pageSize, offset));
+      List<LabeledUri> page = new ArrayList<LabeledUri>();
+      while (results.hasNext()) {
+        addSolution(results.nextSolution(), page);
+      }
+      for (LabeledUri uri : page) {
+        list.add(uri.getLabel(), uri.getUri());
+      }
+      list.setComplete(page.size() < pageSize);
+      Log.d(LOG_TAG, "Fetched " + page.size() + " items at offset " + offset);
+    }
+    if (useCache) {
+      try {
+        list.write(cacheFile(endpoint, relation, concept));
+      } catch (IOException e) {
+        Log.w(LOG_TAG, "Unable to cache items", e);
+      }
+    }
+  }
+
+  private static void addSolution(QuerySolution solution, List<LabeledUri> page) {
+    RDFNode uri = solution.get("uri");
+    RDFNode label = solution.get("label");
+    if (uri == null || !uri.isURIResource()) {
+      return;
+    }
+    String uriString = uri.asResource().getURI();
+    String labelString = label != null && label.isLiteral()
+        ? label.asLiteral().getLexicalForm() : uriString;
+    page.add(new LabeledUri(labelString, uriString));
+  }
+
+  private File cacheFile(String endpoint, String relation, String concept) {
+    return new File(new File(form.getCacheDir(), CACHE_DIR),
+        ConceptList.cacheKey(endpoint, relation, concept, Locale.getDefault().getLanguage()));
+  }
+
   /**
    * This event is raised before the query is executed on the remote endpoint.
    */
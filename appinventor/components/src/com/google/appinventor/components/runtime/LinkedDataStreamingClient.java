@@ -14,6 +14,12 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 
 import com.google.appinventor.components.annotations.DesignerComponent;
@@ -31,6 +37,16 @@ import com.google.appinventor.components.runtime.util.AsynchUtil;
 import com.google.appinventor.components.runtime.util.ErrorMessages;
 import com.google.appinventor.components.runtime.util.FileUtil;
 import com.google.appinventor.components.runtime.util.RdfUtil;
+import com.google.appinventor.components.runtime.util.StreamQueryEngine;
+import com.google.appinventor.components.runtime.util.YailList;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.query.QueryException;
+import com.hp.hpl.jena.rdf.model.AnonId;
+import com.hp.hpl.jena.rdf.model.ResourceFactory;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+import com.hp.hpl.jena.vocabulary.RDF;
 
 import android.R;
 import android.app.Activity;
@@ -103,6 +119,12 @@ public final class LinkedDataStreamingClient extends AndroidNonvisibleComponent
     private static final String REG_ID_TAG = "RegistrationId";
     private final SharedPreferences sharedPreferences;
 
+    // Queries evaluated on the device. The executor is created when the first
+    // query is registered, and runs one evaluation at a time.
+    private final StreamQueryEngine streamEngine = new StreamQueryEngine();
+    private ScheduledExecutorService streamExecutor;
+    private ScheduledFuture<?> streamEvaluation;
+
     // private final SharedPreferences sharedPreferences;
 
     public LinkedDataStreamingClient(ComponentContainer container) {
@@ -156,6 +178,13 @@ public final class LinkedDataStreamingClient extends AndroidNonvisibleComponent
           doUnbindService();
           Log.i(TAG, "In the onDestroy method, after the doUnbindService method.");
         }
+        synchronized (this) {
+          streamEngine.clear();
+          if (streamExecutor != null) {
+            streamExecutor.shutdownNow();
+            streamExecutor = null;
+          }
+        }
     }
     
     @SimpleProperty(category = PropertyCategory.BEHAVIOR)
@@ -343,6 +372,21 @@ public final class LinkedDataStreamingClient extends AndroidNonvisibleComponent
       EventDispatcher.dispatchEvent(this, "GotResponseFromServer", url, responseCode, responseType,
           responseContent);
     }
+
+    /**
+     * Event indicating that a query registered with RegisterStreamQuery was
+     * evaluated over its window.
+     *
+     * @param queryName the name the query was registered with
+     * @param results a list of solutions for a SELECT query, each a list of
+     *     variable and value pairs; a list of subject, predicate and object
+     *     triples for a CONSTRUCT or DESCRIBE query; or true or false for an
+     *     ASK query
+     */
+    @SimpleEvent
+    public void StreamQueryResults(String queryName, Object results) {
+      EventDispatcher.dispatchEvent(this, "StreamQueryResults", queryName, results);
+    }
     
     @SimpleEvent
     public void SubscriptionResponseReceived(String url, int responseCode, String responseType, String responseContent) {
@@ -697,6 +741,193 @@ public final class LinkedDataStreamingClient extends AndroidNonvisibleComponent
             ErrorMessages.ERROR_WEB_MALFORMED_URL, SERVER_URL);
       }
     }
+
+    /**
+     * Registers a query that is evaluated on the device, rather than by the
+     * streaming server, over a sliding window of the triples added to a
+     * stream. A query registered with the same name is replaced.
+     *
+     * @param queryName the name reported with the results
+     * @param querytext a SPARQL SELECT, CONSTRUCT, DESCRIBE or ASK query
+     * @param streamName the stream the query reads
+     * @param window a duration such as 10s or 5m, or TRIPLES n
+     * @param step the duration between evaluations
+     */
+    @SimpleFunction(description = "Registers a SPARQL query that is evaluated on the device over "
+        + "a sliding window of the triples added to the named stream. The window is a duration "
+        + "such as 10s or 5m, or TRIPLES n for the last n triples, and the step is the duration "
+        + "between evaluations. Results are reported by the StreamQueryResults event.")
+    public void RegisterStreamQuery(String queryName, String querytext, String streamName,
+        String window, String step) {
+      try {
+        streamEngine.register(queryName, querytext, streamName, window, step,
+            System.currentTimeMillis());
+      } catch (IllegalArgumentException e) {
+        form.dispatchErrorOccurredEvent(this, "RegisterStreamQuery",
+            ErrorMessages.ERROR_STREAM_QUERY_INVALID_WINDOW, queryName, e.getMessage());
+        return;
+      } catch (QueryException e) {
+        form.dispatchErrorOccurredEvent(this, "RegisterStreamQuery",
+            ErrorMessages.ERROR_STREAM_QUERY_INVALID, queryName, e.getMessage());
+        return;
+      }
+      scheduleStreamQueries();
+    }
+
+    @SimpleFunction(description = "Stops evaluating the named stream query.")
+    public void UnregisterStreamQuery(String queryName) {
+      if (streamEngine.unregister(queryName)) {
+        scheduleStreamQueries();
+      }
+    }
+
+    /**
+     * Adds a triple to a stream read by queries registered with
+     * RegisterStreamQuery. The subject and predicate may be URIs or prefixed
+     * names. The object is a URI if it looks like one, and a literal otherwise.
+     */
+    @SimpleFunction(description = "Adds a triple to the named stream. The subject and predicate "
+        + "may be URIs or prefixed names, and the predicate may be \"a\" for rdf:type. Numbers "
+        + "and booleans are added as typed literals, and text as a URI if it looks like one or "
+        + "as a literal otherwise.")
+    public void AddTripleToStream(String streamName, String subject, String predicate,
+        Object object) {
+      streamEngine.add(streamName, toTriple(subject, predicate, object),
+          System.currentTimeMillis());
+    }
+
+    @SimpleFunction(description = "Adds a list of triples, each a list of subject, predicate "
+        + "and object, to the named stream.")
+    public void AddTriplesToStream(String streamName, YailList triples) {
+      long now = System.currentTimeMillis();
+      for (Object item : triples.toArray()) {
+        if (item instanceof YailList && ((YailList) item).size() == 3) {
+          YailList triple = (YailList) item;
+          streamEngine.add(streamName, toTriple(triple.getObject(0).toString(),
+              triple.getObject(1).toString(), triple.getObject(2)), now);
+        } else {
+          Log.w(TAG, "Skipping item that is not a triple: " + item);
+        }
+      }
+    }
+
+    @SimpleFunction(description = "Adds every triple in a LinkedData component to the named "
+        + "stream.")
+    public void FeedLinkedDataToStream(String streamName, LinkedData linkedData) {
+      long now = System.currentTimeMillis();
+      StmtIterator it = linkedData.getModel().listStatements();
+      try {
+        while (it.hasNext()) {
+          streamEngine.add(streamName, it.next().asTriple(), now);
+        }
+      } finally {
+        it.close();
+      }
+    }
+
+    // Schedules the next evaluation of the stream queries, replacing any
+    // evaluation that is already scheduled.
+    private synchronized void scheduleStreamQueries() {
+      if (streamEvaluation != null) {
+        streamEvaluation.cancel(false);
+        streamEvaluation = null;
+      }
+      long next = streamEngine.nextEvaluation();
+      if (next == Long.MAX_VALUE) {
+        return;
+      }
+      if (streamExecutor == null) {
+        streamExecutor = Executors.newSingleThreadScheduledExecutor();
+      }
+      long delay = Math.max(0, next - System.currentTimeMillis());
+      streamEvaluation = streamExecutor.schedule(new Runnable() {
+        @Override
+        public void run() {
+          evaluateStreamQueries();
+        }
+      }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void evaluateStreamQueries() {
+      for (StreamQueryEngine.WindowResult result :
+          streamEngine.evaluate(System.currentTimeMillis())) {
+        final String queryName = result.getName();
+        if (result.getError() != null) {
+          form.dispatchErrorOccurredEvent(this, "StreamQueryResults",
+              ErrorMessages.ERROR_STREAM_QUERY_FAILED, queryName, result.getError().getMessage());
+          continue;
+        }
+        // Results are converted here, as the engine may reuse them.
+        final Object results;
+        if (result.getSelectResults() != null) {
+          results = RdfUtil.resultSetAsYailList(result.getSelectResults());
+        } else if (result.getConstructResults() != null) {
+          results = statementsAsYailList(result.getConstructResults().listStatements());
+        } else {
+          results = result.getAskResult();
+        }
+        mainUIThreadActivity.runOnUiThread(new Runnable() {
+          @Override
+          public void run() {
+            StreamQueryResults(queryName, results);
+          }
+        });
+      }
+      scheduleStreamQueries();
+    }
+
+    private static YailList statementsAsYailList(StmtIterator it) {
+      List<YailList> list = new ArrayList<YailList>();
+      try {
+        while (it.hasNext()) {
+          Statement st = it.next();
+          Object object = st.getObject().isLiteral() ? st.getObject().asLiteral().getValue()
+              : st.getObject().toString();
+          list.add(YailList.makeList(new Object[] {
+              st.getSubject().toString(), st.getPredicate().toString(), object }));
+        }
+      } finally {
+        it.close();
+      }
+      return YailList.makeList(list);
+    }
+
+    private static Triple toTriple(String subject, String predicate, Object object) {
+      Node p = predicate.equals("a") ? RDF.type.asNode() : toResourceNode(predicate);
+      return Triple.create(toResourceNode(subject), p, toObjectNode(object));
+    }
+
+    private static Node toResourceNode(String value) {
+      if (value.startsWith("_:")) {
+        return Node.createAnon(new AnonId(value.substring(2)));
+      } else if (value.startsWith("<") && value.endsWith(">")) {
+        return Node.createURI(value.substring(1, value.length() - 1));
+      }
+      return Node.createURI(RdfUtil.expandQName(value));
+    }
+
+    private static Node toObjectNode(Object value) {
+      if (value instanceof Boolean) {
+        return ResourceFactory.createTypedLiteral(value).asNode();
+      } else if (value instanceof Number) {
+        double d = ((Number) value).doubleValue();
+        if (d == Math.rint(d) && !Double.isInfinite(d)) {
+          return ResourceFactory.createTypedLiteral(((Number) value).longValue()).asNode();
+        }
+        return ResourceFactory.createTypedLiteral(d).asNode();
+      }
+      String text = value.toString();
+      if (text.startsWith("http:") || text.startsWith("https://") || text.startsWith("urn:")
+          || text.startsWith("_:") || (text.startsWith("<") && text.endsWith(">"))) {
+        return toResourceNode(text);
+      }
+      String expanded = RdfUtil.expandQName(text);
+      if (!expanded.equals(text) && !expanded.contains(" ")) {
+        // A prefixed name with a known prefix
+        return Node.createURI(expanded);
+      }
+      return Node.createLiteral(text);
+    }
     
     private static String getResponseContent(HttpURLConnection connection) throws IOException {
       // Use the content encoding to convert bytes to characters.
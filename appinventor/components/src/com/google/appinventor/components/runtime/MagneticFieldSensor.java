@@ -10,6 +10,7 @@ import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import android.os.SystemClock;
 
 import com.google.appinventor.components.annotations.DesignerComponent;
 import com.google.appinventor.components.annotations.DesignerProperty;
@@ -20,6 +21,10 @@ import com.google.appinventor.components.annotations.SimpleProperty;
 import com.google.appinventor.components.common.ComponentCategory;
 import com.google.appinventor.components.common.PropertyTypeConstants;
 import com.google.appinventor.components.common.YaVersion;
+import com.google.appinventor.components.runtime.util.KitkatUtil;
+import com.google.appinventor.components.runtime.util.SdkLevel;
+import com.google.appinventor.components.runtime.util.SensorBatcher;
+import com.google.appinventor.components.runtime.util.YailList;
 
 
 @DesignerComponent(
@@ -40,6 +45,8 @@ public class MagneticFieldSensor extends AndroidNonvisibleComponent implements S
   private float xStrength;
   private float yStrength;
   private float zStrength;
+  private final SensorBatcher batcher = new SensorBatcher(3);
+  private int batchLatency = 1000;
 
   public MagneticFieldSensor(ComponentContainer container) {
     super(container.$form());
@@ -79,14 +86,80 @@ public class MagneticFieldSensor extends AndroidNonvisibleComponent implements S
       startListening();
     } else {
       stopListening();
+      flushBatch();
     }
   }
 
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR, description = "The number of samples reported " +
+      "together by the SamplesReceived event. If 0, each sample is reported by the MagneticChanged event.")
+  public int BatchSize() {
+    return batcher.getBatchSize();
+  }
+
+  @DesignerProperty(defaultValue = "0", editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER)
+  @SimpleProperty
+  public void BatchSize(int size) {
+    flushBatch();
+    boolean wasBatching = batcher.isBatching();
+    batcher.setBatchSize(size);
+    if (listening && wasBatching != batcher.isBatching()) {
+      stopListening();
+      startListening();
+    }
+  }
+
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR, description = "The longest time, in milliseconds, " +
+      "that the sensor hardware may hold samples before reporting them while batching. Has no effect " +
+      "before Android 4.4.")
+  public int BatchLatency() {
+    return batchLatency;
+  }
+
+  @DesignerProperty(defaultValue = "1000", editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER)
+  @SimpleProperty
+  public void BatchLatency(int latency) {
+    batchLatency = latency;
+    if (listening && batcher.isBatching()) {
+      stopListening();
+      startListening();
+    }
+  }
+
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR, description = "While batching, only one of every " +
+      "Decimation samples is kept.")
+  public int Decimation() {
+    return batcher.getDecimation();
+  }
+
+  @DesignerProperty(defaultValue = "1", editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER)
+  @SimpleProperty
+  public void Decimation(int decimation) {
+    batcher.setDecimation(decimation);
+  }
+
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR, description = "If true, each kept sample is the " +
+      "average of the Decimation samples it replaces. Otherwise it is the first of them.")
+  public boolean AverageDecimated() {
+    return batcher.isAveraging();
+  }
+
+  @DesignerProperty(defaultValue = "False", editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN)
+  @SimpleProperty
+  public void AverageDecimated(boolean average) {
+    batcher.setAveraging(average);
+  }
+
   @SimpleEvent(description = "Triggers when magnetic field has changed, setting the new values in parameters.")
   public void MagneticChanged(float xStrength, float yStrength, float zStrength, double absoluteStrength) {
     EventDispatcher.dispatchEvent(this, "MagneticChanged", xStrength, yStrength, zStrength, absoluteStrength);
   }
 
+  @SimpleEvent(description = "Triggers when BatchSize samples have been read, or when the sensor is disabled " +
+      "while batching. Each sample is a list of the time in milliseconds and the X, Y and Z strength.")
+  public void SamplesReceived(YailList samples) {
+    EventDispatcher.dispatchEvent(this, "SamplesReceived", samples);
+  }
+
   @SimpleProperty(category = PropertyCategory.BEHAVIOR, description = "Indicates the absolute strength of the field.")
   public double AbsoluteStrength() {
     return absoluteStrength;
@@ -136,7 +209,12 @@ public class MagneticFieldSensor extends AndroidNonvisibleComponent implements S
 
   private void startListening() {
     if (!listening && sensorManager != null && magneticSensor != null) {
-      sensorManager.registerListener(this, magneticSensor, 3);
+      batcher.setTimeBase(System.currentTimeMillis() - SystemClock.elapsedRealtime());
+      if (batcher.isBatching() && SdkLevel.getLevel() >= SdkLevel.LEVEL_KITKAT) {
+        KitkatUtil.registerListener(sensorManager, this, magneticSensor, 3, batchLatency);
+      } else {
+        sensorManager.registerListener(this, magneticSensor, 3);
+      }
       listening = true;
     }
   }
@@ -158,7 +236,17 @@ public class MagneticFieldSensor extends AndroidNonvisibleComponent implements S
       yStrength = sensorEvent.values[1];
       zStrength = sensorEvent.values[2];
       absoluteStrength = Math.sqrt((double) (((xStrength * xStrength) + (yStrength * yStrength)) + (zStrength * zStrength)));
-      MagneticChanged(xStrength, yStrength, zStrength, absoluteStrength);
+      if (!batcher.isBatching()) {
+        MagneticChanged(xStrength, yStrength, zStrength, absoluteStrength);
+      } else if (batcher.add(sensorEvent.timestamp, sensorEvent.values)) {
+        flushBatch();
+      }
+    }
+  }
+
+  private void flushBatch() {
+    if (batcher.size() > 0) {
+      SamplesReceived(batcher.takeBatch());
     }
   }
 
@@ -532,6 +532,68 @@ public class Map extends MapFeatureContainerBase implements MapEventListener {
     }
   }
 
+  /**
+   * Draws markers that are close to each other at the current zoom level as a single marker
+   * labeled with the number of markers it stands for. Tapping the cluster zooms in on it. This
+   * keeps maps with thousands of {@link Marker}s responsive.
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN, defaultValue = "False")
+  @SimpleProperty
+  public void ClusterMarkers(boolean cluster) {
+    mapController.setFeatureClustering(cluster);
+  }
+
+  @SimpleProperty(category = PropertyCategory.APPEARANCE,
+      description = "Groups markers that are close to each other into a single marker.")
+  public boolean ClusterMarkers() {
+    return mapController.isFeatureClustering();
+  }
+
+  /**
+   * Only adds features to the map while they intersect the visible area. Features that are
+   * scrolled out of view are removed from the map until they come back into view, so they cost
+   * nothing to draw.
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN, defaultValue = "False")
+  @SimpleProperty
+  public void CullFeatures(boolean cull) {
+    mapController.setFeatureCulling(cull);
+  }
+
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "Only draws the features that are in the visible area of the map.")
+  public boolean CullFeatures() {
+    return mapController.isFeatureCulling();
+  }
+
+  /**
+   * The number of features drawn individually the last time the map updated its clusters and
+   * culled features. Only updated while {@link #ClusterMarkers(boolean)} or
+   * {@link #CullFeatures(boolean)} is enabled.
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR)
+  public int RenderedFeatureCount() {
+    return mapController.getRenderedFeatureCount();
+  }
+
+  /**
+   * The number of visible features left off the map the last time it updated, because they were
+   * outside of the visible area. Only updated while {@link #CullFeatures(boolean)} is enabled.
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR)
+  public int CulledFeatureCount() {
+    return mapController.getCulledFeatureCount();
+  }
+
+  /**
+   * The number of cluster markers drawn the last time the map updated. Only updated while
+   * {@link #ClusterMarkers(boolean)} is enabled.
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR)
+  public int ClusterCount() {
+    return mapController.getClusterCount();
+  }
+
   @SimpleProperty(category = PropertyCategory.BEHAVIOR,
       description = "Returns the user's latitude if ShowUser is enabled.")
   public double UserLatitude() {
@@ -789,6 +851,7 @@ public class Map extends MapFeatureContainerBase implements MapEventListener {
   @Override
   void addFeature(MapMarker marker) {
     features.add(marker);
+    onFeatureAdded(marker);
     marker.setMap(this);
     mapController.addFeature(marker);
   }
@@ -796,6 +859,7 @@ public class Map extends MapFeatureContainerBase implements MapEventListener {
   @Override
   void addFeature(MapLineString lineString) {
     features.add(lineString);
+    onFeatureAdded(lineString);
     lineString.setMap(this);
     mapController.addFeature(lineString);
   }
@@ -803,6 +867,7 @@ public class Map extends MapFeatureContainerBase implements MapEventListener {
   @Override
   void addFeature(MapPolygon polygon) {
     features.add(polygon);
+    onFeatureAdded(polygon);
     polygon.setMap(this);
     mapController.addFeature(polygon);
   }
@@ -810,6 +875,7 @@ public class Map extends MapFeatureContainerBase implements MapEventListener {
   @Override
   void addFeature(MapRectangle rectangle) {
     features.add(rectangle);
+    onFeatureAdded(rectangle);
     rectangle.setMap(this);
     mapController.addFeature(rectangle);
   }
@@ -817,6 +883,7 @@ public class Map extends MapFeatureContainerBase implements MapEventListener {
   @Override
   void addFeature(MapCircle circle) {
     features.add(circle);
+    onFeatureAdded(circle);
     circle.setMap(this);
     mapController.addFeature(circle);
   }
@@ -824,6 +891,7 @@ public class Map extends MapFeatureContainerBase implements MapEventListener {
   @Override
   public void removeFeature(MapFeature feature) {
     features.remove(feature);
+    onFeatureRemoved(feature);
     mapController.removeFeature(feature);
   }
 }
@@ -427,9 +427,18 @@ public abstract class MapFeatureBase implements MapFeature, HasStroke {
   }
 
   @SuppressWarnings("WeakerAccess")
-  protected final synchronized void clearGeometry() {
-    centroid = null;
-    geometry = null;
+  protected final void clearGeometry() {
+    synchronized (this) {
+      centroid = null;
+      geometry = null;
+    }
+    // Notify outside of the lock since the containers will ask for the new geometry
+    if (container instanceof MapFeatureContainerBase) {
+      ((MapFeatureContainerBase) container).onGeometryChanged(this);
+    }
+    if (map != null && map != container) {
+      map.onGeometryChanged(this);
+    }
   }
 
   protected abstract Geometry computeGeometry();
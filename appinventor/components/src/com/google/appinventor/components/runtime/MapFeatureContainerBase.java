@@ -14,28 +14,37 @@ import com.google.appinventor.components.annotations.SimpleObject;
 import com.google.appinventor.components.annotations.SimpleProperty;
 import com.google.appinventor.components.runtime.util.AsynchUtil;
 import com.google.appinventor.components.runtime.util.ErrorMessages;
+import com.google.appinventor.components.runtime.util.GeoJSONReader;
+import com.google.appinventor.components.runtime.util.GeometryUtil;
 import com.google.appinventor.components.runtime.util.MapFactory;
 import com.google.appinventor.components.runtime.util.MapFactory.MapFeature;
+import com.google.appinventor.components.runtime.util.SpatialIndex;
 import com.google.appinventor.components.runtime.util.YailList;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.locationtech.jts.geom.Geometry;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 
-import static com.google.appinventor.components.runtime.util.GeoJSONUtil.getGeoJSONFeatures;
-import static com.google.appinventor.components.runtime.util.GeoJSONUtil.getGeoJSONType;
 import static com.google.appinventor.components.runtime.util.GeoJSONUtil.processGeoJSONFeature;
 
 @SimpleObject
@@ -54,6 +63,13 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
   private static final String GEOJSON_FEATURECOLLECTION = "FeatureCollection";
   private static final String GEOJSON_GEOMETRYCOLLECTION = "GeometryCollection";
   private static final String GEOJSON_FEATURES = "features";
+  private static final int STREAM_BATCH_SIZE = 100;
+
+  /**
+   * Bounds used to filter features while they are loaded, as {north, west, south, east}, or null
+   * to load every feature.
+   */
+  private double[] filterBounds = null;
 
   /**
    * <p>List of {@link MapFactory.MapFeature features} associated with this map, including those that are
@@ -61,6 +77,15 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
    */
   protected List<MapFeature> features = new CopyOnWriteArrayList<MapFeature>();
 
+  /**
+   * Index of the bounding boxes of {@link #features}, used by {@link #FeaturesWithinDistance} and
+   * {@link #FeaturesInBoundingBox(YailList)}. Features whose geometry has changed are kept in
+   * {@link #staleFeatures} and only re-indexed when the index is next queried, so that dragging a
+   * feature or updating its points many times does not rebuild its entry each time.
+   */
+  private final SpatialIndex<MapFeature> index = new SpatialIndex<MapFeature>();
+  private final Set<MapFeature> staleFeatures = new HashSet<MapFeature>();
+
   private final MapFactory.MapFeatureVisitor<Void> featureAdder = new MapFactory.MapFeatureVisitor<Void>() {
     @Override
     public Void visit(MapFactory.MapMarker marker, Object... arguments) {
@@ -109,6 +134,10 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
       feature.removeFromMap();
     }
     this.features.clear();
+    synchronized (index) {
+      index.clear();
+      staleFeatures.clear();
+    }
     ListIterator<?> it = features.listIterator(1);
     while (it.hasNext()) {
       Object o = it.next();
@@ -236,6 +265,61 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
     });
   }
 
+  /**
+   * Loads a feature collection in GeoJSON format from the given `url`, a batch of features at a
+   * time. Features are read as they are downloaded, so large documents can be loaded without
+   * holding the whole document in memory. The {@link #GotFeatureBatch(String, YailList, int)}
+   * event is raised for every batch of features, and the
+   * {@link #FeaturesLoaded(String, int, int)} event is raised once the whole document has been
+   * read. On failure, the {@link #LoadError(String, int, String)} event will be raised.
+   *
+   * @param url The URL from which to read a GeoJSON-encoded feature collection
+   */
+  @SimpleFunction(description = "Load a feature collection in GeoJSON format from the given " +
+      "url a batch of features at a time. The GotFeatureBatch event is raised for every batch " +
+      "and the FeaturesLoaded event is raised once all of the features have been read. On " +
+      "failure, the LoadError event will be raised.")
+  public void StreamFromURL(final String url) {
+    AsynchUtil.runAsynchronously(new Runnable() {
+      public void run() {
+        performStream(url);
+      }
+    });
+  }
+
+  /**
+   * Limits the features loaded by {@link #LoadFromURL(String)}, {@link #StreamFromURL(String)}
+   * and {@link FeatureCollection#FeaturesFromGeoJSON(String)} to those that intersect the given
+   * bounds, in the same ``((North West) (South East))`` form as {@link Map#BoundingBox()}.
+   * Features outside of the bounds are dropped as they are read, before any component is created
+   * for them. Set to the empty list to load every feature.
+   */
+  @SimpleProperty
+  public void FilterBounds(YailList bounds) {
+    if (bounds.size() == 0) {
+      filterBounds = null;
+      return;
+    }
+    try {
+      filterBounds = readBounds(bounds);
+    } catch (RuntimeException e) {
+      $form().dispatchErrorOccurredEvent(this, "FilterBounds",
+          ErrorMessages.ERROR_INVALID_GEOJSON, bounds.toString());
+    }
+  }
+
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "Only features that intersect these bounds, stored as [[North, West], " +
+          "[South, East]], are loaded. The empty list loads every feature.")
+  public YailList FilterBounds() {
+    if (filterBounds == null) {
+      return YailList.makeEmptyList();
+    }
+    YailList northwest = YailList.makeList(new Double[] { filterBounds[0], filterBounds[1] });
+    YailList southeast = YailList.makeList(new Double[] { filterBounds[2], filterBounds[3] });
+    return YailList.makeList(new YailList[] { northwest, southeast });
+  }
+
   /**
    * Converts a feature description into an App Inventor map feature. Points are converted into
    * {@link Marker} components, LineStrings are converted into {@link LineString} components, and
@@ -268,6 +352,92 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
     }
   }
 
+  /**
+   * Returns the features in the `%type%` that are within `distance`{:.variable.block} meters of
+   * the point at `latitude`{:.variable.block} and `longitude`{:.variable.block}, nearest first.
+   * If `centroids`{:.variable.block} is `true`{:.logic.block}, the distance is measured to the
+   * centroid of each feature, otherwise to its closest edge, as in
+   * {@link Marker#DistanceToPoint(double, double, boolean)}. The features are found through a
+   * spatial index, so the search stays fast for `%type%`s with thousands of features.
+   *
+   * @param latitude The latitude of the point
+   * @param longitude The longitude of the point
+   * @param distance The largest distance, in meters
+   * @param centroids Whether to measure the distance to the centroids of the features
+   * @return A list of the features within the given distance of the point
+   */
+  @SimpleFunction(description = "Returns the features within distance meters of the given " +
+      "point, nearest first. If centroids is true, the distance is measured to the centroid of " +
+      "each feature, otherwise to its closest edge.")
+  public YailList FeaturesWithinDistance(double latitude, double longitude, double distance,
+      final boolean centroids) {
+    if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+      $form().dispatchErrorOccurredEvent(this, "FeaturesWithinDistance",
+          ErrorMessages.ERROR_INVALID_POINT, latitude, longitude);
+      return YailList.makeEmptyList();
+    }
+    final java.util.Map<MapFeature, Double> distances = new HashMap<MapFeature, Double>();
+    for (MapFeature feature : queryIndex().queryDistance(latitude, longitude, distance)) {
+      if (feature instanceof MapFeatureBase) {
+        double d = ((MapFeatureBase) feature).DistanceToPoint(latitude, longitude, centroids);
+        if (d >= 0 && d <= distance) {
+          distances.put(feature, d);
+        }
+      }
+    }
+    List<MapFeature> result = new ArrayList<MapFeature>(distances.keySet());
+    Collections.sort(result, new Comparator<MapFeature>() {
+      @Override
+      public int compare(MapFeature a, MapFeature b) {
+        return Double.compare(distances.get(a), distances.get(b));
+      }
+    });
+    return YailList.makeList(result);
+  }
+
+  /**
+   * Returns the features in the `%type%` that intersect the given bounding box, in the same
+   * ``((North West) (South East))`` form as {@link Map#BoundingBox()}. The features are found
+   * through a spatial index, so the search stays fast for `%type%`s with thousands of features.
+   *
+   * @param boundingBox The area to search, as ((North West) (South East))
+   * @return A list of the features that intersect the bounding box
+   */
+  @SimpleFunction(description = "Returns the features that intersect the given bounding box, " +
+      "stored as [[North, West], [South, East]].")
+  public YailList FeaturesInBoundingBox(YailList boundingBox) {
+    double[] bounds;
+    try {
+      bounds = readBounds(boundingBox);
+    } catch (RuntimeException e) {
+      $form().dispatchErrorOccurredEvent(this, "FeaturesInBoundingBox",
+          ErrorMessages.ERROR_INVALID_GEOJSON, boundingBox.toString());
+      return YailList.makeEmptyList();
+    }
+    double north = bounds[0];
+    double west = bounds[1];
+    double south = bounds[2];
+    double east = bounds[3];
+    List<Geometry> boxes = new ArrayList<Geometry>();
+    if (west <= east) {
+      boxes.add(GeometryUtil.createGeometry(north, east, south, west));
+    } else {
+      boxes.add(GeometryUtil.createGeometry(north, 180, south, west));
+      boxes.add(GeometryUtil.createGeometry(north, east, south, -180));
+    }
+    List<MapFeature> result = new ArrayList<MapFeature>();
+    for (MapFeature feature : queryIndex().query(north, east, south, west)) {
+      Geometry geometry = feature.getGeometry();
+      for (Geometry box : boxes) {
+        if (geometry.intersects(box)) {
+          result.add(feature);
+          break;
+        }
+      }
+    }
+    return YailList.makeList(result);
+  }
+
   /**
    * The `GotFeatures` event is run when when a feature collection is successfully read from the
    * given `url`{:.variable.block}. The `features`{:.variable.block} parameter will be a list of
@@ -290,6 +460,46 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
     }
   }
 
+  /**
+   * The `GotFeatureBatch` event is run for every batch of features read by
+   * {@link #StreamFromURL(String)}. The `features`{:.variable.block} parameter will be a list of
+   * feature descriptions that can be converted into components using the
+   * {@link #FeatureFromDescription(YailList)} method, and `loaded`{:.variable.block} is the number
+   * of features read so far. If this event is not handled, the features are added to the
+   * `%type%`.
+   *
+   * @param url the url corresponding to the requested url in {@link #StreamFromURL(String)}
+   * @param features the feature descriptions in this batch
+   * @param loaded the number of features read so far, including this batch
+   */
+  @SimpleEvent(description = "A batch of features was read from url by StreamFromURL. The " +
+      "features are provided as a list in features, and loaded is the number of features read " +
+      "so far.")
+  public void GotFeatureBatch(String url, YailList features, int loaded) {
+    if (!EventDispatcher.dispatchEvent(this, "GotFeatureBatch", url, features, loaded)) {
+      Iterator it = features.iterator();
+      it.next();  // skip *list* symbol
+      while (it.hasNext()) {
+        FeatureFromDescription((YailList) it.next());
+      }
+    }
+  }
+
+  /**
+   * The `FeaturesLoaded` event is run when {@link #StreamFromURL(String)} has read the whole
+   * document at the given `url`{:.variable.block}. The `count`{:.variable.block} parameter is the
+   * number of features read, and `skipped`{:.variable.block} is the number of features dropped
+   * because they were outside of {@link #FilterBounds()}.
+   *
+   * @param url the url corresponding to the requested url in {@link #StreamFromURL(String)}
+   * @param count the number of features read
+   * @param skipped the number of features outside of the filter bounds
+   */
+  @SimpleEvent(description = "All of the features at url have been read by StreamFromURL.")
+  public void FeaturesLoaded(String url, int count, int skipped) {
+    EventDispatcher.dispatchEvent(this, "FeaturesLoaded", url, count, skipped);
+  }
+
   /**
    * The `LoadError` event is run when an error occurs while processing a feature collection
    * document at the given `url`{:.variable.block}. The `responseCode`{:.variable.block} parameter
@@ -340,6 +550,7 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
 
   public void removeFeature(MapFactory.MapFeature feature) {
     features.remove(feature);
+    onFeatureRemoved(feature);
     getMap().removeFeature(feature);
   }
 
@@ -348,28 +559,84 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
     return features.iterator();
   }
 
+  void onFeatureAdded(MapFeature feature) {
+    synchronized (index) {
+      staleFeatures.add(feature);
+    }
+  }
+
+  void onFeatureRemoved(MapFeature feature) {
+    synchronized (index) {
+      staleFeatures.remove(feature);
+      index.remove(feature);
+    }
+  }
+
+  /**
+   * Called by a feature of this container when its geometry changes. The feature is re-indexed
+   * the next time that the index is queried.
+   */
+  void onGeometryChanged(MapFeature feature) {
+    synchronized (index) {
+      if (index.contains(feature)) {
+        staleFeatures.add(feature);
+      }
+    }
+  }
+
+  private SpatialIndex<MapFeature> queryIndex() {
+    synchronized (index) {
+      Iterator<MapFeature> it = staleFeatures.iterator();
+      while (it.hasNext()) {
+        MapFeature feature = it.next();
+        Geometry geometry = feature.getGeometry();
+        if (geometry == null || geometry.isEmpty()) {
+          // Stays stale until it has points, e.g., a LineString that is still being built
+          index.remove(feature);
+        } else {
+          index.insert(feature, geometry.getEnvelopeInternal());
+          it.remove();
+        }
+      }
+      return index;
+    }
+  }
+
+  private static double[] readBounds(YailList bounds) {
+    double north = GeometryUtil.coerceToDouble(((YailList) bounds.get(1)).get(1));
+    double west = GeometryUtil.coerceToDouble(((YailList) bounds.get(1)).get(2));
+    double south = GeometryUtil.coerceToDouble(((YailList) bounds.get(2)).get(1));
+    double east = GeometryUtil.coerceToDouble(((YailList) bounds.get(2)).get(2));
+    return new double[] { north, west, south, east };
+  }
+
   void addFeature(MapFactory.MapMarker marker) {
     features.add(marker);
+    onFeatureAdded(marker);
     getMap().addFeature(marker);
   }
 
   void addFeature(MapFactory.MapLineString polyline) {
     features.add(polyline);
+    onFeatureAdded(polyline);
     getMap().addFeature(polyline);
   }
 
   void addFeature(MapFactory.MapPolygon polygon) {
     features.add(polygon);
+    onFeatureAdded(polygon);
     getMap().addFeature(polygon);
   }
 
   void addFeature(MapFactory.MapCircle circle) {
     features.add(circle);
+    onFeatureAdded(circle);
     getMap().addFeature(circle);
   }
 
   void addFeature(MapFactory.MapRectangle rectangle) {
     features.add(rectangle);
+    onFeatureAdded(rectangle);
     getMap().addFeature(rectangle);
   }
 
@@ -380,11 +647,15 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
 
   private void performGet(final String url) {
     try {
-      String jsonContent = loadUrl(url);
-      if (jsonContent == null) {
+      Reader reader = openUrl(url);
+      if (reader == null) {
         return;
       }
-      processGeoJSON(url, jsonContent);
+      try {
+        processGeoJSON(url, reader);
+      } finally {
+        reader.close();
+      }
     } catch(Exception e) {
       Log.e(TAG, "Exception retreiving GeoJSON", e);
       $form().dispatchErrorOccurredEvent(this, "LoadFromURL", ERROR_CODE_UNKNOWN_TYPE,
@@ -392,7 +663,71 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
     }
   }
 
-  private String loadUrl(final String url) {
+  private void performStream(final String url) {
+    try {
+      Reader in = openUrl(url);
+      if (in == null) {
+        return;
+      }
+      final GeoJSONReader reader = newGeoJSONReader(in);
+      try {
+        List<YailList> batch = new ArrayList<YailList>();
+        YailList feature;
+        while ((feature = reader.nextFeature()) != null) {
+          if (!checkGeoJSONType(url, reader.getType())) {
+            return;
+          }
+          batch.add(feature);
+          if (batch.size() == STREAM_BATCH_SIZE) {
+            dispatchBatch(url, batch, reader.getFeatureCount());
+            batch = new ArrayList<YailList>();
+          }
+        }
+        if (!checkGeoJSONType(url, reader.getType() == null ? "" : reader.getType())) {
+          return;
+        }
+        if (!batch.isEmpty()) {
+          dispatchBatch(url, batch, reader.getFeatureCount());
+        }
+        final int count = reader.getFeatureCount();
+        final int skipped = reader.getSkippedCount();
+        $form().runOnUiThread(new Runnable() {
+          public void run() {
+            MapFeatureContainerBase.this.FeaturesLoaded(url, count, skipped);
+          }
+        });
+      } finally {
+        reader.close();
+      }
+    } catch(InterruptedException e) {
+      Log.w(TAG, "Interrupted while streaming GeoJSON from " + url);
+    } catch(Exception e) {
+      Log.e(TAG, "Exception streaming GeoJSON", e);
+      $form().dispatchErrorOccurredEvent(this, "StreamFromURL", ERROR_CODE_UNKNOWN_TYPE,
+          e.toString());
+    }
+  }
+
+  /*
+   * Hands a batch of features to the UI thread and waits for it to be handled before reading the
+   * next one, so that at most one batch is held in memory and the UI thread is never flooded.
+   */
+  private void dispatchBatch(final String url, final List<YailList> batch, final int loaded)
+      throws InterruptedException {
+    final CountDownLatch handled = new CountDownLatch(1);
+    $form().runOnUiThread(new Runnable() {
+      public void run() {
+        try {
+          MapFeatureContainerBase.this.GotFeatureBatch(url, YailList.makeList(batch), loaded);
+        } finally {
+          handled.countDown();
+        }
+      }
+    });
+    handled.await();
+  }
+
+  private Reader openUrl(final String url) {
     try {
       URLConnection connection = new URL(url).openConnection();
       connection.connect();
@@ -410,16 +745,7 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
           return null;
         }
       }
-      BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(),
-            "UTF-8"));
-      StringBuilder content = new StringBuilder();
-      String line;
-      while ((line = reader.readLine()) != null) {
-        content.append(line);
-        content.append("\n");
-      }
-      reader.close();
-      return content.toString();
+      return new InputStreamReader(connection.getInputStream(), "UTF-8");
     } catch(MalformedURLException e) {
       $form().runOnUiThread(new Runnable() {
         public void run() {
@@ -438,19 +764,56 @@ public abstract class MapFeatureContainerBase extends AndroidViewComponent imple
     return null;
   }
 
+  private GeoJSONReader newGeoJSONReader(Reader in) {
+    GeoJSONReader reader = new GeoJSONReader(in);
+    if (filterBounds != null) {
+      reader.setBounds(filterBounds[0], filterBounds[1], filterBounds[2], filterBounds[3]);
+    }
+    return reader;
+  }
+
+  /*
+   * Returns true if type, the type of the root object read so far, may still be a feature
+   * collection. Otherwise, reports the error and returns false.
+   */
+  private boolean checkGeoJSONType(final String url, String type) {
+    if (type == null || GEOJSON_FEATURECOLLECTION.equals(type)
+        || GEOJSON_GEOMETRYCOLLECTION.equals(type)) {
+      return true;
+    }
+    $form().runOnUiThread(new Runnable() {
+      public void run() {
+        MapFeatureContainerBase.this.LoadError(url, ERROR_CODE_MALFORMED_GEOJSON,
+            ERROR_MALFORMED_GEOJSON);
+      }
+    });
+    return false;
+  }
+
   @SuppressWarnings("WeakerAccess")
   protected void processGeoJSON(final String url, final String content) throws JSONException {
-    String type = getGeoJSONType(content, GEOJSON_TYPE);
-    if (!GEOJSON_FEATURECOLLECTION.equals(type) && !GEOJSON_GEOMETRYCOLLECTION.equals(type)) {
-      $form().runOnUiThread(new Runnable() {
-        public void run() {
-          MapFeatureContainerBase.this.LoadError(url, ERROR_CODE_MALFORMED_GEOJSON,
-              ERROR_MALFORMED_GEOJSON);
-        }
-      });
+    try {
+      processGeoJSON(url, new StringReader(content));
+    } catch (IOException e) {
+      // Reading from a string never fails
+      throw new JSONException(e.getMessage());
+    }
+  }
+
+  private void processGeoJSON(final String url, final Reader in)
+      throws IOException, JSONException {
+    GeoJSONReader reader = newGeoJSONReader(in);
+    final List<YailList> yailFeatures = new ArrayList<YailList>();
+    YailList feature;
+    while ((feature = reader.nextFeature()) != null) {
+      if (!checkGeoJSONType(url, reader.getType())) {
+        return;
+      }
+      yailFeatures.add(feature);
+    }
+    if (!checkGeoJSONType(url, reader.getType() == null ? "" : reader.getType())) {
       return;
     }
-    final List<YailList> yailFeatures = getGeoJSONFeatures(TAG, content);
     $form().runOnUiThread(new Runnable() {
       public void run() {
         MapFeatureContainerBase.this.GotFeatures(url, YailList.makeList(yailFeatures));
@@ -184,6 +184,13 @@ public class ReplForm extends Form {
     System.exit(0);
   }
 
+  @Override
+  public void clear() {
+    super.clear();
+    // The definitions are gone, so they must be evaluated again when resent
+    AppInvHTTPD.clearCodeCache();
+  }
+
   @Override
   protected void startNewForm(String nextFormName, Object startupValue) {
     if (startupValue != null) {
@@ -229,6 +236,7 @@ public class ReplForm extends Form {
     super.onCreateOptionsMenu(menu); // sets up the exit and about buttons
     addSettingsButton(menu);         // Now add our button!
     addLogcatButton(menu);           // Add button to report LogCat information
+    addLatencyButton(menu);          // Add button to show the result latency
     return true;
   }
 
@@ -262,6 +270,23 @@ public class ReplForm extends Form {
     showSettingsItem.setIcon(android.R.drawable.stat_sys_warning);
   }
 
+  public void addLatencyButton(Menu menu) {
+    MenuItem showLatencyItem = menu.add(Menu.NONE, Menu.NONE, 5,
+      "Connection Latency").setOnMenuItemClickListener(new OnMenuItemClickListener() {
+          @Override
+          public boolean onMenuItemClick(MenuItem item) {
+            // Only measured when the Blocks Editor acknowledges results,
+            // which it does not do over WebRTC
+            double latency = RetValManager.getLatency();
+            String message = latency < 0 ? "The latency has not been measured yet." :
+              "Results reach the Blocks Editor in " + Math.round(latency) + " ms on average.";
+            Notifier.oneButtonAlert(activeForm, message, "Connection Latency", "OK");
+            return true;
+          }
+        });
+    showLatencyItem.setIcon(android.R.drawable.ic_menu_info_details);
+  }
+
   @Override
   protected void onNewIntent(Intent intent) {
     super.onNewIntent(intent);
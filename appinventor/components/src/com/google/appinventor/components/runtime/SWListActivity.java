@@ -4,6 +4,7 @@ import android.content.Intent;
 import android.graphics.Color;
 import android.os.Binder;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.IBinder;
 import android.os.Parcel;
 import android.os.Parcelable;
@@ -13,6 +14,7 @@ import android.text.TextWatcher;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.View;
+import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.EditText;
@@ -33,16 +35,26 @@ import java.util.List;
 public class SWListActivity extends AppInventorCompatActivity {
 
   private static final String LOG_TAG = SWListActivity.class.getSimpleName();
+  private static final long SEARCH_DELAY = 300;  // ms
 
+  /**
+   * Supplies the items shown by the activity. The activity asks for items a
+   * page at a time, as the user scrolls towards the end of the list or
+   * changes the search text, and the source answers with
+   * {@link Completion#onResultsAvailable} for each batch followed by
+   * {@link Completion#done}.
+   */
   public abstract static class DataSource extends Binder {
     interface Completion {
       void onResultsAvailable(List<LabeledUri> results, boolean first);
-      void done();
+      void done(boolean more);
     }
     @Override
     protected boolean onTransact(int code, @NonNull Parcel data, @Nullable Parcel reply, int flags) {
       final IBinder callback = data.readStrongBinder();
-      performQuery(data.readString(), new Completion() {
+      String query = data.readString();
+      int offset = data.readInt();
+      performQuery(query, offset, new Completion() {
         @Override
         public void onResultsAvailable(List<LabeledUri> results, boolean first) {
           Parcel parcel = Parcel.obtain();
@@ -55,49 +67,84 @@ public class SWListActivity extends AppInventorCompatActivity {
             callback.transact(FIRST_CALL_TRANSACTION, parcel, null, 0);
           } catch (RemoteException e) {
             e.printStackTrace();
+          } finally {
+            parcel.recycle();
           }
         }
 
         @Override
-        public void done() {
+        public void done(boolean more) {
           Parcel parcel = Parcel.obtain();
+          parcel.writeInt(more ? 1 : 0);
           try {
             callback.transact(FIRST_CALL_TRANSACTION + 1, parcel, null, 0);
           } catch (RemoteException e) {
             e.printStackTrace();
+          } finally {
+            parcel.recycle();
           }
         }
       });
       return true;
     }
 
-    abstract void performQuery(String query, Completion completion);
+    /**
+     * Finds the items whose labels contain {@code query}, skipping the first
+     * {@code offset} of them. Called on the UI thread, so any slow work must
+     * be done elsewhere.
+     */
+    abstract void performQuery(String query, int offset, Completion completion);
   }
 
   private class DataCallback extends Binder {
+    // The request this callback answers; answers to older requests are dropped
+    private final int generation;
+
+    DataCallback(int generation) {
+      this.generation = generation;
+    }
+
     @Override
     protected boolean onTransact(int code, @NonNull Parcel data, @Nullable Parcel reply, int flags) throws RemoteException {
       switch (code) {
         case FIRST_CALL_TRANSACTION:
-          if (data.readInt() == 1) {
-            items.clear();
-          }
+          final boolean first = data.readInt() == 1;
           int numItems = data.readInt();
+          final List<LabeledUri> batch = new ArrayList<>(numItems);
           while (numItems > 0) {
-            items.add(data.readTypedObject(LabeledUri.CREATOR));
+            batch.add(data.readTypedObject(LabeledUri.CREATOR));
             numItems--;
           }
+          runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+              if (generation == SWListActivity.this.generation) {
+                if (first) {
+                  items.clear();
+                }
+                items.addAll(batch);
+              }
+            }
+          });
           break;
         case FIRST_CALL_TRANSACTION + 1:
+          final boolean more = data.readInt() == 1;
           runOnUiThread(new Runnable() {
             @Override
             public void run() {
+              if (generation != SWListActivity.this.generation) {
+                return;
+              }
               Log.d(LOG_TAG, "Updating array adapter with " + items.size() + " items");
+              loading = false;
+              hasMore = more;
+              listAdapter.setNotifyOnChange(false);
               listAdapter.clear();
               listAdapter.addAll(items);
-              listView.invalidate();
+              listAdapter.notifyDataSetChanged();
             }
           });
+          break;
         default:
           return super.onTransact(code, data, reply, flags);
       }
@@ -168,6 +215,19 @@ public class SWListActivity extends AppInventorCompatActivity {
   private IBinder source;
   private ArrayAdapter<LabeledUri> listAdapter;
   private ListView listView;
+  private final Handler handler = new Handler();
+  private String query = "";
+  private int generation = 0;
+  private boolean loading = false;
+  private boolean hasMore = false;
+
+  // Waits for the user to stop typing before searching the source
+  private final Runnable search = new Runnable() {
+    @Override
+    public void run() {
+      requestItems(0);
+    }
+  };
 
   @Override
   public void onCreate(Bundle savedInstanceState) {
@@ -191,7 +251,13 @@ public class SWListActivity extends AppInventorCompatActivity {
 
       @Override
       public void onTextChanged(CharSequence s, int start, int before, int count) {
-        listAdapter.getFilter().filter(s);
+        if (source != null) {
+          query = s.toString();
+          handler.removeCallbacks(search);
+          handler.postDelayed(search, SEARCH_DELAY);
+        } else {
+          listAdapter.getFilter().filter(s);
+        }
       }
 
       @Override
@@ -209,6 +275,20 @@ public class SWListActivity extends AppInventorCompatActivity {
         onListItemClick(SWListActivity.this.listView, view, position, id);
       }
     });
+    listView.setOnScrollListener(new AbsListView.OnScrollListener() {
+      @Override
+      public void onScrollStateChanged(AbsListView view, int scrollState) {
+      }
+
+      @Override
+      public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount,
+          int totalItemCount) {
+        // Ask for the next page once the user is within a screen of the end
+        if (hasMore && !loading && firstVisibleItem + 2 * visibleItemCount >= totalItemCount) {
+          requestItems(items.size());
+        }
+      }
+    });
     setContentView(viewLayout);
 
     Intent myIntent = getIntent();
@@ -222,16 +302,7 @@ public class SWListActivity extends AppInventorCompatActivity {
         listAdapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1);
         listView.setAdapter(listAdapter);
         source = callbackBundle.getBinder("binder");
-        if (source != null) {
-          Parcel parcel = Parcel.obtain();
-          parcel.writeStrongBinder(new DataCallback());
-          parcel.writeString("");
-          try {
-            source.transact(IBinder.FIRST_CALL_TRANSACTION, parcel, null, 0);
-          } catch (RemoteException e) {
-            e.printStackTrace();
-          }
-        }
+        requestItems(0);
       }
     } else if (myIntent.hasExtra(LinkedDataListPicker.SWLIST_ACTIVITY_ARG_NAME)) {
       items = getIntent().getParcelableArrayListExtra(LinkedDataListPicker.SWLIST_ACTIVITY_ARG_NAME);
@@ -245,6 +316,39 @@ public class SWListActivity extends AppInventorCompatActivity {
     }
   }
 
+  @Override
+  protected void onDestroy() {
+    handler.removeCallbacks(search);
+    super.onDestroy();
+  }
+
+  /**
+   * Asks the source for the items matching the search text, starting at
+   * {@code offset}. A request from the start replaces any request still
+   * running.
+   */
+  private void requestItems(int offset) {
+    if (source == null) {
+      return;
+    }
+    if (offset == 0) {
+      generation++;
+    }
+    loading = true;
+    Parcel parcel = Parcel.obtain();
+    parcel.writeStrongBinder(new DataCallback(generation));
+    parcel.writeString(query);
+    parcel.writeInt(offset);
+    try {
+      source.transact(IBinder.FIRST_CALL_TRANSACTION, parcel, null, 0);
+    } catch (RemoteException e) {
+      e.printStackTrace();
+      loading = false;
+    } finally {
+      parcel.recycle();
+    }
+  }
+
   @Override
   public boolean onKeyDown(int keyCode, KeyEvent event) {
     if (keyCode == KeyEvent.KEYCODE_BACK) {
@@ -7,14 +7,17 @@
 package com.google.appinventor.components.runtime;
 
 import android.content.Context;
+import android.os.Handler;
 import android.util.Log;
 
 import com.physicaloid.lib.Physicaloid;
+import com.physicaloid.lib.usb.driver.uart.ReadLisener;
 
 import com.google.appinventor.components.common.ComponentCategory;
 import com.google.appinventor.components.annotations.DesignerComponent;
 import com.google.appinventor.components.annotations.DesignerProperty;
 import com.google.appinventor.components.annotations.PropertyCategory;
+import com.google.appinventor.components.annotations.SimpleEvent;
 import com.google.appinventor.components.annotations.SimpleFunction;
 import com.google.appinventor.components.annotations.SimpleObject;
 import com.google.appinventor.components.annotations.SimpleProperty;
@@ -22,8 +25,13 @@ import com.google.appinventor.components.annotations.UsesLibraries;
 import com.google.appinventor.components.common.YaVersion;
 import com.google.appinventor.components.common.PropertyTypeConstants;
 import com.google.appinventor.components.runtime.util.ErrorMessages;
+import com.google.appinventor.components.runtime.util.ReceiveBuffer;
+import com.google.appinventor.components.runtime.util.YailList;
 
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @DesignerComponent(version = YaVersion.SERIAL_COMPONENT_VERSION,
     description = "Serial component which can be used to connect to devices like Arduino",
@@ -44,9 +52,30 @@ public class Serial extends AndroidNonvisibleComponent implements Component {
   private int baudRate = 9600;
   private int bytes = 256;
 
+  private final Handler androidUIHandler;
+  private boolean receiveInBackground = false;
+  private int receiveBufferSize = 4096;
+  private int receiveBatchSize = -1;
+  private byte delimiter = '\n';
+
+  /**
+   * The buffer filled by the read listener of the open connection, or null if the connection is
+   * read directly by {@link #ReadSerial()}.
+   */
+  private volatile ReceiveBuffer receiveBuffer;
+  private final AtomicBoolean deliveryPending = new AtomicBoolean(false);
+  private final Runnable deliverMessages = new Runnable() {
+    @Override
+    public void run() {
+      deliveryPending.set(false);
+      deliverReceivedMessages();
+    }
+  };
+
   public Serial(ComponentContainer container) {
     super(container.$form());
     context = container.$context();
+    androidUIHandler = new Handler();
     Log.d(LOG_TAG, "Created");
   }
 
@@ -64,7 +93,13 @@ public class Serial extends AndroidNonvisibleComponent implements Component {
       form.dispatchErrorOccurredEvent(Serial.this, "OpenSerial", ErrorMessages.ERROR_SERIAL_NOT_INITIALIZED);
       return false;
     }
-    return mPhysicaloid.open();
+    if (!mPhysicaloid.open()) {
+      return false;
+    }
+    if (receiveInBackground) {
+      startReader();
+    }
+    return true;
   }
 
   @SimpleFunction(description = "Closes serial connection. Returns true when closed.")
@@ -74,6 +109,11 @@ public class Serial extends AndroidNonvisibleComponent implements Component {
       form.dispatchErrorOccurredEvent(Serial.this, "CloseSerial", ErrorMessages.ERROR_SERIAL_NOT_INITIALIZED);
       return false;
     }
+    if (receiveBuffer != null) {
+      mPhysicaloid.clearReadListener();
+      receiveBuffer.close();
+      receiveBuffer = null;
+    }
     return mPhysicaloid.close();
   }
 
@@ -82,6 +122,15 @@ public class Serial extends AndroidNonvisibleComponent implements Component {
     String data = "";
     if (mPhysicaloid == null) {
       form.dispatchErrorOccurredEvent(Serial.this, "ReadSerial", ErrorMessages.ERROR_SERIAL_NOT_INITIALIZED);
+    } else if (receiveBuffer != null) {
+      // The read listener has taken the bytes from the device
+      byte[] buf = new byte[this.bytes];
+      int count = receiveBuffer.read(buf, 0, buf.length);
+      try {
+        data = new String(buf, 0, count, "UTF-8");
+      } catch (UnsupportedEncodingException mEr) {
+        Log.e(LOG_TAG, mEr.getMessage());
+      }
     } else {
       byte[] buf = new byte[this.bytes];
       if (mPhysicaloid.read(buf) > 0) {
@@ -154,4 +203,102 @@ public class Serial extends AndroidNonvisibleComponent implements Component {
     this.bytes = bytes;
     Log.d(LOG_TAG, "Buffer Size: " + bytes);
   }
+
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR, description = "Whether bytes are read from serial as they arrive and delivered by the DataReceived event. Takes effect the next time that the connection is opened.")
+  public boolean ReceiveInBackground() {
+    return receiveInBackground;
+  }
+
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN, defaultValue = "False")
+  @SimpleProperty
+  public void ReceiveInBackground(boolean enabled) {
+    this.receiveInBackground = enabled;
+  }
+
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR, description = "The number of received bytes kept for the app when ReceiveInBackground is true. If more arrive, the oldest are dropped.")
+  public int ReceiveBufferSize() {
+    return receiveBufferSize;
+  }
+
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER, defaultValue = "4096")
+  @SimpleProperty
+  public void ReceiveBufferSize(int size) {
+    this.receiveBufferSize = Math.max(1, size);
+  }
+
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR, description = "How received bytes are split into messages for DataReceived. If less than 0, messages end with DelimiterByte. If greater than 0, messages are this many bytes. If 0, DataReceived is not raised.")
+  public int ReceiveBatchSize() {
+    return receiveBatchSize;
+  }
+
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_INTEGER, defaultValue = "-1")
+  @SimpleProperty
+  public void ReceiveBatchSize(int size) {
+    this.receiveBatchSize = size;
+  }
+
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR, description = "The byte that ends each message for DataReceived when ReceiveBatchSize is less than 0.")
+  public int DelimiterByte() {
+    return delimiter;
+  }
+
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER, defaultValue = "10")
+  @SimpleProperty
+  public void DelimiterByte(int number) {
+    this.delimiter = (byte) number;
+  }
+
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR, description = "The number of received bytes dropped because the receive buffer was full.")
+  public long ReceiveOverflowCount() {
+    ReceiveBuffer buffer = receiveBuffer;
+    return buffer == null ? 0 : buffer.getOverflowCount();
+  }
+
+  @SimpleEvent(description = "Messages were received in the background. The messages are split as given by ReceiveBatchSize.")
+  public void DataReceived(YailList messages) {
+    EventDispatcher.dispatchEvent(this, "DataReceived", messages);
+  }
+
+  private void startReader() {
+    final ReceiveBuffer buffer = new ReceiveBuffer(receiveBufferSize);
+    receiveBuffer = buffer;
+    // Physicaloid calls the listener from its own reading thread
+    mPhysicaloid.addReadListener(new ReadLisener() {
+      @Override
+      public void onRead(int size) {
+        if (receiveBuffer != buffer || size <= 0) {
+          return;
+        }
+        byte[] buf = new byte[size];
+        int count = mPhysicaloid.read(buf, size);
+        if (count > 0) {
+          buffer.write(buf, 0, count);
+          if (receiveBatchSize != 0 && deliveryPending.compareAndSet(false, true)) {
+            androidUIHandler.post(deliverMessages);
+          }
+        }
+      }
+    });
+  }
+
+  private void deliverReceivedMessages() {
+    ReceiveBuffer buffer = receiveBuffer;
+    if (buffer == null || receiveBatchSize == 0) {
+      return;
+    }
+    List<byte[]> messages = buffer.takeMessages(receiveBatchSize, delimiter);
+    if (messages.isEmpty()) {
+      return;
+    }
+    List<String> texts = new ArrayList<String>(messages.size());
+    for (byte[] message : messages) {
+      int length = receiveBatchSize < 0 ? message.length - 1 : message.length;
+      try {
+        texts.add(new String(message, 0, length, "UTF-8"));
+      } catch (UnsupportedEncodingException mEr) {
+        Log.e(LOG_TAG, mEr.getMessage());
+      }
+    }
+    DataReceived(YailList.makeList(texts));
+  }
 }
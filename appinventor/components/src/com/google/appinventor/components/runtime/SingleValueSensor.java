@@ -8,9 +8,14 @@ package com.google.appinventor.components.runtime;
 
 import com.google.appinventor.components.annotations.DesignerProperty;
 import com.google.appinventor.components.annotations.PropertyCategory;
+import com.google.appinventor.components.annotations.SimpleEvent;
 import com.google.appinventor.components.annotations.SimpleObject;
 import com.google.appinventor.components.annotations.SimpleProperty;
 import com.google.appinventor.components.common.PropertyTypeConstants;
+import com.google.appinventor.components.runtime.util.KitkatUtil;
+import com.google.appinventor.components.runtime.util.SdkLevel;
+import com.google.appinventor.components.runtime.util.SensorBatcher;
+import com.google.appinventor.components.runtime.util.YailList;
 
 import android.content.Context;
 import android.hardware.Sensor;
@@ -18,6 +23,7 @@ import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.os.Build;
+import android.os.SystemClock;
 
 import java.util.List;
 
@@ -29,12 +35,15 @@ public abstract class SingleValueSensor extends AndroidNonvisibleComponent
     implements OnPauseListener, OnResumeListener, SensorComponent,
     SensorEventListener, Deleteable {
   private static final int DEFAULT_REFRESH_TIME = 1000; // ms
+  private static final int DEFAULT_BATCH_LATENCY = 1000; // ms
   private Sensor sensor;
   protected int sensorType;
   protected float value;  // most recent value read
   protected final SensorManager sensorManager;
   protected boolean enabled;
   protected int refreshTime;
+  private int batchLatency = DEFAULT_BATCH_LATENCY;
+  private final SensorBatcher batcher = new SensorBatcher(1);
 
   public SingleValueSensor(ComponentContainer container, int sensorType) {
     super(container.$form());
@@ -50,6 +59,13 @@ public abstract class SingleValueSensor extends AndroidNonvisibleComponent
   }
 
   protected void startListening() {
+    batcher.setTimeBase(System.currentTimeMillis() - SystemClock.elapsedRealtime());
+    if (batcher.isBatching() && SdkLevel.getLevel() >= SdkLevel.LEVEL_KITKAT) {
+      // Let the sensor hardware hold samples while the device sleeps
+      KitkatUtil.registerListener(sensorManager, this, sensor, refreshTime * 1000,
+          batchLatency);
+      return;
+    }
     // Before Gingerbread, the only legal values for the third argument
     // to registerListener() were SENSOR_DELAY_NORMAL, SENSOR_DELAY_UI,
     // SENSOR_DELAY_GAME, or SENSOR_DELAY_FASTEST. From Gingerbread,
@@ -138,17 +154,169 @@ public abstract class SingleValueSensor extends AndroidNonvisibleComponent
     }
   }
 
+  /**
+   * Returns the number of samples in each {@link #SamplesReceived(YailList)} event, or 0 if
+   * samples are reported one at a time.
+   *
+   * @suppressdoc
+   * @return the number of samples in a batch
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "The number of samples reported together by the SamplesReceived event. "
+      + "If 0, each sample is reported by its own event.")
+  public int BatchSize() {
+    return batcher.getBatchSize();
+  }
+
+  /**
+   * Specifies the number of samples in each {@link #SamplesReceived(YailList)} event. While
+   * batching, the event for each sample is not raised. Set to 0 to turn batching off.
+   *
+   * @suppressdoc
+   * @param size the number of samples in a batch
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER,
+      defaultValue = "0")
+  @SimpleProperty
+  public void BatchSize(int size) {
+    flushBatch();
+    boolean wasBatching = batcher.isBatching();
+    batcher.setBatchSize(size);
+    if (enabled && wasBatching != batcher.isBatching()) {
+      stopListening();
+      startListening();
+    }
+  }
+
+  /**
+   * Returns the longest time in milliseconds that the device may hold samples before reporting
+   * them.
+   *
+   * @suppressdoc
+   * @return the batch latency in ms
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "The longest time, in milliseconds, that the sensor hardware may hold "
+      + "samples before reporting them while batching. Has no effect before Android 4.4.")
+  public int BatchLatency() {
+    return batchLatency;
+  }
+
+  /**
+   * Specifies the longest time in milliseconds that the device may hold samples before reporting
+   * them while batching.
+   *
+   * @suppressdoc
+   * @param latency the batch latency in ms
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER,
+      defaultValue = DEFAULT_BATCH_LATENCY + "")
+  @SimpleProperty
+  public void BatchLatency(int latency) {
+    batchLatency = latency;
+    if (enabled && batcher.isBatching()) {
+      stopListening();
+      startListening();
+    }
+  }
+
+  /**
+   * Returns how many samples are read for each sample kept while batching.
+   *
+   * @suppressdoc
+   * @return the decimation factor
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "While batching, only one of every Decimation samples is kept.")
+  public int Decimation() {
+    return batcher.getDecimation();
+  }
+
+  /**
+   * Specifies how many samples are read for each sample kept while batching.
+   *
+   * @suppressdoc
+   * @param decimation the decimation factor
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_NON_NEGATIVE_INTEGER,
+      defaultValue = "1")
+  @SimpleProperty
+  public void Decimation(int decimation) {
+    batcher.setDecimation(decimation);
+  }
+
+  /**
+   * Returns whether each kept sample is the average of the samples it replaces.
+   *
+   * @suppressdoc
+   * @return {@code true} if decimated samples are averaged
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "If true, each kept sample is the average of the Decimation samples it "
+      + "replaces. Otherwise it is the first of them.")
+  public boolean AverageDecimated() {
+    return batcher.isAveraging();
+  }
+
+  /**
+   * Specifies whether each kept sample is the average of the samples it replaces.
+   *
+   * @suppressdoc
+   * @param average {@code true} to average decimated samples
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "False")
+  @SimpleProperty
+  public void AverageDecimated(boolean average) {
+    batcher.setAveraging(average);
+  }
+
+  /**
+   * Indicates that a batch of samples has been read. Each sample is a list of the time in
+   * milliseconds and the value.
+   *
+   * @param samples the list of samples
+   */
+  @SimpleEvent(description = "Called when BatchSize samples have been read, or when the sensor "
+      + "is disabled while batching. Each sample is a list of the time in milliseconds and the "
+      + "value.")
+  public void SamplesReceived(YailList samples) {
+    EventDispatcher.dispatchEvent(this, "SamplesReceived", samples);
+  }
+
   @Override
   public void onSensorChanged(SensorEvent sensorEvent) {
     if (enabled && sensorEvent.sensor.getType() == sensorType) {
       final float[] values = sensorEvent.values;
       value = values[0];
-      onValueChanged(value);
+      if (!batcher.isBatching()) {
+        onValueChanged(value);
+      } else {
+        onValueBatched(value, batcher.toWallTime(sensorEvent.timestamp));
+        if (batcher.add(sensorEvent.timestamp, values)) {
+          flushBatch();
+        }
+      }
+    }
+  }
+
+  protected void flushBatch() {
+    if (batcher.size() > 0) {
+      SamplesReceived(batcher.takeBatch());
     }
   }
 
   protected abstract void onValueChanged(float value);
 
+  /**
+   * Called for each value read while batching, instead of {@link #onValueChanged(float)}.
+   *
+   * @param value the value read
+   * @param time the time of the reading, in milliseconds since the epoch
+   */
+  protected void onValueBatched(float value, long time) {
+  }
+
   protected boolean isAvailable() {
     return sensorManager.getSensorList(sensorType).size() > 0;
   }
@@ -162,6 +330,7 @@ public abstract class SingleValueSensor extends AndroidNonvisibleComponent
       startListening();
     } else {
       stopListening();
+      flushBatch();
     }
   }
 
@@ -5,6 +5,8 @@
 // http://www.apache.org/licenses/LICENSE-2.0
 package com.google.appinventor.components.runtime;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import com.google.appinventor.components.annotations.DesignerComponent;
 import com.google.appinventor.components.annotations.DesignerProperty;
@@ -16,11 +18,16 @@ import com.google.appinventor.components.common.ComponentCategory;
 import com.google.appinventor.components.common.PropertyTypeConstants;
 import com.google.appinventor.components.common.YaVersion;
 import com.google.appinventor.components.runtime.errors.YailRuntimeError;
+import com.google.appinventor.components.runtime.util.GingerbreadUtil;
 import com.google.appinventor.components.runtime.util.JsonUtil;
+import com.google.appinventor.components.runtime.util.SdkLevel;
+import com.google.appinventor.components.runtime.util.YailDictionary;
 
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -81,12 +88,18 @@ import org.json.JSONException;
 
 @SimpleObject
 public class TinyDB extends AndroidNonvisibleComponent implements Component, Deleteable,
-    ObservableDataSource<String, List> {
+    OnPauseListener, ObservableDataSource<String, List> {
 
   public static final String DEFAULT_NAMESPACE = "TinyDB1";
 
+  // All TinyDB components with the same namespace share one write buffer, so
+  // that values stored by one of them are immediately visible to the others.
+  private static final Map<String, WriteBuffer> writeBuffers = new HashMap<String, WriteBuffer>();
+
   private SharedPreferences sharedPreferences;
+  private WriteBuffer writeBuffer;
   private String namespace;
+  private boolean backgroundWrites = false;
 
   private Context context;  // this was a local in constructor and final not private
 
@@ -116,6 +129,7 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
     };
 
     Namespace(DEFAULT_NAMESPACE);
+    form.registerForOnPause(this);
   }
 
   /**
@@ -140,6 +154,7 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
     }
 
     sharedPreferences = context.getSharedPreferences(namespace, Context.MODE_PRIVATE);
+    writeBuffer = getWriteBuffer(namespace, sharedPreferences);
 
     // Register the SharedPreferences change listener
     sharedPreferences.registerOnSharedPreferenceChangeListener(sharedPreferenceChangeListener);
@@ -150,6 +165,28 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
     return namespace;
   }
 
+  /**
+   * If `true`{:.logic.block}, values are written to the phone's storage in the background
+   * rather than immediately. Values stored in quick succession (for example, in a loop) are then
+   * written together, which is much faster. `GetValue` always returns the latest stored value.
+   *
+   * @param backgroundWrites true if values should be written in the background
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR)
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN, defaultValue = "False")
+  public void BackgroundWrites(boolean backgroundWrites) {
+    this.backgroundWrites = backgroundWrites;
+    if (!backgroundWrites) {
+      writeBuffer.write(true);
+    }
+  }
+
+  @SimpleProperty(description = "If true, stored values are written to storage in the "
+      + "background, combining values stored in quick succession.")
+  public boolean BackgroundWrites() {
+    return backgroundWrites;
+  }
+
   /**
    * Store the given `valueToStore`{:.variable.block} under the given `tag`{:.text.block}.
    * The storage persists on the phone when the app is restarted.
@@ -161,13 +198,35 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
   @SimpleFunction(description = "Store the given value under the given tag.  The storage persists "
       + "on the phone when the app is restarted.")
   public void StoreValue(final String tag, final Object valueToStore) {
-    final SharedPreferences.Editor sharedPrefsEditor = sharedPreferences.edit();
     try {
-      sharedPrefsEditor.putString(tag, JsonUtil.getJsonRepresentation(valueToStore));
-      sharedPrefsEditor.commit();
+      writeBuffer.put(tag, JsonUtil.getJsonRepresentation(valueToStore));
     } catch (JSONException e) {
       throw new YailRuntimeError("Value failed to convert to JSON.", "JSON Creation Error.");
     }
+    persist();
+  }
+
+  /**
+   * Store all of the key-value pairs of the given `dictionary`{:.dictionary.block}, using the
+   * keys as tags. The values are written to storage together.
+   *
+   * @param dictionary The tags and values to store.
+   */
+  @SimpleFunction(description = "Store every value of the given dictionary under its key. "
+      + "The values are written to storage together.")
+  public void StoreValues(final YailDictionary dictionary) {
+    Map<String, String> values = new LinkedHashMap<String, String>();
+    try {
+      for (Map.Entry<Object, Object> entry : dictionary.entrySet()) {
+        values.put(entry.getKey().toString(), JsonUtil.getJsonRepresentation(entry.getValue()));
+      }
+    } catch (JSONException e) {
+      throw new YailRuntimeError("Value failed to convert to JSON.", "JSON Creation Error.");
+    }
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      writeBuffer.put(entry.getKey(), entry.getValue());
+    }
+    persist();
   }
 
   /**
@@ -183,10 +242,10 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
       + "such tag, then return valueIfTagNotThere.")
   public Object GetValue(final String tag, final Object valueIfTagNotThere) {
     try {
-      String value = sharedPreferences.getString(tag, "");
+      Object value = writeBuffer.get(tag);
       // If there's no entry with tag as a key then return the empty string.
       //    was  return (value.length() == 0) ? "" : JsonUtil.getObjectFromJson(value);
-      return (value.length() == 0) ? valueIfTagNotThere : JsonUtil.getObjectFromJson(value, true);
+      return (value == WriteBuffer.NOT_THERE) ? valueIfTagNotThere : value;
     } catch (JSONException e) {
       throw new YailRuntimeError("Value failed to convert from JSON.", "JSON Creation Error.");
     }
@@ -199,6 +258,7 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
    */
   @SimpleFunction(description = "Return a list of all the tags in the data store.")
   public Object GetTags() {
+    writeBuffer.write(false);
     List<String> keyList = new ArrayList<String>();
     Map<String, ?> keyValues = sharedPreferences.getAll();
     // here is the simple way to get keys
@@ -213,9 +273,8 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
    */
   @SimpleFunction(description = "Clear the entire data store.")
   public void ClearAll() {
-    final SharedPreferences.Editor sharedPrefsEditor = sharedPreferences.edit();
-    sharedPrefsEditor.clear();
-    sharedPrefsEditor.commit();
+    writeBuffer.clear();
+    persist();
     notifyDataObservers(null, null); // Notify observers with null value to be interpreted as clear
   }
 
@@ -226,19 +285,31 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
    */
   @SimpleFunction(description = "Clear the entry with the given tag.")
   public void ClearTag(final String tag) {
-    final SharedPreferences.Editor sharedPrefsEditor = sharedPreferences.edit();
-    sharedPrefsEditor.remove(tag);
-    sharedPrefsEditor.commit();
+    writeBuffer.put(tag, null);
+    persist();
   }
 
   @Override
   public void onDelete() {
-    final SharedPreferences.Editor sharedPrefsEditor = sharedPreferences.edit();
-    sharedPrefsEditor.clear();
-    sharedPrefsEditor.commit();
+    writeBuffer.clear();
+    writeBuffer.write(true);
     notifyDataObservers(null, null); // Notify observers with null value to be interpreted as clear
   }
 
+  private void persist() {
+    if (backgroundWrites) {
+      writeBuffer.schedule();
+    } else {
+      writeBuffer.write(true);
+    }
+  }
+
+  @Override
+  public void onPause() {
+    // Make sure nothing is lost if the app is about to be killed
+    writeBuffer.write(false);
+  }
+
   /**
    * Returns the specified List object identified by the key. If the
    * value is not a List object, or it does not exist, an empty List
@@ -280,4 +351,144 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
       dataComponent.onDataSourceValueChange(this, key, newValue);
     }
   }
+
+  private static WriteBuffer getWriteBuffer(String namespace, SharedPreferences preferences) {
+    synchronized (writeBuffers) {
+      WriteBuffer buffer = writeBuffers.get(namespace);
+      if (buffer == null || buffer.preferences != preferences) {
+        buffer = new WriteBuffer(preferences);
+        writeBuffers.put(namespace, buffer);
+      }
+      return buffer;
+    }
+  }
+
+  /**
+   * Holds the writes to a namespace that have not been handed to SharedPreferences yet, along
+   * with the decoded values of recently read tags.
+   *
+   * Writes are coalesced per tag, and all pending writes are applied with a single
+   * SharedPreferences editor, either immediately or on the next pass of the UI thread's message
+   * loop. Reads look at the pending writes first, so they always see the latest stored value.
+   */
+  private static class WriteBuffer implements Runnable,
+      SharedPreferences.OnSharedPreferenceChangeListener {
+    static final Object NOT_THERE = new Object();
+
+    private final SharedPreferences preferences;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // Pending writes by tag; a null value removes the tag
+    private final Map<String, String> pending = new LinkedHashMap<String, String>();
+    private boolean clearPending = false;
+    private boolean scheduled = false;
+
+    // Decoded values of tags holding immutable values (text, numbers and booleans). Lists and
+    // dictionaries are decoded again on every read, since the blocks may modify them.
+    private final Map<String, Object> decoded = new HashMap<String, Object>();
+
+    WriteBuffer(SharedPreferences preferences) {
+      this.preferences = preferences;
+      // SharedPreferences only keeps a weak reference to the listener, which is fine since
+      // writeBuffers keeps us alive.
+      preferences.registerOnSharedPreferenceChangeListener(this);
+    }
+
+    @Override
+    public synchronized void onSharedPreferenceChanged(SharedPreferences preferences, String key) {
+      // The tag may have been changed without going through us
+      if (key == null) {
+        decoded.clear();
+      } else {
+        decoded.remove(key);
+      }
+    }
+
+    synchronized void put(String tag, String json) {
+      pending.put(tag, json);
+      decoded.remove(tag);
+    }
+
+    synchronized void clear() {
+      pending.clear();
+      decoded.clear();
+      clearPending = true;
+    }
+
+    /**
+     * Returns the decoded value stored under the tag, or NOT_THERE if there is no such tag.
+     */
+    synchronized Object get(String tag) throws JSONException {
+      if (decoded.containsKey(tag)) {
+        return decoded.get(tag);
+      }
+      String json;
+      if (pending.containsKey(tag)) {
+        json = pending.get(tag);
+      } else {
+        json = clearPending ? null : preferences.getString(tag, null);
+      }
+      if (json == null || json.length() == 0) {
+        return NOT_THERE;
+      }
+      Object value = JsonUtil.getObjectFromJson(json, true);
+      if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+        decoded.put(tag, value);
+      }
+      return value;
+    }
+
+    /**
+     * Schedules the pending writes to be handed to SharedPreferences on the next pass of the UI
+     * thread's message loop, from where they are persisted in the background.
+     */
+    void schedule() {
+      synchronized (this) {
+        if (scheduled || (pending.isEmpty() && !clearPending)) {
+          return;
+        }
+        scheduled = true;
+      }
+      handler.post(this);
+    }
+
+    @Override
+    public void run() {
+      write(false);
+    }
+
+    /**
+     * Hands the pending writes to SharedPreferences right away.
+     *
+     * @param commit true to wait for the values to be persisted, false to persist them in the
+     *     background where the device supports it (Gingerbread and later)
+     */
+    void write(boolean commit) {
+      SharedPreferences.Editor editor;
+      synchronized (this) {
+        scheduled = false;
+        if (pending.isEmpty() && !clearPending) {
+          return;
+        }
+        editor = preferences.edit();
+        if (clearPending) {
+          editor.clear();
+        }
+        for (Map.Entry<String, String> entry : pending.entrySet()) {
+          if (entry.getValue() == null) {
+            editor.remove(entry.getKey());
+          } else {
+            editor.putString(entry.getKey(), entry.getValue());
+          }
+        }
+        pending.clear();
+        clearPending = false;
+      }
+      if (!commit && SdkLevel.getLevel() >= SdkLevel.LEVEL_GINGERBREAD) {
+        GingerbreadUtil.applyPreferences(editor);  // Persisted by a background thread
+      } else {
+        editor.commit();
+      }
+    }
+  }
 }
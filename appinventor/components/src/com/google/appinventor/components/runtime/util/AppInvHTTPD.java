@@ -52,6 +52,8 @@ public class AppInvHTTPD extends NanoHTTPD {
   private static byte[] hmacKey;
   private static int seq;
   private static final String MIME_JSON = "application/json"; // Other mime types defined in NanoHTTPD
+  // Definitions already evaluated, so that unchanged ones sent again are skipped
+  private static final ReplCodeCache codeCache = new ReplCodeCache();
   private final Handler androidUIHandler = new Handler();
 
   public AppInvHTTPD( int port, File wwwroot, boolean secure, ReplForm form) throws IOException
@@ -118,7 +120,11 @@ public class AppInvHTTPD extends NanoHTTPD {
     }
 
 
-    if (uri.equals("/_newblocks")) { // Handle AJAX calls from the newblocks code
+    // /_batchblocks is the same as /_newblocks except that the code is a JSON array of
+    // [blockid, code] pairs, which are evaluated in order as if they had been sent one
+    // at a time. This saves a round trip per block when the Blocks Editor has a queue.
+    boolean batch = uri.equals("/_batchblocks");
+    if (batch || uri.equals("/_newblocks")) { // Handle AJAX calls from the newblocks code
       adoptMainThreadClassLoader();
       String inSeq = parms.getProperty("seq", "0");
       int iseq = Integer.parseInt(inSeq);
@@ -177,32 +183,30 @@ public class AppInvHTTPD extends NanoHTTPD {
         return(res);
       }
 
-      code = "(begin (require <com.google.youngandroid.runtime>) (process-repl-input " + blockid + " (begin " +
-        code + " )))";
-
-      Log.d(LOG_TAG, "To Eval: " + code);
-
       Response res;
-      try {
-        // Don't evaluate a simple "#f" which is used by the poller
-        if (input_code.equals("#f")) {
-          Log.e(LOG_TAG, "Skipping evaluation of #f");
-        } else {
-          scheme.eval(code);
+      if (batch) {
+        try {
+          JSONArray blocks = new JSONArray(input_code);
+          for (int i = 0; i < blocks.length(); i++) {
+            JSONArray block = blocks.getJSONArray(i);
+            evalBlock(block.getString(0), block.getString(1));
+          }
+        } catch (JSONException e) {
+          Log.e(LOG_TAG, "batchblocks: Malformed batch", e);
+          RetValManager.appendReturnValue(blockid, "BAD", e.toString());
         }
-        res = new Response(HTTP_OK, MIME_JSON, RetValManager.fetch(false));
-      } catch (Throwable ex) {
-        Log.e(LOG_TAG, "newblocks: Scheme Failure", ex);
-        RetValManager.appendReturnValue(blockid, "BAD", ex.toString());
-        res = new Response(HTTP_OK, MIME_JSON, RetValManager.fetch(false));
+      } else {
+        evalBlock(blockid, input_code);
       }
+      res = new Response(HTTP_OK, MIME_JSON, RetValManager.fetch(false, getAck(parms)));
       res.addHeader("Access-Control-Allow-Origin", "*");
       res.addHeader("Access-Control-Allow-Headers", "origin, content-type");
       res.addHeader("Access-Control-Allow-Methods", "POST,OPTIONS,GET,HEAD,PUT");
       res.addHeader("Allow", "POST,OPTIONS,GET,HEAD,PUT");
       return(res);
     } else if (uri.equals("/_values")) {
-      Response res = new Response(HTTP_OK, MIME_JSON, RetValManager.fetch(true)); // Blocking Fetch
+      Response res = new Response(HTTP_OK, MIME_JSON,
+          RetValManager.fetch(true, getAck(parms))); // Blocking Fetch
       res.addHeader("Access-Control-Allow-Origin", "*");
       res.addHeader("Access-Control-Allow-Headers", "origin, content-type");
       res.addHeader("Access-Control-Allow-Methods", "POST,OPTIONS,GET,HEAD,PUT");
@@ -231,7 +235,7 @@ public class AppInvHTTPD extends NanoHTTPD {
         res = new Response(HTTP_OK, MIME_JSON, "{\"version\" : \"" + versionName +
           "\", \"fingerprint\" : \"" + Build.FINGERPRINT + "\"," +
           " \"installer\" : \"" + installer + "\", \"package\" : \"" +
-          packageName + "\", \"fqcn\" : true }");
+          packageName + "\", \"fqcn\" : true, \"batch\" : true }");
       } catch (NameNotFoundException n) {
         n.printStackTrace();
         res = new Response(HTTP_OK, MIME_JSON, "{\"verison\" : \"Unknown\"");
@@ -395,6 +399,48 @@ public class AppInvHTTPD extends NanoHTTPD {
     return res;
   }
 
+  /**
+   * Returns the sequence number of the last return value processed by the
+   * Blocks Editor, or -1 if it does not acknowledge return values.
+   */
+  private static long getAck(Properties parms) {
+    try {
+      return Long.parseLong(parms.getProperty("ack", "-1"));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Evaluates the YAIL for one block, unless it is a definition that has
+   * already been evaluated unchanged. Errors are reported to the Blocks
+   * Editor through the RetValManager.
+   *
+   * @param blockid the quoted id of the block, or -1 if not from a block
+   * @param code the YAIL to evaluate
+   */
+  private void evalBlock(String blockid, String code) {
+    // Don't evaluate a simple "#f" which is used by the poller
+    if (code.equals("#f")) {
+      Log.e(LOG_TAG, "Skipping evaluation of #f");
+      return;
+    }
+    if (!codeCache.shouldEvaluate(blockid, code)) {
+      Log.d(LOG_TAG, "Skipping unchanged definition for " + blockid);
+      return;
+    }
+    String toEval = "(begin (require <com.google.youngandroid.runtime>) (process-repl-input " +
+        blockid + " (begin " + code + " )))";
+    Log.d(LOG_TAG, "To Eval: " + toEval);
+    try {
+      scheme.eval(toEval);
+    } catch (Throwable ex) {
+      Log.e(LOG_TAG, "newblocks: Scheme Failure", ex);
+      codeCache.forget(blockid);
+      RetValManager.appendReturnValue(blockid, "BAD", ex.toString());
+    }
+  }
+
   /**
    * @param inputKey String key to use the HTOP algorithm seed
    *
@@ -408,4 +454,12 @@ public class AppInvHTTPD extends NanoHTTPD {
     seq = 1;
   }
 
+  /**
+   * Forgets the definitions evaluated so far. Called when the form is
+   * cleared, which unregisters its event handlers and definitions.
+   */
+  public static void clearCodeCache() {
+    codeCache.clear();
+  }
+
 }
@@ -0,0 +1,176 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import gnu.lists.LList;
+import gnu.lists.Pair;
+import java.util.List;
+
+/**
+ * A YailList with constant time indexed access and size.
+ *
+ * The list is still an ordinary chain of Kawa pairs, so all of the list
+ * primitives in runtime.scm keep working on it. In addition, the pairs of
+ * the chain are kept in an array, which is used by {@link #get(int)},
+ * {@link #getObject(int)}, {@link #getString(int)} and {@link #size()}
+ * instead of walking the chain.
+ *
+ * Replacing an item (set-car!) is reflected by the array, since it holds
+ * the pairs rather than the items. Any structural change of the chain
+ * (set-cdr! on the list or on one of its pairs, as done by the remove,
+ * insert and append blocks) invalidates the array. It is rebuilt on the
+ * next indexed access if the chain still only consists of pairs created
+ * by this list; otherwise the list permanently falls back to the linked
+ * behavior of YailList.
+ *
+ * Components producing large lists in one go (e.g., parsing a CSV table
+ * or a SPARQL result set) should use {@link #makeList(List)} from this
+ * class instead of {@link YailList#makeList(List)}.
+ */
+@SuppressWarnings("rawtypes")
+public class ArrayYailList extends YailList {
+
+  /**
+   * The pairs of the contents of this list, or null if the index needs
+   * to be rebuilt.
+   */
+  private Cell[] cells;
+
+  /**
+   * False once a pair not owned by this list has been linked into the
+   * chain, after which the index can no longer be kept up to date.
+   */
+  private boolean indexable = true;
+
+  private ArrayYailList(Cell[] cells, Object cdrval) {
+    super(cdrval);
+    this.cells = cells;
+  }
+
+  /**
+   * Create an ArrayYailList from an array.
+   */
+  public static ArrayYailList makeList(Object[] objects) {
+    Cell[] cells = new Cell[objects.length];
+    Object tail = LList.Empty;
+    for (int i = objects.length - 1; i >= 0; i--) {
+      Cell cell = new Cell(objects[i], tail);
+      cells[i] = cell;
+      tail = cell;
+    }
+    ArrayYailList list = new ArrayYailList(cells, tail);
+    for (Cell cell : cells) {
+      cell.owner = list;
+    }
+    return list;
+  }
+
+  /**
+   * Create an ArrayYailList from a List.
+   */
+  public static ArrayYailList makeList(List vals) {
+    return makeList(vals.toArray());
+  }
+
+  /**
+   * Return whether indexed access on this list currently runs in
+   * constant time.
+   */
+  public boolean isIndexed() {
+    return ensureIndex();
+  }
+
+  @Override
+  public Object get(int index) {
+    // Index 0 is the list header
+    if (index > 0 && ensureIndex() && index <= cells.length) {
+      return cells[index - 1].getCar();
+    }
+    return super.get(index);
+  }
+
+  @Override
+  public int size() {
+    if (ensureIndex()) {
+      return cells.length;
+    }
+    return super.size();
+  }
+
+  @Override
+  public void setCdr(Object cdr) {
+    super.setCdr(cdr);
+    invalidate();
+  }
+
+  @Override
+  public void setCdrBackdoor(Object cdr) {
+    super.setCdrBackdoor(cdr);
+    invalidate();
+  }
+
+  private void invalidate() {
+    cells = null;
+  }
+
+  /**
+   * Makes sure the index matches the current chain of pairs.
+   *
+   * @return true if the index can be used, false if the list has to be
+   *     walked instead
+   */
+  private boolean ensureIndex() {
+    if (cells != null) {
+      return true;
+    }
+    if (!indexable) {
+      return false;
+    }
+    int count = 0;
+    for (Object tail = cdr; tail instanceof Pair; tail = ((Pair) tail).getCdr()) {
+      if (!(tail instanceof Cell) || ((Cell) tail).owner != this) {
+        indexable = false;
+        return false;
+      }
+      count++;
+    }
+    Cell[] rebuilt = new Cell[count];
+    int i = 0;
+    for (Object tail = cdr; tail instanceof Pair; tail = ((Pair) tail).getCdr()) {
+      rebuilt[i++] = (Cell) tail;
+    }
+    cells = rebuilt;
+    return true;
+  }
+
+  /**
+   * A pair of the contents of an ArrayYailList, which notifies its list
+   * when the rest of the chain changes.
+   */
+  private static class Cell extends Pair {
+    private ArrayYailList owner;
+
+    Cell(Object car, Object cdr) {
+      super(car, cdr);
+    }
+
+    @Override
+    public void setCdr(Object cdr) {
+      super.setCdr(cdr);
+      if (owner != null) {
+        owner.invalidate();
+      }
+    }
+
+    @Override
+    public void setCdrBackdoor(Object cdr) {
+      super.setCdrBackdoor(cdr);
+      if (owner != null) {
+        owner.invalidate();
+      }
+    }
+  }
+}
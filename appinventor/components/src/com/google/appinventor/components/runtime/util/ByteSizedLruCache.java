@@ -0,0 +1,132 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread safe least recently used cache whose capacity is measured in
+ * bytes rather than entries. Subclasses say how large each value is.
+ *
+ * We don't use android.util.LruCache because it requires API level 12.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public abstract class ByteSizedLruCache<K, V> {
+
+  private final LinkedHashMap<K, V> map = new LinkedHashMap<K, V>(16, 0.75f, true);
+  private final long maxSize;
+  private long size = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  /**
+   * Creates a cache.
+   *
+   * @param maxSize the maximum total size, in bytes, of the values in the cache
+   */
+  protected ByteSizedLruCache(long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the size of a value in bytes.
+   */
+  protected abstract int sizeOf(V value);
+
+  /**
+   * Returns the value for a key, or null if it is not in the cache.
+   */
+  public synchronized V get(K key) {
+    V value = map.get(key);
+    if (value == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return value;
+  }
+
+  /**
+   * Adds a value to the cache, evicting the least recently used values if
+   * the cache is full. Values larger than the whole cache are not added.
+   */
+  public synchronized void put(K key, V value) {
+    int valueSize = sizeOf(value);
+    V previous = map.remove(key);
+    if (previous != null) {
+      size -= sizeOf(previous);
+    }
+    if (valueSize > maxSize) {
+      return;
+    }
+    map.put(key, value);
+    size += valueSize;
+    trimTo(maxSize);
+  }
+
+  /**
+   * Removes the value for a key.
+   */
+  public synchronized void remove(K key) {
+    V previous = map.remove(key);
+    if (previous != null) {
+      size -= sizeOf(previous);
+    }
+  }
+
+  /**
+   * Removes all of the values.
+   */
+  public synchronized void clear() {
+    map.clear();
+    size = 0;
+  }
+
+  private void trimTo(long targetSize) {
+    Iterator<Map.Entry<K, V>> it = map.entrySet().iterator();
+    while (size > targetSize && it.hasNext()) {
+      V value = it.next().getValue();
+      it.remove();
+      size -= sizeOf(value);
+      evictions++;
+    }
+  }
+
+  public synchronized long size() {
+    return size;
+  }
+
+  public long maxSize() {
+    return maxSize;
+  }
+
+  public synchronized int count() {
+    return map.size();
+  }
+
+  public synchronized long hitCount() {
+    return hits;
+  }
+
+  public synchronized long missCount() {
+    return misses;
+  }
+
+  public synchronized long evictionCount() {
+    return evictions;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "size=" + size + "/" + maxSize + " entries=" + map.size() + " hits=" + hits
+        + " misses=" + misses + " evictions=" + evictions;
+  }
+}
@@ -80,8 +80,9 @@ public class ChartDataSourceUtil {
       result.add(listEntries);
     }
 
-    // Convert the result to a YailList
-    return YailList.makeList(result);
+    // Convert the result to a YailList. The transpose is usually indexed
+    // into again (e.g. by the Chart importers), so use constant time access.
+    return ArrayYailList.makeList(result);
   }
 
   /**
@@ -116,6 +117,6 @@ public class ChartDataSourceUtil {
       }
     }
 
-    return YailList.makeList(entries);
+    return ArrayYailList.makeList(entries);
   }
 }
@@ -0,0 +1,191 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2019-2020 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import com.github.mikephil.charting.data.Entry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Provides level-of-detail utilities for the Chart component. The
+ * methods reduce a (large) x-sorted List of Entries to a smaller List
+ * that visually preserves the shape of the original series, so that
+ * the Chart never has to render more points than it has pixels.
+ * <p>
+ * The full data is never modified; all methods return new Lists.
+ */
+public class ChartDownsamplingUtil {
+  /**
+   * Prevent instantiation.
+   */
+  private ChartDownsamplingUtil() {
+  }
+
+  /**
+   * Downsamples the specified x-sorted List of Entries to (at most) the
+   * specified number of points using the Largest-Triangle-Three-Buckets
+   * algorithm. The first and last entries are always kept, so that the
+   * axis range of the data remains the same.
+   * <p>
+   * If the threshold is not smaller than the number of entries, or if
+   * the threshold is less than 3, a copy of the List is returned instead.
+   *
+   * @param entries   x-sorted List of Entries to downsample
+   * @param threshold maximum number of entries to keep
+   * @return downsampled List of Entries
+   */
+  public static List<Entry> largestTriangleThreeBuckets(List<Entry> entries, int threshold) {
+    int size = entries.size();
+
+    // Nothing to downsample; return a copy of the entries
+    if (threshold >= size || threshold < 3) {
+      return new ArrayList<Entry>(entries);
+    }
+
+    List<Entry> sampled = new ArrayList<Entry>(threshold);
+
+    // Bucket size, excluding the first and the last entry
+    // (which are always kept)
+    double bucketSize = (double) (size - 2) / (threshold - 2);
+
+    int selected = 0;
+    sampled.add(entries.get(selected));
+
+    for (int i = 0; i < threshold - 2; ++i) {
+      // Compute the average point of the next bucket, which is used
+      // as the third (fixed) vertex of the triangle.
+      int nextStart = (int) Math.floor((i + 1) * bucketSize) + 1;
+      int nextEnd = Math.min((int) Math.floor((i + 2) * bucketSize) + 1, size);
+
+      double avgX = 0;
+      double avgY = 0;
+
+      for (int j = nextStart; j < nextEnd; ++j) {
+        avgX += entries.get(j).getX();
+        avgY += entries.get(j).getY();
+      }
+
+      int nextCount = nextEnd - nextStart;
+
+      // The last bucket may be empty; use the last entry instead
+      if (nextCount == 0) {
+        Entry last = entries.get(size - 1);
+        avgX = last.getX();
+        avgY = last.getY();
+      } else {
+        avgX /= nextCount;
+        avgY /= nextCount;
+      }
+
+      // Range of the current bucket
+      int start = (int) Math.floor(i * bucketSize) + 1;
+      int end = (int) Math.floor((i + 1) * bucketSize) + 1;
+
+      Entry a = entries.get(selected);
+      double maxArea = -1;
+      int maxIndex = start;
+
+      // Select the point of the current bucket that forms the largest
+      // triangle with the previously selected point and the average
+      // point of the next bucket.
+      for (int j = start; j < end; ++j) {
+        Entry b = entries.get(j);
+        double area = Math.abs((a.getX() - avgX) * (b.getY() - a.getY())
+            - (a.getX() - b.getX()) * (avgY - a.getY()));
+
+        if (area > maxArea) {
+          maxArea = area;
+          maxIndex = j;
+        }
+      }
+
+      sampled.add(entries.get(maxIndex));
+      selected = maxIndex;
+    }
+
+    sampled.add(entries.get(size - 1));
+    return sampled;
+  }
+
+  /**
+   * Downsamples the specified x-sorted List of Entries for display in a
+   * Chart where only the x range [minX, maxX] is currently visible.
+   * <p>
+   * Entries within the visible range are downsampled to the specified
+   * threshold, while the entries outside of it (which are off-screen,
+   * but still determine the axis range and are needed while panning)
+   * are downsampled proportionally to the fraction of the data they
+   * represent, keeping at least their first and last entries.
+   *
+   * @param entries   x-sorted List of Entries to downsample
+   * @param minX      lowest visible x value
+   * @param maxX      highest visible x value
+   * @param threshold maximum number of entries to keep within the visible range
+   * @return downsampled List of Entries
+   */
+  public static List<Entry> downsampleForViewport(List<Entry> entries, float minX, float maxX,
+      int threshold) {
+    int size = entries.size();
+
+    if (threshold >= size) {
+      return new ArrayList<Entry>(entries);
+    }
+
+    // Find the visible range bounds; one extra entry is kept on each
+    // side so that the line continues past the edges of the viewport.
+    int from = Math.max(lowerBound(entries, minX) - 1, 0);
+    int to = Math.min(lowerBound(entries, maxX) + 1, size - 1);
+
+    // Visible range empty or covers all the data; downsample as a whole
+    if (from >= to || (from == 0 && to == size - 1)) {
+      return largestTriangleThreeBuckets(entries, threshold);
+    }
+
+    List<Entry> before = entries.subList(0, from);
+    List<Entry> visible = entries.subList(from, to + 1);
+    List<Entry> after = entries.subList(to + 1, size);
+
+    List<Entry> result = new ArrayList<Entry>();
+    result.addAll(largestTriangleThreeBuckets(before, offscreenThreshold(before, visible, threshold)));
+    result.addAll(largestTriangleThreeBuckets(visible, threshold));
+    result.addAll(largestTriangleThreeBuckets(after, offscreenThreshold(after, visible, threshold)));
+
+    return result;
+  }
+
+  /**
+   * Returns the threshold to use for an off-screen part of the data. The
+   * part gets at most the point density of the visible range, and never
+   * more points than the (unzoomed) Chart would render in total.
+   */
+  private static int offscreenThreshold(List<Entry> offscreen, List<Entry> visible, int threshold) {
+    long proportional = (long) threshold * offscreen.size() / Math.max(visible.size(), 1);
+    return (int) Math.max(3, Math.min(proportional, threshold));
+  }
+
+  /**
+   * Returns the index of the first entry with an x value that is not
+   * smaller than the specified value, or the size of the List if no such
+   * entry exists.
+   */
+  private static int lowerBound(List<Entry> entries, float x) {
+    int low = 0;
+    int high = entries.size();
+
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+
+      if (entries.get(mid).getX() < x) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+
+    return low;
+  }
+}
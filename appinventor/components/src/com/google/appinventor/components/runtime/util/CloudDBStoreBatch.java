@@ -0,0 +1,115 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONArray;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * A batch of pending CloudDB stores which is sent to the Redis server
+ * as a single pipelined MULTI/EXEC block, i.e., in one network round trip.
+ *
+ * Consecutive stores to the same tag are coalesced the same way the
+ * CloudDB store worker does it: only the last value is set, but all of
+ * the values are published to the other devices listening on the project.
+ */
+public class CloudDBStoreBatch {
+
+  private final List<String> tags = new ArrayList<String>();
+  private final List<JSONArray> valueLists = new ArrayList<JSONArray>();
+
+  /**
+   * Adds a store of a JSON encoded value to the batch.
+   *
+   * @param tag the tag to store the value under
+   * @param value the JSON representation of the value
+   */
+  public void add(String tag, String value) {
+    int last = tags.size() - 1;
+    if (last >= 0 && tags.get(last).equals(tag)) {
+      valueLists.get(last).put(value);
+    } else {
+      JSONArray valueList = new JSONArray();
+      valueList.put(value);
+      tags.add(tag);
+      valueLists.add(valueList);
+    }
+  }
+
+  /**
+   * Returns the number of script invocations needed to send this batch.
+   */
+  public int size() {
+    return tags.size();
+  }
+
+  public String getTag(int index) {
+    return tags.get(index);
+  }
+
+  public JSONArray getValueList(int index) {
+    return valueLists.get(index);
+  }
+
+  /**
+   * Sends the batch to the server. Each coalesced store invokes the
+   * given script with the tag, the last value, the list of all values
+   * and the project ID as arguments.
+   *
+   * @param jedis the connection to use
+   * @param script the text of the store script
+   * @param scriptsha1 the SHA1 of the store script
+   * @param projectID the CloudDB project ID
+   * @throws JedisException if the batch could not be sent or one of the
+   *     scripts failed
+   */
+  public void execute(Jedis jedis, String script, String scriptsha1, String projectID)
+      throws JedisException {
+    if (tags.isEmpty()) {
+      return;
+    }
+    JedisDataException error = executeOnce(jedis, scriptsha1, projectID);
+    if (error != null && error.getMessage() != null
+        && error.getMessage().startsWith("NOSCRIPT")) {
+      // The server doesn't have the script cached. All of the invocations
+      // share the same script, so none of them ran; load it and try again.
+      jedis.scriptLoad(script);
+      error = executeOnce(jedis, scriptsha1, projectID);
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  private JedisDataException executeOnce(Jedis jedis, String scriptsha1, String projectID) {
+    Pipeline pipeline = jedis.pipelined();
+    pipeline.multi();
+    for (int i = 0; i < tags.size(); i++) {
+      JSONArray valueList = valueLists.get(i);
+      pipeline.evalsha(scriptsha1, 1, tags.get(i),
+          valueList.optString(valueList.length() - 1), valueList.toString(), projectID);
+    }
+    Response<List<Object>> results = pipeline.exec();
+    pipeline.sync();
+    if (results.get() == null) {
+      return new JedisDataException("Transaction aborted");
+    }
+    for (Object result : results.get()) {
+      if (result instanceof JedisDataException) {
+        return (JedisDataException) result;
+      }
+    }
+    return null;
+  }
+}
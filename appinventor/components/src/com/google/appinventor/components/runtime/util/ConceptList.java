@@ -0,0 +1,233 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The labels and URIs of the things of one type at a SPARQL endpoint, as far
+ * as they have been fetched, for the LinkedDataListPicker.
+ *
+ * The list is fetched a page at a time with {@link #buildQuery}, in label
+ * order, so that a long list can be shown before all of it has arrived. Once
+ * a page comes back short the list is complete, and searching it no longer
+ * needs the endpoint. Lists are saved to and read from files so that they
+ * survive the app being restarted.
+ */
+public class ConceptList {
+
+  private static final int FILE_VERSION = 2;
+
+  private final List<String> labels = new ArrayList<String>();
+  private final List<String> uris = new ArrayList<String>();
+  private boolean complete = false;
+  private long created = System.currentTimeMillis();
+
+  /**
+   * Returns a SPARQL query for one page of the things related to
+   * {@code concept} by {@code relation}, with their labels in the given
+   * language. If {@code filter} is not empty, only things whose label
+   * contains it, ignoring case, are returned.
+   */
+  public static String buildQuery(String relation, String concept, String language,
+      String filter, int limit, int offset) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("PREFIX dc: <http://purl.org/dc/terms/> ")
+        .append("PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#> ")
+        .append("PREFIX foaf: <http://xmlns.com/foaf/0.1/> ")
+        .append("PREFIX skos: <http://www.w3.org/2004/02/skos/core#> ")
+        .append("SELECT ?uri (SAMPLE(?lbl) AS ?label) WHERE { ")
+        .append("?uri <").append(relation).append("> <").append(concept).append("> . ")
+        .append("{ ?uri rdfs:label ?lbl } UNION { ?uri skos:prefLabel ?lbl } ")
+        .append("UNION { ?uri foaf:name ?lbl } UNION { ?uri dc:title ?lbl } ")
+        .append("FILTER(lang(?lbl) = \"\" || langMatches(lang(?lbl), \"")
+        .append(escape(language)).append("\")) ");
+    if (filter != null && filter.length() > 0) {
+      sb.append("FILTER(CONTAINS(LCASE(STR(?lbl)), \"")
+          .append(escape(filter.toLowerCase(Locale.ROOT))).append("\")) ");
+    }
+    sb.append("} GROUP BY ?uri ORDER BY ?label ?uri");
+    if (limit > 0) {
+      sb.append(" LIMIT ").append(limit);
+    }
+    if (offset > 0) {
+      sb.append(" OFFSET ").append(offset);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Escapes a string for use inside a double quoted SPARQL literal.
+   */
+  public static String escape(String text) {
+    StringBuilder sb = new StringBuilder(text.length());
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '\\': sb.append("\\\\"); break;
+        case '"': sb.append("\\\""); break;
+        case '\n': sb.append("\\n"); break;
+        case '\r': sb.append("\\r"); break;
+        case '\t': sb.append("\\t"); break;
+        default: sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Returns the name of the file for the list of things related to
+   * {@code concept} by {@code relation} at {@code endpoint}, with their
+   * labels in the given language.
+   */
+  public static String cacheKey(String endpoint, String relation, String concept,
+      String language) {
+    String key = endpoint + "\n" + relation + "\n" + concept + "\n" + language;
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-1");
+      StringBuilder sb = new StringBuilder();
+      for (byte b : md.digest(key.getBytes("UTF-8"))) {
+        sb.append(String.format("%02x", b));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      return Integer.toHexString(key.hashCode());
+    } catch (IOException e) {
+      return Integer.toHexString(key.hashCode());
+    }
+  }
+
+  public synchronized void add(String label, String uri) {
+    labels.add(label);
+    uris.add(uri);
+  }
+
+  public synchronized int size() {
+    return labels.size();
+  }
+
+  public synchronized String getLabel(int index) {
+    return labels.get(index);
+  }
+
+  public synchronized String getUri(int index) {
+    return uris.get(index);
+  }
+
+  /**
+   * Returns true if every thing at the endpoint is in the list.
+   */
+  public synchronized boolean isComplete() {
+    return complete;
+  }
+
+  public synchronized void setComplete(boolean complete) {
+    this.complete = complete;
+  }
+
+  /**
+   * Returns the time, in milliseconds since the epoch, at which the first
+   * page of the list was fetched.
+   */
+  public synchronized long getCreated() {
+    return created;
+  }
+
+  /**
+   * Returns the indices of up to {@code limit} things whose label contains
+   * {@code filter}, ignoring case, skipping the first {@code offset} of them.
+   */
+  public synchronized List<Integer> filter(String filter, int offset, int limit) {
+    String lower = filter.toLowerCase(Locale.ROOT);
+    List<Integer> result = new ArrayList<Integer>();
+    for (int i = 0; i < labels.size() && result.size() < limit; i++) {
+      if (labels.get(i).toLowerCase(Locale.ROOT).contains(lower)) {
+        if (offset > 0) {
+          offset--;
+        } else {
+          result.add(i);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Writes the list to a file. The file is replaced only once the new one has
+   * been written, so a failed write leaves the old list in place.
+   */
+  public void write(File file) throws IOException {
+    File dir = file.getParentFile();
+    if (dir != null && !dir.exists() && !dir.mkdirs()) {
+      throw new IOException("Unable to create " + dir);
+    }
+    File temp = new File(file.getPath() + ".tmp");
+    DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(temp)));
+    try {
+      synchronized (this) {
+        out.writeInt(FILE_VERSION);
+        out.writeLong(created);
+        out.writeBoolean(complete);
+        out.writeInt(labels.size());
+        for (int i = 0; i < labels.size(); i++) {
+          out.writeUTF(labels.get(i));
+          out.writeUTF(uris.get(i));
+        }
+      }
+    } finally {
+      out.close();
+    }
+    if (!temp.renameTo(file)) {
+      temp.delete();
+      throw new IOException("Unable to replace " + file);
+    }
+  }
+
+  /**
+   * Reads a list written by {@link #write(File)}.
+   *
+   * @return the list, or null if the file is missing or unreadable
+   */
+  public static ConceptList read(File file) {
+    if (!file.exists()) {
+      return null;
+    }
+    try {
+      DataInputStream in = new DataInputStream(
+          new BufferedInputStream(new FileInputStream(file)));
+      try {
+        if (in.readInt() != FILE_VERSION) {
+          return null;
+        }
+        ConceptList list = new ConceptList();
+        list.created = in.readLong();
+        list.complete = in.readBoolean();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          list.add(in.readUTF(), in.readUTF());
+        }
+        return list;
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      return null;
+    }
+  }
+}
@@ -30,16 +30,16 @@ public final class CsvUtil {
     CsvParser csvParser = new CsvParser(new StringReader(csvString));
     ArrayList<YailList> csvList = new ArrayList<YailList>();
     while (csvParser.hasNext()) {
-      csvList.add(YailList.makeList(csvParser.next()));
+      csvList.add(ArrayYailList.makeList(csvParser.next()));
     }
     csvParser.throwAnyProblem();
-    return YailList.makeList(csvList);
+    return ArrayYailList.makeList(csvList);
   }
 
   public static YailList fromCsvRow(String csvString) throws Exception {
     CsvParser csvParser = new CsvParser(new StringReader(csvString));
     if (csvParser.hasNext()) {
-      YailList row = YailList.makeList(csvParser.next());
+      YailList row = ArrayYailList.makeList(csvParser.next());
       if (csvParser.hasNext()) {
         // more than one row is an error
         throw new IllegalArgumentException("CSV text has multiple rows. Expected just one row.");
@@ -88,7 +88,7 @@ public final class CsvUtil {
    * copied from: java/com/google/collaboration/tables/util/CsvParser.java
    *
    */
-  private static class CsvParser implements Iterator<List<String>> {
+  static class CsvParser implements Iterator<List<String>> {
     /**
      * Escaped quotes in quoted cells are doubled.
      */
@@ -0,0 +1,462 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2019-2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import org.json.JSONException;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Column-oriented, typed representation of tabular data (e.g. the contents
+ * of a CSV or JSON file read by the DataFile component).
+ *
+ * The first row of the table holds the column names. Every column stores
+ * its remaining cells once, either as a primitive double array (if all of
+ * its cells are numbers that can be converted back to exactly the same
+ * text) or as a String array otherwise.
+ *
+ * Rows and columns are only converted to YailLists when they are requested,
+ * and the converted lists are cached. CSV data is parsed directly from a
+ * Reader, so the file contents never need to be held as a single String.
+ */
+public final class DataTable {
+  private static final DataTable EMPTY = new DataTable(new String[0], new Column[0], new int[0]);
+
+  /**
+   * The first row of the table (the column names).
+   */
+  private final String[] header;
+
+  /**
+   * The columns of the table, without their names.
+   */
+  private final Column[] columns;
+
+  /**
+   * Number of cells in each row (including the header row), or null if
+   * rows span all of the columns (missing cells are then blank).
+   */
+  private final int[] rowLengths;
+
+  private final int rowCount;
+
+  // Lazily constructed views
+  private YailList rowsList;
+  private YailList columnsList;
+  private YailList columnNamesList;
+  private YailList[] columnLists;
+
+  private DataTable(String[] header, Column[] columns, int[] rowLengths) {
+    this.header = header;
+    this.columns = columns;
+    this.rowLengths = rowLengths;
+
+    int rows = 0;
+    if (rowLengths != null) {
+      rows = rowLengths.length;
+    } else if (columns.length > 0) {
+      // The header row, plus the cells of the longest column
+      for (Column column : columns) {
+        rows = Math.max(rows, column.size);
+      }
+      rows++;
+    }
+    this.rowCount = rows;
+    this.columnLists = new YailList[columns.length];
+  }
+
+  /**
+   * Returns an empty table.
+   */
+  public static DataTable empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Parses CSV data from the specified Reader. The first row is taken to
+   * be the column names.
+   *
+   * @param in  Reader to parse the CSV data from
+   * @param selectedColumns  names of the columns to keep, or null to keep
+   *     all of the columns
+   * @return the parsed table
+   * @throws Exception if the CSV data is malformed
+   */
+  public static DataTable fromCsv(Reader in, Collection<String> selectedColumns) throws Exception {
+    CsvUtil.CsvParser csvParser = new CsvUtil.CsvParser(in);
+
+    if (!csvParser.hasNext()) {
+      csvParser.throwAnyProblem();
+      return EMPTY;
+    }
+
+    List<String> headerRow = csvParser.next();
+
+    // Indexes of the CSV columns to keep
+    int[] keep = null;
+    if (selectedColumns != null) {
+      List<Integer> indexes = new ArrayList<Integer>();
+      for (int i = 0; i < headerRow.size(); i++) {
+        if (selectedColumns.contains(headerRow.get(i))) {
+          indexes.add(i);
+        }
+      }
+      keep = new int[indexes.size()];
+      for (int i = 0; i < keep.length; i++) {
+        keep[i] = indexes.get(i);
+      }
+    }
+
+    List<ColumnBuilder> builders = new ArrayList<ColumnBuilder>();
+    IntArray rowLengths = new IntArray();
+    rowLengths.add(headerRow.size());
+    int dataRows = 0;
+
+    while (csvParser.hasNext()) {
+      List<String> row = csvParser.next();
+      rowLengths.add(row.size());
+
+      int width = keep == null ? row.size() : keep.length;
+      while (builders.size() < width) {
+        // A new, longer row; earlier rows did not have this column
+        ColumnBuilder builder = new ColumnBuilder();
+        for (int i = 0; i < dataRows; i++) {
+          builder.add("");
+        }
+        builders.add(builder);
+      }
+
+      for (int i = 0; i < builders.size(); i++) {
+        int index = keep == null ? i : keep[i];
+        builders.get(i).add(index < row.size() ? row.get(index) : "");
+      }
+      dataRows++;
+    }
+    csvParser.throwAnyProblem();
+
+    int columnCount = keep == null ? Math.max(builders.size(), headerRow.size()) : keep.length;
+    String[] header = new String[columnCount];
+    Column[] columns = new Column[columnCount];
+    for (int i = 0; i < columnCount; i++) {
+      int index = keep == null ? i : keep[i];
+      header[i] = index < headerRow.size() ? headerRow.get(index) : "";
+      if (i < builders.size()) {
+        columns[i] = builders.get(i).build();
+      } else {
+        // Column only present in the header row
+        ColumnBuilder builder = new ColumnBuilder();
+        for (int j = 0; j < dataRows; j++) {
+          builder.add("");
+        }
+        columns[i] = builder.build();
+      }
+    }
+
+    // If only some of the columns are kept, the original row lengths
+    // no longer apply, and rows span all of the kept columns instead.
+    return new DataTable(header, columns, keep == null ? rowLengths.toArray() : null);
+  }
+
+  /**
+   * Parses JSON data into a table, with the same columns as
+   * {@link JsonUtil#getColumnsFromJSON(String)}: every key of the top level
+   * object is a column name, and its value (or the elements of its value,
+   * if it is a list) are the cells of the column. Columns may differ in
+   * length.
+   *
+   * Numbers are stored without being converted to text first, and strings
+   * are always stored as text, even if they look like numbers.
+   *
+   * @param json  JSON text to parse
+   * @param selectedColumns  names of the columns to keep, or null to keep
+   *     all of the columns
+   * @return the parsed table
+   * @throws JSONException if the JSON is malformed
+   */
+  public static DataTable fromJson(String json, Collection<String> selectedColumns)
+      throws JSONException {
+    List<String> header = new ArrayList<String>();
+    List<Column> columns = new ArrayList<Column>();
+
+    Object parsed = JsonUtil.getObjectFromJson(json, false);
+    if (!(parsed instanceof List)) {
+      return EMPTY;
+    }
+
+    for (Object entry : (List<?>) parsed) {
+      String name = "";
+      ColumnBuilder builder = new ColumnBuilder();
+
+      // Entries other than key-value pairs result in empty columns
+      if (entry instanceof List) {
+        List<?> pair = (List<?>) entry;
+        name = pair.get(0).toString();
+        Object value = pair.get(1);
+
+        if (value instanceof List) {
+          for (Object cell : (List<?>) value) {
+            builder.add(cell);
+          }
+        } else {
+          builder.add(value);
+        }
+      }
+
+      if (selectedColumns != null && !selectedColumns.contains(name)) {
+        continue;
+      }
+      header.add(name);
+      columns.add(builder.build());
+    }
+
+    return new DataTable(header.toArray(new String[0]), columns.toArray(new Column[0]), null);
+  }
+
+  /**
+   * Returns the number of rows, including the column names row.
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Returns the number of columns.
+   */
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  /**
+   * Returns the rows of the table, starting with the column names.
+   */
+  public synchronized YailList getRows() {
+    if (rowsList == null) {
+      YailList[] rows = new YailList[rowCount];
+      for (int i = 0; i < rowCount; i++) {
+        rows[i] = makeRow(i);
+      }
+      rowsList = ArrayYailList.makeList(rows);
+    }
+    return rowsList;
+  }
+
+  /**
+   * Returns the columns of the table, each starting with its name.
+   */
+  public synchronized YailList getColumns() {
+    if (columnsList == null) {
+      YailList[] result = new YailList[columns.length];
+      for (int i = 0; i < columns.length; i++) {
+        result[i] = getColumn(i);
+      }
+      columnsList = ArrayYailList.makeList(result);
+    }
+    return columnsList;
+  }
+
+  /**
+   * Returns the column names (the first row) of the table.
+   */
+  public synchronized YailList getColumnNames() {
+    if (columnNamesList == null) {
+      columnNamesList = rowCount > 0 ? makeRow(0) : new YailList();
+    }
+    return columnNamesList;
+  }
+
+  /**
+   * Returns the named column, starting with its name, or an empty list if
+   * no such column exists.
+   */
+  public synchronized YailList getColumn(String name) {
+    int index = indexOfColumn(name);
+    return index < 0 ? new YailList() : getColumn(index);
+  }
+
+  private YailList getColumn(int index) {
+    if (columnLists[index] == null) {
+      Column column = columns[index];
+      String[] cells = new String[column.size + 1];
+      cells[0] = header[index];
+      for (int i = 0; i < column.size; i++) {
+        cells[i + 1] = column.getString(i);
+      }
+      columnLists[index] = ArrayYailList.makeList(cells);
+    }
+    return columnLists[index];
+  }
+
+  private YailList makeRow(int row) {
+    int length = rowLengths == null ? columns.length : rowLengths[row];
+    String[] cells = new String[length];
+    for (int i = 0; i < length; i++) {
+      if (row == 0) {
+        cells[i] = header[i];
+      } else {
+        Column column = columns[i];
+        cells[i] = row - 1 < column.size ? column.getString(row - 1) : "";
+      }
+    }
+    return ArrayYailList.makeList(cells);
+  }
+
+  private int indexOfColumn(String name) {
+    // Only columns named in the header row can be looked up
+    int named = rowLengths == null ? header.length : Math.min(header.length, rowLengths[0]);
+    for (int i = 0; i < named; i++) {
+      if (header[i].equals(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * The cells of a single column, stored either as numbers or as text.
+   */
+  private static final class Column {
+    private final double[] numbers;
+    private final String[] texts;
+    private final int size;
+
+    Column(double[] numbers, String[] texts, int size) {
+      this.numbers = numbers;
+      this.texts = texts;
+      this.size = size;
+    }
+
+    String getString(int index) {
+      return numbers != null ? formatNumber(numbers[index]) : texts[index];
+    }
+  }
+
+  /**
+   * Accumulates the cells of a column. Cells are stored as numbers until
+   * the first cell that is not a number is encountered, after which the
+   * column is converted to text.
+   */
+  private static final class ColumnBuilder {
+    private double[] numbers = new double[16];
+    private String[] texts;
+    private int size;
+
+    /**
+     * Adds a cell read as text, which is stored as a number if it is one.
+     */
+    void add(String cell) {
+      if (texts == null) {
+        double value = parseNumber(cell);
+        if (!Double.isNaN(value) || cell.isEmpty()) {
+          addNumber(value);
+          return;
+        }
+      }
+      addText(cell);
+    }
+
+    /**
+     * Adds a parsed (JSON) value. Numbers are kept as numbers if their
+     * text can be reproduced exactly, and any other value as its text.
+     */
+    void add(Object value) {
+      if (texts == null && value instanceof Number) {
+        double number = ((Number) value).doubleValue();
+        if (!Double.isNaN(number) && formatNumber(number).equals(value.toString())) {
+          addNumber(number);
+          return;
+        }
+      }
+      addText(value.toString());
+    }
+
+    private void addNumber(double value) {
+      if (size == numbers.length) {
+        numbers = Arrays.copyOf(numbers, size * 2);
+      }
+      numbers[size++] = value;
+    }
+
+    private void addText(String cell) {
+      if (texts == null) {
+        // Not a number; convert the column to text
+        texts = new String[numbers.length];
+        for (int i = 0; i < size; i++) {
+          texts[i] = formatNumber(numbers[i]);
+        }
+        numbers = null;
+      }
+      if (size == texts.length) {
+        texts = Arrays.copyOf(texts, size * 2);
+      }
+      texts[size++] = cell;
+    }
+
+    Column build() {
+      if (texts == null) {
+        return new Column(Arrays.copyOf(numbers, size), null, size);
+      }
+      return new Column(null, Arrays.copyOf(texts, size), size);
+    }
+  }
+
+  /**
+   * Parses the specified cell as a number. Returns NaN if the cell is not
+   * a number whose text can be reproduced exactly by
+   * {@link #formatNumber(double)}, or if the cell is blank.
+   */
+  static double parseNumber(String cell) {
+    if (cell.isEmpty()) {
+      return Double.NaN;
+    }
+    char first = cell.charAt(0);
+    if (!(first == '-' || (first >= '0' && first <= '9'))) {
+      return Double.NaN;
+    }
+    try {
+      double value = Double.parseDouble(cell);
+      return formatNumber(value).equals(cell) ? value : Double.NaN;
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+
+  /**
+   * Formats a number stored in a numeric column back to its cell text.
+   * NaN represents a blank cell.
+   */
+  static String formatNumber(double value) {
+    if (Double.isNaN(value)) {
+      return "";
+    }
+    if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+
+  /**
+   * Minimal growable int array.
+   */
+  private static final class IntArray {
+    private int[] values = new int[64];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+}
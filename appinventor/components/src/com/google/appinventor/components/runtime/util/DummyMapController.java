@@ -273,6 +273,41 @@ class DummyMapController implements MapController {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public void setFeatureClustering(boolean cluster) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean isFeatureClustering() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void setFeatureCulling(boolean cull) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean isFeatureCulling() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int getRenderedFeatureCount() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int getCulledFeatureCount() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int getClusterCount() {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public void setScaleVisible(boolean show) {
     throw new UnsupportedOperationException();
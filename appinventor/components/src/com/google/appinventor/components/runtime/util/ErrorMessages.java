@@ -341,6 +341,15 @@ public final class ErrorMessages {
   public static final int ERROR_GQL_INVALID_HTTP_HEADERS = 13601;
   public static final int ERROR_GQL_UNABLE_TO_POST = 13602;
 
+  // LdpCoapClient errors
+  public static final int ERROR_LDP_COAP_REQUEST_FAILED = 13701;
+  public static final int ERROR_LDP_COAP_OBSERVE_FAILED = 13702;
+
+  // LinkedDataStreamingClient errors
+  public static final int ERROR_STREAM_QUERY_INVALID = 13801;
+  public static final int ERROR_STREAM_QUERY_INVALID_WINDOW = 13802;
+  public static final int ERROR_STREAM_QUERY_FAILED = 13803;
+
   // Start the next group of errors at 4200
 
   // Mapping of error numbers to error message format strings.
@@ -823,6 +832,20 @@ public final class ErrorMessages {
         "Invalid HTTP header format. Must be a JSON string of name and value(s).");
     errorMessages.put(ERROR_GQL_UNABLE_TO_POST,
         "Unable to POST query. Got exception %s");
+
+    // LdpCoapClient errors
+    errorMessages.put(ERROR_LDP_COAP_REQUEST_FAILED,
+        "No response was received for the request to %s.");
+    errorMessages.put(ERROR_LDP_COAP_OBSERVE_FAILED,
+        "Observing %s failed. Call Observe to try again.");
+
+    // LinkedDataStreamingClient errors
+    errorMessages.put(ERROR_STREAM_QUERY_INVALID,
+        "Unable to register stream query %s: %s");
+    errorMessages.put(ERROR_STREAM_QUERY_INVALID_WINDOW,
+        "Invalid window or step for stream query %s: %s");
+    errorMessages.put(ERROR_STREAM_QUERY_FAILED,
+        "Evaluating stream query %s failed: %s");
   }
 
   private ErrorMessages() {
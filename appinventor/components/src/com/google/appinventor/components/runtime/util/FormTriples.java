@@ -0,0 +1,196 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Statement;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The triples generated by the fields of a form when it was last submitted.
+ *
+ * Each field is identified by a key and has a state, such as its subject,
+ * property and value. A submission is made by calling {@link #begin}, then
+ * either {@link #keep} or {@link #put} for every field of the form, and then
+ * {@link #commit}. A field whose state is unchanged only needs to be kept,
+ * so its triples are not generated again. A field that is not kept or put is
+ * treated as removed from the form.
+ *
+ * Committing reports the triples added to and removed from the form since
+ * the last submission. Several fields may generate the same triple, such as
+ * the type of a shared object, and it is only removed when no field
+ * generates it.
+ */
+public class FormTriples {
+
+  private static class Field {
+    private final Object state;
+    private final List<Statement> statements;
+
+    private Field(Object state, List<Statement> statements) {
+      this.state = state;
+      this.statements = statements;
+    }
+  }
+
+  private final Map<Object, Field> fields = new HashMap<Object, Field>();
+  private final Map<Statement, Integer> counts = new HashMap<Statement, Integer>();
+  private final Map<Object, String> subjects = new HashMap<Object, String>();
+  private String subject;
+
+  // The submission in progress
+  private final Map<Object, Field> changed = new HashMap<Object, Field>();
+  private final Map<Object, String> changedSubjects = new HashMap<Object, String>();
+  private final Set<Object> seen = new HashSet<Object>();
+
+  /**
+   * Starts a submission. If the subject differs from the subject of the last
+   * submission, the form describes a different resource, and the triples of
+   * the last submission are forgotten rather than removed.
+   */
+  public void begin(String subject) {
+    abort();
+    if (this.subject != null && !this.subject.equals(subject)) {
+      fields.clear();
+      counts.clear();
+      subjects.clear();
+    }
+    this.subject = subject;
+  }
+
+  /**
+   * Returns the subject of the last submission.
+   */
+  public String getSubject() {
+    return subject;
+  }
+
+  /**
+   * Returns the subject used for a nested form in the last submission, or
+   * null if there is none.
+   */
+  public String getSubject(Object form) {
+    String result = changedSubjects.get(form);
+    return result != null ? result : subjects.get(form);
+  }
+
+  /**
+   * Records the subject used for a nested form in this submission. Subjects
+   * that are not recorded again are forgotten when the submission ends.
+   */
+  public void putSubject(Object form, String subject) {
+    changedSubjects.put(form, subject);
+  }
+
+  /**
+   * Returns true if the field had the given state in the last submission.
+   */
+  public boolean isCurrent(Object key, Object state) {
+    Field field = fields.get(key);
+    return field != null && field.state.equals(state);
+  }
+
+  /**
+   * Keeps the triples of a field whose state is unchanged.
+   */
+  public void keep(Object key) {
+    seen.add(key);
+  }
+
+  /**
+   * Replaces the triples of a field.
+   */
+  public void put(Object key, Object state, Collection<Statement> statements) {
+    seen.add(key);
+    changed.put(key, new Field(state, new ArrayList<Statement>(statements)));
+  }
+
+  /**
+   * Ends the submission, adding the triples that were not generated by the
+   * last submission to {@code added} and the triples that are no longer
+   * generated to {@code removed}.
+   */
+  public void commit(Model added, Model removed) {
+    Map<Statement, Integer> before = new HashMap<Statement, Integer>();
+    Iterator<Map.Entry<Object, Field>> it = fields.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Object, Field> entry = it.next();
+      if (!seen.contains(entry.getKey()) || changed.containsKey(entry.getKey())) {
+        count(entry.getValue().statements, -1, before);
+        it.remove();
+      }
+    }
+    for (Map.Entry<Object, Field> entry : changed.entrySet()) {
+      count(entry.getValue().statements, 1, before);
+      fields.put(entry.getKey(), entry.getValue());
+    }
+    for (Map.Entry<Statement, Integer> entry : before.entrySet()) {
+      boolean wasPresent = entry.getValue() > 0;
+      boolean isPresent = counts.containsKey(entry.getKey());
+      if (isPresent && !wasPresent) {
+        added.add(entry.getKey());
+      } else if (wasPresent && !isPresent) {
+        removed.add(entry.getKey());
+      }
+    }
+    subjects.clear();
+    subjects.putAll(changedSubjects);
+    abort();
+  }
+
+  /**
+   * Ends the submission without changing the recorded triples.
+   */
+  public void abort() {
+    changed.clear();
+    changedSubjects.clear();
+    seen.clear();
+  }
+
+  /**
+   * Forgets every submission.
+   */
+  public void clear() {
+    abort();
+    fields.clear();
+    counts.clear();
+    subjects.clear();
+    subject = null;
+  }
+
+  /**
+   * Returns the triples generated by the last submission.
+   */
+  public Set<Statement> getStatements() {
+    return Collections.unmodifiableSet(counts.keySet());
+  }
+
+  // Adjusts the counts of the statements, recording the count each statement
+  // had before it was first touched.
+  private void count(List<Statement> statements, int delta, Map<Statement, Integer> before) {
+    for (Statement statement : statements) {
+      Integer n = counts.get(statement);
+      int current = n == null ? 0 : n;
+      if (!before.containsKey(statement)) {
+        before.put(statement, current);
+      }
+      if (current + delta == 0) {
+        counts.remove(statement);
+      } else {
+        counts.put(statement, current + delta);
+      }
+    }
+  }
+}
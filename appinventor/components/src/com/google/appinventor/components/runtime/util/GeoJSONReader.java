@@ -0,0 +1,422 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import org.json.JSONException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the features of a GeoJSON document one at a time.
+ *
+ * Unlike {@link GeoJSONUtil#getGeoJSONFeatures(String, String)}, the document is never held in
+ * memory as a whole. Only the feature being read is, so large documents can be loaded in constant
+ * space and the features can be added to the map as they arrive. Each feature is returned in the
+ * same form as {@code getGeoJSONFeatures}, a list of (key, value) pairs where JSON objects become
+ * lists of pairs, JSON arrays become lists, and nulls are dropped.
+ *
+ * If bounds are given with {@link #setBounds(double, double, double, double)}, features whose
+ * coordinates lie entirely outside of them are skipped as they are read.
+ */
+public class GeoJSONReader implements Closeable {
+
+  private static final String GEOJSON_COORDINATES = "coordinates";
+  private static final String GEOJSON_FEATURES = "features";
+  private static final String GEOJSON_GEOMETRY = "geometry";
+  private static final String GEOJSON_TYPE = "type";
+
+  private static final int STATE_START = 0;
+  private static final int STATE_ROOT = 1;
+  private static final int STATE_FEATURES = 2;
+  private static final int STATE_DONE = 3;
+
+  private static final Object NULL = new Object();
+
+  private final Reader in;
+  private final char[] buffer = new char[8192];
+  private int pos = 0;
+  private int limit = 0;
+  private int state = STATE_START;
+  private boolean first = true;
+  private String type = null;
+  private double[] bounds = null;
+  private int featureCount = 0;
+  private int skippedCount = 0;
+
+  /**
+   * Creates a reader for the GeoJSON document read from {@code in}.
+   */
+  public GeoJSONReader(Reader in) {
+    this.in = in;
+  }
+
+  /**
+   * Only returns features that intersect the given bounds.
+   */
+  public void setBounds(double north, double west, double south, double east) {
+    bounds = new double[] { north, east, south, west };
+  }
+
+  /**
+   * Returns the type of the root object, or null if it has not been read yet. The type may come
+   * after the features in the document, so it is only certain once {@link #nextFeature()} has
+   * returned null.
+   */
+  public String getType() {
+    return type;
+  }
+
+  /**
+   * Returns the number of features returned so far.
+   */
+  public int getFeatureCount() {
+    return featureCount;
+  }
+
+  /**
+   * Returns the number of features skipped so far because they were outside of the bounds.
+   */
+  public int getSkippedCount() {
+    return skippedCount;
+  }
+
+  /**
+   * Reads the next feature.
+   *
+   * @return the feature as a list of (key, value) pairs, or null if there are no more features
+   * @throws IOException if the document cannot be read
+   * @throws JSONException if the document is not valid JSON
+   */
+  public YailList nextFeature() throws IOException, JSONException {
+    while (true) {
+      switch (state) {
+        case STATE_START:
+          if (peekNonWhitespace() == '\uFEFF') {  // Byte order mark
+            pos++;
+          }
+          expect('{');
+          state = STATE_ROOT;
+          first = true;
+          break;
+        case STATE_ROOT:
+          if (readRootMember()) {
+            state = STATE_DONE;
+          }
+          break;
+        case STATE_FEATURES:
+          YailList feature = readFeature();
+          if (feature == null) {
+            state = STATE_ROOT;
+            first = false;
+          } else if (bounds != null && !intersects(feature)) {
+            skippedCount++;
+          } else {
+            featureCount++;
+            return feature;
+          }
+          break;
+        default:
+          return null;
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  /**
+   * Returns the bounds of the coordinates of a feature as {north, east, south, west}, or null if
+   * the feature has no coordinates.
+   */
+  public static double[] boundsOf(YailList feature) {
+    Object geometry = valueOf(feature, GEOJSON_GEOMETRY);
+    if (!(geometry instanceof YailList)) {
+      return null;
+    }
+    Object coordinates = valueOf((YailList) geometry, GEOJSON_COORDINATES);
+    if (!(coordinates instanceof YailList)) {
+      return null;
+    }
+    double[] result = new double[] { -90, -180, 90, 180 };
+    return addBounds((YailList) coordinates, result) ? result : null;
+  }
+
+  private boolean intersects(YailList feature) {
+    double[] featureBounds = boundsOf(feature);
+    return featureBounds == null || MarkerClusterer.intersects(featureBounds[0],
+        featureBounds[1], featureBounds[2], featureBounds[3], bounds[0], bounds[1], bounds[2],
+        bounds[3]);
+  }
+
+  private static Object valueOf(YailList pairs, String key) {
+    for (int i = 0; i < pairs.size(); i++) {
+      Object pair = pairs.getObject(i);
+      if (pair instanceof YailList && ((YailList) pair).size() == 2
+          && key.equals(((YailList) pair).getObject(0))) {
+        return ((YailList) pair).getObject(1);
+      }
+    }
+    return null;
+  }
+
+  // Adds positions, which are [longitude, latitude] lists, nested to any depth
+  private static boolean addBounds(YailList coordinates, double[] result) {
+    if (coordinates.size() >= 2 && coordinates.getObject(0) instanceof Number
+        && coordinates.getObject(1) instanceof Number) {
+      double longitude = ((Number) coordinates.getObject(0)).doubleValue();
+      double latitude = ((Number) coordinates.getObject(1)).doubleValue();
+      result[0] = Math.max(result[0], latitude);
+      result[1] = Math.max(result[1], longitude);
+      result[2] = Math.min(result[2], latitude);
+      result[3] = Math.min(result[3], longitude);
+      return true;
+    }
+    boolean found = false;
+    for (int i = 0; i < coordinates.size(); i++) {
+      Object item = coordinates.getObject(i);
+      if (item instanceof YailList) {
+        found |= addBounds((YailList) item, result);
+      }
+    }
+    return found;
+  }
+
+  // Reads the next member of the root object. Returns true at the end of the root object.
+  private boolean readRootMember() throws IOException, JSONException {
+    int c = peekNonWhitespace();
+    if (c == '}') {
+      pos++;
+      return true;
+    }
+    if (!first) {
+      expect(',');
+    }
+    first = false;
+    String key = readString();
+    expect(':');
+    if (GEOJSON_FEATURES.equals(key) && peekNonWhitespace() == '[') {
+      pos++;
+      state = STATE_FEATURES;
+      first = true;
+    } else {
+      Object value = readValue();
+      if (GEOJSON_TYPE.equals(key) && value instanceof String) {
+        type = (String) value;
+      }
+    }
+    return false;
+  }
+
+  // Reads the next feature in the features array. Returns null at the end of the array.
+  private YailList readFeature() throws IOException, JSONException {
+    int c = peekNonWhitespace();
+    if (c == ']') {
+      pos++;
+      return null;
+    }
+    if (!first) {
+      expect(',');
+    }
+    first = false;
+    if (peekNonWhitespace() != '{') {
+      throw syntaxError("Expected a feature object");
+    }
+    return (YailList) readValue();
+  }
+
+  private Object readValue() throws IOException, JSONException {
+    int c = peekNonWhitespace();
+    switch (c) {
+      case '{':
+        pos++;
+        return readObject();
+      case '[':
+        pos++;
+        return readArray();
+      case '"':
+        return readString();
+      case 't':
+        expectWord("true");
+        return Boolean.TRUE;
+      case 'f':
+        expectWord("false");
+        return Boolean.FALSE;
+      case 'n':
+        expectWord("null");
+        return NULL;
+      default:
+        return readNumber();
+    }
+  }
+
+  private YailList readObject() throws IOException, JSONException {
+    List<YailList> pairs = new ArrayList<YailList>();
+    if (peekNonWhitespace() == '}') {
+      pos++;
+      return YailList.makeList(pairs);
+    }
+    while (true) {
+      String key = readString();
+      expect(':');
+      Object value = readValue();
+      if (value != NULL) {
+        pairs.add(YailList.makeList(new Object[] { key, value }));
+      }
+      int c = peekNonWhitespace();
+      pos++;
+      if (c == '}') {
+        return YailList.makeList(pairs);
+      } else if (c != ',') {
+        throw syntaxError("Expected , or }");
+      }
+    }
+  }
+
+  private YailList readArray() throws IOException, JSONException {
+    List<Object> items = new ArrayList<Object>();
+    if (peekNonWhitespace() == ']') {
+      pos++;
+      return YailList.makeList(items);
+    }
+    while (true) {
+      Object value = readValue();
+      if (value != NULL) {
+        items.add(value);
+      }
+      int c = peekNonWhitespace();
+      pos++;
+      if (c == ']') {
+        return YailList.makeList(items);
+      } else if (c != ',') {
+        throw syntaxError("Expected , or ]");
+      }
+    }
+  }
+
+  private String readString() throws IOException, JSONException {
+    if (peekNonWhitespace() != '"') {
+      throw syntaxError("Expected a string");
+    }
+    pos++;
+    StringBuilder sb = new StringBuilder();
+    while (true) {
+      int c = read();
+      if (c == '"') {
+        return sb.toString();
+      } else if (c == '\\') {
+        c = read();
+        switch (c) {
+          case 'b': sb.append('\b'); break;
+          case 'f': sb.append('\f'); break;
+          case 'n': sb.append('\n'); break;
+          case 'r': sb.append('\r'); break;
+          case 't': sb.append('\t'); break;
+          case 'u':
+            int code = 0;
+            for (int i = 0; i < 4; i++) {
+              int digit = Character.digit(read(), 16);
+              if (digit < 0) {
+                throw syntaxError("Invalid unicode escape");
+              }
+              code = code * 16 + digit;
+            }
+            sb.append((char) code);
+            break;
+          default:
+            sb.append((char) c);
+        }
+      } else if (c < 0) {
+        throw syntaxError("Unterminated string");
+      } else {
+        sb.append((char) c);
+      }
+    }
+  }
+
+  private Number readNumber() throws IOException, JSONException {
+    StringBuilder sb = new StringBuilder();
+    boolean integer = true;
+    while (true) {
+      int c = peek();
+      if (c == '.' || c == 'e' || c == 'E') {
+        integer = false;
+      } else if (!(c == '-' || c == '+' || ('0' <= c && c <= '9'))) {
+        break;
+      }
+      sb.append((char) c);
+      pos++;
+    }
+    String text = sb.toString();
+    try {
+      if (integer) {
+        long value = Long.parseLong(text);
+        if (value == (int) value) {
+          return (int) value;
+        }
+        return value;
+      }
+      return Double.parseDouble(text);
+    } catch (NumberFormatException e) {
+      throw syntaxError("Invalid value \"" + text + "\"");
+    }
+  }
+
+  private void expect(char expected) throws IOException, JSONException {
+    if (peekNonWhitespace() != expected) {
+      throw syntaxError("Expected " + expected);
+    }
+    pos++;
+  }
+
+  private void expectWord(String word) throws IOException, JSONException {
+    for (int i = 0; i < word.length(); i++) {
+      if (read() != word.charAt(i)) {
+        throw syntaxError("Expected " + word);
+      }
+    }
+  }
+
+  private int peekNonWhitespace() throws IOException {
+    while (true) {
+      int c = peek();
+      if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+        pos++;
+      } else {
+        return c;
+      }
+    }
+  }
+
+  private int peek() throws IOException {
+    if (pos == limit) {
+      limit = in.read(buffer, 0, buffer.length);
+      pos = 0;
+      if (limit <= 0) {
+        limit = 0;
+        return -1;
+      }
+    }
+    return buffer[pos];
+  }
+
+  private int read() throws IOException {
+    int c = peek();
+    if (c >= 0) {
+      pos++;
+    }
+    return c;
+  }
+
+  private JSONException syntaxError(String message) {
+    return new JSONException(message + " after feature " + featureCount);
+  }
+}
@@ -9,6 +9,7 @@ package com.google.appinventor.components.runtime.util;
 import android.app.Activity;
 import android.content.Intent;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.nfc.NdefMessage;
 import android.nfc.NdefRecord;
 import android.nfc.NfcAdapter;
@@ -44,6 +45,16 @@ public class GingerbreadUtil {
     return new CookieManager();
   }
 
+  /**
+   * Applies the changes of the given editor to its SharedPreferences. Unlike
+   * commit, the changes are written to storage in the background.
+   *
+   * @param editor the editor holding the changes
+   */
+  public static void applyPreferences(SharedPreferences.Editor editor) {
+    editor.apply();
+  }
+
   /**
    * Clears the cookies in the given cookie handler. Cookies can only be cleared if the
    * cookieHandler is a CookieManager with a non-null CookieStore.
@@ -0,0 +1,284 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A normalized cache of GraphQL query results.
+ *
+ * Every object in a result that has both an {@code id} and a
+ * {@code __typename} is an entity. Entities are stored once, keyed by
+ * {@code __typename:id}, and the cached result keeps a reference to the entity
+ * along with the names of the fields the query selected. When a later query or
+ * mutation returns the same entity, its fields are merged into the stored
+ * entity, so every cached result that refers to it sees the new values.
+ *
+ * Fields are stored under their response names, so two queries that select
+ * the same field of an entity with different arguments will overwrite each
+ * other's values.
+ *
+ * Results expire a fixed time after they were written, so that changes made
+ * to the data by others are eventually seen. Entities are dropped once no
+ * remaining result refers to them.
+ */
+public class GqlCache {
+
+  private static final String REF = "__ref";
+  private static final String FIELDS = "__fields";
+
+  // Thrown when a cached result refers to an entity field that is not stored
+  private static class MissingFieldException extends Exception {
+  }
+
+  // A normalized result and the time at which it was written
+  private static class Result {
+    final Object data;
+    final long written;
+
+    Result(Object data, long written) {
+      this.data = data;
+      this.written = written;
+    }
+  }
+
+  private final Map<String, JSONObject> entities = new HashMap<String, JSONObject>();
+  private final Map<String, Result> results;
+  private final long maxAge;
+  // Whether entities may have been left without a result that refers to them
+  private boolean unreferencedEntities;
+
+  /**
+   * Creates a cache that keeps the results of up to {@code maxResults}
+   * queries, dropping the least recently used first. Results are dropped
+   * {@code maxAge} milliseconds after they were written.
+   */
+  public GqlCache(final int maxResults, long maxAge) {
+    this.maxAge = maxAge;
+    results = new LinkedHashMap<String, Result>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+        if (size() > maxResults) {
+          unreferencedEntities = true;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns true if the result of {@code query} may be cached. Mutations and
+   * subscriptions are never answered from the cache.
+   */
+  public static boolean isCacheable(String query) {
+    int i = 0;
+    while (i < query.length()) {
+      char c = query.charAt(i);
+      if (c == '#') {
+        // Skip the comment
+        while (i < query.length() && query.charAt(i) != '\n') {
+          i++;
+        }
+      } else if (Character.isWhitespace(c) || c == ',') {
+        i++;
+      } else {
+        break;
+      }
+    }
+    String rest = query.substring(i);
+    return !rest.startsWith("mutation") && !rest.startsWith("subscription");
+  }
+
+  /**
+   * Returns the key of an entity, or null if the object is not an entity.
+   */
+  public static String entityKey(JSONObject object) {
+    Object typename = object.opt("__typename");
+    Object id = object.opt("id");
+    if (typename == null || id == null || id == JSONObject.NULL) {
+      return null;
+    }
+    return typename + ":" + id;
+  }
+
+  /**
+   * Stores the data of a response. The entities in the data are merged into
+   * the cache. If {@code key} is not null, the data is also stored as the
+   * result for {@code key}.
+   */
+  public synchronized void write(String key, JSONObject data) throws JSONException {
+    Object normalized = normalize(data);
+    if (key == null || results.put(key, new Result(normalized, now())) != null) {
+      unreferencedEntities = true;
+    }
+    pruneEntities();
+  }
+
+  /**
+   * Returns the data stored for {@code key}, with the current values of its
+   * entities, or null if there is none.
+   */
+  public synchronized JSONObject read(String key) throws JSONException {
+    Result result = results.get(key);
+    if (result == null) {
+      return null;
+    }
+    if (now() - result.written > maxAge) {
+      removeResult(key);
+      return null;
+    }
+    try {
+      return (JSONObject) denormalize(result.data);
+    } catch (MissingFieldException e) {
+      removeResult(key);
+      return null;
+    }
+  }
+
+  public synchronized int entityCount() {
+    return entities.size();
+  }
+
+  public synchronized int resultCount() {
+    return results.size();
+  }
+
+  /**
+   * Removes every entity and result.
+   */
+  public synchronized void clear() {
+    entities.clear();
+    results.clear();
+    unreferencedEntities = false;
+  }
+
+  // Returns the current time in milliseconds. Tests override it.
+  long now() {
+    return System.currentTimeMillis();
+  }
+
+  private void removeResult(String key) {
+    results.remove(key);
+    unreferencedEntities = true;
+    pruneEntities();
+  }
+
+  // Drops the entities that no result refers to, directly or through other entities
+  private void pruneEntities() {
+    if (!unreferencedEntities) {
+      return;
+    }
+    Set<String> referenced = new HashSet<String>();
+    for (Result result : results.values()) {
+      markReferenced(result.data, referenced);
+    }
+    entities.keySet().retainAll(referenced);
+    unreferencedEntities = false;
+  }
+
+  private void markReferenced(Object value, Set<String> referenced) {
+    if (value instanceof JSONArray) {
+      JSONArray array = (JSONArray) value;
+      for (int i = 0; i < array.length(); i++) {
+        markReferenced(array.opt(i), referenced);
+      }
+    } else if (value instanceof JSONObject) {
+      JSONObject object = (JSONObject) value;
+      String key = object.optString(REF, null);
+      if (key != null) {
+        if (referenced.add(key)) {
+          markReferenced(entities.get(key), referenced);
+        }
+        return;
+      }
+      Iterator keys = object.keys();
+      while (keys.hasNext()) {
+        markReferenced(object.opt((String) keys.next()), referenced);
+      }
+    }
+  }
+
+  private Object normalize(Object value) throws JSONException {
+    if (value instanceof JSONArray) {
+      JSONArray array = (JSONArray) value;
+      JSONArray out = new JSONArray();
+      for (int i = 0; i < array.length(); i++) {
+        out.put(normalize(array.get(i)));
+      }
+      return out;
+    } else if (value instanceof JSONObject) {
+      JSONObject object = (JSONObject) value;
+      JSONObject out = new JSONObject();
+      JSONArray names = new JSONArray();
+      Iterator keys = object.keys();
+      while (keys.hasNext()) {
+        String name = (String) keys.next();
+        out.put(name, normalize(object.get(name)));
+        names.put(name);
+      }
+      String key = entityKey(object);
+      if (key == null) {
+        return out;
+      }
+      JSONObject entity = entities.get(key);
+      if (entity == null) {
+        entities.put(key, out);
+      } else {
+        for (int i = 0; i < names.length(); i++) {
+          entity.put(names.getString(i), out.get(names.getString(i)));
+        }
+      }
+      JSONObject ref = new JSONObject();
+      ref.put(REF, key);
+      ref.put(FIELDS, names);
+      return ref;
+    }
+    return value;
+  }
+
+  private Object denormalize(Object value) throws JSONException, MissingFieldException {
+    if (value instanceof JSONArray) {
+      JSONArray array = (JSONArray) value;
+      JSONArray out = new JSONArray();
+      for (int i = 0; i < array.length(); i++) {
+        out.put(denormalize(array.get(i)));
+      }
+      return out;
+    } else if (value instanceof JSONObject) {
+      JSONObject object = (JSONObject) value;
+      JSONObject out = new JSONObject();
+      if (object.has(REF)) {
+        JSONObject entity = entities.get(object.getString(REF));
+        JSONArray names = object.getJSONArray(FIELDS);
+        for (int i = 0; i < names.length(); i++) {
+          String name = names.getString(i);
+          if (entity == null || !entity.has(name)) {
+            throw new MissingFieldException();
+          }
+          out.put(name, denormalize(entity.get(name)));
+        }
+      } else {
+        Iterator keys = object.keys();
+        while (keys.hasNext()) {
+          String name = (String) keys.next();
+          out.put(name, denormalize(object.get(name)));
+        }
+      }
+      return out;
+    }
+    return value;
+  }
+}
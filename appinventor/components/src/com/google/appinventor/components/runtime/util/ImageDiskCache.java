@@ -0,0 +1,294 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * An on-disk cache of images downloaded over HTTP.
+ *
+ * The image at a URL, such as an image from a web cam, may change over
+ * time, so a cached image is never used without asking the server first.
+ * Images are stored with the ETag or Last-Modified header they were served
+ * with, and later requests for the same URL are made conditional on them.
+ * If the server answers 304 Not Modified, the cached image is used and only
+ * the headers have crossed the network. Images served without either
+ * header, or with Cache-Control: no-store, are not cached.
+ */
+public class ImageDiskCache {
+
+  private static final String LOG_TAG = "ImageDiskCache";
+  private static final int MAX_REDIRECTS = 5;
+  private static final String META_SUFFIX = ".meta";
+
+  /**
+   * The result of fetching an image.
+   */
+  public static class Response {
+    private final byte[] bytes;
+    private final File file;
+    private final String validator;
+    private final boolean notModified;
+
+    Response(byte[] bytes, File file, String validator, boolean notModified) {
+      this.bytes = bytes;
+      this.file = file;
+      this.validator = validator;
+      this.notModified = notModified;
+    }
+
+    /**
+     * Returns the ETag or Last-Modified value of the image, which changes
+     * whenever the image does, or null if the server sent neither.
+     */
+    public String getValidator() {
+      return validator;
+    }
+
+    /**
+     * Returns true if the server said the cached image is still current.
+     */
+    public boolean isNotModified() {
+      return notModified;
+    }
+
+    /**
+     * Returns the contents of the image.
+     */
+    public byte[] getBytes() throws IOException {
+      return bytes != null ? bytes : readFile(file);
+    }
+  }
+
+  private final File dir;
+  private final long maxSize;
+  private long hits = 0;
+  private long misses = 0;
+
+  /**
+   * Creates a cache.
+   *
+   * @param dir the directory to keep the images in
+   * @param maxSize the maximum number of bytes of images to keep
+   */
+  public ImageDiskCache(File dir, long maxSize) {
+    this.dir = dir;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Fetches an image, using the cached copy if the server says it is
+   * still current.
+   *
+   * @param url the http or https URL of the image
+   * @return the response
+   * @throws IOException if the image could not be fetched
+   */
+  public Response fetch(String url) throws IOException {
+    String name = hash(url);
+    File data = new File(dir, name);
+    File meta = new File(dir, name + META_SUFFIX);
+    String[] validators = data.exists() ? readMeta(meta) : null;
+
+    HttpURLConnection conn = open(url, validators);
+    try {
+      int response = conn.getResponseCode();
+      if (response == HttpURLConnection.HTTP_NOT_MODIFIED && validators != null) {
+        synchronized (this) {
+          hits++;
+        }
+        data.setLastModified(System.currentTimeMillis());  // Recently used
+        return new Response(null, data, validatorOf(validators[0], validators[1]), true);
+      }
+      synchronized (this) {
+        misses++;
+      }
+      byte[] bytes = readStream(conn.getInputStream());
+      String etag = conn.getHeaderField("ETag");
+      String lastModified = conn.getHeaderField("Last-Modified");
+      String cacheControl = conn.getHeaderField("Cache-Control");
+      String validator = validatorOf(etag, lastModified);
+      if (validator != null && (cacheControl == null || !cacheControl.contains("no-store"))) {
+        store(data, meta, bytes, etag, lastModified);
+      } else {
+        data.delete();
+        meta.delete();
+      }
+      return new Response(bytes, null, validator, false);
+    } finally {
+      conn.disconnect();
+    }
+  }
+
+  public synchronized long hitCount() {
+    return hits;
+  }
+
+  public synchronized long missCount() {
+    return misses;
+  }
+
+  private static HttpURLConnection open(String url, String[] validators) throws IOException {
+    for (int i = 0; i < MAX_REDIRECTS; i++) {
+      HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+      conn.setInstanceFollowRedirects(true);
+      conn.setDoInput(true);
+      if (validators != null) {
+        if (validators[0] != null) {
+          conn.setRequestProperty("If-None-Match", validators[0]);
+        }
+        if (validators[1] != null) {
+          conn.setRequestProperty("If-Modified-Since", validators[1]);
+        }
+      }
+      conn.connect();
+      int response = conn.getResponseCode();
+      if (response >= 300 && response <= 399 && response != HttpURLConnection.HTTP_NOT_MODIFIED) {
+        // Redirects between http and https are not followed automatically
+        url = conn.getHeaderField("Location");
+        Log.d(LOG_TAG, "Redirecting to " + url);
+        conn.disconnect();
+        continue;
+      }
+      return conn;
+    }
+    throw new IOException("Too many redirects");
+  }
+
+  private synchronized void store(File data, File meta, byte[] bytes, String etag,
+      String lastModified) {
+    if (bytes.length > maxSize || (!dir.exists() && !dir.mkdirs())) {
+      return;
+    }
+    try {
+      OutputStream out = new FileOutputStream(data);
+      try {
+        out.write(bytes);
+      } finally {
+        out.close();
+      }
+      FileWriter writer = new FileWriter(meta);
+      try {
+        writer.write((etag == null ? "" : etag) + "\n" + (lastModified == null ? "" : lastModified));
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      Log.w(LOG_TAG, "Unable to cache image", e);
+      data.delete();
+      meta.delete();
+      return;
+    }
+    trim();
+  }
+
+  // Deletes the least recently used images until the cache fits in maxSize
+  private void trim() {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    long size = 0;
+    for (File file : files) {
+      size += file.length();
+    }
+    if (size <= maxSize) {
+      return;
+    }
+    Arrays.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(File a, File b) {
+        long diff = a.lastModified() - b.lastModified();
+        return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+      }
+    });
+    for (File file : files) {
+      if (size <= maxSize) {
+        break;
+      }
+      if (file.getName().endsWith(META_SUFFIX)) {
+        continue;
+      }
+      size -= file.length();
+      file.delete();
+      File meta = new File(dir, file.getName() + META_SUFFIX);
+      size -= meta.length();
+      meta.delete();
+    }
+  }
+
+  private static String[] readMeta(File meta) {
+    try {
+      BufferedReader reader = new BufferedReader(new FileReader(meta));
+      try {
+        String etag = reader.readLine();
+        String lastModified = reader.readLine();
+        return new String[] {
+          etag == null || etag.length() == 0 ? null : etag,
+          lastModified == null || lastModified.length() == 0 ? null : lastModified
+        };
+      } finally {
+        reader.close();
+      }
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static String validatorOf(String etag, String lastModified) {
+    return etag != null ? etag : lastModified;
+  }
+
+  private static byte[] readFile(File file) throws IOException {
+    return readStream(new FileInputStream(file));
+  }
+
+  private static byte[] readStream(InputStream in) throws IOException {
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buf = new byte[4096];
+      int read;
+      while ((read = in.read(buf)) > 0) {
+        out.write(buf, 0, read);
+      }
+      return out.toByteArray();
+    } finally {
+      in.close();
+    }
+  }
+
+  private static String hash(String url) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-1");
+      StringBuilder sb = new StringBuilder();
+      for (byte b : md.digest(url.getBytes("UTF-8"))) {
+        sb.append(String.format("%02x", b));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      return Integer.toHexString(url.hashCode());
+    } catch (IOException e) {
+      return Integer.toHexString(url.hashCode());
+    }
+  }
+}
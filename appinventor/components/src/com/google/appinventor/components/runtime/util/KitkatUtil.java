@@ -10,6 +10,9 @@ import java.util.Collections;
 import java.util.List;
 
 import android.content.Intent;
+import android.hardware.Sensor;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
 import android.os.Build;
 import android.provider.Telephony.Sms.Intents;
 import android.telephony.SmsMessage;
@@ -69,4 +72,18 @@ public final class KitkatUtil {
       return view.getHeight();
     }
   }
+
+  /**
+   * Registers a sensor listener with hardware batching, so that the sensor may hold samples for
+   * up to maxReportLatencyMs milliseconds before delivering them together.
+   *
+   * @return true if the sensor was registered
+   */
+  public static boolean registerListener(SensorManager sensorManager, SensorEventListener listener,
+      Sensor sensor, int samplingPeriodUs, int maxReportLatencyMs) {
+    // The latency is given to the sensor in microseconds, which overflows an int after about
+    // 35 minutes
+    int maxReportLatencyUs = (int) Math.min(maxReportLatencyMs * 1000L, Integer.MAX_VALUE);
+    return sensorManager.registerListener(listener, sensor, samplingPeriodUs, maxReportLatencyUs);
+  }
 }
@@ -538,6 +538,57 @@ public final class MapFactory {
      */
     int getOverlayCount();
 
+    /**
+     * Sets whether nearby markers are drawn as a single cluster marker when the map is zoomed out.
+     *
+     * @param cluster true if markers should be clustered, otherwise false
+     */
+    void setFeatureClustering(boolean cluster);
+
+    /**
+     * Gets whether nearby markers are clustered.
+     *
+     * @return true if markers are clustered, otherwise false
+     */
+    boolean isFeatureClustering();
+
+    /**
+     * Sets whether only the features that intersect the visible area of the map are added to the
+     * map as overlays.
+     *
+     * @param cull true if features outside of the visible area should be removed, otherwise false
+     */
+    void setFeatureCulling(boolean cull);
+
+    /**
+     * Gets whether features outside of the visible area are removed from the map.
+     *
+     * @return true if features are culled, otherwise false
+     */
+    boolean isFeatureCulling();
+
+    /**
+     * Gets the number of features drawn individually by the last render of the map.
+     *
+     * @return the number of rendered features
+     */
+    int getRenderedFeatureCount();
+
+    /**
+     * Gets the number of visible features that were left off the map by the last render because
+     * they were outside of the visible area.
+     *
+     * @return the number of culled features
+     */
+    int getCulledFeatureCount();
+
+    /**
+     * Gets the number of cluster markers drawn by the last render of the map.
+     *
+     * @return the number of clusters
+     */
+    int getClusterCount();
+
     /**
      * Sets the rotation of the map in degrees
      * @param Rotation in degrees
@@ -0,0 +1,180 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups points that would be drawn close to each other on a map.
+ *
+ * Points are projected into Web Mercator pixel coordinates at the current
+ * zoom level and bucketed into a grid of square cells. All of the points
+ * in a cell form one cluster, so the number of clusters is bounded by the
+ * number of cells on the screen rather than by the number of points.
+ *
+ * @param <T> the type of the items being clustered
+ */
+public class MarkerClusterer<T> {
+
+  private static final int TILE_SIZE = 256;
+
+  /**
+   * A group of items in the same grid cell.
+   *
+   * @param <T> the type of the items being clustered
+   */
+  public static class Cluster<T> {
+    private final List<T> items = new ArrayList<T>();
+    private double latitudeSum = 0;
+    private double longitudeSum = 0;
+    private double north = -90;
+    private double south = 90;
+    private double east = -180;
+    private double west = 180;
+
+    void add(T item, double latitude, double longitude) {
+      items.add(item);
+      latitudeSum += latitude;
+      longitudeSum += longitude;
+      north = Math.max(north, latitude);
+      south = Math.min(south, latitude);
+      east = Math.max(east, longitude);
+      west = Math.min(west, longitude);
+    }
+
+    public List<T> getItems() {
+      return items;
+    }
+
+    public int size() {
+      return items.size();
+    }
+
+    public double getLatitude() {
+      return latitudeSum / items.size();
+    }
+
+    public double getLongitude() {
+      return longitudeSum / items.size();
+    }
+
+    public double getNorth() {
+      return north;
+    }
+
+    public double getSouth() {
+      return south;
+    }
+
+    public double getEast() {
+      return east;
+    }
+
+    public double getWest() {
+      return west;
+    }
+  }
+
+  private static class Point<T> {
+    final T item;
+    final double latitude;
+    final double longitude;
+
+    Point(T item, double latitude, double longitude) {
+      this.item = item;
+      this.latitude = latitude;
+      this.longitude = longitude;
+    }
+  }
+
+  private final int cellSize;
+  private final Map<Long, Cluster<T>> cells = new LinkedHashMap<Long, Cluster<T>>();
+  private final List<Point<T>> points = new ArrayList<Point<T>>();
+
+  /**
+   * Creates a clusterer.
+   *
+   * @param cellSize the width and height of a grid cell, in pixels
+   */
+  public MarkerClusterer(int cellSize) {
+    this.cellSize = cellSize;
+  }
+
+  /**
+   * Adds an item to be clustered.
+   */
+  public void add(T item, double latitude, double longitude) {
+    points.add(new Point<T>(item, latitude, longitude));
+  }
+
+  /**
+   * Removes all of the items.
+   */
+  public void clear() {
+    points.clear();
+    cells.clear();
+  }
+
+  /**
+   * Returns the number of items added since the last {@link #clear()}.
+   */
+  public int size() {
+    return points.size();
+  }
+
+  /**
+   * Groups the items for the given zoom level. Clusters are returned in the
+   * order their first item was added.
+   *
+   * @param zoom the zoom level of the map
+   * @return the clusters, including clusters of a single item
+   */
+  public List<Cluster<T>> cluster(double zoom) {
+    cells.clear();
+    double worldSize = TILE_SIZE * Math.pow(2, zoom);
+    for (Point<T> point : points) {
+      long x = (long) Math.floor(projectX(point.longitude, worldSize) / cellSize);
+      long y = (long) Math.floor(projectY(point.latitude, worldSize) / cellSize);
+      Long key = (x << 32) ^ (y & 0xffffffffL);
+      Cluster<T> cluster = cells.get(key);
+      if (cluster == null) {
+        cluster = new Cluster<T>();
+        cells.put(key, cluster);
+      }
+      cluster.add(point.item, point.latitude, point.longitude);
+    }
+    return new ArrayList<Cluster<T>>(cells.values());
+  }
+
+  /**
+   * Tests whether two bounding boxes overlap. The second box may cross the
+   * antimeridian, in which case its west edge is greater than its east edge.
+   */
+  public static boolean intersects(double north1, double east1, double south1, double west1,
+      double north2, double east2, double south2, double west2) {
+    if (south1 > north2 || north1 < south2) {
+      return false;
+    }
+    if (west2 <= east2) {
+      return west1 <= east2 && east1 >= west2;
+    }
+    return east1 >= west2 || west1 <= east2;
+  }
+
+  private static double projectX(double longitude, double worldSize) {
+    return (longitude + 180.0) / 360.0 * worldSize;
+  }
+
+  private static double projectY(double latitude, double worldSize) {
+    // Clamp to the latitudes Web Mercator can represent
+    double lat = Math.max(-85.05112878, Math.min(85.05112878, latitude));
+    double sin = Math.sin(Math.toRadians(lat));
+    return (0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * worldSize;
+  }
+}
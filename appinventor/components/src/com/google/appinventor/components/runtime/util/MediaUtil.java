@@ -61,6 +61,20 @@ public class MediaUtil {
   // tempFileMap maps cached media (assets, etc) to their respective temp files.
   private static final Map<String, File> tempFileMap = new HashMap<String, File>();
 
+  // bitmapCache maps images to their decoded bitmaps, keyed by the path, the version of the
+  // image and the size it was decoded for. It uses up to an eighth of the memory of the app.
+  private static final ByteSizedLruCache<String, Bitmap> bitmapCache =
+      new ByteSizedLruCache<String, Bitmap>(Runtime.getRuntime().maxMemory() / 8) {
+        @Override
+        protected int sizeOf(Bitmap bitmap) {
+          return bitmap.getRowBytes() * bitmap.getHeight();
+        }
+      };
+
+  // Images from the internet, revalidated with the server before each use
+  private static final long IMAGE_DISK_CACHE_SIZE = 10 * 1024 * 1024;
+  private static ImageDiskCache imageDiskCache;
+
   // this class is used by getBitmapDrawable so it can call the asynchronous version
   // (getBitMapDrawableAsync) and await the result (blocking the UI Thread :-()
   private static class Synchronizer<T> {
@@ -435,9 +449,35 @@ public class MediaUtil {
    */
   public static BitmapDrawable getBitmapDrawable(Form form, String mediaPath)
     throws IOException {
+    return getBitmapDrawable(form, mediaPath, 0, 0);
+  }
+
+  /**
+   * Loads the image specified by mediaPath and returns a Drawable, decoding
+   * the image at a reduced resolution if it is much larger than the size it
+   * will be shown at.
+   *
+   * @param form the Form
+   * @param mediaPath the path to the media
+   * @param desiredWidth the width the image will be shown at, in pixels, or 0 if not known
+   * @param desiredHeight the height the image will be shown at, in pixels, or 0 if not known
+   * @return a Drawable or null
+   */
+  public static BitmapDrawable getBitmapDrawable(Form form, String mediaPath, int desiredWidth,
+      int desiredHeight) throws IOException {
     if (mediaPath == null || mediaPath.length() == 0) {
       return null;
     }
+    // Skip the trip to the background thread if we have the image already
+    MediaSource mediaSource = determineMediaSource(form, mediaPath);
+    if (mediaSource != MediaSource.URL) {
+      String key = bitmapCacheKey(form, mediaPath, mediaSource, null, desiredWidth,
+          desiredHeight);
+      Bitmap cached = key == null ? null : bitmapCache.get(key);
+      if (cached != null) {
+        return toBitmapDrawable(form, cached);
+      }
+    }
     final Synchronizer syncer = new Synchronizer<BitmapDrawable>();
     final AsyncCallbackPair<BitmapDrawable> continuation = new AsyncCallbackPair<BitmapDrawable>() {
         @Override
@@ -449,7 +489,7 @@ public class MediaUtil {
           syncer.wakeup(result);
         }
       };
-    getBitmapDrawableAsync(form, mediaPath, continuation);
+    getBitmapDrawableAsync(form, mediaPath, desiredWidth, desiredHeight, continuation);
     syncer.waitfor();
     BitmapDrawable result = (BitmapDrawable) syncer.getResult();
     if (result == null) {
@@ -476,6 +516,27 @@ public class MediaUtil {
    * handler will be triggered.
    */
   public static void getBitmapDrawableAsync(final Form form, final String mediaPath, final AsyncCallbackPair<BitmapDrawable> continuation) {
+    getBitmapDrawableAsync(form, mediaPath, 0, 0, continuation);
+  }
+
+  /**
+   * Loads the image specified by mediaPath and returns a Drawable, decoding
+   * the image at a reduced resolution if it is much larger than the size it
+   * will be shown at.
+   *
+   * <p/>If mediaPath is null or empty, null is returned.
+   *
+   * @param form the Form
+   * @param mediaPath the path to the media
+   * @param desiredWidth the width the image will be shown at, in pixels, or 0 if not known
+   * @param desiredHeight the height the image will be shown at, in pixels, or 0 if not known
+   * @param continuation An AsyncCallbackPair that will receive a
+   * BitmapDrawable on success. On exception or failure the appropriate
+   * handler will be triggered.
+   */
+  public static void getBitmapDrawableAsync(final Form form, final String mediaPath,
+      final int desiredWidth, final int desiredHeight,
+      final AsyncCallbackPair<BitmapDrawable> continuation) {
     if (mediaPath == null || mediaPath.length() == 0) {
       continuation.onSuccess(null);
       return;
@@ -486,23 +547,35 @@ public class MediaUtil {
     Runnable loadImage = new Runnable() {
       @Override
       public void run() {
-        // Unlike other types of media, we don't cache image files from the internet to temp files.
         // The image at a particular URL, such as an image from a web cam, may change over time.
         // When the app says to fetch the image, we need to get the latest image, not one that we
-        // cached previously.
+        // cached previously. So images from the internet are only taken from the caches after
+        // the server has told us they have not changed.
 
         Log.d(LOG_TAG, "mediaPath = " + mediaPath);
-        InputStream is = null;
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        byte[] buf = new byte[4096];
-        int read;
+        String key;
+        byte[] buf;
         try {
-          // copy the input stream to an in-memory buffer
-          is = openMedia(form, mediaPath, mediaSource);
-          while ((read = is.read(buf)) > 0) {
-            bos.write(buf, 0, read);
+          if (mediaSource == MediaSource.URL && mediaPath.startsWith("http")) {
+            ImageDiskCache.Response response = getImageDiskCache(form).fetch(mediaPath);
+            key = bitmapCacheKey(form, mediaPath, mediaSource, response.getValidator(),
+                desiredWidth, desiredHeight);
+            Bitmap cached = key == null ? null : bitmapCache.get(key);
+            if (cached != null && response.isNotModified()) {
+              continuation.onSuccess(toBitmapDrawable(form, cached));
+              return;
+            }
+            buf = response.getBytes();
+          } else {
+            key = bitmapCacheKey(form, mediaPath, mediaSource, null, desiredWidth,
+                desiredHeight);
+            Bitmap cached = key == null ? null : bitmapCache.get(key);
+            if (cached != null) {
+              continuation.onSuccess(toBitmapDrawable(form, cached));
+              return;
+            }
+            buf = readMedia(form, mediaPath, mediaSource);
           }
-          buf = bos.toByteArray();
         } catch (PermissionException e) {
           continuation.onFailure("PERMISSION_DENIED:" + e.getPermissionNeeded());
           return;
@@ -518,29 +591,14 @@ public class MediaUtil {
           Log.d(LOG_TAG, "IOException reading file.", e);
           continuation.onFailure(e.getMessage());
           return;
-        } finally {
-          if (is != null) {
-            try {
-              is.close();
-            } catch(IOException e) {
-              // suppress error on close
-              Log.w(LOG_TAG, "Unexpected error on close", e);
-            }
-          }
-          is = null;
-          try {
-            bos.close();
-          } catch(IOException e) {
-            // Should never fail to close a ByteArrayOutputStream
-          }
-          bos = null;
         }
         ByteArrayInputStream bis = new ByteArrayInputStream(buf);
-        read = buf.length;
+        int read = buf.length;
         buf = null;
         try {
           bis.mark(read);
-          BitmapFactory.Options options = getBitmapOptions(form, bis, mediaPath);
+          BitmapFactory.Options options = getBitmapOptions(form, bis, mediaPath, desiredWidth,
+              desiredHeight);
           bis.reset();
           BitmapDrawable originalBitmapDrawable = new BitmapDrawable(form.getResources(), decodeStream(bis, null, options));
           // If options.inSampleSize == 1, then the image was not unreasonably large and may represent
@@ -558,6 +616,7 @@ public class MediaUtil {
 
           originalBitmapDrawable.setTargetDensity(form.getResources().getDisplayMetrics());
           if ((options.inSampleSize != 1) || (form.deviceDensity() == 1.0f)) {
+            cacheBitmap(key, originalBitmapDrawable.getBitmap());
             continuation.onSuccess(originalBitmapDrawable);
             return;
           }
@@ -572,6 +631,7 @@ public class MediaUtil {
           scaledBitmapDrawable.setTargetDensity(form.getResources().getDisplayMetrics());
           originalBitmapDrawable = null; // So it will get GC'd on the next line
           System.gc();                   // We likely used a lot of memory, so gc now.
+          cacheBitmap(key, scaledBitmap);
           continuation.onSuccess(scaledBitmapDrawable);
         } catch(Exception e) {
           Log.w(LOG_TAG, "Exception while loading media.", e);
@@ -591,6 +651,116 @@ public class MediaUtil {
     AsynchUtil.runAsynchronously(loadImage);
   }
 
+  // Reads all of the media into an in-memory buffer
+  private static byte[] readMedia(Form form, String mediaPath, MediaSource mediaSource)
+      throws IOException {
+    InputStream is = openMedia(form, mediaPath, mediaSource);
+    try {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      byte[] buf = new byte[4096];
+      int read;
+      while ((read = is.read(buf)) > 0) {
+        bos.write(buf, 0, read);
+      }
+      return bos.toByteArray();
+    } finally {
+      try {
+        is.close();
+      } catch(IOException e) {
+        // suppress error on close
+        Log.w(LOG_TAG, "Unexpected error on close", e);
+      }
+    }
+  }
+
+  private static synchronized ImageDiskCache getImageDiskCache(Context context) {
+    if (imageDiskCache == null) {
+      imageDiskCache = new ImageDiskCache(new File(context.getCacheDir(), "AI_Images"),
+          IMAGE_DISK_CACHE_SIZE);
+    }
+    return imageDiskCache;
+  }
+
+  /**
+   * Returns the key of an image in the bitmap cache, or null if the image
+   * cannot be cached because we cannot tell when it changes.
+   *
+   * @param form the Form
+   * @param mediaPath the path to the media
+   * @param mediaSource the source of the media
+   * @param validator the ETag or Last-Modified value of an image from the internet
+   * @param desiredWidth the width the image will be shown at, or 0 if not known
+   * @param desiredHeight the height the image will be shown at, or 0 if not known
+   */
+  private static String bitmapCacheKey(Form form, String mediaPath, MediaSource mediaSource,
+      String validator, int desiredWidth, int desiredHeight) {
+    String version;
+    switch (mediaSource) {
+      case ASSET:
+        // Assets are part of the app and never change
+        version = "";
+        break;
+      case REPL_ASSET:
+        // The Blocks Editor can replace assets in the companion
+        version = Long.toString(
+            new File(URI.create(form.getAssetPath(mediaPath))).lastModified());
+        break;
+      case SDCARD:
+        version = Long.toString(new File(mediaPath).lastModified());
+        break;
+      case FILE_URL:
+        try {
+          version = Long.toString(new File(fileUrlToFilePath(mediaPath)).lastModified());
+        } catch (IOException e) {
+          return null;
+        }
+        break;
+      case URL:
+        if (validator == null) {
+          return null;
+        }
+        version = validator;
+        break;
+      default:
+        return null;
+    }
+    return mediaPath + "|" + version + "|" + desiredWidth + "x" + desiredHeight;
+  }
+
+  private static void cacheBitmap(String key, Bitmap bitmap) {
+    if (key != null && bitmap != null) {
+      bitmapCache.put(key, bitmap);
+    }
+  }
+
+  // Decoded bitmaps are immutable, so one bitmap can be shared by many drawables
+  private static BitmapDrawable toBitmapDrawable(Form form, Bitmap bitmap) {
+    BitmapDrawable drawable = new BitmapDrawable(form.getResources(), bitmap);
+    drawable.setTargetDensity(form.getResources().getDisplayMetrics());
+    return drawable;
+  }
+
+  /**
+   * Returns the statistics of the image caches, for logging.
+   */
+  public static String getImageCacheStatistics() {
+    String statistics = "bitmaps: " + bitmapCache;
+    synchronized (MediaUtil.class) {
+      if (imageDiskCache != null) {
+        statistics += " disk: hits=" + imageDiskCache.hitCount()
+            + " misses=" + imageDiskCache.missCount();
+      }
+    }
+    return statistics;
+  }
+
+  /**
+   * Drops all of the decoded bitmaps, for example when memory is low.
+   */
+  public static void clearBitmapCache() {
+    bitmapCache.clear();
+  }
+
   private static Bitmap decodeStream(InputStream is, Rect outPadding, BitmapFactory.Options opts) {
     // We wrap a FlushedInputStream around the given InputStream. This works around a problem in
     // BitmapFactory.decodeStream where it fails to load the image if the InputStream's skip method
@@ -624,7 +794,8 @@ public class MediaUtil {
     }
   }
 
-  private static BitmapFactory.Options getBitmapOptions(Form form, InputStream is, String mediaPath) {
+  private static BitmapFactory.Options getBitmapOptions(Form form, InputStream is, String mediaPath,
+      int desiredWidth, int desiredHeight) {
     // Get the size of the image.
     BitmapFactory.Options options = new BitmapFactory.Options();
     options.inJustDecodeBounds = true;
@@ -656,6 +827,16 @@ public class MediaUtil {
     while ((imageWidth / sampleSize > maxWidth) && (imageHeight / sampleSize > maxHeight)) {
       sampleSize *= 2;
     }
+    // If we know how large the image will be shown, decode it at the smallest resolution that
+    // still has at least as many pixels as the view it is shown in.
+    if (desiredWidth > 0 && desiredHeight > 0) {
+      int targetWidth = (int) (desiredWidth * form.deviceDensity());
+      int targetHeight = (int) (desiredHeight * form.deviceDensity());
+      while ((imageWidth / (sampleSize * 2) >= targetWidth)
+          && (imageHeight / (sampleSize * 2) >= targetHeight)) {
+        sampleSize *= 2;
+      }
+    }
     options = new BitmapFactory.Options();
     Log.d(LOG_TAG, "getBitmapOptions: sampleSize = " + sampleSize + " mediaPath = " + mediaPath
       + " maxWidth = " + maxWidth + " maxHeight = " + maxHeight +
@@ -6,7 +6,9 @@
 package com.google.appinventor.components.runtime.util;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Picture;
 import android.graphics.drawable.BitmapDrawable;
@@ -52,6 +54,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -84,6 +87,7 @@ import org.osmdroid.views.overlay.infowindow.OverlayInfoWindow;
 import org.osmdroid.views.overlay.mylocation.IMyLocationConsumer;
 import org.osmdroid.views.overlay.mylocation.IMyLocationProvider;
 import org.osmdroid.views.overlay.mylocation.MyLocationNewOverlay;
+import org.locationtech.jts.geom.Envelope;
 
 class NativeOpenStreetMapController implements MapController, MapListener {
   /* copied from SVG */
@@ -106,7 +110,7 @@ class NativeOpenStreetMapController implements MapController, MapListener {
   private final MyLocationNewOverlay userLocation;
   private RotationGestureOverlay rotation = null;
   private Set<MapEventListener> eventListeners = new HashSet<MapEventListener>();
-  private Map<MapFeature, OverlayWithIW> featureOverlays = new HashMap<MapFeature, OverlayWithIW>();
+  private Map<MapFeature, OverlayWithIW> featureOverlays = new LinkedHashMap<MapFeature, OverlayWithIW>();
   private SVG defaultMarkerSVG = null;
   private TouchOverlay touch = null;
   private OverlayInfoWindow defaultInfoWindow = null;
@@ -127,6 +131,34 @@ class NativeOpenStreetMapController implements MapController, MapListener {
    */
   private Set<MapFeature> hiddenFeatures = new HashSet<>();
 
+  /*
+   * When clustering or culling is enabled, features are not added to the map as soon as they are
+   * shown. Instead, renderFeatures decides which overlays belong on the map for the current
+   * bounds and zoom level. It runs at most once every RENDER_DELAY ms while the map is moving.
+   */
+  private static final int CLUSTER_CELL_SIZE = 64;  // dp
+  private static final int CLUSTER_ICON_SIZE = 36;  // dp
+  private static final int CLUSTER_COLOR = 0xE01565C0;
+  private static final double MAX_CLUSTER_ZOOM = 17;
+  private static final float CULL_MARGIN = 1.2f;
+  private static final long RENDER_DELAY = 100;  // ms
+  private boolean clusterFeatures = false;
+  private boolean cullFeatures = false;
+  private boolean renderPending = false;
+  private final MarkerClusterer<MapMarker> clusterer = new MarkerClusterer<MapMarker>(
+      CLUSTER_CELL_SIZE);
+  private final List<Marker> clusterMarkers = new ArrayList<Marker>();
+  private final Map<String, Drawable> clusterIcons = new HashMap<String, Drawable>();
+  private int renderedFeatureCount = 0;
+  private int culledFeatureCount = 0;
+  private int clusterCount = 0;
+  private final Runnable renderFeatures = new Runnable() {
+    @Override
+    public void run() {
+      renderFeatures();
+    }
+  };
+
   private static final float[] ANCHOR_HORIZONTAL = { Float.NaN, 0.0f, 1.0f, 0.5f };
   private static final float[] ANCHOR_VERTICAL = { Float.NaN, 0.0f, 0.5f, 1.0f };
 
@@ -268,6 +300,9 @@ class NativeOpenStreetMapController implements MapController, MapListener {
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
       scrollTo(getScrollX() + (oldw - w) / 2, getScrollY() + (oldh - h) / 2);
       super.onSizeChanged(w, h, oldw, oldh);
+      if (clusterFeatures || cullFeatures) {
+        scheduleRender();
+      }
     }
 
     @Override
@@ -727,6 +762,9 @@ class NativeOpenStreetMapController implements MapController, MapListener {
   public void removeFeature(MapFeature aiFeature) {
     view.getOverlayManager().remove(featureOverlays.get(aiFeature));
     featureOverlays.remove(aiFeature);
+    if (clusterFeatures || cullFeatures) {
+      scheduleRender();
+    }
   }
 
   @Override
@@ -736,7 +774,7 @@ class NativeOpenStreetMapController implements MapController, MapListener {
       marker.setAnchor(ANCHOR_HORIZONTAL[aiMarker.AnchorHorizontal()],
           ANCHOR_VERTICAL[aiMarker.AnchorVertical()]);
       marker.setPosition(new GeoPoint(aiMarker.Latitude(), aiMarker.Longitude()));
-      view.invalidate();
+      featureMoved();
     }
   }
 
@@ -745,7 +783,7 @@ class NativeOpenStreetMapController implements MapController, MapListener {
     Polyline overlay = (Polyline) featureOverlays.get(aiPolyline);
     if (overlay != null) {
       overlay.setPoints(aiPolyline.getPoints());
-      view.invalidate();
+      featureMoved();
     }
   }
 
@@ -754,7 +792,7 @@ class NativeOpenStreetMapController implements MapController, MapListener {
     MultiPolygon polygon = (MultiPolygon) featureOverlays.get(aiPolygon);
     if (polygon != null) {
       polygon.setMultiPoints(aiPolygon.getPoints());
-      view.invalidate();
+      featureMoved();
     }
   }
 
@@ -763,7 +801,7 @@ class NativeOpenStreetMapController implements MapController, MapListener {
     MultiPolygon polygon = (MultiPolygon) featureOverlays.get(aiPolygon);
     if (polygon != null) {
       polygon.setMultiHoles(aiPolygon.getHolePoints());
-      view.invalidate();
+      featureMoved();
     }
   }
 
@@ -774,7 +812,7 @@ class NativeOpenStreetMapController implements MapController, MapListener {
     if (polygon != null) {
       List<GeoPoint> geopoints = Polygon.pointsAsCircle(center, aiCircle.Radius());
       polygon.setPoints(geopoints);
-      view.invalidate();
+      featureMoved();
     }
   }
 
@@ -786,7 +824,7 @@ class NativeOpenStreetMapController implements MapController, MapListener {
       List<GeoPoint> geopoints = (List) Polygon.pointsAsRect(new BoundingBox(aiRectangle.NorthLatitude(),
           aiRectangle.EastLongitude(), aiRectangle.SouthLatitude(), aiRectangle.WestLongitude()));
       polygon.setPoints(geopoints);
-      view.invalidate();
+      featureMoved();
     }
   }
 
@@ -1165,6 +1203,10 @@ class NativeOpenStreetMapController implements MapController, MapListener {
   }
 
   protected void showOverlay(OverlayWithIW overlay) {
+    if (clusterFeatures || cullFeatures) {
+      scheduleRender();
+      return;
+    }
     view.getOverlayManager().add(overlay);
     view.invalidate();
   }
@@ -1176,15 +1218,163 @@ class NativeOpenStreetMapController implements MapController, MapListener {
 
   protected void hideOverlay(OverlayWithIW overlay) {
     view.getOverlayManager().remove(overlay);
+    if (clusterFeatures || cullFeatures) {
+      // The feature may be counted in a cluster marker
+      scheduleRender();
+    }
     view.invalidate();
   }
 
   @Override
   public boolean isFeatureVisible(MapFeature feature) {
+    if (clusterFeatures || cullFeatures) {
+      // The overlay may be off the map because it is clustered or out of view
+      return featureOverlays.containsKey(feature) && isShown(feature);
+    }
     OverlayWithIW overlay = featureOverlays.get(feature);
     return overlay != null && view.getOverlayManager().contains(overlay);
   }
 
+  private boolean isShown(MapFeature feature) {
+    return feature.Visible() && !hiddenFeatures.contains(feature);
+  }
+
+  private void featureMoved() {
+    if (clusterFeatures || cullFeatures) {
+      scheduleRender();
+    } else {
+      view.invalidate();
+    }
+  }
+
+  private void scheduleRender() {
+    if (!renderPending) {
+      renderPending = true;
+      view.postDelayed(renderFeatures, RENDER_DELAY);
+    }
+  }
+
+  /**
+   * Updates which overlays are on the map. Markers that are close to each other at the current
+   * zoom level are replaced by a single cluster marker, and features that do not intersect the
+   * visible area are left off the map so that they cost nothing to draw.
+   */
+  private void renderFeatures() {
+    renderPending = false;
+    BoundingBox bbox = view.getBoundingBox().increaseByScale(CULL_MARGIN);
+    // The bounding box is meaningless until the map has been laid out
+    boolean cull = cullFeatures && view.getWidth() > 0 && view.getHeight() > 0;
+    double zoom = view.getZoomLevelDouble();
+    boolean cluster = clusterFeatures && zoom < MAX_CLUSTER_ZOOM;
+    Set<Overlay> managed = new HashSet<Overlay>(featureOverlays.values());
+    managed.addAll(clusterMarkers);
+    List<Overlay> wanted = new ArrayList<Overlay>();
+    int rendered = 0;
+    int culled = 0;
+    int clusters = 0;
+    clusterer.clear();
+    for (Map.Entry<MapFeature, OverlayWithIW> entry : featureOverlays.entrySet()) {
+      MapFeature feature = entry.getKey();
+      if (!isShown(feature)) {
+        continue;
+      }
+      if (cluster && feature instanceof MapMarker) {
+        MapMarker marker = (MapMarker) feature;
+        clusterer.add(marker, marker.Latitude(), marker.Longitude());
+      } else if (cull && !isInView(feature, bbox)) {
+        culled++;
+      } else {
+        wanted.add(entry.getValue());
+        rendered++;
+      }
+    }
+    // Tiles are scaled to the screen density, so the zoom level already works in dp, like the
+    // cell size of the clusterer
+    for (MarkerClusterer.Cluster<MapMarker> group : clusterer.cluster(zoom)) {
+      if (cull && !MarkerClusterer.intersects(group.getNorth(), group.getEast(), group.getSouth(),
+          group.getWest(), bbox.getLatNorth(), bbox.getLonEast(), bbox.getLatSouth(),
+          bbox.getLonWest())) {
+        culled += group.size();
+      } else if (group.size() == 1) {
+        wanted.add(featureOverlays.get(group.getItems().get(0)));
+        rendered++;
+      } else {
+        Marker clusterMarker = getClusterMarker(clusters++);
+        clusterMarker.setPosition(new GeoPoint(group.getLatitude(), group.getLongitude()));
+        clusterMarker.setIcon(getClusterIcon(group.size()));
+        wanted.add(clusterMarker);
+      }
+    }
+    clusterer.clear();
+    // Replace the overlays in two bulk operations, since each change to the overlay list copies it
+    List<Overlay> overlays = view.getOverlayManager().overlays();
+    overlays.removeAll(managed);
+    overlays.addAll(wanted);
+    renderedFeatureCount = rendered;
+    culledFeatureCount = culled;
+    clusterCount = clusters;
+    view.invalidate();
+  }
+
+  private static boolean isInView(MapFeature feature, BoundingBox bbox) {
+    if (feature instanceof MapMarker) {
+      MapMarker marker = (MapMarker) feature;
+      return MarkerClusterer.intersects(marker.Latitude(), marker.Longitude(), marker.Latitude(),
+          marker.Longitude(), bbox.getLatNorth(), bbox.getLonEast(), bbox.getLatSouth(),
+          bbox.getLonWest());
+    }
+    Envelope envelope = feature.getGeometry().getEnvelopeInternal();
+    return MarkerClusterer.intersects(envelope.getMaxY(), envelope.getMaxX(), envelope.getMinY(),
+        envelope.getMinX(), bbox.getLatNorth(), bbox.getLonEast(), bbox.getLatSouth(),
+        bbox.getLonWest());
+  }
+
+  private Marker getClusterMarker(int index) {
+    if (index < clusterMarkers.size()) {
+      return clusterMarkers.get(index);
+    }
+    Marker clusterMarker = new Marker(view);
+    clusterMarker.setAnchor(Marker.ANCHOR_CENTER, Marker.ANCHOR_CENTER);
+    clusterMarker.setOnMarkerClickListener(new OnMarkerClickListener() {
+      @Override
+      public boolean onMarkerClick(Marker marker, MapView mapView) {
+        // Zoom in on the cluster until its markers separate
+        view.getController().animateTo(marker.getPosition());
+        view.getController().zoomIn();
+        return true;
+      }
+
+      @Override
+      public boolean onMarkerLongPress(Marker marker, MapView mapView) {
+        return false;
+      }
+    });
+    clusterMarkers.add(clusterMarker);
+    return clusterMarker;
+  }
+
+  private Drawable getClusterIcon(int count) {
+    String label = count < 1000 ? Integer.toString(count) : "999+";
+    Drawable icon = clusterIcons.get(label);
+    if (icon == null) {
+      final float density = view.getContext().getResources().getDisplayMetrics().density;
+      int size = (int) (CLUSTER_ICON_SIZE * density);
+      Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+      Canvas canvas = new Canvas(bitmap);
+      Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+      paint.setColor(CLUSTER_COLOR);
+      canvas.drawCircle(size / 2.0f, size / 2.0f, size / 2.0f, paint);
+      paint.setColor(Color.WHITE);
+      paint.setTextAlign(Paint.Align.CENTER);
+      paint.setTextSize(size / 3.0f);
+      canvas.drawText(label, size / 2.0f, size / 2.0f - (paint.descent() + paint.ascent()) / 2,
+          paint);
+      icon = new BitmapDrawable(view.getResources(), bitmap);
+      clusterIcons.put(label, icon);
+    }
+    return icon;
+  }
+
   @Override
   public boolean isFeatureCollectionVisible(MapFeatureCollection collection) {
     return !hiddenFeatureCollections.contains(collection);
@@ -1245,6 +1435,9 @@ class NativeOpenStreetMapController implements MapController, MapListener {
 
   @Override
   public boolean onScroll(ScrollEvent event) {
+    if (clusterFeatures || cullFeatures) {
+      scheduleRender();
+    }
     for (MapEventListener listener : eventListeners) {
       listener.onBoundsChanged();
     }
@@ -1254,6 +1447,9 @@ class NativeOpenStreetMapController implements MapController, MapListener {
   @Override
   public boolean onZoom(ZoomEvent event) {
     zoomControls.updateButtons();
+    if (clusterFeatures || cullFeatures) {
+      scheduleRender();
+    }
     for (MapEventListener listener : eventListeners) {
       listener.onZoom();
     }
@@ -1271,6 +1467,43 @@ class NativeOpenStreetMapController implements MapController, MapListener {
     return view.getOverlays().size();
   }
 
+  @Override
+  public void setFeatureClustering(boolean cluster) {
+    clusterFeatures = cluster;
+    scheduleRender();
+  }
+
+  @Override
+  public boolean isFeatureClustering() {
+    return clusterFeatures;
+  }
+
+  @Override
+  public void setFeatureCulling(boolean cull) {
+    cullFeatures = cull;
+    scheduleRender();
+  }
+
+  @Override
+  public boolean isFeatureCulling() {
+    return cullFeatures;
+  }
+
+  @Override
+  public int getRenderedFeatureCount() {
+    return renderedFeatureCount;
+  }
+
+  @Override
+  public int getCulledFeatureCount() {
+    return culledFeatureCount;
+  }
+
+  @Override
+  public int getClusterCount() {
+    return clusterCount;
+  }
+
   @Override
   public void setRotation(float Rotation) {
     view.setMapOrientation(Rotation);
@@ -16,6 +16,7 @@ import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.query.Syntax;
 import com.hp.hpl.jena.rdf.model.Literal;
 import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.Property;
 import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Resource;
@@ -53,6 +54,7 @@ import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
@@ -448,6 +450,103 @@ public final class RdfUtil {
     return triplifyContainerOrForm(form, subject, model);
   }
 
+  /**
+   * Given a semantic form, find the triples that have changed since the form
+   * was last submitted with the same <i>triples</i>. Only the fields whose
+   * subject, property, concept or value have changed are converted into
+   * triples again.
+   * @param form Semantic Form used to generate an RDF graph
+   * @param subject URI used to represent the subject of the graph
+   * @param model Model whose prefixes are used to expand CURIEs
+   * @param triples The triples of the last submission, which are updated
+   * @param added Model to receive the triples that were not in the last submission
+   * @param removed Model to receive the triples that are no longer generated
+   * @return true if the form was converted successfully, otherwise false, in
+   * which case <i>triples</i> is unchanged
+   */
+  public static boolean triplifyFormChanges(LinkedDataForm form, String subject, Model model,
+      FormTriples triples, Model added, Model removed) {
+    Log.i(LOG_TAG, "Triplifying changes to form for subject <"+subject+">");
+    triples.begin(subject);
+    if(!triplifyFormChanges(form, subject, model, triples)) {
+      triples.abort();
+      return false;
+    }
+    triples.commit(added, removed);
+    return true;
+  }
+
+  private static boolean triplifyFormChanges(LinkedDataForm form, String subject, Model model,
+      FormTriples triples) {
+    Object key = Arrays.asList(form, "type");
+    List<Object> state = Arrays.<Object>asList(subject, form.ObjectType());
+    if(triples.isCurrent(key, state)) {
+      triples.keep(key);
+    } else {
+      Model scratch = scratchModel(model);
+      String conceptUri = form.ObjectType();
+      if(conceptUri != null && conceptUri.length() != 0) {
+        scratch.add(scratch.getResource(subject), RDF.type, scratch.getResource(conceptUri));
+      }
+      triples.put(key, state, scratch.listStatements().toList());
+    }
+    return triplifyContainerOrFormChanges(form, subject, model, triples);
+  }
+
+  private static boolean triplifyContainerOrFormChanges(ComponentContainer<AndroidViewComponent> container,
+      String subject, Model model, FormTriples triples) {
+    for(AndroidViewComponent i : container) {
+      if(i instanceof LinkedDataForm) {
+        LinkedDataForm nestedForm = (LinkedDataForm)i;
+        if(nestedForm.PropertyURI() == null || nestedForm.PropertyURI().length() == 0) {
+          Log.w(LOG_TAG, "Found nested semantic form without a PropertyURI set");
+          continue;
+        }
+        String nestedSubject = generateSubjectForForm(nestedForm, triples.getSubject(nestedForm));
+        triples.putSubject(nestedForm, nestedSubject);
+        if(!triplifyFormChanges(nestedForm, nestedSubject, model, triples)) {
+          return false;
+        }
+        Object key = Arrays.asList(nestedForm, "link");
+        List<Object> state = Arrays.<Object>asList(subject, nestedForm.PropertyURI(), nestedSubject);
+        if(triples.isCurrent(key, state)) {
+          triples.keep(key);
+        } else {
+          Model scratch = scratchModel(model);
+          scratch.add(scratch.getResource(subject),
+              scratch.getProperty(scratch.expandPrefix(nestedForm.PropertyURI())),
+              scratch.getResource(nestedSubject));
+          triples.put(key, state, scratch.listStatements().toList());
+        }
+      } else if(i instanceof ComponentContainer) {
+        if(!triplifyContainerOrFormChanges((ComponentContainer)i, subject, model, triples)) {
+          return false;
+        }
+      } else if(i instanceof LDComponent) {
+        LDComponent component = (LDComponent)i;
+        List<Object> state = Arrays.asList(subject, component.PropertyURI(),
+            component.ObjectType(), component.Value());
+        if(triples.isCurrent(component, state)) {
+          triples.keep(component);
+          continue;
+        }
+        Model scratch = scratchModel(model);
+        if(!triplifyComponent(component, subject, scratch)) {
+          return false;
+        }
+        triples.put(component, state, scratch.listStatements().toList());
+      }
+    }
+    return true;
+  }
+
+  // Creates an empty model that expands CURIEs in the same way as model.
+  private static Model scratchModel(Model model) {
+    Model scratch = ModelFactory.createDefaultModel();
+    scratch.setNsPrefixes(model);
+    return scratch;
+  }
+
   private static String processSubfieldForSubject(LDComponent component,
       final StringBuilder builder) {
     Log.v(LOG_TAG, "  Processing LDComponent "+component);
@@ -514,6 +613,18 @@ public final class RdfUtil {
    * valid elements were found with SubjectIdentifier set to true
    */
   public static String generateSubjectForForm(final LinkedDataForm form) {
+    return generateSubjectForForm(form, null);
+  }
+
+  /**
+   * Given a linked data form, try to generate a subject URI from nested
+   * elements, reusing a previously generated URI if the form has no
+   * elements with SubjectIdentifier set to true.
+   * @param form Linked Data form to generate a URI for
+   * @param previous The URI previously generated for the form, or null
+   * @return A URI for the form
+   */
+  public static String generateSubjectForForm(final LinkedDataForm form, String previous) {
     StringBuilder subject = new StringBuilder();
     if(form.Subject() != null && form.Subject().length() != 0) {
       return form.Subject();
@@ -524,6 +635,9 @@ public final class RdfUtil {
       return fullUri;
     }
     if(subject.toString().equals(form.FormID())) {
+      if(previous != null) {
+        return previous;
+      }
       Log.d(LOG_TAG, "Form did not have URI fields; generating uuid URI");
       String uuid = UUID.randomUUID().toString();
       subject.append(uuid);
@@ -764,6 +878,104 @@ public final class RdfUtil {
     return success;
   }
 
+  /**
+   * Builds a SPARQL 1.1 Update request that deletes the triples in
+   * <i>removed</i> and then inserts the triples in <i>added</i> in the
+   * optionally named graph <i>graph</i>. Triples are written as N-Triples, so
+   * the request does not depend on any prefixes.
+   * @param removed RDF model of the triples to delete
+   * @param added RDF model of the triples to insert
+   * @param graph Optional graph URI to update. Pass null to update the
+   * default graph.
+   * @return the update request, or null if both models are empty
+   */
+  public static String buildUpdateData(Model removed, Model added, String graph) {
+    StringBuilder sb = new StringBuilder();
+    if(!removed.isEmpty()) {
+      appendDataBlock(sb, "DELETE DATA", removed, graph);
+    }
+    if(!added.isEmpty()) {
+      if(sb.length() != 0) {
+        sb.append(";\r\n");
+      }
+      appendDataBlock(sb, "INSERT DATA", added, graph);
+    }
+    return sb.length() == 0 ? null : sb.toString();
+  }
+
+  private static void appendDataBlock(StringBuilder sb, String operation, Model model,
+      String graph) {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    model.write(baos, "N-TRIPLE");
+    sb.append(operation);
+    sb.append(" {\r\n");
+    if(graph != null && graph.length() != 0) {
+      sb.append("GRAPH <"+graph+"> {\r\n");
+    }
+    try {
+      sb.append(baos.toString("UTF-8"));
+    } catch(UnsupportedEncodingException e) {
+      // UTF-8 is always supported
+      throw new IllegalStateException(e);
+    }
+    if(graph != null && graph.length() != 0) {
+      sb.append("}\r\n");
+    }
+    sb.append("}\r\n");
+  }
+
+  /**
+   * Sends a SPARQL 1.1 Update request, such as one built by
+   * {@link #buildUpdateData(Model, Model, String)}, to a remote triple store.
+   * @param uri URI for the update endpoint
+   * @param update The update request
+   * @return true on success, false otherwise.
+   */
+  public static boolean updateData(URI uri, String update) {
+    boolean success = false;
+    HttpURLConnection conn = null;
+    Log.i(LOG_TAG, "Sending update to server:");
+    Log.d(LOG_TAG, update);
+    try {
+      byte[] body = update.getBytes("UTF-8");
+      conn = (HttpURLConnection) uri.toURL().openConnection();
+      conn.setDoInput(true);
+      conn.setDoOutput(true);
+      conn.setRequestMethod("POST");
+      conn.setFixedLengthStreamingMode(body.length);
+      conn.setRequestProperty("Content-Type", "application/sparql-update;charset=utf-8");
+      conn.setRequestProperty("Accept", "*/*");
+      String userInfo = uri.getUserInfo();
+      if(userInfo != null && userInfo.length() != 0) {
+        if(!userInfo.contains(":")) {
+          userInfo = userInfo + ":";
+        }
+        String encodedInfo = Base64.encodeToString(userInfo.getBytes("UTF-8"), Base64.NO_WRAP).trim();
+        conn.setRequestProperty("Authorization", "Basic "+encodedInfo);
+      }
+      conn.connect();
+      OutputStream os = conn.getOutputStream();
+      os.write(body);
+      os.close();
+      int status = conn.getResponseCode();
+      Log.d(LOG_TAG, "HTTP Status = " + status);
+      if(status >= 200 && status < 300) {
+        success = true;
+      } else {
+        Log.w(LOG_TAG, "HTTP status for update was "+status);
+        Log.w(LOG_TAG, "HTTP response msg was "+conn.getResponseMessage());
+      }
+      conn.disconnect();
+    } catch (MalformedURLException e) {
+      Log.w(LOG_TAG, "Unable to update triples due to malformed URL.");
+    } catch (ProtocolException e) {
+      Log.w(LOG_TAG, "Unable to perform HTTP POST to given URI.", e);
+    } catch (IOException e) {
+      Log.w(LOG_TAG, "Unable to update triples due to communication issue.", e);
+    }
+    return success;
+  }
+
   /**
    * Performs a SPARQL 1.1 Update INSERT DATA operation on a remote triple
    * store by inserting the triples in <i>model</i> into the optionally named
@@ -1063,9 +1275,9 @@ public final class RdfUtil {
       for ( VariableBinding j : i ) {
         solution.add( YailList.makeList( j ) );
       }
-      list.add( YailList.makeList( solution ) );
+      list.add( ArrayYailList.makeList( solution ) );
     }
-    return YailList.makeList( list );
+    return ArrayYailList.makeList( list );
   }
 
   public static YailList resultSetAsYailDictionaryList(ResultSet results) {
@@ -0,0 +1,193 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A fixed size ring buffer of received bytes, filled by a background reader
+ * and drained by the UI thread.
+ *
+ * When the buffer is full the oldest bytes are dropped to make room for new
+ * ones, so that a slow consumer sees the most recent data. The number of bytes
+ * dropped is kept in {@link #getOverflowCount()}.
+ */
+public class ReceiveBuffer {
+
+  private final byte[] data;
+  private int head = 0;   // index of the oldest byte
+  private int size = 0;   // number of bytes in the buffer
+  private long overflowCount = 0;
+  private long receivedCount = 0;
+  private boolean closed = false;
+
+  /**
+   * Creates a buffer that holds up to {@code capacity} bytes.
+   */
+  public ReceiveBuffer(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    data = new byte[capacity];
+  }
+
+  public int getCapacity() {
+    return data.length;
+  }
+
+  /**
+   * Returns the number of bytes that can be taken from the buffer.
+   */
+  public synchronized int available() {
+    return size;
+  }
+
+  /**
+   * Returns the number of bytes dropped because the buffer was full.
+   */
+  public synchronized long getOverflowCount() {
+    return overflowCount;
+  }
+
+  /**
+   * Returns the number of bytes written to the buffer, including any that
+   * were later dropped.
+   */
+  public synchronized long getReceivedCount() {
+    return receivedCount;
+  }
+
+  /**
+   * Adds bytes to the buffer, dropping the oldest bytes if there is not
+   * enough room.
+   */
+  public synchronized void write(byte[] bytes, int offset, int length) {
+    receivedCount += length;
+    if (length >= data.length) {
+      // Only the last capacity bytes survive
+      overflowCount += size + length - data.length;
+      System.arraycopy(bytes, offset + length - data.length, data, 0, data.length);
+      head = 0;
+      size = data.length;
+    } else {
+      int excess = size + length - data.length;
+      if (excess > 0) {
+        overflowCount += excess;
+        head = (head + excess) % data.length;
+        size -= excess;
+      }
+      int tail = (head + size) % data.length;
+      int first = Math.min(length, data.length - tail);
+      System.arraycopy(bytes, offset, data, tail, first);
+      System.arraycopy(bytes, offset + first, data, 0, length - first);
+      size += length;
+    }
+    notifyAll();
+  }
+
+  /**
+   * Takes up to {@code length} bytes from the buffer without waiting.
+   *
+   * @return the number of bytes taken
+   */
+  public synchronized int read(byte[] bytes, int offset, int length) {
+    int count = Math.min(length, size);
+    int first = Math.min(count, data.length - head);
+    System.arraycopy(data, head, bytes, offset, first);
+    System.arraycopy(data, 0, bytes, offset + first, count - first);
+    head = (head + count) % data.length;
+    size -= count;
+    return count;
+  }
+
+  /**
+   * Takes every complete message from the buffer. If {@code batchSize} is
+   * positive, a message is {@code batchSize} bytes. Otherwise a message ends
+   * with {@code delimiter}, which is included in the message. Bytes of an
+   * incomplete message stay in the buffer.
+   */
+  public synchronized List<byte[]> takeMessages(int batchSize, byte delimiter) {
+    List<byte[]> messages = new ArrayList<byte[]>();
+    while (true) {
+      int length;
+      if (batchSize > 0) {
+        length = size >= batchSize ? batchSize : -1;
+      } else {
+        length = indexOf(delimiter) + 1;
+        if (length == 0) {
+          length = -1;
+        }
+      }
+      if (length < 0) {
+        return messages;
+      }
+      byte[] message = new byte[length];
+      read(message, 0, length);
+      messages.add(message);
+    }
+  }
+
+  /**
+   * Empties the buffer and wakes any thread waiting in the stream returned by
+   * {@link #getInputStream()}, which will then see the end of the stream.
+   */
+  public synchronized void close() {
+    closed = true;
+    head = 0;
+    size = 0;
+    notifyAll();
+  }
+
+  /**
+   * Returns a stream that takes bytes from this buffer, waiting for them if
+   * the buffer is empty, so that code written for the underlying stream can
+   * read from the buffer instead.
+   */
+  public InputStream getInputStream() {
+    return new InputStream() {
+      @Override
+      public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == 1 ? b[0] & 0xFF : -1;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+          return 0;
+        }
+        synchronized (ReceiveBuffer.this) {
+          while (size == 0 && !closed) {
+            try {
+              ReceiveBuffer.this.wait();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              throw new IOException("Interrupted while waiting for data");
+            }
+          }
+          return size == 0 ? -1 : ReceiveBuffer.this.read(b, off, len);
+        }
+      }
+
+      @Override
+      public int available() {
+        return ReceiveBuffer.this.available();
+      }
+    };
+  }
+
+  private int indexOf(byte value) {
+    for (int i = 0; i < size; i++) {
+      if (data[(head + i) % data.length] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
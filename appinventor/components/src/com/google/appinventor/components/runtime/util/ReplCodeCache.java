@@ -0,0 +1,123 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers the YAIL last evaluated by the companion for each top level
+ * block, so that a definition the Blocks Editor sends again unchanged (for
+ * example after it reconnects, or when it resends all of the blocks of a
+ * screen) is not parsed and evaluated a second time.
+ *
+ * Only event handler and procedure definitions are skipped. Evaluating them
+ * again has no effect other than replacing a definition with an identical
+ * one. Everything else, in particular global variable declarations which
+ * reset the value of the variable, is always evaluated.
+ *
+ * The cache must be cleared whenever the companion forgets its definitions,
+ * i.e., when the current form is cleared.
+ */
+public class ReplCodeCache {
+
+  private static final String[] DEFINITION_PREFIXES = {
+    "(define-event ",
+    "(define-generic-event ",
+    "(def (",
+  };
+
+  private final Map<String, String> digests = new HashMap<String, String>();
+
+  /**
+   * Checks whether the code for a block needs to be evaluated, and records
+   * it as evaluated if so.
+   *
+   * @param blockid the id of the block, as sent by the Blocks Editor
+   * @param code the YAIL for the block
+   * @return true if the code must be evaluated, false if the same
+   *     definition has already been evaluated for the block
+   */
+  public synchronized boolean shouldEvaluate(String blockid, String code) {
+    if (blockid == null || blockid.startsWith("-")) {
+      return true;
+    }
+    if (!isDefinition(code)) {
+      // The block no longer holds the definition recorded for it, e.g. a
+      // disabled event block sends the code to unregister its handler.
+      digests.remove(blockid);
+      return true;
+    }
+    String digest = digest(code);
+    if (digest.equals(digests.get(blockid))) {
+      return false;
+    }
+    digests.put(blockid, digest);
+    return true;
+  }
+
+  /**
+   * Forgets the code recorded for a block, for example because evaluating
+   * it failed.
+   *
+   * @param blockid the id of the block
+   */
+  public synchronized void forget(String blockid) {
+    if (blockid != null) {
+      digests.remove(blockid);
+    }
+  }
+
+  /**
+   * Forgets the code recorded for all blocks.
+   */
+  public synchronized void clear() {
+    digests.clear();
+  }
+
+  public synchronized int size() {
+    return digests.size();
+  }
+
+  /**
+   * Checks whether code is a single event handler or procedure definition.
+   *
+   * @param code the YAIL for a block
+   * @return true if the code defines an event handler or procedure
+   */
+  static boolean isDefinition(String code) {
+    if (code == null) {
+      return false;
+    }
+    String trimmed = code.trim();
+    for (String prefix : DEFINITION_PREFIXES) {
+      if (trimmed.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String digest(String code) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-1");
+      byte[] hash = md.digest(code.getBytes("UTF-8"));
+      StringBuilder sb = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        sb.append(String.format("%02x", b));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-1
+      return code;
+    } catch (UnsupportedEncodingException e) {
+      return code;
+    }
+  }
+}
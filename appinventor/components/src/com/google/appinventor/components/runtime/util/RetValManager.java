@@ -11,9 +11,6 @@ import android.util.Log;
 import com.google.appinventor.components.runtime.PhoneStatus;
 import com.google.appinventor.components.runtime.ReplForm;
 
-import java.util.ArrayList;
-
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -31,7 +28,7 @@ public class RetValManager {
   private static final long TENSECONDS = 10000; // Ten Seconds (in milliseconds)
 
   // There can be only one!
-  private static ArrayList<JSONObject> currentArray = new ArrayList<JSONObject>(10);
+  private static final RetValQueue queue = new RetValQueue();
 
   // Need a better place for this version string, but for various reasons, this is how we
   // are going to do this for now...
@@ -60,13 +57,7 @@ public class RetValManager {
         Log.e(LOG_TAG, "Error building retval", e);
         return;
       }
-      boolean sendNotify = currentArray.isEmpty();
-      currentArray.add(retval);
-      if (PhoneStatus.getUseWebRTC()) {
-        webRTCsendCurrent();
-      } else if (sendNotify) {
-        semaphore.notifyAll();
-      }
+      enqueue(retval);
     }
   }
 
@@ -81,13 +72,7 @@ public class RetValManager {
         Log.e(LOG_TAG, "Error building retval", e);
         return;
       }
-      boolean sendNotify = currentArray.isEmpty();
-      currentArray.add(retval);
-      if (PhoneStatus.getUseWebRTC()) {
-        webRTCsendCurrent();
-      } else if (sendNotify) {
-        semaphore.notifyAll();
-      }
+      enqueue(retval);
     }
   }
 
@@ -110,13 +95,7 @@ public class RetValManager {
         Log.e(LOG_TAG, "Error building retval", e);
         return;
       }
-      boolean sendNotify = currentArray.isEmpty();
-      currentArray.add(retval);
-      if (PhoneStatus.getUseWebRTC()) {
-        webRTCsendCurrent();
-      } else if (sendNotify) {
-        semaphore.notifyAll();
-      }
+      enqueue(retval);
     }
   }
 
@@ -138,13 +117,7 @@ public class RetValManager {
         Log.e(LOG_TAG, "Error building retval", e);
         return;
       }
-      boolean sendNotify = currentArray.isEmpty();
-      currentArray.add(retval);
-      if (PhoneStatus.getUseWebRTC()) {
-        webRTCsendCurrent();
-      } else if (sendNotify) {
-        semaphore.notifyAll();
-      }
+      enqueue(retval);
     }
   }
 
@@ -165,13 +138,7 @@ public class RetValManager {
         Log.e(LOG_TAG, "Error building retval", e);
         return;
       }
-      boolean sendNotify = currentArray.isEmpty();
-      currentArray.add(retval);
-      if (PhoneStatus.getUseWebRTC()) {
-        webRTCsendCurrent();
-      } else if (sendNotify) {
-        semaphore.notifyAll();
-      }
+      enqueue(retval);
     }
   }
 
@@ -189,13 +156,7 @@ public class RetValManager {
         Log.e(LOG_TAG, "Error building retval", e);
         return;
       }
-      boolean sendNotify = currentArray.isEmpty();
-      currentArray.add(retval);
-      if (PhoneStatus.getUseWebRTC()) {
-        webRTCsendCurrent();
-      } else if (sendNotify) {
-        semaphore.notifyAll();
-      }
+      enqueue(retval);
     }
   }
 
@@ -208,9 +169,28 @@ public class RetValManager {
    * @return String The JSON encoded array.
    */
   public static String fetch(boolean block) {
+    return fetch(block, -1);
+  }
+
+  /*
+   * fetch -- Fetch the results after the ones the Blocks Editor has
+   * already processed, as a JSON encoded array. Results stay pending
+   * until they are acknowledged by a later fetch, so none are lost
+   * if a response does not make it to the Blocks Editor.
+   *
+   * NOTE: This code is not used when we are using webrtc
+   *
+   * @param block true if we should block waiting for results
+   * @param ack The highest "seq" of the results processed by the
+   *            Blocks Editor, or -1 to fetch and drop all pending results
+   * @return String The JSON encoded array.
+   */
+  public static String fetch(boolean block, long ack) {
     long startTime = System.currentTimeMillis();
     synchronized (semaphore) {
-      while (currentArray.isEmpty() && block) {
+      ack = queue.validate(ack);
+      queue.acknowledge(ack);
+      while (!queue.hasPending(ack) && block) {
         long time = System.currentTimeMillis();
         if ((time - startTime) > (TENSECONDS - 100)) // Time to give up...
           break;
@@ -219,33 +199,46 @@ public class RetValManager {
         } catch (InterruptedException e) {
         }
       }
-      JSONArray arrayoutput = new JSONArray(currentArray);
-      JSONObject output = new JSONObject();
-      try {
-        output.put("status", "OK");
-        output.put("values", arrayoutput);
-      } catch (JSONException e) {
-        Log.e(LOG_TAG, "Error fetching retvals", e);
-        return("{\"status\" : \"BAD\", \"message\" : \"Failure in RetValManager\"}");
-      }
-      currentArray.clear();       // empty it out
-      return output.toString();
+      return output(queue.take(ack));
     }
   }
 
-  // Only used for webrtc. Note: Our caller is holding "semphore" so we don't
-  // need to worry about multi-thread synchonization here
-  private static void webRTCsendCurrent() {
+  /*
+   * getLatency -- The average time in milliseconds from a result being
+   * produced to the Blocks Editor acknowledging it, or -1 if not known.
+   */
+  public static double getLatency() {
+    synchronized (semaphore) {
+      return queue.getLatency();
+    }
+  }
+
+  // Our caller is holding "semaphore"
+  private static void enqueue(JSONObject retval) {
     try {
-      JSONObject output = new JSONObject();
-      output.put("status", "OK");
-      output.put("values", new JSONArray(currentArray));
-      ReplForm.returnRetvals(output.toString());
+      queue.add(retval);
     } catch (JSONException e) {
       Log.e(LOG_TAG, "Error building retval", e);
       return;
     }
-    currentArray.clear();
+    if (PhoneStatus.getUseWebRTC()) {
+      webRTCsendCurrent();
+    } else {
+      semaphore.notifyAll();
+    }
+  }
+
+  // The values are already JSON encoded, so we only wrap them up
+  private static String output(String values) {
+    return "{\"status\":\"OK\",\"values\":" + values + ",\"latency\":"
+        + Math.round(queue.getLatency()) + "}";
+  }
+
+  // Only used for webrtc. Note: Our caller is holding "semphore" so we don't
+  // need to worry about multi-thread synchonization here. The data channel
+  // is reliable and ordered, so results are not kept for acknowledgement.
+  private static void webRTCsendCurrent() {
+    ReplForm.returnRetvals(output(queue.take(-1)));
   }
 
 }
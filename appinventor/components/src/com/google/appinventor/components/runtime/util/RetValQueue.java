@@ -0,0 +1,149 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * An ordered queue of return values on their way from the Companion to the
+ * Blocks Editor.
+ *
+ * Every value is numbered in the order it was produced and encoded to JSON
+ * once, when it is added. Values are kept until the Blocks Editor
+ * acknowledges the highest sequence number it has processed, so a batch
+ * lost with a dropped connection is sent again and the Blocks Editor can
+ * discard values it receives twice. The time from adding a value to its
+ * acknowledgement is the round trip latency of the result channel.
+ *
+ * Blocks Editors that do not acknowledge values use a negative
+ * acknowledgement, in which case values are dropped as soon as they are
+ * taken, as before. If the Blocks Editor stops acknowledging values
+ * altogether, the queue keeps only the most recent values.
+ *
+ * This class is not thread safe; the RetValManager synchronizes access.
+ */
+public class RetValQueue {
+
+  private static class Entry {
+    final long seq;
+    final long time;
+    final String json;
+
+    Entry(long seq, long time, String json) {
+      this.seq = seq;
+      this.time = time;
+      this.json = json;
+    }
+  }
+
+  // Weight of the latest measurement in the moving average of the latency
+  private static final double LATENCY_WEIGHT = 0.2;
+
+  // Maximum number of values kept; the oldest values are dropped first
+  static final int MAX_SIZE = 1000;
+
+  private final LinkedList<Entry> entries = new LinkedList<Entry>();
+  private long nextSeq = 1;
+  private double latency = -1;
+
+  /**
+   * Numbers and encodes a value and adds it to the queue. If the queue is
+   * full, the oldest value is dropped.
+   *
+   * @param retval the value, which is modified to include its sequence number
+   * @return the sequence number of the value
+   */
+  public long add(JSONObject retval) throws JSONException {
+    long seq = nextSeq++;
+    retval.put("seq", seq);
+    entries.add(new Entry(seq, System.currentTimeMillis(), retval.toString()));
+    if (entries.size() > MAX_SIZE) {
+      entries.removeFirst();
+    }
+    return seq;
+  }
+
+  /**
+   * Checks an acknowledgement received from the Blocks Editor. An
+   * acknowledgement of a value that was never produced comes from a
+   * Blocks Editor that was talking to an earlier instance of the
+   * Companion, so none of our values have been processed.
+   *
+   * @param ack the acknowledgement received
+   * @return the acknowledgement to use
+   */
+  public long validate(long ack) {
+    return ack >= nextSeq ? 0 : ack;
+  }
+
+  /**
+   * Drops the values the Blocks Editor has acknowledged, updating the
+   * latency measurement.
+   *
+   * @param ack the highest sequence number the Blocks Editor has processed
+   */
+  public void acknowledge(long ack) {
+    long now = System.currentTimeMillis();
+    while (!entries.isEmpty() && entries.getFirst().seq <= ack) {
+      long sample = now - entries.removeFirst().time;
+      latency = latency < 0 ? sample : latency + LATENCY_WEIGHT * (sample - latency);
+    }
+  }
+
+  /**
+   * Checks whether there are values to send for an acknowledgement.
+   */
+  public boolean hasPending(long ack) {
+    return !entries.isEmpty() && entries.getLast().seq > ack;
+  }
+
+  /**
+   * Returns the values after the acknowledged sequence number as the text
+   * of a JSON array. With a negative acknowledgement, all values are
+   * returned and removed from the queue.
+   *
+   * @param ack the highest sequence number the Blocks Editor has processed
+   * @return the JSON encoded array of values
+   */
+  public String take(long ack) {
+    StringBuilder sb = new StringBuilder("[");
+    boolean first = true;
+    for (Iterator<Entry> it = entries.iterator(); it.hasNext(); ) {
+      Entry entry = it.next();
+      if (entry.seq <= ack) {
+        continue;
+      }
+      if (!first) {
+        sb.append(',');
+      }
+      sb.append(entry.json);
+      first = false;
+      if (ack < 0) {
+        it.remove();
+      }
+    }
+    return sb.append(']').toString();
+  }
+
+  /**
+   * Returns the number of values which have not been acknowledged.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the moving average of the time in milliseconds from producing a
+   * value to its acknowledgement, or -1 if no value has been acknowledged.
+   */
+  public double getLatency() {
+    return latency;
+  }
+}
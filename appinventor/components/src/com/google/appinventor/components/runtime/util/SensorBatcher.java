@@ -0,0 +1,192 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects sensor samples into batches so that a sensor component can raise
+ * one event for many samples instead of one event per sample.
+ *
+ * Samples are kept in primitive arrays sized for one batch, so adding a
+ * sample does not allocate. With a decimation of N, only one sample of every
+ * N is kept: either the first of each group of N, or, if averaging is on, the
+ * mean of the group.
+ *
+ * Timestamps are given in nanoseconds, as in {@code SensorEvent.timestamp},
+ * and reported in milliseconds since the epoch using the time base given to
+ * {@link #setTimeBase(long)}.
+ */
+public class SensorBatcher {
+
+  private final int axes;
+  private int batchSize = 0;
+  private int decimation = 1;
+  private boolean averaging = false;
+  private long timeBase = 0;
+
+  private long[] timestamps = new long[0];
+  private float[] values = new float[0];
+  private int size = 0;
+
+  // The group of samples being decimated
+  private final double[] sums;
+  private int groupCount = 0;
+  private long groupTimestamp;
+
+  /**
+   * Creates a batcher for samples with the given number of values.
+   */
+  public SensorBatcher(int axes) {
+    this.axes = axes;
+    this.sums = new double[axes];
+  }
+
+  /**
+   * Sets the number of kept samples in a batch. A size of 0 or less turns
+   * batching off. Any samples already collected are dropped.
+   */
+  public void setBatchSize(int batchSize) {
+    this.batchSize = Math.max(0, batchSize);
+    timestamps = new long[this.batchSize];
+    values = new float[this.batchSize * axes];
+    clear();
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public boolean isBatching() {
+    return batchSize > 0;
+  }
+
+  /**
+   * Sets the number of samples combined into each kept sample.
+   */
+  public void setDecimation(int decimation) {
+    this.decimation = Math.max(1, decimation);
+    groupCount = 0;
+  }
+
+  public int getDecimation() {
+    return decimation;
+  }
+
+  /**
+   * Sets whether a group of decimated samples is kept as its mean rather
+   * than as its first sample.
+   */
+  public void setAveraging(boolean averaging) {
+    this.averaging = averaging;
+    groupCount = 0;
+  }
+
+  public boolean isAveraging() {
+    return averaging;
+  }
+
+  /**
+   * Sets the wall clock time, in milliseconds, at which sensor timestamps
+   * were 0.
+   */
+  public void setTimeBase(long timeBase) {
+    this.timeBase = timeBase;
+  }
+
+  /**
+   * Returns the number of kept samples in the current batch.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Adds a sample. Only the first {@code axes} entries of {@code sample} are
+   * read.
+   *
+   * @return true if the batch is now full and should be taken
+   */
+  public boolean add(long timestamp, float[] sample) {
+    if (batchSize <= 0) {
+      return false;
+    }
+    if (groupCount == 0) {
+      groupTimestamp = timestamp;
+      for (int i = 0; i < axes; i++) {
+        sums[i] = 0;
+      }
+    }
+    if (averaging) {
+      for (int i = 0; i < axes; i++) {
+        sums[i] += sample[i];
+      }
+    } else if (groupCount == 0) {
+      for (int i = 0; i < axes; i++) {
+        sums[i] = sample[i];
+      }
+    }
+    if (++groupCount < decimation) {
+      return false;
+    }
+    if (size < batchSize) {
+      timestamps[size] = groupTimestamp;
+      int offset = size * axes;
+      for (int i = 0; i < axes; i++) {
+        values[offset + i] = (float) (averaging ? sums[i] / groupCount : sums[i]);
+      }
+      size++;
+    }
+    groupCount = 0;
+    return size >= batchSize;
+  }
+
+  /**
+   * Converts a sensor event timestamp to milliseconds since the epoch.
+   */
+  public long toWallTime(long timestamp) {
+    return timeBase + timestamp / 1000000L;
+  }
+
+  /**
+   * Returns the timestamp of the given kept sample in milliseconds since the
+   * epoch.
+   */
+  public long getTimestamp(int index) {
+    return timeBase + timestamps[index] / 1000000L;
+  }
+
+  public float getValue(int index, int axis) {
+    return values[index * axes + axis];
+  }
+
+  /**
+   * Returns the kept samples as a list of (timestamp value ...) lists and
+   * starts a new batch. A partly filled decimation group is carried over.
+   */
+  public YailList takeBatch() {
+    List<YailList> rows = new ArrayList<YailList>(size);
+    for (int i = 0; i < size; i++) {
+      Object[] row = new Object[axes + 1];
+      row[0] = getTimestamp(i);
+      for (int j = 0; j < axes; j++) {
+        row[j + 1] = getValue(i, j);
+      }
+      rows.add(YailList.makeList(row));
+    }
+    size = 0;
+    return YailList.makeList(rows);
+  }
+
+  /**
+   * Drops every collected sample.
+   */
+  public void clear() {
+    size = 0;
+    groupCount = 0;
+  }
+}
@@ -0,0 +1,126 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.quadtree.Quadtree;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An index of items by their bounding boxes, in degrees of longitude (x) and
+ * latitude (y), for finding the items near a point or in an area without
+ * looking at every item.
+ *
+ * The index is a JTS {@link Quadtree}, which, unlike the JTS STRtree, can
+ * have items added and removed after it has been queried. Items move by
+ * being inserted again with their new bounding box.
+ *
+ * @param <T> the type of the items in the index
+ */
+public class SpatialIndex<T> {
+
+  private final Quadtree tree = new Quadtree();
+  private final Map<T, Envelope> envelopes = new HashMap<T, Envelope>();
+
+  /**
+   * Adds an item to the index, replacing any earlier bounding box for it.
+   */
+  public synchronized void insert(T item, Envelope envelope) {
+    remove(item);
+    Envelope copy = new Envelope(envelope);
+    envelopes.put(item, copy);
+    tree.insert(copy, item);
+  }
+
+  /**
+   * Removes an item from the index.
+   */
+  public synchronized void remove(T item) {
+    Envelope envelope = envelopes.remove(item);
+    if (envelope != null) {
+      tree.remove(envelope, item);
+    }
+  }
+
+  /**
+   * Removes all of the items from the index.
+   */
+  public synchronized void clear() {
+    for (Map.Entry<T, Envelope> entry : envelopes.entrySet()) {
+      tree.remove(entry.getValue(), entry.getKey());
+    }
+    envelopes.clear();
+  }
+
+  public synchronized boolean contains(T item) {
+    return envelopes.containsKey(item);
+  }
+
+  public synchronized int size() {
+    return envelopes.size();
+  }
+
+  /**
+   * Returns the items whose bounding boxes intersect the given box. If west is
+   * greater than east, the box crosses the antimeridian.
+   */
+  public synchronized List<T> query(double north, double east, double south, double west) {
+    Set<T> result = new LinkedHashSet<T>();
+    if (west <= east) {
+      query(new Envelope(west, east, south, north), result);
+    } else {
+      query(new Envelope(west, 180, south, north), result);
+      query(new Envelope(-180, east, south, north), result);
+    }
+    return new ArrayList<T>(result);
+  }
+
+  /**
+   * Returns the items whose bounding boxes come within {@code distance}
+   * meters of the given point, measured along the surface of the Earth.
+   * Callers should check the actual distance to each item, since the corners
+   * of a bounding box may be closer to the point than the item itself.
+   */
+  public List<T> queryDistance(double latitude, double longitude, double distance) {
+    double angle = distance / GeometryUtil.EARTH_RADIUS;
+    double dLat = Math.toDegrees(angle);
+    double north = latitude + dLat;
+    double south = latitude - dLat;
+    double cos = Math.cos(Math.toRadians(latitude));
+    if (north >= 90 || south <= -90 || Math.sin(angle) >= cos) {
+      // The circle contains a pole, so it spans every longitude
+      return query(Math.min(north, 90), 180, Math.max(south, -90), -180);
+    }
+    double dLon = Math.toDegrees(Math.asin(Math.sin(angle) / cos));
+    double west = longitude - dLon;
+    double east = longitude + dLon;
+    if (dLon >= 180) {
+      west = -180;
+      east = 180;
+    } else {
+      west = west < -180 ? west + 360 : west;
+      east = east > 180 ? east - 360 : east;
+    }
+    return query(north, east, south, west);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void query(Envelope search, Set<T> result) {
+    for (Object item : tree.query(search)) {
+      // The quadtree returns every item in the nodes it visits, not only the ones that intersect
+      Envelope envelope = envelopes.get(item);
+      if (envelope != null && envelope.intersects(search)) {
+        result.add((T) item);
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records how long a screen takes to create each of its components, set
+ * their designer properties and run their Initialize methods.
+ */
+public class StartupTrace {
+
+  public static final int CONSTRUCT = 0;
+  public static final int PROPERTIES = 1;
+  public static final int INITIALIZE = 2;
+
+  private static final double NANOS_PER_MILLI = 1000000.0;
+
+  private final Map<String, long[]> entries = new LinkedHashMap<String, long[]>();
+  private long startNanos = System.nanoTime();
+  private long endNanos = -1;
+
+  /**
+   * Starts the trace over.
+   */
+  public synchronized void start() {
+    entries.clear();
+    startNanos = System.nanoTime();
+    endNanos = -1;
+  }
+
+  /**
+   * Marks the end of the startup of the screen.
+   */
+  public synchronized void finish() {
+    endNanos = System.nanoTime();
+  }
+
+  /**
+   * Adds time spent on a component.
+   *
+   * @param component the name of the component
+   * @param phase one of {@link #CONSTRUCT}, {@link #PROPERTIES} or {@link #INITIALIZE}
+   * @param nanos the time spent, in nanoseconds
+   */
+  public synchronized void record(String component, int phase, long nanos) {
+    long[] times = entries.get(component);
+    if (times == null) {
+      times = new long[3];
+      entries.put(component, times);
+    }
+    times[phase] += nanos;
+  }
+
+  /**
+   * Returns the time from the start to the end of the startup in
+   * milliseconds, or -1 if the startup has not finished.
+   */
+  public synchronized double getStartupTime() {
+    return endNanos < 0 ? -1 : (endNanos - startNanos) / NANOS_PER_MILLI;
+  }
+
+  /**
+   * Returns the trace as a list with one row per component, in the order
+   * the components were created. Each row holds the component name and the
+   * milliseconds spent constructing the component, setting its properties
+   * and initializing it.
+   */
+  public synchronized YailList toYailList() {
+    List<YailList> rows = new ArrayList<YailList>(entries.size());
+    for (Map.Entry<String, long[]> entry : entries.entrySet()) {
+      rows.add(toRow(entry.getKey(), entry.getValue()));
+    }
+    return YailList.makeList(rows);
+  }
+
+  /**
+   * Returns a description of the slowest components, for logging.
+   *
+   * @param count the number of components to include
+   */
+  public synchronized String summary(int count) {
+    List<Map.Entry<String, long[]>> sorted =
+        new ArrayList<Map.Entry<String, long[]>>(entries.entrySet());
+    Collections.sort(sorted, new Comparator<Map.Entry<String, long[]>>() {
+      @Override
+      public int compare(Map.Entry<String, long[]> a, Map.Entry<String, long[]> b) {
+        long totalA = a.getValue()[0] + a.getValue()[1] + a.getValue()[2];
+        long totalB = b.getValue()[0] + b.getValue()[1] + b.getValue()[2];
+        return totalA < totalB ? 1 : totalA > totalB ? -1 : 0;
+      }
+    });
+    StringBuilder sb = new StringBuilder();
+    sb.append("Startup took ").append(getStartupTime()).append(" ms");
+    for (int i = 0; i < count && i < sorted.size(); i++) {
+      sb.append("\n  ").append(toRow(sorted.get(i).getKey(), sorted.get(i).getValue()));
+    }
+    return sb.toString();
+  }
+
+  private static YailList toRow(String component, long[] times) {
+    List<Object> row = new ArrayList<Object>(4);
+    row.add(component);
+    for (long time : times) {
+      row.add(time / NANOS_PER_MILLI);
+    }
+    return YailList.makeList(row);
+  }
+}
@@ -0,0 +1,362 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.ResultSetFactory;
+import com.hp.hpl.jena.query.ResultSetRewindable;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates continuous SPARQL queries over sliding windows of streams of
+ * triples, on the device, in the manner of C-SPARQL.
+ *
+ * A query is registered on a named stream with a window and a step, written
+ * as in a C-SPARQL {@code [RANGE window STEP step]} clause. The window is
+ * either a duration, such as {@code 10s}, holding the triples added in that
+ * long before each evaluation, or {@code TRIPLES n}, holding the last n
+ * triples. The step is the duration between evaluations. Durations are a
+ * whole number followed by one of the units ms, s, m, h or d.
+ *
+ * Each query keeps its window in its own graph, which is updated as triples
+ * arrive and expire rather than being rebuilt for each evaluation. A query
+ * whose window has not changed since it was last evaluated is not run again;
+ * its last results are reported instead.
+ */
+public class StreamQueryEngine {
+
+  private static final Pattern DURATION =
+      Pattern.compile("(\\d+)\\s*(ms|s|m|h|d)", Pattern.CASE_INSENSITIVE);
+  private static final Pattern TRIPLES =
+      Pattern.compile("TRIPLES\\s+(\\d+)", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * The results of one evaluation of a query. Unless the evaluation failed,
+   * exactly one of the select, construct and ask results is set, depending on
+   * the form of the query. Results may be shared between evaluations, so they
+   * should be read before the engine is used again.
+   */
+  public static class WindowResult {
+    private final String name;
+    private final long time;
+    private final int windowSize;
+    private final ResultSetRewindable select;
+    private final Model construct;
+    private final Boolean ask;
+    private final RuntimeException error;
+
+    private WindowResult(String name, long time, int windowSize, ResultSetRewindable select,
+        Model construct, Boolean ask, RuntimeException error) {
+      this.name = name;
+      this.time = time;
+      this.windowSize = windowSize;
+      this.select = select;
+      this.construct = construct;
+      this.ask = ask;
+      this.error = error;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Returns the time, in milliseconds, at which the window ended.
+     */
+    public long getTime() {
+      return time;
+    }
+
+    /**
+     * Returns the number of triples in the window, counting repeats.
+     */
+    public int getWindowSize() {
+      return windowSize;
+    }
+
+    public ResultSetRewindable getSelectResults() {
+      return select;
+    }
+
+    /**
+     * Returns the graph built by a CONSTRUCT or DESCRIBE query.
+     */
+    public Model getConstructResults() {
+      return construct;
+    }
+
+    public Boolean getAskResult() {
+      return ask;
+    }
+
+    /**
+     * Returns the exception thrown by the query, or null if it succeeded.
+     */
+    public RuntimeException getError() {
+      return error;
+    }
+  }
+
+  private static class TimedTriple {
+    private final long time;
+    private final Triple triple;
+
+    private TimedTriple(long time, Triple triple) {
+      this.time = time;
+      this.triple = triple;
+    }
+  }
+
+  private static class Registration {
+    private final String name;
+    private final String stream;
+    private final Query query;
+    private final long range;  // ms, or 0 for a count window
+    private final int count;   // triples, or 0 for a time window
+    private final long step;
+    private long next;
+
+    // The triples in the window in the order they were added. A triple added
+    // more than once is in the graph once, until its last copy expires.
+    private final LinkedList<TimedTriple> window = new LinkedList<TimedTriple>();
+    private final Map<Triple, Integer> copies = new HashMap<Triple, Integer>();
+    private final Model model = ModelFactory.createDefaultModel();
+    private boolean changed = true;
+    private WindowResult last;
+
+    private Registration(String name, String stream, Query query, long range, int count,
+        long step, long start) {
+      this.name = name;
+      this.stream = stream;
+      this.query = query;
+      this.range = range;
+      this.count = count;
+      this.step = step;
+      this.next = start + step;
+    }
+
+    private void add(TimedTriple item) {
+      window.addLast(item);
+      Integer n = copies.get(item.triple);
+      copies.put(item.triple, n == null ? 1 : n + 1);
+      if (n == null) {
+        model.getGraph().add(item.triple);
+      }
+      changed = true;
+      if (count > 0 && window.size() > count) {
+        removeFirst();
+      }
+    }
+
+    private void removeFirst() {
+      TimedTriple item = window.removeFirst();
+      int n = copies.get(item.triple);
+      if (n == 1) {
+        copies.remove(item.triple);
+        model.getGraph().delete(item.triple);
+      } else {
+        copies.put(item.triple, n - 1);
+      }
+      changed = true;
+    }
+
+    private void expire(long now) {
+      if (range > 0) {
+        while (!window.isEmpty() && window.getFirst().time <= now - range) {
+          removeFirst();
+        }
+      }
+    }
+  }
+
+  private final Map<String, Registration> registrations = new LinkedHashMap<String, Registration>();
+
+  /**
+   * Parses a duration such as {@code 500ms}, {@code 10s} or {@code 5m}.
+   *
+   * @return the duration in milliseconds
+   * @throws IllegalArgumentException if the duration is not valid
+   */
+  public static long parseDuration(String spec) {
+    Matcher m = DURATION.matcher(spec.trim());
+    if (!m.matches()) {
+      throw new IllegalArgumentException("Invalid duration: " + spec);
+    }
+    long value = Long.parseLong(m.group(1));
+    String unit = m.group(2).toLowerCase(Locale.ROOT);
+    long scale = unit.equals("ms") ? 1 : unit.equals("s") ? 1000 : unit.equals("m") ? 60000
+        : unit.equals("h") ? 3600000 : 86400000;
+    if (value <= 0) {
+      throw new IllegalArgumentException("Duration must be positive: " + spec);
+    }
+    return value * scale;
+  }
+
+  /**
+   * Registers a query, replacing any earlier query with the same name.
+   *
+   * @param name the name reported with the results of the query
+   * @param queryText a SPARQL SELECT, CONSTRUCT, DESCRIBE or ASK query
+   * @param stream the name of the stream the query reads
+   * @param window a duration or {@code TRIPLES n}
+   * @param step the duration between evaluations
+   * @param now the current time in milliseconds
+   * @throws IllegalArgumentException if the window or step is not valid
+   * @throws com.hp.hpl.jena.query.QueryException if the query is not valid
+   */
+  public synchronized void register(String name, String queryText, String stream, String window,
+      String step, long now) {
+    long range = 0;
+    int count = 0;
+    Matcher m = TRIPLES.matcher(window.trim());
+    if (m.matches()) {
+      count = Integer.parseInt(m.group(1));
+      if (count <= 0) {
+        throw new IllegalArgumentException("Window must hold at least one triple: " + window);
+      }
+    } else {
+      range = parseDuration(window);
+    }
+    long stepMillis = parseDuration(step);
+    Query query = QueryFactory.create(queryText);
+    registrations.put(name, new Registration(name, stream, query, range, count, stepMillis, now));
+  }
+
+  /**
+   * Removes a query.
+   *
+   * @return true if a query with the name was registered
+   */
+  public synchronized boolean unregister(String name) {
+    return registrations.remove(name) != null;
+  }
+
+  public synchronized void clear() {
+    registrations.clear();
+  }
+
+  public synchronized boolean isEmpty() {
+    return registrations.isEmpty();
+  }
+
+  /**
+   * Adds a triple to a stream. Triples should be added in time order.
+   */
+  public synchronized void add(String stream, Triple triple, long time) {
+    TimedTriple item = null;
+    for (Registration registration : registrations.values()) {
+      if (registration.stream.equals(stream)) {
+        if (item == null) {
+          item = new TimedTriple(time, triple);
+        }
+        registration.add(item);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of triples in the window of a query, counting
+   * repeats, or -1 if there is no such query.
+   */
+  public synchronized int windowSize(String name) {
+    Registration registration = registrations.get(name);
+    return registration == null ? -1 : registration.window.size();
+  }
+
+  /**
+   * Returns the time at which the next query is due, or
+   * {@link Long#MAX_VALUE} if no queries are registered.
+   */
+  public synchronized long nextEvaluation() {
+    long next = Long.MAX_VALUE;
+    for (Registration registration : registrations.values()) {
+      next = Math.min(next, registration.next);
+    }
+    return next;
+  }
+
+  /**
+   * Evaluates every query that is due. A query that has missed several steps
+   * is evaluated once.
+   *
+   * @param now the current time in milliseconds
+   * @return the results, in the order the queries were registered
+   */
+  public synchronized List<WindowResult> evaluate(long now) {
+    List<WindowResult> results = new ArrayList<WindowResult>();
+    Iterator<Registration> it = registrations.values().iterator();
+    while (it.hasNext()) {
+      Registration registration = it.next();
+      if (registration.next > now) {
+        continue;
+      }
+      long missed = (now - registration.next) / registration.step;
+      registration.next += (missed + 1) * registration.step;
+      registration.expire(now);
+      results.add(evaluate(registration, now));
+    }
+    return results;
+  }
+
+  private WindowResult evaluate(Registration registration, long now) {
+    WindowResult last = registration.last;
+    if (!registration.changed && last != null) {
+      if (last.select != null) {
+        last.select.reset();
+      }
+      return registration.last = new WindowResult(registration.name, now,
+          registration.window.size(), last.select, last.construct, last.ask, null);
+    }
+    ResultSetRewindable select = null;
+    Model construct = null;
+    Boolean ask = null;
+    QueryExecution execution = QueryExecutionFactory.create(registration.query, registration.model);
+    try {
+      Query query = registration.query;
+      if (query.isSelectType()) {
+        select = ResultSetFactory.copyResults(execution.execSelect());
+      } else if (query.isConstructType()) {
+        construct = execution.execConstruct();
+      } else if (query.isDescribeType()) {
+        construct = execution.execDescribe();
+      } else {
+        ask = execution.execAsk();
+      }
+    } catch (RuntimeException e) {
+      return new WindowResult(registration.name, now, registration.window.size(), null, null,
+          null, e);
+    } finally {
+      execution.close();
+    }
+    registration.changed = false;
+    return registration.last = new WindowResult(registration.name, now,
+        registration.window.size(), select, construct, ask, null);
+  }
+
+  /**
+   * Returns the graph of the current window of a query, for tests.
+   */
+  synchronized Graph getWindowGraph(String name) {
+    return registrations.get(name).model.getGraph();
+  }
+}
@@ -42,7 +42,7 @@ public class YailList extends Pair implements YailObject {
     super(YailConstants.YAIL_HEADER, LList.Empty);
   }
 
-  private YailList(Object cdrval) {
+  protected YailList(Object cdrval) {
     super(YailConstants.YAIL_HEADER, cdrval);
   }
 
@@ -0,0 +1,178 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests the handler caching done by EventDispatcher.
+ */
+public class EventDispatcherTest {
+
+  /**
+   * A dispatch delegate that resolves component names and handlers the same
+   * way the dispatchEvent method generated for a YAIL form does.
+   */
+  private static class TestDelegate implements HandlesEventDispatching {
+    private final Map<String, Component> bindings = new HashMap<String, Component>();
+    private final Map<String, String> handlers = new HashMap<String, String>();
+    private int calls = 0;
+    private int resolutions = 0;
+    private String lastHandler;
+
+    void bind(String name, Component component) {
+      bindings.put(name, component);
+      EventDispatcher.invalidateEventHandlers();
+    }
+
+    void define(String name, String eventName, String handler) {
+      handlers.put(name + "$" + eventName, handler);
+      EventDispatcher.registerEventForDelegation(this, name, eventName);
+      EventDispatcher.invalidateEventHandlers();
+    }
+
+    @Override
+    public boolean canDispatchEvent(Component component, String eventName) {
+      return true;
+    }
+
+    @Override
+    public boolean dispatchEvent(Component component, String componentName, String eventName,
+        Object[] args) {
+      calls++;
+      Object handler = EventDispatcher.getCachedEventHandler(this, component, componentName,
+          eventName);
+      if (handler == null) {
+        resolutions++;
+        Component bound = bindings.get(componentName);
+        if (bound != component) {
+          EventDispatcher.cacheEventHandler(this, bound, componentName, eventName, null);
+          return false;
+        }
+        handler = handlers.get(componentName + "$" + eventName);
+        EventDispatcher.cacheEventHandler(this, component, componentName, eventName, handler);
+      }
+      lastHandler = (String) handler;
+      return true;
+    }
+
+    @Override
+    public void dispatchErrorOccurredEvent(Component component, String functionName,
+        int errorCode, Object... args) {
+    }
+
+    @Override
+    public void dispatchGenericEvent(Component component, String eventName,
+        boolean notAlreadyHandled, Object[] args) {
+    }
+  }
+
+  private static class TestComponent implements Component {
+    private final HandlesEventDispatching delegate;
+
+    TestComponent(HandlesEventDispatching delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public HandlesEventDispatching getDispatchDelegate() {
+      return delegate;
+    }
+  }
+
+  private TestDelegate delegate;
+  private Component button1;
+  private Component button2;
+
+  @Before
+  public void setUp() {
+    delegate = new TestDelegate();
+    button1 = new TestComponent(delegate);
+    button2 = new TestComponent(delegate);
+    delegate.bind("Button1", button1);
+    delegate.bind("Button2", button2);
+    delegate.define("Button1", "Click", "click1");
+    delegate.define("Button2", "Click", "click2");
+  }
+
+  @After
+  public void tearDown() {
+    EventDispatcher.removeDispatchDelegate(delegate);
+  }
+
+  @Test
+  public void testHandlersAreResolvedOnce() {
+    assertTrue(EventDispatcher.dispatchEvent(button1, "Click"));
+    assertTrue(EventDispatcher.dispatchEvent(button2, "Click"));
+    int resolutions = delegate.resolutions;
+
+    delegate.calls = 0;
+    for (int i = 0; i < 10; i++) {
+      assertTrue(EventDispatcher.dispatchEvent(button1, "Click"));
+      assertEquals("click1", delegate.lastHandler);
+    }
+    // The closure for Button2 is skipped without calling the delegate
+    assertEquals(10, delegate.calls);
+    assertEquals(resolutions, delegate.resolutions);
+  }
+
+  @Test
+  public void testRedefinedHandlerIsResolvedAgain() {
+    assertTrue(EventDispatcher.dispatchEvent(button1, "Click"));
+    assertEquals("click1", delegate.lastHandler);
+
+    // The REPL redefines the handler
+    delegate.define("Button1", "Click", "click1-v2");
+    assertTrue(EventDispatcher.dispatchEvent(button1, "Click"));
+    assertEquals("click1-v2", delegate.lastHandler);
+  }
+
+  @Test
+  public void testRenamedComponentIsResolvedAgain() {
+    assertTrue(EventDispatcher.dispatchEvent(button2, "Click"));
+    assertEquals("click2", delegate.lastHandler);
+
+    // The REPL binds Button1 to the second component
+    delegate.bind("Button1", button2);
+    delegate.bind("Button2", null);
+    assertTrue(EventDispatcher.dispatchEvent(button2, "Click"));
+    assertEquals("click1", delegate.lastHandler);
+    assertFalse(EventDispatcher.dispatchEvent(button1, "Click"));
+  }
+
+  @Test
+  public void testUnregisteredHandlerIsNotDispatched() {
+    assertTrue(EventDispatcher.dispatchEvent(button1, "Click"));
+
+    EventDispatcher.unregisterEventForDelegation(delegate, "Button1", "Click");
+    delegate.calls = 0;
+    assertFalse(EventDispatcher.dispatchEvent(button1, "Click"));
+    assertEquals(0, delegate.calls);
+
+    // Defining the handler again registers a new closure
+    delegate.define("Button1", "Click", "click1-v2");
+    assertTrue(EventDispatcher.dispatchEvent(button1, "Click"));
+    assertEquals("click1-v2", delegate.lastHandler);
+  }
+
+  @Test
+  public void testDispatchStatistics() {
+    EventDispatcher.resetDispatchStatistics();
+    EventDispatcher.dispatchEvent(button1, "Click");
+    EventDispatcher.dispatchEvent(button2, "Click");
+    assertEquals(2, EventDispatcher.getDispatchCount());
+    assertTrue(EventDispatcher.getDispatchTimeNanos() >= 0);
+  }
+}
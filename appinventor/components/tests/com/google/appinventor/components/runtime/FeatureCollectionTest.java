@@ -213,6 +213,33 @@ public class FeatureCollectionTest extends MapTestBase {
     assertEventFiredAny(collection, "GotFeatures");
   }
 
+  /**
+   * Tests that features outside of the FilterBounds are dropped while the GeoJSON is read.
+   */
+  @Test
+  public void testFeaturesFromGeoJSONFilterBounds() {
+    collection.FeaturesFromGeoJSON("{\"type\":\"FeatureCollection\",\"features\":["
+        + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[-71.0,42]}},"
+        + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[2.35,48.85]}}"
+        + "]}");
+    runAllEvents();
+    assertEquals(2, collection.Features().size());
+
+    collection.Features(YailList.makeEmptyList());
+    collection.FilterBounds(YailList.makeList(new YailList[] {
+        YailList.makeList(new Double[] { 43.0, -72.0 }),
+        YailList.makeList(new Double[] { 41.0, -70.0 })
+    }));
+    collection.FeaturesFromGeoJSON("{\"type\":\"FeatureCollection\",\"features\":["
+        + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[-71.0,42]}},"
+        + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[2.35,48.85]}}"
+        + "]}");
+    runAllEvents();
+    assertEquals(1, collection.Features().size());
+    assertEquals(43.0, (Double) ((YailList) collection.FilterBounds().getObject(0)).getObject(0),
+        0);
+  }
+
   private void testFeatureListSetter(MapFeature feature) {
     ShadowView view = Shadow.extract(getMap().getView());
     view.clearWasInvalidated();
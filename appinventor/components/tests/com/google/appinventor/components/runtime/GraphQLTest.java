@@ -0,0 +1,272 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime;
+
+import com.google.appinventor.components.runtime.shadows.ShadowEventDispatcher;
+import com.google.appinventor.components.runtime.util.JsonUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests the batching, persisted queries and caching of the GraphQL component
+ * against a local stand-in for a GraphQL server.
+ */
+public class GraphQLTest extends RobolectricTestBase {
+  private static final long TIMEOUT = 5000;  // ms
+  private static final String USER_QUERY = "{ user { id __typename name } }";
+  private static final String VERSION_QUERY = "{ version }";
+  private static final String RENAME_MUTATION = "mutation { rename { id __typename name } }";
+
+  private HttpServer server;
+  private GraphQL graphQL;
+
+  // State of the stand-in server
+  private volatile int requestCount = 0;
+  private volatile String lastRequest;
+  private volatile boolean acceptBatches = true;
+  private volatile String name = "Ada";
+  private final Map<String, String> persistedQueries = new HashMap<>();
+
+  @Before
+  public void setUp() {
+    super.setUp();
+    try {
+      server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    server.createContext("/graphql", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        handleRequest(exchange);
+      }
+    });
+    server.start();
+    graphQL = new GraphQL(getForm());
+    graphQL.GqlEndpointUrl("http://localhost:" + server.getAddress().getPort() + "/graphql");
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  /**
+   * Test case to ensure that queries made together are sent in one request.
+   */
+  @Test
+  public void testBatching() throws Exception {
+    graphQL.GqlBatching(true);
+    graphQL.GqlQuery("user", USER_QUERY);
+    graphQL.GqlQuery("version", VERSION_QUERY);
+    waitForResponse("user", "{\"user\":{\"id\":\"1\",\"__typename\":\"User\",\"name\":\"Ada\"}}");
+    waitForResponse("version", "{\"version\":\"1.0\"}");
+    assertEquals(1, requestCount);
+  }
+
+  /**
+   * Test case to ensure that queries are sent one at a time to an endpoint
+   * that does not accept batches.
+   */
+  @Test
+  public void testBatchingUnsupported() throws Exception {
+    acceptBatches = false;
+    graphQL.GqlBatching(true);
+    graphQL.GqlQuery("user", USER_QUERY);
+    graphQL.GqlQuery("version", VERSION_QUERY);
+    waitForResponse("user", "{\"user\":{\"id\":\"1\",\"__typename\":\"User\",\"name\":\"Ada\"}}");
+    waitForResponse("version", "{\"version\":\"1.0\"}");
+    assertEquals(3, requestCount);
+  }
+
+  /**
+   * Test case to ensure that the query text is only sent when the endpoint
+   * does not already know its hash.
+   */
+  @Test
+  public void testPersistedQueries() throws Exception {
+    graphQL.GqlPersistedQueries(true);
+    graphQL.GqlQuery("first", VERSION_QUERY);
+    waitForResponse("first", "{\"version\":\"1.0\"}");
+    assertEquals(2, requestCount);
+
+    graphQL.GqlQuery("second", VERSION_QUERY);
+    waitForResponse("second", "{\"version\":\"1.0\"}");
+    assertEquals(3, requestCount);
+    assertFalse(new JSONObject(lastRequest).has("query"));
+  }
+
+  /**
+   * Test case to ensure that repeated queries are answered from the cache,
+   * and that a mutation result changes the cached objects.
+   */
+  @Test
+  public void testCaching() throws Exception {
+    graphQL.GqlCaching(true);
+    graphQL.GqlQuery("first", USER_QUERY);
+    waitForResponse("first", "{\"user\":{\"id\":\"1\",\"__typename\":\"User\",\"name\":\"Ada\"}}");
+    graphQL.GqlQuery("second", USER_QUERY);
+    waitForResponse("second", "{\"user\":{\"id\":\"1\",\"__typename\":\"User\",\"name\":\"Ada\"}}");
+    assertEquals(1, requestCount);
+
+    graphQL.GqlQuery("rename", RENAME_MUTATION);
+    waitForResponse("rename", "{\"rename\":{\"id\":\"1\",\"__typename\":\"User\",\"name\":\"Grace\"}}");
+    graphQL.GqlQuery("third", USER_QUERY);
+    waitForResponse("third", "{\"user\":{\"id\":\"1\",\"__typename\":\"User\",\"name\":\"Grace\"}}");
+    assertEquals(2, requestCount);
+
+    graphQL.GqlClearCache();
+    graphQL.GqlQuery("fourth", USER_QUERY);
+    waitForResponse("fourth", "{\"user\":{\"id\":\"1\",\"__typename\":\"User\",\"name\":\"Grace\"}}");
+    assertEquals(3, requestCount);
+  }
+
+  private void waitForResponse(String queryName, String data)
+      throws InterruptedException, JSONException {
+    Object expected = JsonUtil.convertJsonItem(new JSONObject(data));
+    long deadline = System.currentTimeMillis() + TIMEOUT;
+    while (true) {
+      runAllEvents();
+      try {
+        ShadowEventDispatcher.assertEventFired(graphQL, "GqlGotResponse", queryName, expected);
+        return;
+      } catch (AssertionError e) {
+        if (System.currentTimeMillis() > deadline) {
+          throw e;
+        }
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  private void handleRequest(HttpExchange exchange) throws IOException {
+    requestCount++;
+    String request = readFully(exchange.getRequestBody());
+    lastRequest = request;
+    int status = 200;
+    String response;
+    try {
+      Object body = new JSONObject("{\"body\":" + request + "}").get("body");
+      if (body instanceof JSONArray) {
+        if (acceptBatches) {
+          JSONArray results = new JSONArray();
+          for (int i = 0; i < ((JSONArray) body).length(); i++) {
+            results.put(execute(((JSONArray) body).getJSONObject(i)));
+          }
+          response = results.toString();
+        } else {
+          status = 400;
+          response = error("Batched queries are not supported", null).toString();
+        }
+      } else {
+        response = execute((JSONObject) body).toString();
+      }
+    } catch (JSONException e) {
+      status = 400;
+      response = "{\"errors\":[{\"message\":\"Bad request\"}]}";
+    }
+    byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    OutputStream out = exchange.getResponseBody();
+    out.write(bytes);
+    out.close();
+  }
+
+  // Answers one query in the way an Apollo server with automatic persisted
+  // queries would.
+  private JSONObject execute(JSONObject body) throws JSONException {
+    String query = body.optString("query", null);
+    JSONObject extensions = body.optJSONObject("extensions");
+    if (extensions != null && extensions.has("persistedQuery")) {
+      String hash = extensions.getJSONObject("persistedQuery").getString("sha256Hash");
+      synchronized (persistedQueries) {
+        if (query == null) {
+          query = persistedQueries.get(hash);
+          if (query == null) {
+            return error("PersistedQueryNotFound", "PERSISTED_QUERY_NOT_FOUND");
+          }
+        } else if (hash.equals(sha256(query))) {
+          persistedQueries.put(hash, query);
+        } else {
+          return error("provided sha does not match query", null);
+        }
+      }
+    }
+    JSONObject data = new JSONObject();
+    if (query.equals(RENAME_MUTATION)) {
+      name = "Grace";
+      data.put("rename", user());
+    } else if (query.equals(USER_QUERY)) {
+      data.put("user", user());
+    } else if (query.equals(VERSION_QUERY)) {
+      data.put("version", "1.0");
+    } else {
+      return error("Unknown query", null);
+    }
+    return new JSONObject().put("data", data);
+  }
+
+  private JSONObject user() throws JSONException {
+    return new JSONObject().put("id", "1").put("__typename", "User").put("name", name);
+  }
+
+  private static JSONObject error(String message, String code) {
+    try {
+      JSONObject error = new JSONObject().put("message", message);
+      if (code != null) {
+        error.put("extensions", new JSONObject().put("code", code));
+      }
+      return new JSONObject().put("errors", new JSONArray().put(error));
+    } catch (JSONException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buf = new byte[1024];
+    int read;
+    while ((read = in.read(buf)) != -1) {
+      out.write(buf, 0, read);
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static String sha256(String text) {
+    try {
+      StringBuilder sb = new StringBuilder();
+      for (byte b : MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8))) {
+        sb.append(String.format("%02x", b));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime;
+
+import com.google.appinventor.components.runtime.shadows.ShadowEventDispatcher;
+
+import org.eclipse.californium.core.CoapResource;
+import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.server.resources.CoapExchange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the LdpCoapClient against a local CoAP server.
+ */
+public class LdpCoapClientTest extends RobolectricTestBase {
+  private static final long TIMEOUT = 5000;  // ms
+
+  private CoapServer server;
+  private CoapResource observable;
+  private volatile String observedValue = "v0";
+  private String largeTurtle;
+  private LdpCoapClient client;
+
+  @Before
+  public void setUp() {
+    super.setUp();
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      sb.append("<http://example.com/s> <http://example.com/p> \"").append(i).append("\" .\n");
+    }
+    largeTurtle = sb.toString();
+    server = new CoapServer(0);
+    server.add(new CoapResource("hello") {
+      @Override
+      public void handleGET(CoapExchange exchange) {
+        exchange.respond("world");
+      }
+    });
+    server.add(new CoapResource("large") {
+      @Override
+      public void handleGET(CoapExchange exchange) {
+        exchange.respond(largeTurtle);
+      }
+    });
+    observable = new CoapResource("sensor") {
+      @Override
+      public void handleGET(CoapExchange exchange) {
+        exchange.respond(observedValue);
+      }
+    };
+    observable.setObservable(true);
+    server.add(observable);
+    server.start();
+    client = new LdpCoapClient(getForm());
+    client.BASE_URI("coap://localhost:" + server.getEndpoints().get(0).getAddress().getPort());
+  }
+
+  @After
+  public void tearDown() {
+    client.onDelete();
+    server.destroy();
+  }
+
+  /**
+   * Test case to ensure that synchronous requests still set the response.
+   */
+  @Test
+  public void testGet() {
+    client.Get("hello", MediaTypeRegistry.TEXT_PLAIN);
+    assertEquals("Success", client.getRequestStatus());
+    assertEquals("world", client.getResponseText());
+  }
+
+  /**
+   * Test case to ensure that asynchronous requests raise ResponseReceived.
+   */
+  @Test
+  public void testAsynchronousGet() throws InterruptedException {
+    client.Asynchronous(true);
+    client.Get("hello", MediaTypeRegistry.TEXT_PLAIN);
+    waitForEvent("ResponseReceived", "Get", "hello", "2.05", "world");
+    assertEquals("world", client.getResponseText());
+  }
+
+  /**
+   * Test case to ensure that payloads larger than a block are reassembled.
+   */
+  @Test
+  public void testBlockwiseTransfer() {
+    client.BlockSize(64);
+    client.Get("large", MediaTypeRegistry.TEXT_TURTLE);
+    assertEquals(largeTurtle, client.getResponseText());
+  }
+
+  /**
+   * Test case to ensure that changes to an observed resource raise ResourceChanged.
+   */
+  @Test
+  public void testObserve() throws InterruptedException {
+    client.Observe("sensor", MediaTypeRegistry.TEXT_PLAIN);
+    waitForEvent("ResourceChanged", "sensor", "2.05", "v0");
+    observedValue = "v1";
+    observable.changed();
+    waitForEvent("ResourceChanged", "sensor", "2.05", "v1");
+  }
+
+  private void waitForEvent(String eventName, Object... args) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT;
+    while (true) {
+      runAllEvents();
+      try {
+        ShadowEventDispatcher.assertEventFired(client, eventName, args);
+        return;
+      } catch (AssertionError e) {
+        if (System.currentTimeMillis() > deadline) {
+          throw e;
+        }
+      }
+      Thread.sleep(10);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime;
+
+import com.google.appinventor.components.runtime.util.FormTriples;
+import com.google.appinventor.components.runtime.util.RdfUtil;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.Resource;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the conversion of Linked Data Forms to triples and of the changes to
+ * SPARQL updates.
+ */
+public class LinkedDataTest extends RobolectricTestBase {
+  private static final String FOAF = "http://xmlns.com/foaf/0.1/";
+  private static final String ALICE = "http://example.com/alice";
+  private static final String BOB = "http://example.com/bob";
+
+  private final Model names = ModelFactory.createDefaultModel();
+  private final Property name = names.createProperty(FOAF + "name");
+  private final Property knows = names.createProperty(FOAF + "knows");
+
+  /**
+   * Test case to ensure that a form with a nested form is converted into the
+   * triples of both forms and the link between them, and that a later change
+   * to the nested form only adds and removes the triples of that change.
+   */
+  @Test
+  public void testTriplifyNestedFormChanges() {
+    LinkedDataForm form = newForm(getForm(), ALICE);
+    newTextBox(form, "Alice");
+    LinkedDataForm nested = newForm(form, BOB);
+    nested.PropertyURI(FOAF + "knows");
+    TextBox bobName = newTextBox(nested, "Bob");
+
+    Model model = ModelFactory.createDefaultModel();
+    FormTriples triples = new FormTriples();
+    Model added = ModelFactory.createDefaultModel();
+    Model removed = ModelFactory.createDefaultModel();
+    assertTrue(RdfUtil.triplifyFormChanges(form, ALICE, model, triples, added, removed));
+    assertEquals(3, added.size());
+    assertTrue(added.contains(resource(ALICE), name, "Alice"));
+    assertTrue(added.contains(resource(ALICE), knows, resource(BOB)));
+    assertTrue(added.contains(resource(BOB), name, "Bob"));
+    assertTrue(removed.isEmpty());
+
+    bobName.Text("Robert");
+    added = ModelFactory.createDefaultModel();
+    removed = ModelFactory.createDefaultModel();
+    assertTrue(RdfUtil.triplifyFormChanges(form, ALICE, model, triples, added, removed));
+    assertEquals(1, added.size());
+    assertTrue(added.contains(resource(BOB), name, "Robert"));
+    assertEquals(1, removed.size());
+    assertTrue(removed.contains(resource(BOB), name, "Bob"));
+  }
+
+  /**
+   * Test case to ensure that updating a form keeps the triples that another
+   * form still generates.
+   */
+  @Test
+  public void testSharedTriplesAreKept() {
+    LinkedData linkedData = new LinkedData(getForm());
+    LinkedDataForm first = newForm(getForm(), ALICE);
+    TextBox firstName = newTextBox(first, "Alice");
+    LinkedDataForm second = newForm(getForm(), ALICE);
+    newTextBox(second, "Alice");
+    assertTrue(linkedData.UpdateDataFromLinkedDataForm(first));
+    assertTrue(linkedData.UpdateDataFromLinkedDataForm(second));
+
+    firstName.Text("Alicia");
+    assertTrue(linkedData.UpdateDataFromLinkedDataForm(first));
+    Model model = linkedData.getModel();
+    assertTrue(model.contains(resource(ALICE), name, "Alice"));
+    assertTrue(model.contains(resource(ALICE), name, "Alicia"));
+  }
+
+  /**
+   * Test case to ensure that an update deletes the removed triples before
+   * inserting the added ones, inside the given graph.
+   */
+  @Test
+  public void testBuildUpdateData() {
+    Model added = ModelFactory.createDefaultModel();
+    added.add(resource(ALICE), name, "Alicia");
+    Model removed = ModelFactory.createDefaultModel();
+    removed.add(resource(ALICE), name, "Alice");
+
+    String update = RdfUtil.buildUpdateData(removed, added, "http://example.com/graph");
+    int delete = update.indexOf("DELETE DATA {\r\nGRAPH <http://example.com/graph> {\r\n"
+        + "<" + ALICE + "> <" + FOAF + "name> \"Alice\" .");
+    int insert = update.indexOf(";\r\nINSERT DATA {\r\nGRAPH <http://example.com/graph> {\r\n"
+        + "<" + ALICE + "> <" + FOAF + "name> \"Alicia\" .");
+    assertEquals(0, delete);
+    assertTrue(insert > delete);
+    assertTrue(update.endsWith("}\r\n}\r\n"));
+
+    update = RdfUtil.buildUpdateData(ModelFactory.createDefaultModel(), added, null);
+    assertTrue(update.startsWith("INSERT DATA {\r\n<" + ALICE + ">"));
+    assertFalse(update.contains("GRAPH"));
+    assertNull(RdfUtil.buildUpdateData(ModelFactory.createDefaultModel(),
+        ModelFactory.createDefaultModel(), null));
+  }
+
+  private Resource resource(String uri) {
+    return names.createResource(uri);
+  }
+
+  private static LinkedDataForm newForm(ComponentContainer container, String subject) {
+    LinkedDataForm form = new LinkedDataForm(container);
+    form.Subject(subject);
+    return form;
+  }
+
+  private static TextBox newTextBox(ComponentContainer container, String text) {
+    TextBox textBox = new TextBox(container);
+    textBox.PropertyURI(FOAF + "name");
+    textBox.Text(text);
+    return textBox;
+  }
+}
@@ -413,6 +413,35 @@ public class MapTest extends MapTestBase {
     }
   }
 
+  /**
+   * Tests that the spatial queries find features through the index, follow features that move,
+   * and forget features that are removed.
+   */
+  @Test
+  public void testSpatialQueries() {
+    Marker near = map.CreateMarker(42.36, -71.06);
+    Marker far = map.CreateMarker(42.40, -71.06);
+    Marker paris = map.CreateMarker(48.85, 2.35);
+    YailList result = map.FeaturesWithinDistance(42.36, -71.06, 10000, false);
+    assertEquals(2, result.size());
+    assertEquals(near, result.getObject(0));
+    assertEquals(far, result.getObject(1));
+
+    near.SetLocation(48.86, 2.34);
+    result = map.FeaturesInBoundingBox(YailList.makeList(new YailList[] {
+        YailList.makeList(new Double[] { 49.0, 2.0 }),
+        YailList.makeList(new Double[] { 48.0, 3.0 })
+    }));
+    assertEquals(2, result.size());
+    assertTrue(result.contains(near));
+    assertTrue(result.contains(paris));
+
+    map.removeFeature(paris);
+    result = map.FeaturesWithinDistance(48.85, 2.35, 10000, true);
+    assertEquals(1, result.size());
+    assertEquals(near, result.getObject(0));
+  }
+
   private MapView getMapView() {
     RelativeLayout layout = (RelativeLayout) map.getView();
     return (MapView) layout.getChildAt(0);
@@ -0,0 +1,104 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import com.google.appinventor.components.runtime.util.YailDictionary;
+import com.google.appinventor.components.runtime.util.YailList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the TinyDB component.
+ */
+public class TinyDBTest extends RobolectricTestBase {
+
+  private TinyDB tinyDB;
+
+  @Before
+  public void setUp() {
+    super.setUp();
+    tinyDB = new TinyDB(getForm());
+    tinyDB.ClearAll();
+  }
+
+  @Test
+  public void testStoreAndGetValue() {
+    tinyDB.StoreValue("a", 1);
+    tinyDB.StoreValue("b", "text");
+    assertEquals(1, ((Number) tinyDB.GetValue("a", 0)).intValue());
+    assertEquals("text", tinyDB.GetValue("b", ""));
+    assertEquals("missing", tinyDB.GetValue("c", "missing"));
+    assertEquals("\"text\"", getPreferences().getString("b", null));
+  }
+
+  @Test
+  public void testBackgroundWritesAreVisible() {
+    tinyDB.BackgroundWrites(true);
+    for (int i = 0; i < 100; i++) {
+      tinyDB.StoreValue("counter", i);
+    }
+    assertEquals(99, ((Number) tinyDB.GetValue("counter", 0)).intValue());
+
+    // A second component on the same namespace sees the pending value
+    TinyDB other = new TinyDB(getForm());
+    assertEquals(99, ((Number) other.GetValue("counter", 0)).intValue());
+
+    tinyDB.onPause();
+    assertEquals("99", getPreferences().getString("counter", null));
+  }
+
+  @Test
+  public void testStoreValues() {
+    tinyDB.BackgroundWrites(true);
+    YailDictionary dictionary = YailDictionary.makeDictionary("x", 1, "y", "two");
+    tinyDB.StoreValues(dictionary);
+    assertEquals(new HashSet<Object>(Arrays.asList("x", "y")), getTags());
+    assertEquals("two", tinyDB.GetValue("y", ""));
+  }
+
+  @Test
+  public void testClearWhilePending() {
+    tinyDB.StoreValue("a", 1);
+    tinyDB.BackgroundWrites(true);
+    tinyDB.StoreValue("b", 2);
+    tinyDB.ClearTag("b");
+    tinyDB.ClearAll();
+    tinyDB.StoreValue("c", 3);
+    assertEquals("missing", tinyDB.GetValue("a", "missing"));
+    assertEquals("missing", tinyDB.GetValue("b", "missing"));
+    assertEquals(new HashSet<Object>(Arrays.asList("c")), getTags());
+  }
+
+  @Test
+  public void testListsAreNotShared() {
+    tinyDB.StoreValue("list", YailList.makeList(Arrays.asList("a", "b")));
+    Object first = tinyDB.GetValue("list", null);
+    Object second = tinyDB.GetValue("list", null);
+    assertTrue(first instanceof YailList);
+    assertTrue(first != second);
+    assertEquals(first, second);
+  }
+
+  /**
+   * Returns the tags of the TinyDB, whose order is not defined.
+   */
+  private Set<Object> getTags() {
+    return new HashSet<Object>((List<?>) tinyDB.GetTags());
+  }
+
+  private SharedPreferences getPreferences() {
+    return getForm().getSharedPreferences(TinyDB.DEFAULT_NAMESPACE, Context.MODE_PRIVATE);
+  }
+}
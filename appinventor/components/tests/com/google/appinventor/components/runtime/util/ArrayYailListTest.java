@@ -0,0 +1,155 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import gnu.lists.Pair;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the ArrayYailList class.
+ */
+public class ArrayYailListTest {
+
+  @Test
+  public void testSameContentsAsYailList() {
+    List<String> items = Arrays.asList("a", "b", "c", "d");
+    YailList linked = YailList.makeList(items);
+    ArrayYailList indexed = ArrayYailList.makeList(items);
+    assertEquals(linked.size(), indexed.size());
+    for (int i = 0; i < items.size(); i++) {
+      assertEquals(linked.getString(i), indexed.getString(i));
+    }
+    assertEquals(linked.toString(), indexed.toString());
+    assertEquals(YailConstants.YAIL_HEADER, indexed.getCar());
+    assertTrue(linked.equals(indexed));
+  }
+
+  @Test
+  public void testEmptyList() {
+    ArrayYailList list = ArrayYailList.makeList(new Object[0]);
+    assertEquals(0, list.size());
+    try {
+      list.getObject(0);
+      throw new AssertionError("Expected IndexOutOfBoundsException");
+    } catch (IndexOutOfBoundsException e) {
+      // this is the intended behavior
+    }
+  }
+
+  @Test
+  public void testReplaceItemIsVisible() {
+    ArrayYailList list = ArrayYailList.makeList(Arrays.asList("a", "b", "c"));
+    // (set-car! (list-tail contents 1) "x")
+    ((Pair) ((Pair) list.getCdr()).getCdr()).setCar("x");
+    assertEquals("x", list.getString(1));
+    assertTrue(list.isIndexed());
+  }
+
+  @Test
+  public void testRemoveItemRebuildsIndex() {
+    ArrayYailList list = ArrayYailList.makeList(Arrays.asList("a", "b", "c"));
+    // Remove "b" the way yail-list-remove-item! does
+    Pair first = (Pair) list.getCdr();
+    first.setCdr(((Pair) first.getCdr()).getCdr());
+    assertEquals(2, list.size());
+    assertEquals("c", list.getString(1));
+    assertTrue(list.isIndexed());
+  }
+
+  @Test
+  public void testInsertItemFallsBackToLinkedList() {
+    ArrayYailList list = ArrayYailList.makeList(Arrays.asList("a", "c"));
+    // Insert "b" the way yail-list-insert-item! does
+    Pair first = (Pair) list.getCdr();
+    first.setCdr(new Pair("b", first.getCdr()));
+    assertFalse(list.isIndexed());
+    assertEquals(3, list.size());
+    assertEquals("b", list.getString(1));
+    assertEquals("c", list.getString(2));
+  }
+
+  @Test
+  public void testReplaceContents() {
+    ArrayYailList list = ArrayYailList.makeList(Arrays.asList("a", "b"));
+    // set-yail-list-contents!
+    list.setCdr(new Pair("z", list.getCdr()));
+    assertEquals(3, list.size());
+    assertEquals("z", list.getString(0));
+  }
+
+  /**
+   * Test case to ensure that every index of a large array-backed list
+   * holds the same element as the linked list built from the same items.
+   */
+  @Test
+  public void testIndexedAccessMatchesYailList() {
+    final int size = 5000;
+    List<Integer> items = new ArrayList<Integer>();
+    for (int i = 0; i < size; i++) {
+      items.add(i);
+    }
+    YailList linked = YailList.makeList(items);
+    YailList indexed = ArrayYailList.makeList(items);
+
+    assertEquals(linked.size(), indexed.size());
+    for (int i = 0; i < size; i++) {
+      assertEquals(linked.getObject(i), indexed.getObject(i));
+    }
+    assertEquals(size - 1, indexed.getObject(size - 1));
+  }
+
+  /**
+   * Compares the time taken to read every index of a YailList and of an
+   * ArrayYailList holding the same items. Reading index i of a YailList
+   * walks i pairs, so the loop is quadratic, while an ArrayYailList reads
+   * each index in constant time. Timing is too machine dependent to run
+   * with the regular tests; remove the @Ignore to run it.
+   */
+  @Ignore("Benchmark; run manually")
+  @Test
+  public void benchmarkIndexedAccess() {
+    final int size = 20000;
+    List<Integer> items = new ArrayList<Integer>();
+    for (int i = 0; i < size; i++) {
+      items.add(i);
+    }
+    YailList linked = YailList.makeList(items);
+    YailList indexed = ArrayYailList.makeList(items);
+    // Warm up both code paths before timing them
+    readAll(linked);
+    readAll(indexed);
+
+    long linkedNanos = timeReadAll(linked);
+    long indexedNanos = timeReadAll(indexed);
+    System.out.println("Indexed get/size of " + size + " items: YailList "
+        + linkedNanos / 1000000 + " ms, ArrayYailList " + indexedNanos / 1000000 + " ms");
+    assertTrue("ArrayYailList should be at least 10 times faster",
+        linkedNanos > 10 * indexedNanos);
+  }
+
+  private static long timeReadAll(YailList list) {
+    long start = System.nanoTime();
+    readAll(list);
+    return System.nanoTime() - start;
+  }
+
+  private static long readAll(YailList list) {
+    long sum = 0;
+    for (int i = 0; i < list.size(); i++) {
+      sum += (Integer) list.getObject(i);
+    }
+    return sum;
+  }
+}
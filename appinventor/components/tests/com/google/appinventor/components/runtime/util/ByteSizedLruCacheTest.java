@@ -0,0 +1,81 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for the ByteSizedLruCache class.
+ */
+public class ByteSizedLruCacheTest {
+
+  private static class StringCache extends ByteSizedLruCache<String, String> {
+    StringCache(long maxSize) {
+      super(maxSize);
+    }
+
+    @Override
+    protected int sizeOf(String value) {
+      return value.length();
+    }
+  }
+
+  /**
+   * Test case to ensure that the least recently used values are evicted
+   * once the values no longer fit.
+   */
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    StringCache cache = new StringCache(10);
+    cache.put("a", "aaaa");
+    cache.put("b", "bbbb");
+    assertEquals("aaaa", cache.get("a"));  // a is now more recent than b
+    cache.put("c", "cccc");
+
+    assertNull(cache.get("b"));
+    assertEquals("aaaa", cache.get("a"));
+    assertEquals("cccc", cache.get("c"));
+    assertEquals(8, cache.size());
+    assertEquals(1, cache.evictionCount());
+  }
+
+  /**
+   * Test case to ensure that replacing a value updates the size, and that
+   * values larger than the cache are not kept.
+   */
+  @Test
+  public void testReplaceAndOversized() {
+    StringCache cache = new StringCache(10);
+    cache.put("a", "aaaa");
+    cache.put("a", "aa");
+    assertEquals(2, cache.size());
+
+    cache.put("a", "aaaaaaaaaaaa");
+    assertNull(cache.get("a"));
+    assertEquals(0, cache.size());
+  }
+
+  /**
+   * Test case to ensure that hits and misses are counted.
+   */
+  @Test
+  public void testStatistics() {
+    StringCache cache = new StringCache(10);
+    cache.put("a", "a");
+    cache.get("a");
+    cache.get("a");
+    cache.get("b");
+
+    assertEquals(2, cache.hitCount());
+    assertEquals(1, cache.missCount());
+    cache.clear();
+    assertEquals(0, cache.count());
+    assertEquals(0, cache.size());
+  }
+}
@@ -0,0 +1,116 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2019-2020 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import com.github.mikephil.charting.data.Entry;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for the ChartDownsamplingUtil utility class.
+ */
+public class ChartDownsamplingUtilTest {
+  /**
+   * Test case to ensure that downsampling a List smaller than the
+   * threshold returns all the entries.
+   */
+  @Test
+  public void testDownsampleBelowThreshold() {
+    List<Entry> entries = createEntries(10);
+    List<Entry> result = ChartDownsamplingUtil.largestTriangleThreeBuckets(entries, 20);
+
+    assertEquals(entries, result);
+  }
+
+  /**
+   * Test case to ensure that downsampling returns exactly threshold
+   * entries, and that the first and last entries are kept.
+   */
+  @Test
+  public void testDownsampleKeepsEndpoints() {
+    List<Entry> entries = createEntries(10000);
+    List<Entry> result = ChartDownsamplingUtil.largestTriangleThreeBuckets(entries, 100);
+
+    assertEquals(100, result.size());
+    assertSame(entries.get(0), result.get(0));
+    assertSame(entries.get(entries.size() - 1), result.get(result.size() - 1));
+  }
+
+  /**
+   * Test case to ensure that downsampled entries remain sorted by x value.
+   */
+  @Test
+  public void testDownsampleKeepsOrder() {
+    List<Entry> result = ChartDownsamplingUtil.largestTriangleThreeBuckets(createEntries(5000), 250);
+
+    for (int i = 1; i < result.size(); ++i) {
+      assertTrue(result.get(i - 1).getX() < result.get(i).getX());
+    }
+  }
+
+  /**
+   * Test case to ensure that a single spike in the data is preserved
+   * by the downsampling.
+   */
+  @Test
+  public void testDownsampleKeepsPeak() {
+    List<Entry> entries = new ArrayList<Entry>();
+
+    for (int i = 0; i < 1000; ++i) {
+      entries.add(new Entry(i, i == 500 ? 100f : 0f));
+    }
+
+    List<Entry> result = ChartDownsamplingUtil.largestTriangleThreeBuckets(entries, 10);
+
+    boolean peakFound = false;
+
+    for (Entry entry : result) {
+      peakFound |= entry.getY() == 100f;
+    }
+
+    assertTrue(peakFound);
+  }
+
+  /**
+   * Test case to ensure that viewport downsampling keeps the whole x range
+   * while rendering the visible range in more detail than the rest.
+   */
+  @Test
+  public void testDownsampleForViewport() {
+    List<Entry> entries = createEntries(10000);
+    List<Entry> result = ChartDownsamplingUtil.downsampleForViewport(entries, 4000f, 5000f, 100);
+
+    assertSame(entries.get(0), result.get(0));
+    assertSame(entries.get(entries.size() - 1), result.get(result.size() - 1));
+
+    int visible = 0;
+
+    for (Entry entry : result) {
+      if (entry.getX() >= 4000f && entry.getX() <= 5000f) {
+        visible++;
+      }
+    }
+
+    assertTrue(visible >= 95);
+    assertTrue(result.size() <= 300);
+  }
+
+  private static List<Entry> createEntries(int count) {
+    List<Entry> entries = new ArrayList<Entry>();
+
+    for (int i = 0; i < count; ++i) {
+      entries.add(new Entry(i, (float) Math.sin(i / 50.0)));
+    }
+
+    return entries;
+  }
+}
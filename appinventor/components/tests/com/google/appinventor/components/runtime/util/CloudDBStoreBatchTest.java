@@ -0,0 +1,274 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the CloudDBStoreBatch class.
+ */
+public class CloudDBStoreBatchTest {
+  private static final String SCRIPT = "return 1";
+  private static final String SCRIPT_SHA1 = "e0e1f9fabfc9d4800c877a703b823ac0578ff8db";
+
+  private FakeRedisServer server;
+  private Jedis jedis;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new FakeRedisServer();
+    jedis = new Jedis("localhost", server.getPort());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    jedis.close();
+    server.close();
+  }
+
+  /**
+   * Test case to ensure that consecutive stores to the same tag are
+   * coalesced, keeping all of their values in order.
+   */
+  @Test
+  public void testCoalesceSameTag() {
+    CloudDBStoreBatch batch = new CloudDBStoreBatch();
+    batch.add("x", "1");
+    batch.add("x", "2");
+    batch.add("x", "3");
+
+    assertEquals(1, batch.size());
+    assertEquals("x", batch.getTag(0));
+    assertEquals("[\"1\",\"2\",\"3\"]", batch.getValueList(0).toString());
+  }
+
+  /**
+   * Test case to ensure that stores to other tags in between are not
+   * reordered, so that listeners see the values in the order stored.
+   */
+  @Test
+  public void testKeepsOrderOfTags() {
+    CloudDBStoreBatch batch = new CloudDBStoreBatch();
+    batch.add("x", "1");
+    batch.add("y", "2");
+    batch.add("x", "3");
+
+    assertEquals(3, batch.size());
+    assertEquals("x", batch.getTag(0));
+    assertEquals("y", batch.getTag(1));
+    assertEquals("x", batch.getTag(2));
+    assertEquals("[\"3\"]", batch.getValueList(2).toString());
+  }
+
+  /**
+   * Test case to ensure that an empty batch is not sent.
+   */
+  @Test
+  public void testEmptyBatchIsNotSent() {
+    CloudDBStoreBatch batch = new CloudDBStoreBatch();
+
+    assertEquals(0, batch.size());
+    batch.execute(jedis, SCRIPT, SCRIPT_SHA1, "project");
+    assertEquals(0, server.getCommands().size());
+  }
+
+  /**
+   * Test case to ensure that a batch is sent as a single MULTI/EXEC block,
+   * with one script invocation per coalesced tag.
+   */
+  @Test
+  public void testPipelinedRoundTrip() {
+    server.loadScript();
+    CloudDBStoreBatch batch = new CloudDBStoreBatch();
+    batch.add("x", "1");
+    batch.add("x", "2");
+    batch.add("y", "3");
+
+    batch.execute(jedis, SCRIPT, SCRIPT_SHA1, "project");
+
+    assertEquals(Arrays.asList(
+        Arrays.asList("MULTI"),
+        Arrays.asList("EVALSHA", SCRIPT_SHA1, "1", "x", "2", "[\"1\",\"2\"]", "project"),
+        Arrays.asList("EVALSHA", SCRIPT_SHA1, "1", "y", "3", "[\"3\"]", "project"),
+        Arrays.asList("EXEC")), server.getCommands());
+  }
+
+  /**
+   * Test case to ensure that the store script is loaded and the batch is
+   * sent again if the server does not have the script cached.
+   */
+  @Test
+  public void testLoadsMissingScript() {
+    CloudDBStoreBatch batch = new CloudDBStoreBatch();
+    batch.add("x", "1");
+
+    batch.execute(jedis, SCRIPT, SCRIPT_SHA1, "project");
+
+    List<List<String>> commands = server.getCommands();
+    assertEquals(7, commands.size());
+    assertEquals(Arrays.asList("SCRIPT", "load", SCRIPT), commands.get(3));
+    assertEquals(Arrays.asList("EXEC"), commands.get(6));
+    assertTrue(server.isScriptLoaded());
+  }
+
+  /**
+   * Test case to ensure that an error returned by one of the scripts is
+   * reported.
+   */
+  @Test
+  public void testScriptErrorIsReported() {
+    server.loadScript();
+    server.failScripts();
+    CloudDBStoreBatch batch = new CloudDBStoreBatch();
+    batch.add("x", "1");
+
+    try {
+      batch.execute(jedis, SCRIPT, SCRIPT_SHA1, "project");
+      fail();
+    } catch (JedisDataException e) {
+      assertEquals("ERR script failed", e.getMessage());
+    }
+  }
+
+  /**
+   * A minimal in-process Redis server which understands the commands used
+   * by CloudDBStoreBatch and records the commands it receives.
+   */
+  private static class FakeRedisServer implements Runnable {
+    private final ServerSocket serverSocket;
+    private final Thread thread;
+    private final List<List<String>> commands =
+        Collections.synchronizedList(new ArrayList<List<String>>());
+    private volatile boolean scriptLoaded = false;
+    private volatile boolean failScripts = false;
+
+    FakeRedisServer() throws IOException {
+      serverSocket = new ServerSocket(0);
+      thread = new Thread(this);
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    int getPort() {
+      return serverSocket.getLocalPort();
+    }
+
+    void loadScript() {
+      scriptLoaded = true;
+    }
+
+    void failScripts() {
+      failScripts = true;
+    }
+
+    boolean isScriptLoaded() {
+      return scriptLoaded;
+    }
+
+    List<List<String>> getCommands() {
+      return new ArrayList<List<String>>(commands);
+    }
+
+    void close() throws IOException {
+      serverSocket.close();
+    }
+
+    @Override
+    public void run() {
+      try (Socket socket = serverSocket.accept()) {
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        OutputStream out = socket.getOutputStream();
+        List<String> queued = new ArrayList<String>();
+        List<String> command;
+        while ((command = readCommand(in)) != null) {
+          commands.add(command);
+          String name = command.get(0);
+          if (name.equals("MULTI")) {
+            queued.clear();
+            out.write(bytes("+OK\r\n"));
+          } else if (name.equals("EVALSHA")) {
+            queued.add(!scriptLoaded ? "-NOSCRIPT No matching script\r\n"
+                : failScripts ? "-ERR script failed\r\n" : ":1\r\n");
+            out.write(bytes("+QUEUED\r\n"));
+          } else if (name.equals("EXEC")) {
+            StringBuilder reply = new StringBuilder("*" + queued.size() + "\r\n");
+            for (String result : queued) {
+              reply.append(result);
+            }
+            out.write(bytes(reply.toString()));
+          } else if (name.equals("SCRIPT")) {
+            scriptLoaded = true;
+            out.write(bytes("$40\r\n" + SCRIPT_SHA1 + "\r\n"));
+          } else {
+            out.write(bytes("-ERR unknown command\r\n"));
+          }
+          out.flush();
+        }
+      } catch (IOException e) {
+        // The test closed the server
+      }
+    }
+
+    private static List<String> readCommand(InputStream in) throws IOException {
+      String header = readLine(in);
+      if (header == null) {
+        return null;
+      }
+      int count = Integer.parseInt(header.substring(1));
+      List<String> command = new ArrayList<String>();
+      for (int i = 0; i < count; i++) {
+        int length = Integer.parseInt(readLine(in).substring(1));
+        byte[] data = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+          offset += in.read(data, offset, length - offset);
+        }
+        readLine(in);
+        command.add(new String(data, StandardCharsets.UTF_8));
+      }
+      return command;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+      StringBuilder line = new StringBuilder();
+      int c;
+      while ((c = in.read()) != '\n') {
+        if (c == -1) {
+          return null;
+        }
+        if (c != '\r') {
+          line.append((char) c);
+        }
+      }
+      return line.toString();
+    }
+
+    private static byte[] bytes(String reply) {
+      return reply.getBytes(StandardCharsets.UTF_8);
+    }
+  }
+}
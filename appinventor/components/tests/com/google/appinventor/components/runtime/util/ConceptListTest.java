@@ -0,0 +1,105 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the ConceptList class.
+ */
+public class ConceptListTest {
+
+  /**
+   * Test case to ensure that queries are paged and that the search text is
+   * escaped.
+   */
+  @Test
+  public void testBuildQuery() {
+    String query = ConceptList.buildQuery("http://example.com/type",
+        "http://example.com/Thing", "en", "", 100, 0);
+    assertTrue(query.endsWith("GROUP BY ?uri ORDER BY ?label ?uri LIMIT 100"));
+    assertFalse(query.contains("CONTAINS"));
+
+    query = ConceptList.buildQuery("http://example.com/type",
+        "http://example.com/Thing", "en", "Say \"Hi\"\\", 50, 150);
+    assertTrue(query.contains("FILTER(CONTAINS(LCASE(STR(?lbl)), \"say \\\"hi\\\"\\\\\"))"));
+    assertTrue(query.endsWith("LIMIT 50 OFFSET 150"));
+  }
+
+  /**
+   * Test case to ensure that filtering ignores case and pages through the
+   * matches.
+   */
+  @Test
+  public void testFilter() {
+    ConceptList list = new ConceptList();
+    list.add("Apple", "urn:a");
+    list.add("Banana", "urn:b");
+    list.add("Pineapple", "urn:c");
+    list.add("Grape", "urn:d");
+    assertEquals(Arrays.asList(0, 2, 3), list.filter("AP", 0, 10));
+    assertEquals(Arrays.asList(2), list.filter("ap", 1, 1));
+    assertEquals(Arrays.asList(), list.filter("cherry", 0, 10));
+  }
+
+  /**
+   * Test case to ensure that a list read back from a file matches the list
+   * that was written, and that damaged files are ignored.
+   */
+  @Test
+  public void testReadWrite() throws IOException {
+    File dir = File.createTempFile("concepts", "");
+    dir.delete();
+    File file = new File(dir, ConceptList.cacheKey("http://example.com/sparql",
+        "http://example.com/type", "http://example.com/Thing", "en"));
+    try {
+      assertNull(ConceptList.read(file));
+      ConceptList list = new ConceptList();
+      list.add("B\u00f8ston", "urn:a");
+      list.add("Paris", "urn:b");
+      list.setComplete(true);
+      list.write(file);
+
+      ConceptList copy = ConceptList.read(file);
+      assertEquals(2, copy.size());
+      assertEquals("B\u00f8ston", copy.getLabel(0));
+      assertEquals("urn:b", copy.getUri(1));
+      assertTrue(copy.isComplete());
+      assertEquals(list.getCreated(), copy.getCreated());
+
+      FileOutputStream out = new FileOutputStream(file);
+      out.write(new byte[] {0, 0, 0, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 5});
+      out.close();
+      assertNull(ConceptList.read(file));
+    } finally {
+      file.delete();
+      dir.delete();
+    }
+  }
+
+  /**
+   * Test case to ensure that lists with labels in different languages are
+   * kept in different files.
+   */
+  @Test
+  public void testCacheKeyLanguage() {
+    String english = ConceptList.cacheKey("http://example.com/sparql",
+        "http://example.com/type", "http://example.com/Thing", "en");
+    String french = ConceptList.cacheKey("http://example.com/sparql",
+        "http://example.com/type", "http://example.com/Thing", "fr");
+    assertFalse(english.equals(french));
+  }
+}
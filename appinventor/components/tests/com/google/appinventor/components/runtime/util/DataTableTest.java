@@ -0,0 +1,121 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2019-2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * Unit tests for the DataTable class.
+ */
+public class DataTableTest {
+  private static final String CSV = "X,Y,Name\n1,2.5,a\n2,-3,b\n3,4,c\n";
+
+  /**
+   * Test case to ensure that the rows, columns and column names of a parsed
+   * CSV table are equal to the ones built from the row-oriented YailLists.
+   */
+  @Test
+  public void testCsvMatchesTranspose() throws Exception {
+    DataTable table = DataTable.fromCsv(new StringReader(CSV), null);
+    YailList rows = CsvUtil.fromCsvTable(CSV);
+
+    assertEquals(rows, table.getRows());
+    assertEquals(ChartDataSourceUtil.getTranspose(rows), table.getColumns());
+    assertEquals(rows.getObject(0), table.getColumnNames());
+  }
+
+  /**
+   * Test case to ensure that the cells of numeric columns are returned with
+   * the same text as in the file.
+   */
+  @Test
+  public void testNumericColumns() throws Exception {
+    DataTable table = DataTable.fromCsv(new StringReader(CSV), null);
+
+    assertEquals(YailList.makeList(Arrays.asList("Y", "2.5", "-3", "4")), table.getColumn("Y"));
+  }
+
+  /**
+   * Test case to ensure that numbers which cannot be formatted back to
+   * exactly the same text are kept as text.
+   */
+  @Test
+  public void testNumbersKeepTheirText() throws Exception {
+    DataTable table = DataTable.fromCsv(new StringReader("A\n1.50\n007\n"), null);
+
+    assertEquals(YailList.makeList(Arrays.asList("A", "1.50", "007")), table.getColumn("A"));
+  }
+
+  /**
+   * Test case to ensure that rows of uneven length keep their length, while
+   * the columns are padded with blank values.
+   */
+  @Test
+  public void testUnevenRows() throws Exception {
+    String csv = "X,Y\n1\n2,3,4\n";
+    DataTable table = DataTable.fromCsv(new StringReader(csv), null);
+    YailList rows = CsvUtil.fromCsvTable(csv);
+
+    assertEquals(rows, table.getRows());
+    assertEquals(ChartDataSourceUtil.getTranspose(rows), table.getColumns());
+  }
+
+  /**
+   * Test case to ensure that only the selected columns are read.
+   */
+  @Test
+  public void testSelectedColumns() throws Exception {
+    DataTable table = DataTable.fromCsv(new StringReader(CSV), Arrays.asList("Name", "X"));
+
+    assertEquals(2, table.getColumnCount());
+    assertEquals(YailList.makeList(Arrays.asList("X", "Name")), table.getColumnNames());
+    assertEquals(YailList.makeList(Arrays.asList("Name", "a", "b", "c")), table.getColumn("Name"));
+    assertEquals(new YailList(), table.getColumn("Y"));
+  }
+
+  /**
+   * Test case to ensure that the columns parsed from JSON are the same as
+   * the ones returned by JsonUtil, and that the rows are padded with blank
+   * values.
+   */
+  @Test
+  public void testFromJson() throws Exception {
+    String json = "{\"a\": [1, 2.5, \"1.50\", true], \"b\": 3, \"c\": \"x\"}";
+    DataTable table = DataTable.fromJson(json, null);
+    YailList columns = JsonUtil.getColumnsFromJSON(json);
+
+    assertEquals(columns, table.getColumns());
+    assertEquals(ChartDataSourceUtil.getTranspose(columns), table.getRows());
+  }
+
+  /**
+   * Test case to ensure that only the selected columns are read from JSON.
+   */
+  @Test
+  public void testFromJsonSelectedColumns() throws Exception {
+    DataTable table = DataTable.fromJson("{\"a\": [1, 2], \"b\": [3]}", Arrays.asList("b"));
+
+    assertEquals(YailList.makeList(Arrays.asList("b")), table.getColumnNames());
+    assertEquals(YailList.makeList(Arrays.asList("b", "3")), table.getColumn("b"));
+  }
+
+  /**
+   * Test case to ensure that an empty input results in an empty table.
+   */
+  @Test
+  public void testEmpty() throws Exception {
+    DataTable table = DataTable.fromCsv(new StringReader(""), null);
+
+    assertEquals(0, table.getRowCount());
+    assertEquals(new YailList(), table.getRows());
+    assertEquals(new YailList(), table.getColumnNames());
+  }
+}
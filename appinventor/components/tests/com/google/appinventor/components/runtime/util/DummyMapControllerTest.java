@@ -277,4 +277,39 @@ public class DummyMapControllerTest {
   public void testGetOverlayCount() {
     mapController.getOverlayCount();
   }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testSetFeatureClustering() {
+    mapController.setFeatureClustering(true);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testIsFeatureClustering() {
+    mapController.isFeatureClustering();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testSetFeatureCulling() {
+    mapController.setFeatureCulling(true);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testIsFeatureCulling() {
+    mapController.isFeatureCulling();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGetRenderedFeatureCount() {
+    mapController.getRenderedFeatureCount();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGetCulledFeatureCount() {
+    mapController.getCulledFeatureCount();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGetClusterCount() {
+    mapController.getClusterCount();
+  }
 }
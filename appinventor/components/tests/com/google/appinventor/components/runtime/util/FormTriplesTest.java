@@ -0,0 +1,132 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the FormTriples class.
+ */
+public class FormTriplesTest {
+
+  private static final Model M = ModelFactory.createDefaultModel();
+
+  private static Statement name(String subject, String value) {
+    return M.createStatement(M.createResource(subject),
+        M.createProperty("http://xmlns.com/foaf/0.1/name"), value);
+  }
+
+  private static Statement type(String subject) {
+    return M.createStatement(M.createResource(subject), RDF.type,
+        M.createResource("http://xmlns.com/foaf/0.1/Person"));
+  }
+
+  /**
+   * Test case to ensure that only the triples of changed fields are reported.
+   */
+  @Test
+  public void testChangedFields() {
+    FormTriples triples = new FormTriples();
+    Model added = ModelFactory.createDefaultModel();
+    Model removed = ModelFactory.createDefaultModel();
+    triples.begin("urn:a");
+    triples.put("type", "urn:a", Arrays.asList(type("urn:a")));
+    triples.put("name", "Ada", Arrays.asList(name("urn:a", "Ada")));
+    triples.commit(added, removed);
+    assertEquals(2, added.size());
+    assertTrue(removed.isEmpty());
+
+    added = ModelFactory.createDefaultModel();
+    triples.begin("urn:a");
+    assertTrue(triples.isCurrent("type", "urn:a"));
+    triples.keep("type");
+    assertFalse(triples.isCurrent("name", "Grace"));
+    triples.put("name", "Grace", Arrays.asList(name("urn:a", "Grace")));
+    triples.commit(added, removed);
+    assertEquals(1, added.size());
+    assertTrue(added.contains(name("urn:a", "Grace")));
+    assertEquals(1, removed.size());
+    assertTrue(removed.contains(name("urn:a", "Ada")));
+    assertEquals(2, triples.getStatements().size());
+  }
+
+  /**
+   * Test case to ensure that a triple generated by several fields is kept
+   * until no field generates it, and that fields missing from a submission
+   * are removed.
+   */
+  @Test
+  public void testSharedTriples() {
+    FormTriples triples = new FormTriples();
+    Model added = ModelFactory.createDefaultModel();
+    Model removed = ModelFactory.createDefaultModel();
+    triples.begin("urn:a");
+    triples.put("first", 1, Arrays.asList(type("urn:b"), name("urn:b", "Ada")));
+    triples.put("second", 1, Arrays.asList(type("urn:b")));
+    triples.commit(added, removed);
+    assertEquals(2, added.size());
+
+    added = ModelFactory.createDefaultModel();
+    triples.begin("urn:a");
+    triples.put("first", 2, Collections.<Statement>emptyList());
+    triples.keep("second");
+    triples.commit(added, removed);
+    assertTrue(added.isEmpty());
+    assertEquals(1, removed.size());
+    assertTrue(removed.contains(name("urn:b", "Ada")));
+
+    removed = ModelFactory.createDefaultModel();
+    triples.begin("urn:a");
+    triples.keep("first");
+    triples.commit(added, removed);
+    assertTrue(added.isEmpty());
+    assertTrue(removed.contains(type("urn:b")));
+    assertTrue(triples.getStatements().isEmpty());
+  }
+
+  /**
+   * Test case to ensure that an aborted submission changes nothing, and that
+   * a submission for a new subject does not remove the old triples.
+   */
+  @Test
+  public void testAbortAndNewSubject() {
+    FormTriples triples = new FormTriples();
+    Model added = ModelFactory.createDefaultModel();
+    Model removed = ModelFactory.createDefaultModel();
+    triples.begin("urn:a");
+    triples.putSubject("nested", "urn:n");
+    triples.put("name", "Ada", Arrays.asList(name("urn:a", "Ada")));
+    triples.commit(added, removed);
+    assertEquals("urn:n", triples.getSubject("nested"));
+
+    triples.begin("urn:a");
+    triples.put("name", "Grace", Arrays.asList(name("urn:a", "Grace")));
+    triples.abort();
+    assertTrue(triples.isCurrent("name", "Ada"));
+
+    added = ModelFactory.createDefaultModel();
+    triples.begin("urn:b");
+    assertNull(triples.getSubject("nested"));
+    triples.put("name", "Ada", Arrays.asList(name("urn:b", "Ada")));
+    triples.commit(added, removed);
+    assertEquals(1, added.size());
+    assertTrue(removed.isEmpty());
+    assertEquals("urn:b", triples.getSubject());
+  }
+}
@@ -0,0 +1,97 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the GeoJSONReader class.
+ */
+public class GeoJSONReaderTest {
+
+  private static final String POINT_BOSTON = "{\"type\":\"Feature\",\"geometry\":"
+      + "{\"type\":\"Point\",\"coordinates\":[-71.0,42]},\"properties\":{\"title\":\"B\\u00f8ston\","
+      + "\"visible\":true,\"height\":null}}";
+  private static final String LINE_PARIS = "{\"type\":\"Feature\",\"geometry\":"
+      + "{\"type\":\"LineString\",\"coordinates\":[[2.3,48.8],[2.4,48.9]]}}";
+
+  /**
+   * Test case to ensure that features are read one at a time in the same
+   * form as GeoJSONUtil.getGeoJSONFeatures, and that the type is read even
+   * when it follows the features.
+   */
+  @Test
+  public void testNextFeature() throws IOException, JSONException {
+    GeoJSONReader reader = new GeoJSONReader(new StringReader(
+        "\uFEFF { \"bbox\": [1, 2], \"features\": [ " + POINT_BOSTON + " , " + LINE_PARIS
+        + " ], \"type\": \"FeatureCollection\" }"));
+    YailList feature = reader.nextFeature();
+    assertEquals(1, reader.getFeatureCount());
+    assertNull(reader.getType());
+    assertEquals("type", ((YailList) feature.getObject(0)).getObject(0));
+    YailList properties = (YailList) ((YailList) feature.getObject(2)).getObject(1);
+    assertEquals(2, properties.size());  // null is dropped
+    assertEquals("B\u00f8ston", ((YailList) properties.getObject(0)).getObject(1));
+    assertEquals(Boolean.TRUE, ((YailList) properties.getObject(1)).getObject(1));
+
+    double[] bounds = GeoJSONReader.boundsOf(reader.nextFeature());
+    assertEquals(48.9, bounds[0], 0);
+    assertEquals(2.4, bounds[1], 0);
+    assertEquals(48.8, bounds[2], 0);
+    assertEquals(2.3, bounds[3], 0);
+
+    assertNull(reader.nextFeature());
+    assertEquals("FeatureCollection", reader.getType());
+    assertEquals(2, reader.getFeatureCount());
+  }
+
+  /**
+   * Test case to ensure that features outside of the bounds are skipped.
+   */
+  @Test
+  public void testBounds() throws IOException, JSONException {
+    GeoJSONReader reader = new GeoJSONReader(new StringReader(
+        "{\"type\":\"FeatureCollection\",\"features\":[" + POINT_BOSTON + "," + LINE_PARIS + "]}"));
+    reader.setBounds(49, 2, 48, 3);
+    YailList feature = reader.nextFeature();
+    assertEquals(2.3, GeoJSONReader.boundsOf(feature)[3], 0);
+    assertNull(reader.nextFeature());
+    assertEquals(1, reader.getFeatureCount());
+    assertEquals(1, reader.getSkippedCount());
+  }
+
+  /**
+   * Test case to ensure that malformed documents are reported.
+   */
+  @Test
+  public void testMalformed() throws IOException {
+    String[] documents = {
+      "[bad]",
+      "{\"features\":[" + POINT_BOSTON + " " + LINE_PARIS + "]}",
+      "{\"features\":[{\"type\":\"Feature\",\"geometry\":tru}]}",
+      "{\"features\":[{\"type\":\"Feature\""
+    };
+    for (String document : documents) {
+      GeoJSONReader reader = new GeoJSONReader(new StringReader(document));
+      try {
+        while (reader.nextFeature() != null) {
+          // Keep reading
+        }
+        fail("Expected JSONException for " + document);
+      } catch (JSONException e) {
+        // Expected
+      }
+    }
+  }
+}
@@ -0,0 +1,132 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the GqlCache class.
+ */
+public class GqlCacheTest {
+
+  private static final String USER_QUERY = "{ user(id: 1) { id __typename name } }";
+  private static final String USERS_QUERY = "{ users { id __typename name email } }";
+
+  /**
+   * Test case to ensure that an entity returned by a later query changes the
+   * cached results that contain it, and that each result keeps only the
+   * fields it selected.
+   */
+  @Test
+  public void testNormalization() throws JSONException {
+    GqlCache cache = new GqlCache(10, 60000);
+    cache.write(USER_QUERY, new JSONObject(
+        "{\"user\":{\"id\":1,\"__typename\":\"User\",\"name\":\"Ada\"}}"));
+    cache.write(USERS_QUERY, new JSONObject("{\"users\":["
+        + "{\"id\":1,\"__typename\":\"User\",\"name\":\"Ada L.\",\"email\":\"ada@example.com\"},"
+        + "{\"id\":2,\"__typename\":\"User\",\"name\":\"Alan\",\"email\":null}]}"));
+    assertEquals(2, cache.entityCount());
+
+    JSONObject user = cache.read(USER_QUERY).getJSONObject("user");
+    assertEquals("Ada L.", user.getString("name"));
+    assertFalse(user.has("email"));
+
+    JSONObject users = cache.read(USERS_QUERY);
+    assertEquals("Alan", users.getJSONArray("users").getJSONObject(1).getString("name"));
+    assertTrue(users.getJSONArray("users").getJSONObject(1).isNull("email"));
+    assertEquals("ada@example.com",
+        users.getJSONArray("users").getJSONObject(0).getString("email"));
+  }
+
+  /**
+   * Test case to ensure that mutation results update entities without being
+   * cached themselves.
+   */
+  @Test
+  public void testMutation() throws JSONException {
+    String mutation = "# Rename\n  mutation { rename(id: 1, name: \"Grace\") { id __typename name } }";
+    assertFalse(GqlCache.isCacheable(mutation));
+    assertTrue(GqlCache.isCacheable(USER_QUERY));
+    assertTrue(GqlCache.isCacheable("query Q { user(id: 1) { name } }"));
+
+    GqlCache cache = new GqlCache(10, 60000);
+    cache.write(USER_QUERY, new JSONObject(
+        "{\"user\":{\"id\":1,\"__typename\":\"User\",\"name\":\"Ada\"}}"));
+    cache.write(null, new JSONObject(
+        "{\"rename\":{\"id\":1,\"__typename\":\"User\",\"name\":\"Grace\"}}"));
+    assertEquals(1, cache.resultCount());
+    assertEquals("Grace", cache.read(USER_QUERY).getJSONObject("user").getString("name"));
+  }
+
+  /**
+   * Test case to ensure that the least recently used results are dropped.
+   */
+  @Test
+  public void testEviction() throws JSONException {
+    GqlCache cache = new GqlCache(2, 60000);
+    cache.write("{ a }", new JSONObject("{\"a\":1}"));
+    cache.write("{ b }", new JSONObject("{\"b\":2}"));
+    cache.read("{ a }");
+    cache.write("{ c }", new JSONObject("{\"c\":3}"));
+    assertNull(cache.read("{ b }"));
+    assertEquals(1, cache.read("{ a }").getInt("a"));
+    cache.clear();
+    assertNull(cache.read("{ c }"));
+    assertEquals(0, cache.entityCount());
+  }
+
+  /**
+   * Test case to ensure that results are no longer returned once they are
+   * older than the maximum age.
+   */
+  @Test
+  public void testExpiry() throws JSONException {
+    final long[] time = {1000};
+    GqlCache cache = new GqlCache(10, 500) {
+      @Override
+      long now() {
+        return time[0];
+      }
+    };
+    cache.write(USER_QUERY, new JSONObject(
+        "{\"user\":{\"id\":1,\"__typename\":\"User\",\"name\":\"Ada\"}}"));
+    time[0] = 1500;
+    assertEquals("Ada", cache.read(USER_QUERY).getJSONObject("user").getString("name"));
+    time[0] = 1501;
+    assertNull(cache.read(USER_QUERY));
+    assertEquals(0, cache.resultCount());
+    assertEquals(0, cache.entityCount());
+  }
+
+  /**
+   * Test case to ensure that entities are dropped once no remaining result
+   * refers to them, but kept while one still does.
+   */
+  @Test
+  public void testUnreferencedEntitiesAreDropped() throws JSONException {
+    GqlCache cache = new GqlCache(1, 60000);
+    cache.write(USER_QUERY, new JSONObject("{\"user\":{\"id\":1,\"__typename\":\"User\","
+        + "\"name\":\"Ada\",\"friend\":{\"id\":2,\"__typename\":\"User\",\"name\":\"Alan\"}}}"));
+    assertEquals(2, cache.entityCount());
+
+    // A mutation only updates the entities that results refer to
+    cache.write(null, new JSONObject(
+        "{\"create\":{\"id\":3,\"__typename\":\"User\",\"name\":\"Grace\"}}"));
+    assertEquals(2, cache.entityCount());
+
+    // Evicting the only result drops its entities
+    cache.write("{ a }", new JSONObject("{\"a\":1}"));
+    assertEquals(1, cache.resultCount());
+    assertEquals(0, cache.entityCount());
+  }
+}
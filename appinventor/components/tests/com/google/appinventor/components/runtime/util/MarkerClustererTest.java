@@ -0,0 +1,64 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the MarkerClusterer class.
+ */
+public class MarkerClustererTest {
+
+  /**
+   * Test case to ensure that nearby points share a cluster when zoomed out
+   * and separate when zoomed in.
+   */
+  @Test
+  public void testClusterByZoom() {
+    MarkerClusterer<String> clusterer = new MarkerClusterer<String>(64);
+    clusterer.add("a", 42.3601, -71.0942);
+    clusterer.add("b", 42.3602, -71.0943);
+    clusterer.add("c", 42.3581, -71.0636);  // about 2.5 km east
+
+    List<MarkerClusterer.Cluster<String>> clusters = clusterer.cluster(3);
+    assertEquals(1, clusters.size());
+    assertEquals(3, clusters.get(0).size());
+
+    clusters = clusterer.cluster(14);
+    assertEquals(2, clusters.size());
+    assertEquals(2, clusters.get(0).size());
+    assertEquals("c", clusters.get(1).getItems().get(0));
+    assertEquals(42.36015, clusters.get(0).getLatitude(), 1e-9);
+    assertEquals(42.3602, clusters.get(0).getNorth(), 0);
+    assertEquals(-71.0943, clusters.get(0).getWest(), 0);
+
+    clusters = clusterer.cluster(22);
+    assertEquals(3, clusters.size());
+  }
+
+  /**
+   * Test case to ensure that bounding boxes intersect as expected, including
+   * boxes that cross the antimeridian.
+   */
+  @Test
+  public void testIntersects() {
+    assertTrue(MarkerClusterer.intersects(10, 10, 0, 0, 5, 20, -5, 5));
+    assertFalse(MarkerClusterer.intersects(10, 10, 0, 0, 30, 20, 20, 5));
+    assertFalse(MarkerClusterer.intersects(10, 10, 0, 0, 5, 30, -5, 20));
+    // A point on the edge of the box
+    assertTrue(MarkerClusterer.intersects(5, 20, 5, 20, 5, 20, -5, 5));
+    // A box from 170 E to 170 W
+    assertTrue(MarkerClusterer.intersects(1, 175, 0, 175, 10, -170, -10, 170));
+    assertTrue(MarkerClusterer.intersects(1, -175, 0, -175, 10, -170, -10, 170));
+    assertFalse(MarkerClusterer.intersects(1, 0, 0, 0, 10, -170, -10, 170));
+  }
+}
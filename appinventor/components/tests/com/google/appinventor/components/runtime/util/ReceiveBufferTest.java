@@ -0,0 +1,101 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the ReceiveBuffer class.
+ */
+public class ReceiveBufferTest {
+
+  /**
+   * Test case to ensure that messages are split by delimiter or by size and
+   * that incomplete messages stay in the buffer.
+   */
+  @Test
+  public void testTakeMessages() {
+    ReceiveBuffer buffer = new ReceiveBuffer(16);
+    write(buffer, "12,34\n56");
+    List<byte[]> messages = buffer.takeMessages(-1, (byte) '\n');
+    assertEquals(1, messages.size());
+    assertEquals("12,34\n", new String(messages.get(0)));
+    assertEquals(2, buffer.available());
+
+    write(buffer, "\n7890");
+    messages = buffer.takeMessages(-1, (byte) '\n');
+    assertEquals(1, messages.size());
+    assertEquals("56\n", new String(messages.get(0)));
+
+    messages = buffer.takeMessages(3, (byte) '\n');
+    assertEquals(1, messages.size());
+    assertEquals("789", new String(messages.get(0)));
+    assertEquals(1, buffer.available());
+    assertEquals(0, buffer.getOverflowCount());
+  }
+
+  /**
+   * Test case to ensure that the oldest bytes are dropped and counted when
+   * the buffer is full, including when the data wraps around the end.
+   */
+  @Test
+  public void testOverflow() {
+    ReceiveBuffer buffer = new ReceiveBuffer(8);
+    write(buffer, "abcdef");
+    byte[] bytes = new byte[4];
+    assertEquals(4, buffer.read(bytes, 0, 4));
+    write(buffer, "ghijklmn");
+    assertEquals(2, buffer.getOverflowCount());
+    assertEquals(8, buffer.available());
+    List<byte[]> messages = buffer.takeMessages(8, (byte) 0);
+    assertEquals("ghijklmn", new String(messages.get(0)));
+
+    write(buffer, "0123456789ABCDEF");
+    assertEquals(10, buffer.getOverflowCount());
+    assertEquals("89ABCDEF", new String(buffer.takeMessages(8, (byte) 0).get(0)));
+    assertEquals(30, buffer.getReceivedCount());
+  }
+
+  /**
+   * Test case to ensure that the stream view waits for data and ends when
+   * the buffer is closed.
+   */
+  @Test
+  public void testInputStream() throws IOException, InterruptedException {
+    final ReceiveBuffer buffer = new ReceiveBuffer(8);
+    InputStream in = buffer.getInputStream();
+    Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(50);
+        } catch (InterruptedException e) {
+          return;
+        }
+        write(buffer, "x");
+      }
+    });
+    writer.start();
+    assertEquals('x', in.read());
+    writer.join();
+    assertEquals(0, in.available());
+    buffer.close();
+    assertEquals(-1, in.read());
+    assertTrue(buffer.takeMessages(1, (byte) 0).isEmpty());
+  }
+
+  private static void write(ReceiveBuffer buffer, String text) {
+    byte[] bytes = text.getBytes();
+    buffer.write(bytes, 0, bytes.length);
+  }
+}
@@ -0,0 +1,98 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the ReplCodeCache class.
+ */
+public class ReplCodeCacheTest {
+  private static final String BLOCK = "\"abc\"";
+  private static final String EVENT =
+      "(define-event Button1 Click() (set-this-form) (call-yail-primitive ...))";
+  private static final String PROCEDURE = "(def (p$go) (begin #t))";
+
+  /**
+   * Test case to ensure that an unchanged definition is only evaluated once.
+   */
+  @Test
+  public void testUnchangedDefinitionIsSkipped() {
+    ReplCodeCache cache = new ReplCodeCache();
+
+    assertTrue(cache.shouldEvaluate(BLOCK, EVENT));
+    assertFalse(cache.shouldEvaluate(BLOCK, EVENT));
+    assertTrue(cache.shouldEvaluate("\"def\"", PROCEDURE));
+    assertFalse(cache.shouldEvaluate("\"def\"", PROCEDURE));
+  }
+
+  /**
+   * Test case to ensure that a changed definition is evaluated again.
+   */
+  @Test
+  public void testChangedDefinitionIsEvaluated() {
+    ReplCodeCache cache = new ReplCodeCache();
+
+    assertTrue(cache.shouldEvaluate(BLOCK, EVENT));
+    assertTrue(cache.shouldEvaluate(BLOCK, EVENT.replace("Click", "LongClick")));
+    assertTrue(cache.shouldEvaluate(BLOCK, EVENT));
+  }
+
+  /**
+   * Test case to ensure that code which is not a definition, or not from a
+   * block, is always evaluated.
+   */
+  @Test
+  public void testOtherCodeIsAlwaysEvaluated() {
+    ReplCodeCache cache = new ReplCodeCache();
+    String global = "(def g$count 0)";
+
+    assertTrue(cache.shouldEvaluate(BLOCK, global));
+    assertTrue(cache.shouldEvaluate(BLOCK, global));
+    assertTrue(cache.shouldEvaluate("-1", EVENT));
+    assertTrue(cache.shouldEvaluate("-1", EVENT));
+    assertEquals(0, cache.size());
+  }
+
+  /**
+   * Test case to ensure that forgotten and cleared definitions are
+   * evaluated again.
+   */
+  @Test
+  public void testForgetAndClear() {
+    ReplCodeCache cache = new ReplCodeCache();
+
+    cache.shouldEvaluate(BLOCK, EVENT);
+    cache.forget(BLOCK);
+    assertTrue(cache.shouldEvaluate(BLOCK, EVENT));
+
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertTrue(cache.shouldEvaluate(BLOCK, EVENT));
+  }
+
+  /**
+   * Test case to ensure that a definition is evaluated again after other
+   * code was sent for its block, as when an event block is disabled and
+   * enabled again.
+   */
+  @Test
+  public void testDisableAndEnable() {
+    ReplCodeCache cache = new ReplCodeCache();
+    String unregister = "(com.google.appinventor.components.runtime.EventDispatcher"
+        + ":unregisterEventForDelegation (SimpleForm:getActiveForm) 'Button1 'Click)";
+
+    assertTrue(cache.shouldEvaluate(BLOCK, EVENT));
+    assertTrue(cache.shouldEvaluate(BLOCK, unregister));
+    assertEquals(0, cache.size());
+    assertTrue(cache.shouldEvaluate(BLOCK, EVENT));
+    assertFalse(cache.shouldEvaluate(BLOCK, EVENT));
+  }
+}
@@ -0,0 +1,112 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the RetValQueue class.
+ */
+public class RetValQueueTest {
+
+  private static JSONObject retval(String value) throws Exception {
+    JSONObject retval = new JSONObject();
+    retval.put("status", "OK");
+    retval.put("value", value);
+    return retval;
+  }
+
+  /**
+   * Test case to ensure that values are numbered in order and sent again
+   * until they are acknowledged.
+   */
+  @Test
+  public void testValuesAreKeptUntilAcknowledged() throws Exception {
+    RetValQueue queue = new RetValQueue();
+    assertEquals(1, queue.add(retval("a")));
+    assertEquals(2, queue.add(retval("b")));
+
+    JSONArray values = new JSONArray(queue.take(0));
+    assertEquals(2, values.length());
+    assertEquals("a", values.getJSONObject(0).getString("value"));
+    assertEquals(2, values.getJSONObject(1).getLong("seq"));
+
+    // The response was lost, so the same values are sent again
+    assertEquals(2, new JSONArray(queue.take(0)).length());
+
+    queue.acknowledge(1);
+    assertEquals(1, queue.size());
+    values = new JSONArray(queue.take(1));
+    assertEquals(1, values.length());
+    assertEquals("b", values.getJSONObject(0).getString("value"));
+    assertTrue(queue.getLatency() >= 0);
+  }
+
+  /**
+   * Test case to ensure that only values after the acknowledgement are
+   * pending.
+   */
+  @Test
+  public void testHasPending() throws Exception {
+    RetValQueue queue = new RetValQueue();
+    assertFalse(queue.hasPending(0));
+    queue.add(retval("a"));
+    assertTrue(queue.hasPending(0));
+    assertFalse(queue.hasPending(1));
+  }
+
+  /**
+   * Test case to ensure that a negative acknowledgement takes all of the
+   * values, as the Blocks Editors that do not acknowledge values expect.
+   */
+  @Test
+  public void testNegativeAcknowledgementDrains() throws Exception {
+    RetValQueue queue = new RetValQueue();
+    queue.add(retval("a"));
+    queue.add(retval("b"));
+
+    assertEquals(2, new JSONArray(queue.take(-1)).length());
+    assertEquals(0, queue.size());
+    assertEquals("[]", queue.take(-1));
+    assertEquals(-1, queue.getLatency(), 0);
+  }
+
+  /**
+   * Test case to ensure that an acknowledgement of values that were never
+   * produced is ignored.
+   */
+  @Test
+  public void testStaleAcknowledgement() throws Exception {
+    RetValQueue queue = new RetValQueue();
+    queue.add(retval("a"));
+
+    assertEquals(0, queue.validate(42));
+    assertEquals(1, queue.validate(1));
+  }
+
+  /**
+   * Test case to ensure that the oldest values are dropped when the Blocks
+   * Editor stops acknowledging them.
+   */
+  @Test
+  public void testQueueIsBounded() throws Exception {
+    RetValQueue queue = new RetValQueue();
+    for (int i = 0; i < RetValQueue.MAX_SIZE + 10; i++) {
+      queue.add(retval("v" + i));
+    }
+
+    assertEquals(RetValQueue.MAX_SIZE, queue.size());
+    JSONArray values = new JSONArray(queue.take(0));
+    assertEquals(11, values.getJSONObject(0).getLong("seq"));
+    assertEquals("v10", values.getJSONObject(0).getString("value"));
+  }
+}
@@ -0,0 +1,77 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the SensorBatcher class.
+ */
+public class SensorBatcherTest {
+
+  /**
+   * Test case to ensure that samples are collected until the batch is full
+   * and that timestamps are reported in milliseconds from the time base.
+   */
+  @Test
+  public void testBatch() {
+    SensorBatcher batcher = new SensorBatcher(2);
+    assertFalse(batcher.add(0, new float[] {1, 2}));
+    batcher.setBatchSize(2);
+    batcher.setTimeBase(1000);
+    assertFalse(batcher.add(5000000L, new float[] {1, 2}));
+    assertTrue(batcher.add(7000000L, new float[] {3, 4}));
+    YailList batch = batcher.takeBatch();
+    assertEquals(2, batch.size());
+    YailList second = (YailList) batch.getObject(1);
+    assertEquals(1007L, second.getObject(0));
+    assertEquals(3.0f, second.getObject(1));
+    assertEquals(4.0f, second.getObject(2));
+    assertEquals(0, batcher.size());
+  }
+
+  /**
+   * Test case to ensure that decimation keeps the first sample of each group,
+   * or the mean of the group when averaging.
+   */
+  @Test
+  public void testDecimation() {
+    SensorBatcher batcher = new SensorBatcher(1);
+    batcher.setBatchSize(2);
+    batcher.setDecimation(3);
+    for (int i = 0; i < 5; i++) {
+      assertFalse(batcher.add(i, new float[] {i}));
+    }
+    assertTrue(batcher.add(5, new float[] {5}));
+    assertEquals(0f, batcher.getValue(0, 0), 0);
+    assertEquals(3f, batcher.getValue(1, 0), 0);
+
+    batcher.clear();
+    batcher.setAveraging(true);
+    batcher.add(0, new float[] {1});
+    batcher.add(1000000L, new float[] {2});
+    batcher.add(2000000L, new float[] {6});
+    assertEquals(1, batcher.size());
+    assertEquals(3f, batcher.getValue(0, 0), 0);
+    assertEquals(0L, batcher.getTimestamp(0));
+  }
+
+  /**
+   * Test case to ensure that event timestamps are converted to wall clock
+   * time using the time base.
+   */
+  @Test
+  public void testToWallTime() {
+    SensorBatcher batcher = new SensorBatcher(1);
+    batcher.setTimeBase(1000);
+    assertEquals(1000L, batcher.toWallTime(0));
+    assertEquals(1007L, batcher.toWallTime(7000000L));
+  }
+}
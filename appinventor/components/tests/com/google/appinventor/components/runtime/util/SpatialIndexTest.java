@@ -0,0 +1,80 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Envelope;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the SpatialIndex class.
+ */
+public class SpatialIndexTest {
+
+  /**
+   * Test case to ensure that only the items whose boxes intersect the query
+   * are returned, including across the antimeridian, and that items can be
+   * moved and removed.
+   */
+  @Test
+  public void testQuery() {
+    SpatialIndex<String> index = new SpatialIndex<String>();
+    index.insert("boston", new Envelope(-71.06, -71.06, 42.36, 42.36));
+    index.insert("paris", new Envelope(2.3, 2.4, 48.8, 48.9));
+    index.insert("fiji", new Envelope(178, 179, -18, -17));
+    for (int i = 0; i < 1000; i++) {
+      index.insert("grid" + i, new Envelope(i % 100 - 50, i % 100 - 50, i / 100 - 60, i / 100 - 60));
+    }
+    assertEquals(1003, index.size());
+
+    assertEquals(Collections.singletonList("boston"), index.query(43, -70, 42, -72));
+    assertEquals(Collections.singletonList("paris"), index.query(48.85, 2.35, 48.85, 2.35));
+    assertEquals(Collections.singletonList("fiji"), index.query(-10, -170, -20, 170));
+
+    index.insert("boston", new Envelope(2.35, 2.35, 48.85, 48.85));
+    assertEquals(1003, index.size());
+    assertTrue(index.query(43, -70, 42, -72).isEmpty());
+    assertEquals(new HashSet<String>(Arrays.asList("boston", "paris")),
+        new HashSet<String>(index.query(49, 3, 48, 2)));
+
+    index.remove("paris");
+    assertFalse(index.contains("paris"));
+    assertEquals(Collections.singletonList("boston"), index.query(49, 3, 48, 2));
+    index.clear();
+    assertEquals(0, index.size());
+    assertTrue(index.query(90, 180, -90, -180).isEmpty());
+  }
+
+  /**
+   * Test case to ensure that a distance query covers every item within the
+   * distance, including near the antimeridian and the poles.
+   */
+  @Test
+  public void testQueryDistance() {
+    SpatialIndex<String> index = new SpatialIndex<String>();
+    index.insert("boston", new Envelope(-71.06, -71.06, 42.36, 42.36));
+    index.insert("cambridge", new Envelope(-71.11, -71.11, 42.37, 42.37));
+    index.insert("east", new Envelope(179.9, 179.9, 0, 0));
+    index.insert("west", new Envelope(-179.9, -179.9, 0, 0));
+    index.insert("pole", new Envelope(-120, -120, 89.99, 89.99));
+
+    List<String> result = index.queryDistance(42.36, -71.06, 5000);
+    assertEquals(new HashSet<String>(Arrays.asList("boston", "cambridge")),
+        new HashSet<String>(result));
+    assertEquals(Collections.singletonList("boston"), index.queryDistance(42.36, -71.06, 1000));
+    assertEquals(new HashSet<String>(Arrays.asList("east", "west")),
+        new HashSet<String>(index.queryDistance(0, 180, 20000)));
+    assertEquals(Collections.singletonList("pole"), index.queryDistance(89.99, 60, 5000));
+  }
+}
@@ -0,0 +1,59 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the StartupTrace class.
+ */
+public class StartupTraceTest {
+
+  /**
+   * Test case to ensure that the times for each component are added up by
+   * phase and listed in the order the components were first recorded.
+   */
+  @Test
+  public void testRecord() {
+    StartupTrace trace = new StartupTrace();
+    trace.record("Button1", StartupTrace.CONSTRUCT, 2000000);
+    trace.record("Label1", StartupTrace.CONSTRUCT, 1000000);
+    trace.record("Button1", StartupTrace.PROPERTIES, 500000);
+    trace.record("Button1", StartupTrace.PROPERTIES, 500000);
+    trace.record("Button1", StartupTrace.INITIALIZE, 3000000);
+
+    YailList rows = trace.toYailList();
+    assertEquals(2, rows.size());
+    YailList button = (YailList) rows.getObject(0);
+    assertEquals("Button1", button.getObject(0));
+    assertEquals(2.0, (Double) button.getObject(1), 0);
+    assertEquals(1.0, (Double) button.getObject(2), 0);
+    assertEquals(3.0, (Double) button.getObject(3), 0);
+    assertEquals("Label1", ((YailList) rows.getObject(1)).getObject(0));
+  }
+
+  /**
+   * Test case to ensure that the startup time is only known once the
+   * startup has finished, and that starting over clears the trace.
+   */
+  @Test
+  public void testStartAndFinish() {
+    StartupTrace trace = new StartupTrace();
+    trace.start();
+    trace.record("Button1", StartupTrace.CONSTRUCT, 1000);
+    assertEquals(-1, trace.getStartupTime(), 0);
+
+    trace.finish();
+    assertTrue(trace.getStartupTime() >= 0);
+    assertTrue(trace.summary(5).contains("Button1"));
+
+    trace.start();
+    assertEquals(0, trace.toYailList().size());
+  }
+}
@@ -0,0 +1,142 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2021 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.query.ResultSetRewindable;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the StreamQueryEngine class.
+ */
+public class StreamQueryEngineTest {
+
+  private static final String COUNT_QUERY =
+      "SELECT (COUNT(?s) AS ?n) WHERE { ?s <http://example.com/temp> ?t }";
+  private static final Node TEMP = Node.createURI("http://example.com/temp");
+
+  private static Triple reading(int sensor, int value) {
+    return Triple.create(Node.createURI("http://example.com/sensor" + sensor), TEMP,
+        Node.createLiteral(Integer.toString(value)));
+  }
+
+  private static int count(StreamQueryEngine.WindowResult result) {
+    return result.getSelectResults().next().getLiteral("n").getInt();
+  }
+
+  /**
+   * Test case to ensure that triples leave a time window once they are older
+   * than its range, and that queries are only evaluated once per step.
+   */
+  @Test
+  public void testTimeWindow() {
+    StreamQueryEngine engine = new StreamQueryEngine();
+    engine.register("q", COUNT_QUERY, "temps", "10s", "5s", 0);
+    assertEquals(5000, engine.nextEvaluation());
+    engine.add("temps", reading(1, 20), 1000);
+    engine.add("temps", reading(2, 21), 4000);
+    engine.add("other", reading(3, 22), 4000);
+    assertTrue(engine.evaluate(4999).isEmpty());
+
+    List<StreamQueryEngine.WindowResult> results = engine.evaluate(5000);
+    assertEquals(1, results.size());
+    assertEquals("q", results.get(0).getName());
+    assertEquals(2, count(results.get(0)));
+    assertEquals(10000, engine.nextEvaluation());
+
+    // The repeated reading from sensor 1 keeps it in the graph after the
+    // first reading expires
+    engine.add("temps", reading(1, 20), 12000);
+    results = engine.evaluate(12000);
+    assertEquals(2, count(results.get(0)));
+    assertEquals(2, engine.windowSize("q"));
+    assertEquals(15000, engine.nextEvaluation());
+
+    assertEquals(1, count(engine.evaluate(15000).get(0)));
+    assertEquals(1, count(engine.evaluate(20000).get(0)));
+    assertEquals(0, count(engine.evaluate(25000).get(0)));
+    assertEquals(0, engine.getWindowGraph("q").size());
+  }
+
+  /**
+   * Test case to ensure that a count window keeps only the most recent
+   * triples.
+   */
+  @Test
+  public void testCountWindow() {
+    StreamQueryEngine engine = new StreamQueryEngine();
+    engine.register("q", COUNT_QUERY, "temps", "TRIPLES 2", "1s", 0);
+    for (int i = 0; i < 5; i++) {
+      engine.add("temps", reading(i, 20), i);
+    }
+    assertEquals(2, engine.windowSize("q"));
+    assertEquals(2, count(engine.evaluate(1000).get(0)));
+    assertEquals(2, count(engine.evaluate(100000).get(0)));
+  }
+
+  /**
+   * Test case to ensure that a query is not run again while its window is
+   * unchanged, and that the other query forms are supported.
+   */
+  @Test
+  public void testUnchangedWindow() {
+    StreamQueryEngine engine = new StreamQueryEngine();
+    engine.register("select", COUNT_QUERY, "temps", "TRIPLES 10", "1s", 0);
+    engine.register("ask", "ASK { ?s ?p \"30\" }", "temps", "TRIPLES 1", "1s", 0);
+    engine.register("construct", "CONSTRUCT { ?s a <http://example.com/Hot> } "
+        + "WHERE { ?s ?p \"30\" }", "temps", "TRIPLES 10", "2s", 0);
+    engine.add("temps", reading(1, 30), 0);
+
+    List<StreamQueryEngine.WindowResult> first = engine.evaluate(2000);
+    assertEquals(3, first.size());
+    ResultSetRewindable rows = first.get(0).getSelectResults();
+    assertEquals(1, count(first.get(0)));
+    assertTrue(first.get(1).getAskResult());
+    assertEquals(1, first.get(2).getConstructResults().size());
+
+    List<StreamQueryEngine.WindowResult> second = engine.evaluate(3000);
+    assertEquals(2, second.size());
+    assertSame(rows, second.get(0).getSelectResults());
+    assertEquals(1, count(second.get(0)));
+
+    engine.add("temps", reading(1, 31), 3500);
+    assertFalse(engine.evaluate(4000).get(1).getAskResult());
+    assertTrue(engine.unregister("ask"));
+    assertFalse(engine.unregister("ask"));
+  }
+
+  /**
+   * Test case to ensure that durations are parsed and that bad windows are
+   * rejected.
+   */
+  @Test
+  public void testParseDuration() {
+    assertEquals(500, StreamQueryEngine.parseDuration("500ms"));
+    assertEquals(10000, StreamQueryEngine.parseDuration(" 10 s"));
+    assertEquals(300000, StreamQueryEngine.parseDuration("5m"));
+    assertEquals(7200000, StreamQueryEngine.parseDuration("2H"));
+    StreamQueryEngine engine = new StreamQueryEngine();
+    for (String window : new String[] {"10", "0s", "TRIPLES 0", "ten seconds"}) {
+      try {
+        engine.register("q", COUNT_QUERY, "temps", window, "1s", 0);
+        fail("Accepted window " + window);
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+    assertTrue(engine.isEmpty());
+  }
+}